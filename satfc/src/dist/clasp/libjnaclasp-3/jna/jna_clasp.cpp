@@ -2,6 +2,7 @@
 // Neil Newman
 #include <iostream>
 #include <sstream>
+#include <cstdlib>
 
 #include "jna_clasp.h"
 #include <clasp/solver.h>
@@ -84,6 +85,16 @@ namespace JNA {
 		return facade_->terminate(SIGINT); 
 	}
 
+	void JNAProblem::reset() {
+		delete asyncResult_;
+		asyncResult_ = NULL;
+		delete facade_;
+		facade_ = NULL;
+		delete[] assignment_;
+		assignment_ = NULL;
+		resultState_ = r_UNKNOWN;
+	}
+
 	bool JNAProblem::onModel(const Clasp::Solver& s, const Clasp::Model& m) {
 		const Clasp::SymbolTable& index = s.symbolTable();
 		delete[] assignment_;
@@ -158,6 +169,18 @@ void destroyProblem(void* jnaProblemPointer) {
 	delete jnaProblem;
 }
 
+bool resetProblem(void* jnaProblemPointer, int seed) {
+	JNA::JNAProblem* jnaProblem = reinterpret_cast<JNA::JNAProblem*>(jnaProblemPointer);
+	jnaProblem->reset();
+	std::ostringstream seedString;
+	seedString << seed;
+	try {
+		return jnaProblem->getConfig()->setValue("solver.seed", seedString.str().c_str());
+	} catch (std::exception& e) {
+		return false;
+	}
+}
+
 bool interrupt(void* jnaProblemPointer) {
 	JNA::JNAProblem* jnaProblem = reinterpret_cast<JNA::JNAProblem*>(jnaProblemPointer);
 	return jnaProblem->interrupt();
@@ -181,4 +204,39 @@ int getConfigState(void* jnaProblemPointer) {
 const char* getConfigErrorMessage(void* jnaProblemPointer) {
 	JNA::JNAProblem* jnaProblem = reinterpret_cast<JNA::JNAProblem*>(jnaProblemPointer);
 	return jnaProblem->getConfigErrorMessage().c_str();
-}
\ No newline at end of file
+}
+
+bool initIncrementalProblem(void* jnaProblemPointer, const char* problem) {
+	JNAProblem* jnaProblem = reinterpret_cast<JNA::JNAProblem*>(jnaProblemPointer);
+	// Init the facade
+	Clasp::ClaspFacade* facade = new Clasp::ClaspFacade();
+	jnaProblem->setFacade(facade);
+	std::istringstream problemAsStream (problem);
+	// Keep the program alive after the first solve so that it can be solved again in a new step
+	Clasp::ProgramBuilder& builder = facade->startSat(*jnaProblem->getConfig());
+	facade->enableProgramUpdates();
+	builder.parseProgram(problemAsStream);
+	// Variables may appear in assumptions, so preprocessing must not eliminate them
+	for (Var v = 1; v < facade->ctx.numVars() + 1; ++v) {
+		facade->ctx.setFrozen(v, true);
+	}
+	return facade->prepare();
+}
+
+void solveIncrementalProblem(void* jnaProblemPointer, const int* assumptions, int numAssumptions, double timeoutTime) {
+	JNAProblem* jnaProblem = reinterpret_cast<JNA::JNAProblem*>(jnaProblemPointer);
+	Clasp::ClaspFacade* facade = jnaProblem->getFacade();
+	if (facade->solved()) {
+		// Start a new step on the same program: learnt constraints are kept, previous assumptions are dropped
+		facade->update();
+		facade->prepare();
+	}
+	for (int i = 0; i < numAssumptions; ++i) {
+		facade->assume(Clasp::Literal(std::abs(assumptions[i]), assumptions[i] < 0));
+	}
+	jnaProblem->setResultState(r_UNKNOWN);
+	delete jnaProblem->getAsyncResult();
+	// Start the solve, passing in the event handler (which JNAProblem implements)
+	jnaProblem->setAsyncResult(new Clasp::ClaspFacade::AsyncResult(facade->solveAsync(jnaProblem)));
+	solveProblem(jnaProblemPointer, timeoutTime);
+}
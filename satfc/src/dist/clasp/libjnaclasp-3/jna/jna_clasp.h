@@ -19,7 +19,7 @@ namespace JNA {
 	/*
 	 * A holder class for all of the variables that we need to solve a problem
 	 * Extends EventHandler so that we can override the onEvent style functions (e.g. to save the assignment on completion)
-	 * This class is meant to be for a single use: every new SAT problem should construct a new instance of this class and destroy it upon completion
+	 * An instance can be used for a single problem and destroyed upon completion, or reset (see resetProblem) to solve a new problem with the same configuration
 	 */
 	class JNAProblem : public Clasp::EventHandler {
 		public:
@@ -44,6 +44,9 @@ namespace JNA {
 			// Interrupt the clasp facade: should return false
 			bool interrupt();
 
+			// Drop the problem, its result and its solving state, keeping only the configuration
+			void reset();
+
 			// EventHandler functions - onModel is where we can pick up the assignment variables
 			bool onModel(const Clasp::Solver& s, const Clasp::Model& m);
 		private:
@@ -69,6 +72,10 @@ extern "C" {
 	
 	void destroyProblem(void* jnaProblemPointer);
 
+	// Keep the (already parsed) configuration of a problem and drop everything else, so that a new problem can be passed with initProblem.
+	// Returns false if the seed could not be set, in which case the pointer should be destroyed
+	bool resetProblem(void* jnaProblemPointer, int seed);
+
 	bool interrupt(void* jnaProblemPointer);
 
 	int getResultState(void* jnaProblemPointer);
@@ -79,6 +86,11 @@ extern "C" {
 
 	const char* getConfigErrorMessage(void* jnaProblemPointer);
 
+	// Incremental session: the problem is loaded once and then solved repeatedly under different assumptions, keeping learnt clauses
+	bool initIncrementalProblem(void* jnaProblemPointer, const char* problem);
+
+	void solveIncrementalProblem(void* jnaProblemPointer, const int* assumptions, int numAssumptions, double timeoutTime);
+
 	double getCpuTime() {
 		struct tms nowTimes;
 		times(&nowTimes);
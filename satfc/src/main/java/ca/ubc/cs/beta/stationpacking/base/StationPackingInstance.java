@@ -57,6 +57,8 @@ public class StationPackingInstance {
 	public static final String NAME_KEY = "NAME";
     public static final String CACHE_DATE_KEY = "CACHE_DATE";
     public static final String UNTITLED = "UNTITLED";
+    // ID under which the metrics of a problem are collected, see SATFCMetrics
+    public static final String METRICS_ID_KEY = "METRICS_ID";
     private final ImmutableMap<Station, Set<Integer>> domains;
 	private final ImmutableMap<Station, Integer> previousAssignment;
 	@Getter
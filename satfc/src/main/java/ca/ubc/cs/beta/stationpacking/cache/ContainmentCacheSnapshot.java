@@ -0,0 +1,282 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+
+import ca.ubc.cs.beta.stationpacking.cache.RedisCacher.ContainmentCacheInitData;
+import ca.ubc.cs.beta.stationpacking.cache.containment.CachePermutation;
+import ca.ubc.cs.beta.stationpacking.cache.containment.ContainmentCacheSATEntry;
+import ca.ubc.cs.beta.stationpacking.cache.containment.ContainmentCacheUNSATEntry;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.DataManager;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.utils.CacheUtils;
+import ca.ubc.cs.beta.stationpacking.utils.Watch;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads and writes a binary snapshot of the containment caches, so that a cache server can start from a local file instead of scanning all of redis.
+ * Redis remains the store of record: the snapshot records the value of {@link RedisCacher#HASH_NUM} when it was taken (its high-water mark),
+ * which tells what part of redis it covers.
+ * <p>
+ * Format (big endian), version 1:
+ * <pre>
+ * header:  int MAGIC, int VERSION, long high-water mark, int number of sections
+ * section: UTF domain hash, UTF interference hash, byte result (0 SAT, 1 UNSAT), int number of entries, long length of the entries in bytes, entries
+ * SAT entry:   long ID, auction, long[] station bitset, byte[] channels
+ * UNSAT entry: long ID, auction, long[] station bitset, long[] domains bitset
+ * </pre>
+ * Arrays are an int length followed by their elements, the auction is a UTF-8 byte array (length -1 if absent). An entry's redis key is rebuilt from its coordinate, result and ID.
+ * The entries of a section are memory mapped as a single buffer, so a cache coordinate is split over as many sections as needed to keep them under {@link #MAX_SECTION_BYTES}.
+ * </p>
+ */
+@Slf4j
+public class ContainmentCacheSnapshot {
+
+    public static final int MAGIC = 0x53415443;
+    public static final int VERSION = 1;
+    private static final int MAX_SECTION_BYTES = 1 << 30;
+    private static final byte SAT_SECTION = 0;
+    private static final byte UNSAT_SECTION = 1;
+
+    private ContainmentCacheSnapshot() {
+        // Static methods only
+    }
+
+    @Data
+    public static class Snapshot {
+        private final long highWaterMark;
+        private final ContainmentCacheInitData data;
+    }
+
+    /**
+     * Write the given entries to the snapshot file. The file is written next to its destination, then moved in place, so a reader never sees a partial snapshot.
+     * @param highWaterMark value of the redis entry counter such that every entry with a lower or equal ID that is in the caches is part of the data
+     */
+    public static void write(File file, long highWaterMark, ContainmentCacheInitData data) throws IOException {
+        final Watch watch = Watch.constructAutoStartWatch();
+        final List<Section<?>> sections = new ArrayList<>();
+        for (CacheCoordinate coordinate : data.getCaches()) {
+            addSections(sections, coordinate, SAT_SECTION, data.getSATResults().get(coordinate));
+            addSections(sections, coordinate, UNSAT_SECTION, data.getUNSATResults().get(coordinate));
+        }
+        final File tmpFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(highWaterMark);
+            out.writeInt(sections.size());
+            for (Section<?> section : sections) {
+                out.writeUTF(section.coordinate.getDomainHash());
+                out.writeUTF(section.coordinate.getInterferenceHash());
+                out.writeByte(section.type);
+                out.writeInt(section.entries.size());
+                out.writeLong(section.numBytes);
+                for (ISATFCCacheEntry entry : section.entries) {
+                    writeEntry(out, entry);
+                }
+            }
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote a snapshot of {} SAT and {} UNSAT entries (up to ID {}) to {} in {}s", data.getSATResults().size(), data.getUNSATResults().size(), highWaterMark, file, watch.getElapsedTime());
+    }
+
+    private static <T extends ISATFCCacheEntry> void addSections(List<Section<?>> sections, CacheCoordinate coordinate, byte type, List<T> entries) {
+        Section<T> section = new Section<>(coordinate, type);
+        for (T entry : entries) {
+            final long entryBytes = entrySize(entry);
+            if (!section.entries.isEmpty() && section.numBytes + entryBytes > MAX_SECTION_BYTES) {
+                sections.add(section);
+                section = new Section<>(coordinate, type);
+            }
+            section.entries.add(entry);
+            section.numBytes += entryBytes;
+        }
+        if (!section.entries.isEmpty()) {
+            sections.add(section);
+        }
+    }
+
+    private static class Section<T extends ISATFCCacheEntry> {
+        private final CacheCoordinate coordinate;
+        private final byte type;
+        private final List<T> entries = new ArrayList<>();
+        private long numBytes = 0;
+
+        private Section(CacheCoordinate coordinate, byte type) {
+            this.coordinate = coordinate;
+            this.type = type;
+        }
+    }
+
+    private static byte[] auctionBytes(String auction) {
+        return auction == null ? null : auction.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long entrySize(ISATFCCacheEntry entry) {
+        final byte[] auction = auctionBytes(auctionOf(entry));
+        long size = Long.BYTES + Integer.BYTES + (auction == null ? 0 : auction.length);
+        size += Integer.BYTES + (long) Long.BYTES * entry.getBitSet().toLongArray().length;
+        if (entry instanceof ContainmentCacheSATEntry) {
+            size += Integer.BYTES + ((ContainmentCacheSATEntry) entry).getChannels().length;
+        } else {
+            size += Integer.BYTES + (long) Long.BYTES * ((ContainmentCacheUNSATEntry) entry).getDomainsBitSet().toLongArray().length;
+        }
+        return size;
+    }
+
+    private static String auctionOf(ISATFCCacheEntry entry) {
+        return entry instanceof ContainmentCacheSATEntry ? ((ContainmentCacheSATEntry) entry).getAuction() : ((ContainmentCacheUNSATEntry) entry).getAuction();
+    }
+
+    private static String keyOf(ISATFCCacheEntry entry) {
+        return entry instanceof ContainmentCacheSATEntry ? ((ContainmentCacheSATEntry) entry).getKey() : ((ContainmentCacheUNSATEntry) entry).getKey();
+    }
+
+    private static void writeEntry(DataOutputStream out, ISATFCCacheEntry entry) throws IOException {
+        out.writeLong(CacheUtils.parseKey(keyOf(entry)).getNum());
+        final byte[] auction = auctionBytes(auctionOf(entry));
+        if (auction == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(auction.length);
+            out.write(auction);
+        }
+        writeWords(out, entry.getBitSet().toLongArray());
+        if (entry instanceof ContainmentCacheSATEntry) {
+            final byte[] channels = ((ContainmentCacheSATEntry) entry).getChannels();
+            out.writeInt(channels.length);
+            out.write(channels);
+        } else {
+            writeWords(out, ((ContainmentCacheUNSATEntry) entry).getDomainsBitSet().toLongArray());
+        }
+    }
+
+    private static void writeWords(DataOutputStream out, long[] words) throws IOException {
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * Memory map a snapshot and rebuild its entries. Sections of coordinates the data manager does not know about are skipped.
+     * @throws IOException if the file cannot be read, or is not a snapshot of this version
+     */
+    public static Snapshot read(File file, DataManager dataManager, boolean skipSAT, boolean skipUNSAT) throws IOException {
+        final Watch watch = Watch.constructAutoStartWatch();
+        final ListMultimap<CacheCoordinate, ContainmentCacheSATEntry> SATResults = ArrayListMultimap.create();
+        final ListMultimap<CacheCoordinate, ContainmentCacheUNSATEntry> UNSATResults = ArrayListMultimap.create();
+        final long highWaterMark;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"); FileChannel channel = randomAccessFile.getChannel()) {
+            if (randomAccessFile.readInt() != MAGIC) {
+                throw new IOException(file + " is not a cache snapshot");
+            }
+            final int version = randomAccessFile.readInt();
+            if (version != VERSION) {
+                throw new IOException("Cache snapshot " + file + " has version " + version + ", only version " + VERSION + " can be read");
+            }
+            highWaterMark = randomAccessFile.readLong();
+            final int numSections = randomAccessFile.readInt();
+            for (int s = 0; s < numSections; s++) {
+                final CacheCoordinate coordinate = new CacheCoordinate(randomAccessFile.readUTF(), randomAccessFile.readUTF());
+                final byte type = randomAccessFile.readByte();
+                final int numEntries = randomAccessFile.readInt();
+                final long numBytes = randomAccessFile.readLong();
+                final long start = randomAccessFile.getFilePointer();
+                final boolean skip = (type == SAT_SECTION && skipSAT) || (type == UNSAT_SECTION && skipUNSAT);
+                final CachePermutation permutation = dataManager.getCoordinateToBundle().containsKey(coordinate) ? dataManager.getData(coordinate).getCachePermutation() : null;
+                if (permutation == null) {
+                    log.warn("Skipping {} snapshot entries of unknown coordinate {}", numEntries, coordinate);
+                } else if (!skip) {
+                    final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, numBytes);
+                    for (int i = 0; i < numEntries; i++) {
+                        if (type == SAT_SECTION) {
+                            SATResults.put(coordinate, readSATEntry(buffer, coordinate, permutation));
+                        } else {
+                            UNSATResults.put(coordinate, readUNSATEntry(buffer, coordinate, permutation));
+                        }
+                    }
+                    if (buffer.hasRemaining()) {
+                        throw new IOException("Cache snapshot section for " + coordinate + " has " + buffer.remaining() + " unexpected trailing bytes");
+                    }
+                }
+                randomAccessFile.seek(start + numBytes);
+            }
+        }
+        log.info("Read {} SAT and {} UNSAT entries (up to ID {}) from snapshot {} in {}s", SATResults.size(), UNSATResults.size(), highWaterMark, file, watch.getElapsedTime());
+        return new Snapshot(highWaterMark, new ContainmentCacheInitData(SATResults, UNSATResults));
+    }
+
+    private static ContainmentCacheSATEntry readSATEntry(ByteBuffer buffer, CacheCoordinate coordinate, CachePermutation permutation) {
+        final long id = buffer.getLong();
+        final String auction = readAuction(buffer);
+        final BitSet bitSet = BitSet.valueOf(readWords(buffer));
+        final byte[] channels = new byte[buffer.getInt()];
+        buffer.get(channels);
+        return new ContainmentCacheSATEntry(bitSet, channels, coordinate.toKey(SATResult.SAT, id), permutation, auction);
+    }
+
+    private static ContainmentCacheUNSATEntry readUNSATEntry(ByteBuffer buffer, CacheCoordinate coordinate, CachePermutation permutation) {
+        final long id = buffer.getLong();
+        final String auction = readAuction(buffer);
+        final BitSet bitSet = BitSet.valueOf(readWords(buffer));
+        final BitSet domains = BitSet.valueOf(readWords(buffer));
+        return new ContainmentCacheUNSATEntry(bitSet, domains, coordinate.toKey(SATResult.UNSAT, id), permutation, auction);
+    }
+
+    private static String readAuction(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long[] readWords(ByteBuffer buffer) {
+        final long[] words = new long[buffer.getInt()];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + words.length * Long.BYTES);
+        return words;
+    }
+
+}
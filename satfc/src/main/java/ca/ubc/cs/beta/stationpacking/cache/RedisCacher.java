@@ -45,6 +45,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.cache.containment.CachePermutation;
 import ca.ubc.cs.beta.stationpacking.cache.containment.ContainmentCacheSATEntry;
 import ca.ubc.cs.beta.stationpacking.cache.containment.ContainmentCacheUNSATEntry;
 import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.DataManager;
@@ -56,6 +57,7 @@ import ca.ubc.cs.beta.stationpacking.utils.Watch;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import redis.clients.jedis.BinaryJedis;
+import redis.clients.jedis.BinaryRedisPipeline;
 import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.Response;
 import redis.clients.jedis.Transaction;
@@ -70,6 +72,14 @@ public class RedisCacher {
     private final static int SAT_PIPELINE_SIZE = 10000;
     private final static int UNSAT_PIPELINE_SIZE = 2500;
     public static final String HASH_NUM = "SATFC:HASHNUM";
+    /**
+     * Sorted set of every entry key, scored by its entry ID, so that the entries added after a given ID can be found without enumerating IDs
+     */
+    public static final String KEYS_BY_ID = "SATFC:KEYSBYID";
+    /**
+     * ID of the first entry written to {@link #KEYS_BY_ID}: every entry from this ID on is indexed, even once some of them were deleted (and removed from the index)
+     */
+    public static final String KEYS_BY_ID_SINCE = KEYS_BY_ID + ":SINCE";
 
     private final DataManager dataManager;
     private final StringRedisTemplate redisTemplate;
@@ -89,7 +99,7 @@ public class RedisCacher {
     public ISATFCCacheEntry cacheEntryFromKeyAndAnswer(String key, final Map<byte[], byte[]> answer) {
         final CacheUtils.ParsedKey parsedKey = CacheUtils.parseKey(key);
         final CacheCoordinate coordinate = CacheCoordinate.fromKey(key);
-        final ImmutableBiMap<Station, Integer> permutation = dataManager.getData(coordinate).getPermutation();
+        final CachePermutation permutation = dataManager.getData(coordinate).getCachePermutation();
         final Map<String, byte[]> stringKeyAnswer = answer.entrySet().stream().collect(Collectors.toMap(entry -> stringRedisSerializer.deserialize(entry.getKey()), Map.Entry::getValue));
         if (parsedKey.getResult().equals(SATResult.SAT)) {
             return parseSATEntry(stringKeyAnswer, key, permutation);
@@ -105,7 +115,7 @@ public class RedisCacher {
     private static final Set<String> SAT_REQUIRED_KEYS = Sets.newHashSet(ASSIGNMENT_KEY, BITSET_KEY);
     private static final Set<String> UNSAT_REQUIRED_KEYS = Sets.newHashSet(DOMAINS_KEY, BITSET_KEY);
 
-    private ContainmentCacheSATEntry parseSATEntry(Map<String, byte[]> entry, String key, ImmutableBiMap<Station, Integer> permutation) {
+    private ContainmentCacheSATEntry parseSATEntry(Map<String, byte[]> entry, String key, CachePermutation permutation) {
         if (!entry.keySet().containsAll(SAT_REQUIRED_KEYS)) {
             throw new IllegalArgumentException("Entry does not contain required keys " + SAT_REQUIRED_KEYS + ". Only have keys " + entry.keySet());
         }
@@ -116,7 +126,7 @@ public class RedisCacher {
         return new ContainmentCacheSATEntry(bitSet, channels, key, permutation, auction);
     }
 
-    private ContainmentCacheUNSATEntry parseUNSATEntry(Map<String, byte[]> entry, String key, ImmutableBiMap<Station, Integer> permutation) {
+    private ContainmentCacheUNSATEntry parseUNSATEntry(Map<String, byte[]> entry, String key, CachePermutation permutation) {
         if (!entry.keySet().containsAll(UNSAT_REQUIRED_KEYS)) {
             throw new IllegalArgumentException("Entry does not contain required keys " + UNSAT_REQUIRED_KEYS + ". Only have keys " + entry.keySet());
         }
@@ -130,17 +140,8 @@ public class RedisCacher {
     public <T extends ISATFCCacheEntry> String cacheResult(CacheCoordinate coordinate, T entry, String name) {
         final long newID = redisTemplate.boundValueOps(HASH_NUM).increment(1);
         final String key = coordinate.toKey(entry.getResult(), newID);
-        final byte[] keyBytes = stringRedisSerializer.serialize(key);
         final Transaction multi = binaryJedis.multi();
-            multi.hset(keyBytes, stringRedisSerializer.serialize(BITSET_KEY), entry.getBitSet().toByteArray());
-            if (entry instanceof ContainmentCacheSATEntry) {
-                multi.hset(keyBytes, stringRedisSerializer.serialize(ASSIGNMENT_KEY), ((ContainmentCacheSATEntry) entry).getChannels());
-            } else if (entry instanceof ContainmentCacheUNSATEntry) {
-                multi.hset(keyBytes, stringRedisSerializer.serialize(DOMAINS_KEY), ((ContainmentCacheUNSATEntry) entry).getDomainsBitSet().toByteArray());
-            }
-            if (name != null) {
-                multi.hset(keyBytes, stringRedisSerializer.serialize(NAME_KEY), stringRedisSerializer.serialize(name));
-            }
+        writeEntry(multi, key, entry, name);
         multi.exec();
         if (name != null) {
             log.info("Adding result for {} to cache with key {}", name, key);
@@ -148,6 +149,57 @@ public class RedisCacher {
         return key;
     }
 
+    /**
+     * Reserve a block of consecutive entry IDs with a single INCRBY, instead of one INCR per entry.
+     * Reserve exactly as many IDs as will be used: an unused ID leaves a gap, it is never handed out again.
+     * @param n number of IDs to reserve
+     * @return the first reserved ID; IDs from it to (it + n - 1) are reserved
+     */
+    public long reserveIDs(int n) {
+        Preconditions.checkArgument(n > 0, "Must reserve a positive number of IDs, not %s", n);
+        return redisTemplate.boundValueOps(HASH_NUM).increment(n) - n + 1;
+    }
+
+    /**
+     * Write a batch of entries (whose keys were built from IDs obtained with {@link #reserveIDs(int)}) to redis in a single pipeline
+     * @param entries the keyed entries to write
+     */
+    public void cacheResults(List<KeyedCacheEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        final Pipeline p = binaryJedis.pipelined();
+        for (KeyedCacheEntry keyedEntry : entries) {
+            writeEntry(p, keyedEntry.getKey(), keyedEntry.getEntry(), keyedEntry.getName());
+        }
+        p.sync();
+        log.info("Wrote {} entries to redis in one pipeline", entries.size());
+    }
+
+    private void writeEntry(BinaryRedisPipeline pipeline, String key, ISATFCCacheEntry entry, String name) {
+        final byte[] keyBytes = stringRedisSerializer.serialize(key);
+        final long id = CacheUtils.parseKey(key).getNum();
+        // only the first write ever sets the low-water mark
+        pipeline.setnx(stringRedisSerializer.serialize(KEYS_BY_ID_SINCE), stringRedisSerializer.serialize(Long.toString(id)));
+        pipeline.zadd(stringRedisSerializer.serialize(KEYS_BY_ID), id, keyBytes);
+        pipeline.hset(keyBytes, stringRedisSerializer.serialize(BITSET_KEY), entry.getBitSet().toByteArray());
+        if (entry instanceof ContainmentCacheSATEntry) {
+            pipeline.hset(keyBytes, stringRedisSerializer.serialize(ASSIGNMENT_KEY), ((ContainmentCacheSATEntry) entry).getChannels());
+        } else if (entry instanceof ContainmentCacheUNSATEntry) {
+            pipeline.hset(keyBytes, stringRedisSerializer.serialize(DOMAINS_KEY), ((ContainmentCacheUNSATEntry) entry).getDomainsBitSet().toByteArray());
+        }
+        if (name != null) {
+            pipeline.hset(keyBytes, stringRedisSerializer.serialize(NAME_KEY), stringRedisSerializer.serialize(name));
+        }
+    }
+
+    @Data
+    public static class KeyedCacheEntry {
+        private final String key;
+        private final ISATFCCacheEntry entry;
+        private final String name;
+    }
+
     public <CONTAINMENT_CACHE_ENTRY extends ISATFCCacheEntry> ListMultimap<CacheCoordinate, CONTAINMENT_CACHE_ENTRY> processResults(Set<String> keys, SATResult entryTypeName, int partitionSize, boolean validateSAT) {
         final ListMultimap<CacheCoordinate, CONTAINMENT_CACHE_ENTRY> results = ArrayListMultimap.create();
         final AtomicInteger numProcessed = new AtomicInteger();
@@ -173,6 +225,10 @@ public class RedisCacher {
                 final String key = orderedKeys.get(i);
                 final CacheCoordinate coordinate = CacheCoordinate.fromKey(key);
                 final Map<byte[], byte[]> answer = responses.get(i).get();
+                if (answer.isEmpty()) {
+                    log.debug("Key {} does not exist (anymore)", key);
+                    continue;
+                }
                 try {
                     final ISATFCCacheEntry cacheEntry = cacheEntryFromKeyAndAnswer(key, answer);
                     if (entryTypeName.equals(SATResult.SAT) && validateSAT) {
@@ -208,7 +264,7 @@ public class RedisCacher {
         final Cursor<byte[]> scan = redisTemplate.getConnectionFactory().getConnection().scan(ScanOptions.scanOptions().build());
         while (SATKeys.size() + UNSATKeys.size() < limit && scan.hasNext()) {
             final String key = new String(scan.next());
-            if (key.equals(HASH_NUM)) {
+            if (!isEntryKey(key)) {
                 continue;
             }
             final CacheUtils.ParsedKey parsedKey = CacheUtils.parseKey(key);
@@ -233,6 +289,64 @@ public class RedisCacher {
         return new ContainmentCacheInitData(SATResults, UNSATResults);
     }
 
+    /**
+     * @return the current value of the entry counter, i.e. the largest ID given to an entry so far (0 if there never was any)
+     */
+    public long getHashNum() {
+        final String hashNum = redisTemplate.boundValueOps(HASH_NUM).get();
+        return hashNum == null ? 0 : Long.parseLong(hashNum);
+    }
+
+    /**
+     * Fetch the entries with IDs in (fromID, toID], for the given coordinates, e.g. to catch up on the entries added since a snapshot.
+     * Their keys are read from {@link #KEYS_BY_ID}, in one query. If the index was created after fromID (see {@link #KEYS_BY_ID_SINCE}), every key is scanned instead.
+     */
+    public ContainmentCacheInitData getContainmentCacheInitData(long fromID, long toID, Set<CacheCoordinate> coordinates, boolean skipSAT, boolean skipUNSAT) {
+        final Set<String> keys;
+        final String indexedSince = redisTemplate.boundValueOps(KEYS_BY_ID_SINCE).get();
+        if (toID > fromID && (indexedSince == null || Long.parseLong(indexedSince) > fromID + 1)) {
+            log.info("The key index does not cover IDs ({}, {}], scanning every key", fromID, toID);
+            keys = new HashSet<>();
+            final Cursor<byte[]> scan = redisTemplate.getConnectionFactory().getConnection().scan(ScanOptions.scanOptions().build());
+            while (scan.hasNext()) {
+                final String key = new String(scan.next());
+                if (isEntryKey(key)) {
+                    final long id = CacheUtils.parseKey(key).getNum();
+                    if (id > fromID && id <= toID) {
+                        keys.add(key);
+                    }
+                }
+            }
+        } else {
+            // Scores are exact for any realistic ID (below 2^53)
+            keys = redisTemplate.boundZSetOps(KEYS_BY_ID).rangeByScore(fromID + 1, toID);
+        }
+        final Set<String> SATKeys = new HashSet<>();
+        final Set<String> UNSATKeys = new HashSet<>();
+        for (String key : keys) {
+            if (!coordinates.contains(CacheCoordinate.fromKey(key))) {
+                continue;
+            }
+            final SATResult result = CacheUtils.parseKey(key).getResult();
+            if (result.equals(SATResult.SAT) && !skipSAT) {
+                SATKeys.add(key);
+            } else if (result.equals(SATResult.UNSAT) && !skipUNSAT) {
+                UNSATKeys.add(key);
+            }
+        }
+        log.info("Found {} SAT and {} UNSAT keys with IDs in ({}, {}]", SATKeys.size(), UNSATKeys.size(), fromID, toID);
+        final ListMultimap<CacheCoordinate, ContainmentCacheSATEntry> SATResults = processResults(SATKeys, SATResult.SAT, SAT_PIPELINE_SIZE, false);
+        final ListMultimap<CacheCoordinate, ContainmentCacheUNSATEntry> UNSATResults = processResults(UNSATKeys, SATResult.UNSAT, UNSAT_PIPELINE_SIZE, false);
+        return new ContainmentCacheInitData(SATResults, UNSATResults);
+    }
+
+    /**
+     * @return whether the redis key is the key of a cache entry (and not e.g. {@link #HASH_NUM})
+     */
+    public static boolean isEntryKey(String key) {
+        return key.startsWith("SATFC:" + SATResult.SAT + ":") || key.startsWith("SATFC:" + SATResult.UNSAT + ":");
+    }
+
     @Data
     public static class ContainmentCacheInitData {
         private final ListMultimap<CacheCoordinate, ContainmentCacheSATEntry> SATResults;
@@ -248,7 +362,7 @@ public class RedisCacher {
      * @param collection collection of SAT entries
      */
     public void deleteSATCollection(List<ContainmentCacheSATEntry> collection) {
-        redisTemplate.delete(collection.stream().map(ContainmentCacheSATEntry::getKey).collect(Collectors.toList()));
+        deleteKeys(collection.stream().map(ContainmentCacheSATEntry::getKey).collect(Collectors.toList()));
     }
 
     /**
@@ -256,7 +370,15 @@ public class RedisCacher {
      * @param collection collection of UNSAT entries
      */
     public void deleteUNSATCollection(List<ContainmentCacheUNSATEntry> collection){
-        redisTemplate.delete(collection.stream().map(ContainmentCacheUNSATEntry::getKey).collect(Collectors.toList()));
+        deleteKeys(collection.stream().map(ContainmentCacheUNSATEntry::getKey).collect(Collectors.toList()));
+    }
+
+    private void deleteKeys(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        redisTemplate.delete(keys);
+        redisTemplate.boundZSetOps(KEYS_BY_ID).remove(keys.toArray());
     }
 
     public Iterable<ISATFCCacheEntry> iterateSAT() {
@@ -267,12 +389,13 @@ public class RedisCacher {
             protected ISATFCCacheEntry computeNext() {
                 while (scan.hasNext()) {
                     final String key = new String(scan.next());
+                    if (!isEntryKey(key)) {
+                        continue;
+                    }
                     try {
                         return cacheEntryFromKey(key);
                     } catch (Exception e) {
-                        if (!key.equals(HASH_NUM)) {
-                            log.warn("Exception parsing key " + key, e);
-                        }
+                        log.warn("Exception parsing key " + key, e);
                         continue;
                     }
                 }
@@ -21,6 +21,7 @@
  */
 package ca.ubc.cs.beta.stationpacking.cache;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.google.common.base.Preconditions;
@@ -51,11 +52,21 @@ public class SatisfiabilityCacheFactory implements ISatisfiabilityCacheFactory {
     private static final int UNSAT_BUFFER_SIZE = 3;
     private final int numPermutations;
     private final long seed;
+    private final int numSATShards;
 
     public SatisfiabilityCacheFactory(int numPermutations, long seed) {
+        this(numPermutations, seed, 1);
+    }
+
+    /**
+     * @param numSATShards number of shards the SAT entries are split into; superset queries search the shards in parallel
+     */
+    public SatisfiabilityCacheFactory(int numPermutations, long seed, int numSATShards) {
         Preconditions.checkArgument(numPermutations > 0, "Need at least one permutation!");
+        Preconditions.checkArgument(numSATShards > 0, "Need at least one SAT shard!");
         this.numPermutations = numPermutations;
         this.seed = seed;
+        this.numSATShards = numSATShards;
     }
 
     @Override
@@ -69,10 +80,13 @@ public class SatisfiabilityCacheFactory implements ISatisfiabilityCacheFactory {
         }
 
         // 2) Create the actual caches
-        final IContainmentCache<Station, ContainmentCacheSATEntry> undecoratedSATCache = new MultiPermutationBitSetCache<>(permutation, permutations, RedBlackTree::new);
-        final ILockableContainmentCache<Station, ContainmentCacheSATEntry> SATCache = BufferedThreadSafeCacheDecorator.makeBufferedThreadSafe(undecoratedSATCache, SAT_BUFFER_SIZE);
+        final List<ILockableContainmentCache<Station, ContainmentCacheSATEntry>> SATShards = new ArrayList<>(numSATShards);
+        for (int i = 0; i < numSATShards; i++) {
+            final IContainmentCache<Station, ContainmentCacheSATEntry> undecoratedSATCache = new MultiPermutationBitSetCache<>(permutation, permutations, RedBlackTree::new);
+            SATShards.add(BufferedThreadSafeCacheDecorator.makeBufferedThreadSafe(undecoratedSATCache, SAT_BUFFER_SIZE));
+        }
         final IContainmentCache<Station, ContainmentCacheUNSATEntry> undecoratedUNSATCache = new MultiPermutationBitSetCache<>(permutation, permutations, RedBlackTree::new);
         final ILockableContainmentCache<Station, ContainmentCacheUNSATEntry> UNSATCache = BufferedThreadSafeCacheDecorator.makeBufferedThreadSafe(undecoratedUNSATCache, UNSAT_BUFFER_SIZE);
-        return new SatisfiabilityCache(permutation, SATCache, UNSATCache);
+        return new SatisfiabilityCache(permutation, SATShards, UNSATCache);
     }
 }
\ No newline at end of file
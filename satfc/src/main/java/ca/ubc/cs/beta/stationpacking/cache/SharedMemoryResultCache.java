@@ -0,0 +1,300 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+import lombok.extern.slf4j.Slf4j;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Exact match cache of conclusive results, in a memory mapped file shared by every SATFC process of the host (e.g. on /dev/shm).
+ * <p>
+ * Instances are keyed by their {@link StationPackingInstanceHasher#hashCanonical(StationPackingInstance, String) canonical hash}, which covers the hash
+ * of the interference constraints, so the same domains are found whatever the instance is named, but never across constraint sets. The file is a table of fixed size slots, grouped in sets of {@link #WAYS} slots: a key can only live
+ * in the set given by its hash, and a full set evicts with the clock (second chance) policy, using a reference flag set on every hit.
+ * </p>
+ * <p>
+ * Nothing is locked, neither between threads nor between processes. Each slot carries a checksum of its key and content, written last:
+ * a slot that is read while it is being written, or that two writers interleaved, fails its checksum and is a miss (until it is overwritten).
+ * The checksum also covers the constraint hash, so a key collision across constraint sets is a miss as well.
+ * SAT hits are also checked against the instance's domains, so a hash collision cannot return a wrong assignment.
+ * </p>
+ */
+@Slf4j
+@ThreadSafe
+public class SharedMemoryResultCache {
+
+    // Number of slots a key can be stored in
+    public static final int WAYS = 8;
+
+    private static final long MAGIC = 0x5341544643534843L;
+    private static final int VERSION = 1;
+
+    // File header: magic, version, number of slots, slot size
+    private static final int HEADER_SIZE = 64;
+
+    // Slot layout
+    private static final int CHECKSUM_OFFSET = 0;
+    private static final int KEY_OFFSET = 8;
+    private static final int LENGTH_OFFSET = 24;
+    private static final int REFERENCED_OFFSET = 28;
+    private static final int PAYLOAD_OFFSET = 32;
+    // Payload: result, number of stations, then a (station, channel) pair per station
+    private static final int PAYLOAD_HEADER_SIZE = 8;
+
+    private static final int SAT = 1;
+    private static final int UNSAT = 0;
+
+    private static final HashFunction fChecksumFunction = Hashing.murmur3_128();
+
+    private final MappedByteBuffer fBuffer;
+    private final int fNumSets;
+    private final int fSlotSize;
+
+    /**
+     * Map the cache file, creating it if needed. Every process sharing a file must use the same geometry.
+     * @param aPath - path of the cache file.
+     * @param aNumSlots - number of slots, a multiple of {@link #WAYS}.
+     * @param aSlotSize - size of a slot in bytes, which bounds the number of stations of a cached SAT result.
+     */
+    public SharedMemoryResultCache(String aPath, int aNumSlots, int aSlotSize) {
+        Preconditions.checkArgument(aNumSlots > 0 && aNumSlots % WAYS == 0, "Number of slots must be a positive multiple of %s", WAYS);
+        Preconditions.checkArgument(aSlotSize >= PAYLOAD_OFFSET + PAYLOAD_HEADER_SIZE && aSlotSize % Long.BYTES == 0, "Slot size must be a multiple of 8 of at least %s bytes", PAYLOAD_OFFSET + PAYLOAD_HEADER_SIZE);
+        final long size = HEADER_SIZE + (long) aNumSlots * aSlotSize;
+        Preconditions.checkArgument(size <= Integer.MAX_VALUE, "Cache file of %s bytes is too large to be mapped", size);
+        fNumSets = aNumSlots / WAYS;
+        fSlotSize = aSlotSize;
+        final File file = new File(aPath);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            if (randomAccessFile.length() < size) {
+                randomAccessFile.setLength(size);
+            }
+            // The mapping stays valid once the channel is closed
+            fBuffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map result cache file " + aPath + ".", e);
+        }
+        if (fBuffer.getLong(0) == MAGIC) {
+            Preconditions.checkState(fBuffer.getInt(8) == VERSION && fBuffer.getInt(12) == aNumSlots && fBuffer.getInt(16) == aSlotSize,
+                    "Result cache file %s was created with a different layout (version %s, %s slots of %s bytes)", aPath, fBuffer.getInt(8), fBuffer.getInt(12), fBuffer.getInt(16));
+        } else {
+            // A new file (possibly being initialized by another process at the same time, with the same values)
+            fBuffer.putInt(8, VERSION);
+            fBuffer.putInt(12, aNumSlots);
+            fBuffer.putInt(16, aSlotSize);
+            fBuffer.putLong(0, MAGIC);
+        }
+        log.info("Mapped result cache file {} with {} slots of {} bytes", aPath, aNumSlots, aSlotSize);
+    }
+
+    /**
+     * @param aConstraintHash - hash of the interference constraints the instance is solved against.
+     * @return the cached result of an instance with the same domains under the same constraints (solved by {@link SolverResult.SolvedBy#SAT_CACHE} or {@link SolverResult.SolvedBy#UNSAT_CACHE}, with no runtime), if any.
+     */
+    public Optional<SolverResult> lookup(StationPackingInstance aInstance, String aConstraintHash) {
+        return lookup(aInstance, aConstraintHash, StationPackingInstanceHasher.hashCanonical(aInstance, aConstraintHash));
+    }
+
+    /**
+     * @param aHash - the instance's {@link StationPackingInstanceHasher#hashCanonical(StationPackingInstance, String) canonical hash} under the constraints.
+     */
+    public Optional<SolverResult> lookup(StationPackingInstance aInstance, String aConstraintHash, HashCode aHash) {
+        final long keyLow = aHash.asLong();
+        final long keyHigh = highBits(aHash);
+        final int setStart = getSetStart(keyLow);
+        for (int way = 0; way < WAYS; way++) {
+            final int slot = setStart + way * fSlotSize;
+            if (fBuffer.getLong(slot + KEY_OFFSET) != keyLow || fBuffer.getLong(slot + KEY_OFFSET + 8) != keyHigh) {
+                continue;
+            }
+            final int[] payload = readPayload(slot);
+            if (payload == null || fBuffer.getLong(slot + CHECKSUM_OFFSET) != checksum(keyLow, keyHigh, aConstraintHash, payload)) {
+                continue;
+            }
+            final SolverResult result = toSolverResult(aInstance, payload);
+            if (result != null) {
+                fBuffer.put(slot + REFERENCED_OFFSET, (byte) 1);
+                return Optional.of(result);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Store a conclusive result, unless its instance is already cached under the same constraints or its assignment does not fit in a slot.
+     * @param aConstraintHash - hash of the interference constraints the instance was solved against.
+     */
+    public void cacheResult(StationPackingInstance aInstance, String aConstraintHash, SolverResult aResult) {
+        cacheResult(aInstance, aConstraintHash, StationPackingInstanceHasher.hashCanonical(aInstance, aConstraintHash), aResult);
+    }
+
+    public void cacheResult(StationPackingInstance aInstance, String aConstraintHash, HashCode aHash, SolverResult aResult) {
+        Preconditions.checkArgument(aResult.getResult().isConclusive(), "Only conclusive results can be cached, not %s", aResult.getResult());
+        final int[] payload = toPayload(aResult);
+        if (PAYLOAD_OFFSET + payload.length * Integer.BYTES > fSlotSize) {
+            log.debug("Result of {} stations does not fit in a {} bytes slot, not caching it", aInstance.getStations().size(), fSlotSize);
+            return;
+        }
+        if (lookup(aInstance, aConstraintHash, aHash).isPresent()) {
+            return;
+        }
+        final long keyLow = aHash.asLong();
+        final long keyHigh = highBits(aHash);
+        final int setStart = getSetStart(keyLow);
+        final int slot = setStart + findVictim(setStart, keyHigh) * fSlotSize;
+        // Invalidate the slot first, so that readers never mix the old key with the new content
+        fBuffer.putInt(slot + LENGTH_OFFSET, 0);
+        fBuffer.putLong(slot + KEY_OFFSET, keyLow);
+        fBuffer.putLong(slot + KEY_OFFSET + 8, keyHigh);
+        for (int i = 0; i < payload.length; i++) {
+            fBuffer.putInt(slot + PAYLOAD_OFFSET + i * Integer.BYTES, payload[i]);
+        }
+        fBuffer.put(slot + REFERENCED_OFFSET, (byte) 0);
+        fBuffer.putLong(slot + CHECKSUM_OFFSET, checksum(keyLow, keyHigh, aConstraintHash, payload));
+        fBuffer.putInt(slot + LENGTH_OFFSET, payload.length);
+    }
+
+    /**
+     * Clock policy within a set: take the first empty slot, otherwise sweep from a position given by the key, clearing reference flags,
+     * until a slot that was not referenced since the last sweep is found.
+     * @return the way of the slot to overwrite.
+     */
+    private int findVictim(int setStart, long keyHigh) {
+        for (int way = 0; way < WAYS; way++) {
+            if (fBuffer.getInt(setStart + way * fSlotSize + LENGTH_OFFSET) == 0) {
+                return way;
+            }
+        }
+        final int hand = (int) (keyHigh & (WAYS - 1));
+        for (int i = 0; i < WAYS; i++) {
+            final int way = (hand + i) % WAYS;
+            final int referenced = setStart + way * fSlotSize + REFERENCED_OFFSET;
+            if (fBuffer.get(referenced) == 0) {
+                return way;
+            }
+            fBuffer.put(referenced, (byte) 0);
+        }
+        return hand;
+    }
+
+    private int getSetStart(long keyLow) {
+        return HEADER_SIZE + (int) Long.remainderUnsigned(keyLow, fNumSets) * WAYS * fSlotSize;
+    }
+
+    /**
+     * @return the payload of the slot, or null if it is empty or its length is garbage.
+     */
+    private int[] readPayload(int slot) {
+        final int length = fBuffer.getInt(slot + LENGTH_OFFSET);
+        if (length < PAYLOAD_HEADER_SIZE / Integer.BYTES || length > (fSlotSize - PAYLOAD_OFFSET) / Integer.BYTES) {
+            return null;
+        }
+        final int[] payload = new int[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = fBuffer.getInt(slot + PAYLOAD_OFFSET + i * Integer.BYTES);
+        }
+        return payload;
+    }
+
+    private static int[] toPayload(SolverResult aResult) {
+        final Map<Integer, Set<Station>> assignment = aResult.getAssignment();
+        final int numStations = aResult.getResult().equals(SATResult.SAT) ? assignment.values().stream().mapToInt(Set::size).sum() : 0;
+        final int[] payload = new int[PAYLOAD_HEADER_SIZE / Integer.BYTES + 2 * numStations];
+        payload[0] = aResult.getResult().equals(SATResult.SAT) ? SAT : UNSAT;
+        payload[1] = numStations;
+        if (numStations > 0) {
+            int i = 2;
+            for (Map.Entry<Integer, Set<Station>> entry : assignment.entrySet()) {
+                for (Station station : entry.getValue()) {
+                    payload[i++] = station.getID();
+                    payload[i++] = entry.getKey();
+                }
+            }
+        }
+        return payload;
+    }
+
+    /**
+     * @return the result stored in the payload, or null if it does not answer the instance (a hash collision).
+     */
+    private static SolverResult toSolverResult(StationPackingInstance aInstance, int[] aPayload) {
+        final int numStations = aPayload[1];
+        if (aPayload.length != 2 + 2 * numStations) {
+            return null;
+        }
+        if (aPayload[0] == UNSAT) {
+            return numStations == 0 ? SolverResult.createNonSATResult(SATResult.UNSAT, 0, SolverResult.SolvedBy.UNSAT_CACHE) : null;
+        }
+        if (aPayload[0] != SAT || numStations != aInstance.getStations().size()) {
+            return null;
+        }
+        final Map<Integer, Set<Station>> assignment = new HashMap<>();
+        for (int i = 2; i < aPayload.length; i += 2) {
+            final Station station = new Station(aPayload[i]);
+            final Set<Integer> domain = aInstance.getDomains().get(station);
+            if (domain == null || !domain.contains(aPayload[i + 1])) {
+                return null;
+            }
+            assignment.computeIfAbsent(aPayload[i + 1], channel -> new HashSet<>()).add(station);
+        }
+        return new SolverResult(SATResult.SAT, 0, assignment, SolverResult.SolvedBy.SAT_CACHE);
+    }
+
+    private static long highBits(HashCode aHash) {
+        final byte[] bytes = aHash.asBytes();
+        long high = 0;
+        for (int i = bytes.length - 1; i >= Long.BYTES; i--) {
+            high = (high << 8) | (bytes[i] & 0xFF);
+        }
+        return high;
+    }
+
+    private static long checksum(long aKeyLow, long aKeyHigh, String aConstraintHash, int[] aPayload) {
+        final Hasher hasher = fChecksumFunction.newHasher().putLong(aKeyLow).putLong(aKeyHigh).putString(aConstraintHash, Charsets.UTF_8).putInt(aPayload.length);
+        for (int value : aPayload) {
+            hasher.putInt(value);
+        }
+        return hasher.hash().asLong();
+    }
+
+}
@@ -24,8 +24,13 @@ package ca.ubc.cs.beta.stationpacking.cache;
 import com.google.common.base.Charsets;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 
+import java.util.Map;
+import java.util.Set;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
 
 /**
@@ -43,4 +48,23 @@ public class StationPackingInstanceHasher {
         return hash;
     }
 
+    /**
+     * Hash of the interference constraints' hash and of the instance's domains (fed to the hash function as ints, without building its string representation).
+     * Instances with the same domains (whatever their names or previous assignments) have the same canonical hash under the same constraints, since domains are kept sorted.
+     * Not interchangeable with {@link #hash(StationPackingInstance)}, whose values are keys of existing caches.
+     * @param aConstraintHash - hash of the interference constraints the instance is solved against (see {@link ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager#getConstraintHash()}).
+     */
+    public static HashCode hashCanonical(StationPackingInstance aInstance, String aConstraintHash) {
+        final Hasher hasher = fHashFuction.newHasher();
+        hasher.putString(aConstraintHash, Charsets.UTF_8);
+        hasher.putInt(aInstance.getDomains().size());
+        for (Map.Entry<Station, Set<Integer>> entry : aInstance.getDomains().entrySet()) {
+            hasher.putInt(entry.getKey().getID()).putInt(entry.getValue().size());
+            for (Integer channel : entry.getValue()) {
+                hasher.putInt(channel);
+            }
+        }
+        return hasher.hash();
+    }
+
 }
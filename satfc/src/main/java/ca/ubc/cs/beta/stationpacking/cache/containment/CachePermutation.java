@@ -0,0 +1,100 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.cache.containment;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.MapMaker;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import lombok.Getter;
+
+/**
+ * The permutation of a cache coordinate (station to bit), shared by all of its cache entries, along with a dense array for the inverse (bit to station).
+ * <p>
+ * Instances are interned by the identity of the permutation they are built from (see {@link #of(BiMap)}), so entries created with the same permutation
+ * object (the one of the coordinate's {@link ca.ubc.cs.beta.stationpacking.facade.datamanager.data.ManagerBundle}, or of its cache) all point to a single instance
+ * instead of each holding their own copy of the map.
+ * </p>
+ */
+public final class CachePermutation {
+
+    // Weak keys are compared by identity. Values are weak too, as they hold their key (an immutable permutation is not copied), so a strong value would keep every permutation alive
+    private static final ConcurrentMap<BiMap<Station, Integer>, CachePermutation> INTERNED = new MapMaker().weakKeys().weakValues().makeMap();
+
+    @Getter
+    private final ImmutableBiMap<Station, Integer> permutation;
+    private final Station[] fStations;
+    private final int fHashCode;
+
+    private CachePermutation(BiMap<Station, Integer> aPermutation) {
+        permutation = ImmutableBiMap.copyOf(aPermutation);
+        final int maxBit = permutation.values().stream().mapToInt(Integer::intValue).max().orElse(-1);
+        fStations = new Station[maxBit + 1];
+        for (Map.Entry<Station, Integer> entry : permutation.entrySet()) {
+            fStations[entry.getValue()] = entry.getKey();
+        }
+        fHashCode = permutation.hashCode();
+    }
+
+    /**
+     * @return the shared instance for the given permutation (which should not be modified afterwards).
+     */
+    public static CachePermutation of(BiMap<Station, Integer> aPermutation) {
+        return INTERNED.computeIfAbsent(aPermutation, CachePermutation::new);
+    }
+
+    /**
+     * @return the station of the given bit, or null if no station has it.
+     */
+    public Station getStation(int aBit) {
+        return aBit < fStations.length ? fStations[aBit] : null;
+    }
+
+    /**
+     * @return the bit of the given station, or null if it is not part of the permutation.
+     */
+    public Integer getBit(Station aStation) {
+        return permutation.get(aStation);
+    }
+
+    public int size() {
+        return permutation.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof CachePermutation && fHashCode == ((CachePermutation) o).fHashCode && permutation.equals(((CachePermutation) o).permutation);
+    }
+
+    @Override
+    public int hashCode() {
+        return fHashCode;
+    }
+
+}
@@ -28,7 +28,6 @@ import java.util.Set;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.BiMap;
-import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
@@ -52,7 +51,7 @@ public class ContainmentCacheSATEntry implements ICacheEntry<Station>, ISATFCCac
 
 	private final byte[] channels;
     private final BitSet bitSet;
-    private final ImmutableBiMap<Station, Integer> permutation;
+    private final CachePermutation permutation;
     private String key;
     private String auction;
 
@@ -63,15 +62,21 @@ public class ContainmentCacheSATEntry implements ICacheEntry<Station>, ISATFCCac
             @NonNull Map<Integer, Set<Station>> answer,
             @NonNull BiMap<Station, Integer> permutation
     ) {
-        this.permutation = ImmutableBiMap.copyOf(permutation);
-        this.bitSet = CacheUtils.toBitSet(answer, permutation);
+        this(answer, CachePermutation.of(permutation));
+    }
+
+    public ContainmentCacheSATEntry(
+            @NonNull Map<Integer, Set<Station>> answer,
+            @NonNull CachePermutation permutation
+    ) {
+        this.permutation = permutation;
+        this.bitSet = CacheUtils.toBitSet(answer, permutation.getPermutation());
         final Map<Station, Integer> stationToChannel = StationPackingUtils.stationToChannelFromChannelToStation(answer);
         final int numStations = this.bitSet.cardinality();
         channels = new byte[numStations];
         int j = 0;
-        final Map<Integer, Station> inversePermutation = permutation.inverse();
         for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit+1)) {
-            channels[j] = stationToChannel.get(inversePermutation.get(bit)).byteValue();
+            channels[j] = stationToChannel.get(permutation.getStation(bit)).byteValue();
             j++;
         }
     }
@@ -84,7 +89,17 @@ public class ContainmentCacheSATEntry implements ICacheEntry<Station>, ISATFCCac
             @NonNull BiMap<Station, Integer> permutation,
                      String auction
     ) {
-        this.permutation = ImmutableBiMap.copyOf(permutation);
+        this(bitSet, channels, key, CachePermutation.of(permutation), auction);
+    }
+
+    public ContainmentCacheSATEntry(
+            @NonNull BitSet bitSet,
+            @NonNull byte[] channels,
+            @NonNull String key,
+            @NonNull CachePermutation permutation,
+                     String auction
+    ) {
+        this.permutation = permutation;
         this.key = key;
         this.bitSet = bitSet;
         this.channels = channels;
@@ -99,6 +114,30 @@ public class ContainmentCacheSATEntry implements ICacheEntry<Station>, ISATFCCac
         return domains.entrySet().stream().allMatch(entry -> entry.getValue().contains(stationToChannel.get(entry.getKey().getID())));
     }
 
+    /**
+     * Same as {@link #isSolutionTo(StationPackingInstance)}, but reading the channels straight from the packed assignment.
+     * Query stations and entry stations are walked together in bit order, so no map is built and nothing is allocated.
+     * @param aDomains the query's domains, packed with this entry's permutation
+     */
+    public boolean isSolutionTo(PackedDomains aDomains) {
+        final int n = aDomains.size();
+        int q = 0;
+        int j = 0;
+        for (int bit = bitSet.nextSetBit(0); bit >= 0 && q < n; bit = bitSet.nextSetBit(bit + 1), j++) {
+            final int queryBit = aDomains.getBit(q);
+            if (bit == queryBit) {
+                if (!aDomains.allows(q, Byte.toUnsignedInt(channels[j]))) {
+                    return false;
+                }
+                q++;
+            } else if (bit > queryBit) {
+                // The query station is not in this entry
+                return false;
+            }
+        }
+        return q == n;
+    }
+
     public Map<Integer, Set<Station>> getAssignmentChannelToStation() {
         final Map<Integer, Integer> stationToChannel = getAssignmentStationToChannel();
         return StationPackingUtils.channelToStationFromStationToChannel(stationToChannel);
@@ -107,9 +146,8 @@ public class ContainmentCacheSATEntry implements ICacheEntry<Station>, ISATFCCac
     public Map<Integer,Integer> getAssignmentStationToChannel() {
         final Map<Integer, Integer> stationToChannel = new HashMap<>();
         int j = 0;
-        final Map<Integer, Station> inversePermutation = permutation.inverse();
         for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit+1)) {
-            stationToChannel.put(inversePermutation.get(bit).getID(), Byte.toUnsignedInt(channels[j]));
+            stationToChannel.put(permutation.getStation(bit).getID(), Byte.toUnsignedInt(channels[j]));
             j++;
         }
         return stationToChannel;
@@ -117,12 +155,11 @@ public class ContainmentCacheSATEntry implements ICacheEntry<Station>, ISATFCCac
 
     @Override
     public Set<Station> getElements() {
-        final Map<Integer, Station> inversePermutation = permutation.inverse();
         final ImmutableSet.Builder<Station> builder = ImmutableSet.builder();
         for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit+1)) {
-            final Station station = inversePermutation.get(bit);
+            final Station station = permutation.getStation(bit);
             if (station == null) {
-                throw new IllegalStateException("Bit " + bit + " is set in key " + key + ", but inverse permutation does not contain it!\n" + inversePermutation);
+                throw new IllegalStateException("Bit " + bit + " is set in key " + key + ", but inverse permutation does not contain it!\n" + permutation.getPermutation().inverse());
             }
             builder.add(station);
         }
@@ -24,7 +24,6 @@ package ca.ubc.cs.beta.stationpacking.cache.containment;
 import java.util.BitSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.StreamSupport;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.BiMap;
@@ -49,10 +48,15 @@ import lombok.NonNull;
 public class ContainmentCacheUNSATEntry implements ICacheEntry<Station>, ISATFCCacheEntry {
 
     public static final int BITS_PER_STATION = StationPackingUtils.UHFmax - StationPackingUtils.LVHFmin + 1;
+    private static final long STATION_MASK = BITS_PER_STATION == Long.SIZE ? -1L : (1L << BITS_PER_STATION) - 1;
 
     private final BitSet bitSet;
-    private final BitSet domainsBitSet;
-    private final ImmutableBiMap<Station, Integer> permutation;
+    /*
+     * The domains bitset, kept as raw words so that containment checks can read a station's channels as a single long:
+     * BITS_PER_STATION consecutive bits per station of the entry, in permutation order, bit (channel - UHFmin) set for each channel of the domain.
+     */
+    private final long[] domainWords;
+    private final CachePermutation permutation;
 
     private String key;
     private String auction;
@@ -60,7 +64,14 @@ public class ContainmentCacheUNSATEntry implements ICacheEntry<Station>, ISATFCC
     public ContainmentCacheUNSATEntry(
     		@NonNull Map<Station, Set<Integer>> domains, 
     		@NonNull BiMap<Station, Integer> permutation) {
-        domainsBitSet = new BitSet(domains.size() * BITS_PER_STATION);
+        this(domains, CachePermutation.of(permutation));
+    }
+
+    public ContainmentCacheUNSATEntry(
+            @NonNull Map<Station, Set<Integer>> domains,
+            @NonNull CachePermutation cachePermutation) {
+        final ImmutableBiMap<Station, Integer> permutation = cachePermutation.getPermutation();
+        final BitSet domainsBitSet = new BitSet(domains.size() * BITS_PER_STATION);
         // Sort stations according to the permutation
         final ImmutableList<Station> stations = domains.keySet().stream()
                 .sorted((a, b) -> permutation.get(a).compareTo(permutation.get(b)))
@@ -74,7 +85,8 @@ public class ContainmentCacheUNSATEntry implements ICacheEntry<Station>, ISATFCC
             }
             offset += BITS_PER_STATION;
         }
-        this.permutation = ImmutableBiMap.copyOf(permutation);
+        this.domainWords = domainsBitSet.toLongArray();
+        this.permutation = cachePermutation;
         this.bitSet = new BitSet(permutation.size());
         domains.keySet().forEach(station -> bitSet.set(permutation.get(station)));
     }
@@ -87,27 +99,64 @@ public class ContainmentCacheUNSATEntry implements ICacheEntry<Station>, ISATFCC
             @NonNull BiMap<Station, Integer> permutation,
             String auction
     ) {
-        this.permutation = ImmutableBiMap.copyOf(permutation);
+        this(bitSet, domains, key, CachePermutation.of(permutation), auction);
+    }
+
+    public ContainmentCacheUNSATEntry(
+            @NonNull BitSet bitSet,
+            @NonNull BitSet domains,
+            @NonNull String key,
+            @NonNull CachePermutation permutation,
+            String auction
+    ) {
+        this.permutation = permutation;
         this.key = key;
         this.bitSet = bitSet;
-        this.domainsBitSet = domains;
+        this.domainWords = domains.toLongArray();
         this.auction = auction;
     }
 
 
     @Override
     public Set<Station> getElements() {
-    	final Map<Integer, Station> inverse = permutation.inverse();
-        return bitSet.stream().mapToObj(inverse::get).collect(GuavaCollectors.toImmutableSet());
+        return bitSet.stream().mapToObj(permutation::getStation).collect(GuavaCollectors.toImmutableSet());
+    }
+
+    /**
+     * @return a copy of the domains bitset (see {@link #BITS_PER_STATION} for the layout).
+     */
+    public BitSet getDomainsBitSet() {
+        return BitSet.valueOf(domainWords);
+    }
+
+    /**
+     * @return the channels of the domain of the i-th station of the entry (in permutation order), bit (channel - UHFmin) being set for each channel.
+     */
+    private long getStationDomain(int i) {
+        return getStationDomain(domainWords, i);
+    }
+
+    private static long getStationDomain(long[] words, int i) {
+        final int start = i * BITS_PER_STATION;
+        final int word = start >>> 6;
+        final int offset = start & 63;
+        if (word >= words.length) {
+            return 0;
+        }
+        long domain = words[word] >>> offset;
+        if (offset + BITS_PER_STATION > Long.SIZE && word + 1 < words.length) {
+            domain |= words[word + 1] << (Long.SIZE - offset);
+        }
+        return domain & STATION_MASK;
     }
 
     public Map<Station, Set<Integer>> getDomains() {
+        final BitSet domainsBitSet = getDomainsBitSet();
         final HashMultimap<Station, Integer> domains = HashMultimap.create();
-        final Map<Integer, Station> inversePermutation = permutation.inverse();
         int offset = 0;
         // Loop over all stations
         for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit+1)) {
-            final Station station = inversePermutation.get(bit);
+            final Station station = permutation.getStation(bit);
             // Reconstruct a station's domain
             for (int chanBit = domainsBitSet.nextSetBit(offset); chanBit < offset + BITS_PER_STATION && chanBit >= 0; chanBit = domainsBitSet.nextSetBit(chanBit+1)) {
                 int chan = (chanBit % BITS_PER_STATION) + StationPackingUtils.UHFmin;
@@ -127,17 +176,52 @@ public class ContainmentCacheUNSATEntry implements ICacheEntry<Station>, ISATFCC
      */
     public boolean isLessRestrictive(ContainmentCacheUNSATEntry cacheEntry) {
         // skip checking against itself
-        if (this != cacheEntry) {
-            Map<Station, Set<Integer>> moreRes = cacheEntry.getDomains();
-            Map<Station, Set<Integer>> lessRes = this.getDomains();
-            // lessRes has less stations to pack
-            if (moreRes.keySet().containsAll(lessRes.keySet())) {
-                // each station in lessRes has same or more candidate channels than the corresponding station in moreRes
-                return StreamSupport.stream(lessRes.keySet().spliterator(), false)
-                        .allMatch(station -> lessRes.get(station).containsAll(moreRes.get(station)));
+        if (this == cacheEntry) {
+            return false;
+        }
+        // Walk both entries' stations in permutation order, keeping track of the rank of each station in both entries
+        final BitSet moreResBitSet = cacheEntry.getBitSet();
+        int moreResIndex = 0;
+        int moreResBit = moreResBitSet.nextSetBit(0);
+        int lessResIndex = 0;
+        for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit + 1), lessResIndex++) {
+            while (moreResBit >= 0 && moreResBit < bit) {
+                moreResBit = moreResBitSet.nextSetBit(moreResBit + 1);
+                moreResIndex++;
+            }
+            // this entry should have less stations to pack...
+            if (moreResBit != bit) {
+                return false;
+            }
+            // ...each with same or more candidate channels than the corresponding station in cacheEntry
+            if ((cacheEntry.getStationDomain(moreResIndex) & ~getStationDomain(lessResIndex)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #isLessRestrictive(ContainmentCacheUNSATEntry)}, but against a query: true if every station of this entry is in the query,
+     * with a domain containing the query's domain. If so, the query is UNSAT since this entry is.
+     * @param aDomains the query's domains, packed with this entry's permutation
+     */
+    public boolean isLessRestrictive(PackedDomains aDomains) {
+        final int n = aDomains.size();
+        int q = 0;
+        int i = 0;
+        for (int bit = bitSet.nextSetBit(0); bit >= 0; bit = bitSet.nextSetBit(bit + 1), i++) {
+            while (q < n && aDomains.getBit(q) < bit) {
+                q++;
+            }
+            if (q == n || aDomains.getBit(q) != bit) {
+                return false;
+            }
+            if (!aDomains.isUNSATDomainRepresentable(q) || (aDomains.getUNSATDomain(q) & ~getStationDomain(i)) != 0) {
+                return false;
             }
         }
-        return false;
+        return true;
     }
 
     @Override
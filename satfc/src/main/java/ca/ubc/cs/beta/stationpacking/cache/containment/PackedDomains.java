@@ -0,0 +1,118 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.cache.containment;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.utils.StationPackingUtils;
+
+/**
+ * The domains of a query instance laid out in the order of a cache permutation: the permutation bits of the query's stations, sorted,
+ * and for each of them a mask of its allowed channels. SAT entries can be checked against it directly from their bitset and packed channels
+ * (see {@link ContainmentCacheSATEntry#isSolutionTo(PackedDomains)}), without building any map.
+ * Channels are stored as unsigned bytes in SAT entries, so channels outside of [0,255] can never match and are left out.
+ * The domains are also kept in the per station channel bitmask layout of UNSAT entries, for {@link ContainmentCacheUNSATEntry#isLessRestrictive(PackedDomains)}.
+ */
+public class PackedDomains {
+
+    private static final int MASK_WORDS = 256 / Long.SIZE;
+
+    private final int[] fBits;
+    private final long[] fChannelMasks;
+    /*
+     * Same domains in the layout of UNSAT entries (see ContainmentCacheUNSATEntry#BITS_PER_STATION), and whether they fit in it at all.
+     */
+    private final long[] fUNSATDomains;
+    private final boolean[] fUNSATRepresentable;
+
+    public PackedDomains(StationPackingInstance aInstance, Map<Station, Integer> aPermutation) {
+        final Map<Station, Set<Integer>> domains = aInstance.getDomains();
+        final Station[] stations = domains.keySet().stream().sorted(Comparator.comparingInt(station -> bitOf(station, aPermutation))).toArray(Station[]::new);
+        fBits = new int[stations.length];
+        fChannelMasks = new long[stations.length * MASK_WORDS];
+        fUNSATDomains = new long[stations.length];
+        fUNSATRepresentable = new boolean[stations.length];
+        for (int i = 0; i < stations.length; i++) {
+            fBits[i] = bitOf(stations[i], aPermutation);
+            fUNSATRepresentable[i] = true;
+            for (Integer channel : domains.get(stations[i])) {
+                if (channel >= 0 && channel < 256) {
+                    fChannelMasks[i * MASK_WORDS + (channel >>> 6)] |= 1L << channel;
+                }
+                final int unsatBit = channel - StationPackingUtils.UHFmin;
+                if (unsatBit >= 0 && unsatBit < ContainmentCacheUNSATEntry.BITS_PER_STATION) {
+                    fUNSATDomains[i] |= 1L << unsatBit;
+                } else {
+                    fUNSATRepresentable[i] = false;
+                }
+            }
+        }
+    }
+
+    private static int bitOf(Station aStation, Map<Station, Integer> aPermutation) {
+        final Integer bit = aPermutation.get(aStation);
+        if (bit == null) {
+            throw new IllegalArgumentException("Station " + aStation + " is not part of the cache permutation");
+        }
+        return bit;
+    }
+
+    /**
+     * @return the number of stations in the query.
+     */
+    public int size() {
+        return fBits.length;
+    }
+
+    /**
+     * @return the permutation bit of the i-th query station, in increasing bit order.
+     */
+    public int getBit(int i) {
+        return fBits[i];
+    }
+
+    /**
+     * @return whether the given channel is in the domain of the i-th query station.
+     */
+    public boolean allows(int i, int aChannel) {
+        return (fChannelMasks[i * MASK_WORDS + (aChannel >>> 6)] & (1L << aChannel)) != 0;
+    }
+
+    /**
+     * @return the domain of the i-th query station in the layout of a single station of {@link ContainmentCacheUNSATEntry}.
+     */
+    public long getUNSATDomain(int i) {
+        return fUNSATDomains[i];
+    }
+
+    /**
+     * @return false if the domain of the i-th query station has channels that no UNSAT entry can hold (so no entry can cover it).
+     */
+    public boolean isUNSATDomainRepresentable(int i) {
+        return fUNSATRepresentable[i];
+    }
+
+}
@@ -29,14 +29,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
@@ -53,38 +59,89 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SatisfiabilityCache implements ISatisfiabilityCache {
 
-    final ILockableContainmentCache<Station, ContainmentCacheSATEntry> SATCache;
+    /*
+     * SAT entries are split across shards (by the hash of their bitset, so that shards stay balanced whatever the station distribution).
+     * A superset query searches every shard in parallel, and stops all shards as soon as one finds a solution.
+     */
+    final List<ILockableContainmentCache<Station, ContainmentCacheSATEntry>> SATShards;
     final ILockableContainmentCache<Station, ContainmentCacheUNSATEntry> UNSATCache;
     @Getter
     final ImmutableBiMap<Station, Integer> permutation;
+    final CachePermutation cachePermutation;
 
     public SatisfiabilityCache(
             BiMap<Station, Integer> permutation,
             ILockableContainmentCache<Station, ContainmentCacheSATEntry> SATCache,
             ILockableContainmentCache<Station, ContainmentCacheUNSATEntry> UNSATCache) {
-        this.permutation = ImmutableBiMap.copyOf(permutation);
-        this.SATCache = SATCache;
+        this(permutation, ImmutableList.of(SATCache), UNSATCache);
+    }
+
+    public SatisfiabilityCache(
+            BiMap<Station, Integer> permutation,
+            List<ILockableContainmentCache<Station, ContainmentCacheSATEntry>> SATShards,
+            ILockableContainmentCache<Station, ContainmentCacheUNSATEntry> UNSATCache) {
+        Preconditions.checkArgument(!SATShards.isEmpty(), "Need at least one SAT shard");
+        this.cachePermutation = CachePermutation.of(permutation);
+        this.permutation = cachePermutation.getPermutation();
+        this.SATShards = ImmutableList.copyOf(SATShards);
         this.UNSATCache = UNSATCache;
     }
 
+    private ILockableContainmentCache<Station, ContainmentCacheSATEntry> shardOf(ContainmentCacheSATEntry entry) {
+        return SATShards.get(Math.floorMod(entry.getBitSet().hashCode(), SATShards.size()));
+    }
+
     @Override
     public ContainmentCacheSATResult proveSATBySuperset(final StationPackingInstance aInstance, final Predicate<ContainmentCacheSATEntry> ignorePredicate) {
+        final ContainmentCacheSATEntry entry = findSATSuperset(aInstance, ignorePredicate, SATShards.size() > 1);
+        return entry != null ? new ContainmentCacheSATResult(entry.getAssignmentChannelToStation(), entry.getKey()) : ContainmentCacheSATResult.failure();
+    }
+
+    /**
+     * @param parallel whether to search the shards in parallel on the fork join pool, or one after the other in the calling thread
+     * @return a SAT entry that is a solution to the instance and passes the predicate, or null if there is none
+     */
+    private ContainmentCacheSATEntry findSATSuperset(final StationPackingInstance aInstance, final Predicate<ContainmentCacheSATEntry> ignorePredicate, boolean parallel) {
         // try to narrow down the entries we have to search by only looking at supersets
+        final SimpleCacheSet<Station> query = new SimpleCacheSet<>(aInstance.getStations(), permutation);
+        final PackedDomains domains = new PackedDomains(aInstance, permutation);
+        final AtomicReference<ContainmentCacheSATEntry> solution = new AtomicReference<>();
+        if (parallel) {
+            final List<ForkJoinTask<?>> searches = new ArrayList<>(SATShards.size());
+            for (ILockableContainmentCache<Station, ContainmentCacheSATEntry> shard : SATShards) {
+                searches.add(ForkJoinPool.commonPool().submit(() -> searchShard(shard, query, domains, ignorePredicate, solution)));
+            }
+            searches.forEach(ForkJoinTask::join);
+        } else {
+            for (ILockableContainmentCache<Station, ContainmentCacheSATEntry> shard : SATShards) {
+                searchShard(shard, query, domains, ignorePredicate, solution);
+                if (solution.get() != null) {
+                    break;
+                }
+            }
+        }
+        return solution.get();
+    }
+
+    private void searchShard(ILockableContainmentCache<Station, ContainmentCacheSATEntry> shard, SimpleCacheSet<Station> query, PackedDomains domains, Predicate<ContainmentCacheSATEntry> ignorePredicate, AtomicReference<ContainmentCacheSATEntry> solution) {
         try {
-            SATCache.getReadLock().lock();
-            final Iterable<ContainmentCacheSATEntry> iterable = SATCache.getSupersets(new SimpleCacheSet<Station>(aInstance.getStations(), permutation));
-            return StreamSupport.stream(iterable.spliterator(), false)
-                    /**
-                     * The entry must contain at least every station in the query in order to provide a solution (hence superset)
-                     * The entry should also be a solution to the problem, which it will be as long as the solution can project onto the query's domains since they come from the set of interference constraints
-                     */
-                    .filter(entry -> entry.isSolutionTo(aInstance))
-                    .filter(ignorePredicate)
-                    .map(entry -> new ContainmentCacheSATResult(entry.getAssignmentChannelToStation(), entry.getKey()))
-                    .findAny()
-                    .orElse(ContainmentCacheSATResult.failure());
+            shard.getReadLock().lock();
+            for (ContainmentCacheSATEntry entry : shard.getSupersets(query)) {
+                if (solution.get() != null) {
+                    // Another shard already found one
+                    return;
+                }
+                /*
+                 * The entry must contain at least every station in the query in order to provide a solution (hence superset)
+                 * The entry should also be a solution to the problem, which it will be as long as the solution can project onto the query's domains since they come from the set of interference constraints
+                 */
+                if (entry.isSolutionTo(domains) && ignorePredicate.test(entry)) {
+                    solution.compareAndSet(null, entry);
+                    return;
+                }
+            }
         } finally {
-            SATCache.getReadLock().unlock();
+            shard.getReadLock().unlock();
         }
     }
 
@@ -94,12 +151,13 @@ public class SatisfiabilityCache implements ISatisfiabilityCache {
         try {
             UNSATCache.getReadLock().lock();
             final Iterable<ContainmentCacheUNSATEntry> iterable = UNSATCache.getSubsets(new SimpleCacheSet<Station>(aInstance.getStations(), permutation));
+            final PackedDomains domains = new PackedDomains(aInstance, permutation);
             return StreamSupport.stream(iterable.spliterator(), false)
                 /*
                  * The entry's stations should be a subset of the query's stations (so as to be less constrained)
                  * and each station in the entry must have larger than or equal to the corresponding station domain in the target (so as to be less constrained)
                  */
-                    .filter(entry -> isSupersetOrEqualToByDomains(entry.getDomains(), aInstance.getDomains()))
+                    .filter(entry -> entry.isLessRestrictive(domains))
                     .map(entry -> new ContainmentCacheUNSATResult(entry.getKey()))
                     .findAny()
                     .orElse(ContainmentCacheUNSATResult.failure());
@@ -110,7 +168,7 @@ public class SatisfiabilityCache implements ISatisfiabilityCache {
 
     @Override
     public void add(ContainmentCacheSATEntry SATEntry) {
-        SATCache.add(SATEntry);
+        shardOf(SATEntry).add(SATEntry);
     }
 
     @Override
@@ -118,22 +176,6 @@ public class SatisfiabilityCache implements ISatisfiabilityCache {
         UNSATCache.add(UNSATEntry);
     }
 
-    /**
-     * Domain a has less stations than domain b because of previous method call getSubsets();
-     * If each station domain in domain a has same or more channels than the matching station in domain b,
-     * then a is superset of b
-     *
-     * @param a superset domain
-     * @param b subset domain
-     * @return true if a's domain is a superset of b's domain
-     */
-    private boolean isSupersetOrEqualToByDomains(Map<Station, Set<Integer>> a, Map<Station, Set<Integer>> b) {
-        return a.entrySet().stream().allMatch(entry -> {
-            final Set<Integer> integers = b.get(entry.getKey());
-            return integers != null && entry.getValue().containsAll(integers);
-        });
-    }
-
     /**
      * removes redundant SAT entries from this SATCache
      *
@@ -142,33 +184,42 @@ public class SatisfiabilityCache implements ISatisfiabilityCache {
     @Override
     public List<ContainmentCacheSATEntry> filterSAT(IStationManager stationManager, boolean strong) {
         List<ContainmentCacheSATEntry> prunableEntries = Collections.synchronizedList(new ArrayList<>());
-        Iterable<ContainmentCacheSATEntry> satEntries = SATCache.getSets();
+        final int numSATEntries = SATShards.stream().mapToInt(ILockableContainmentCache::size).sum();
 
         final AtomicLong counter = new AtomicLong();
-        SATCache.getReadLock().lock();
+        lockAllShards();
         try {
-            StreamSupport.stream(satEntries.spliterator(), true)
+            SATShards.stream().flatMap(shard -> StreamSupport.stream(shard.getSets().spliterator(), false))
+                    .parallel()
                     .forEach(cacheEntry -> {
                         if (counter.getAndIncrement() % 1000 == 0) {
-                            log.info("Scanned {} / {} entries; Found {} prunables", counter.get(), SATCache.size(), prunableEntries.size());
+                            log.info("Scanned {} / {} entries; Found {} prunables", counter.get(), numSATEntries, prunableEntries.size());
                         }
                         if ((strong && shouldFilterStrong(cacheEntry, stationManager)) || (!strong && shouldFilterWeak(cacheEntry))) {
                             prunableEntries.add(cacheEntry);
                         }
                     });
         } finally {
-            SATCache.getReadLock().unlock();
+            unlockAllShards();
         }
 
-        prunableEntries.forEach(SATCache::remove);
+        prunableEntries.forEach(entry -> shardOf(entry).remove(entry));
         return prunableEntries;
     }
 
+    private void lockAllShards() {
+        SATShards.forEach(shard -> shard.getReadLock().lock());
+    }
+
+    private void unlockAllShards() {
+        Lists.reverse(SATShards).forEach(shard -> shard.getReadLock().unlock());
+    }
+
     private boolean shouldFilterWeak(ContainmentCacheSATEntry cacheEntry) {
-        Iterable<ContainmentCacheSATEntry> supersets = SATCache.getSupersets(cacheEntry);
-        return StreamSupport.stream(supersets.spliterator(), false)
-                        .filter(entry -> entry.hasMoreSolvingPower(cacheEntry))
-                        .findAny().isPresent();
+        return SATShards.stream()
+                .flatMap(shard -> StreamSupport.stream(shard.getSupersets(cacheEntry).spliterator(), false))
+                .filter(entry -> entry.hasMoreSolvingPower(cacheEntry))
+                .findAny().isPresent();
     }
 
     private boolean shouldFilterStrong(ContainmentCacheSATEntry cacheEntry, IStationManager stationManager) {
@@ -178,7 +229,8 @@ public class SatisfiabilityCache implements ISatisfiabilityCache {
             domains.put(station, stationManager.getRestrictedDomain(station, e.getValue(), false));
         }
         final StationPackingInstance i = new StationPackingInstance(domains);
-        return proveSATBySuperset(i, entry -> entry != cacheEntry).isValid();
+        // Already running in parallel over the entries, so search the shards sequentially
+        return findSATSuperset(i, entry -> entry != cacheEntry, false) != null;
     }
 
     /**
@@ -218,26 +270,46 @@ public class SatisfiabilityCache implements ISatisfiabilityCache {
         return prunableEntries;
     }
 
+    @Override
+    public List<ContainmentCacheSATEntry> getSATEntries() {
+        lockAllShards();
+        try {
+            return SATShards.stream().flatMap(shard -> StreamSupport.stream(shard.getSets().spliterator(), false)).collect(Collectors.toList());
+        } finally {
+            unlockAllShards();
+        }
+    }
+
+    @Override
+    public List<ContainmentCacheUNSATEntry> getUNSATEntries() {
+        UNSATCache.getReadLock().lock();
+        try {
+            return Lists.newArrayList(UNSATCache.getSets());
+        } finally {
+            UNSATCache.getReadLock().unlock();
+        }
+    }
+
     @Override
     public List<ContainmentCacheSATEntry> findMaxIntersections(StationPackingInstance instance, int k) {
         BitSet bitSet = new SimpleCacheSet<>(instance.getStations(), permutation).getBitSet();
         ImmutableMap<Station, Set<Integer>> domains = instance.getDomains();
-        SATCache.getReadLock().lock();
+        lockAllShards();
         try {
-            return StreamSupport.stream(SATCache.getSets().spliterator(), false)
+            return SATShards.stream().flatMap(shard -> StreamSupport.stream(shard.getSets().spliterator(), false))
                     .sorted((a, b) -> {
                         final BitSet aCopy = (BitSet) a.getBitSet().clone();
                         final BitSet bCopy = (BitSet) b.getBitSet().clone();
                         aCopy.and(bitSet);
                         bCopy.and(bitSet);
                         aCopy.stream().forEach(i -> {
-                            Station station = permutation.inverse().get(i);
+                            Station station = cachePermutation.getStation(i);
                             if (!domains.get(station).contains(a.getAssignmentStationToChannel().get(station.getID()))) {
                                 aCopy.clear(i);
                             }
                         });
                         bCopy.stream().forEach(i -> {
-                            Station station = permutation.inverse().get(i);
+                            Station station = cachePermutation.getStation(i);
                             if (!domains.get(station).contains(b.getAssignmentStationToChannel().get(station.getID()))) {
                                 bCopy.clear(i);
                             }
@@ -247,7 +319,7 @@ public class SatisfiabilityCache implements ISatisfiabilityCache {
                     .limit(k)
                     .collect(Collectors.toList());
         } finally {
-            SATCache.getReadLock().unlock();
+            unlockAllShards();
         }
     }
 
@@ -59,6 +59,16 @@ public interface ISatisfiabilityCache {
     List<ContainmentCacheSATEntry> filterSAT(IStationManager stationManager, boolean strong);
     List<ContainmentCacheUNSATEntry> filterUNSAT();
 
+    /**
+     * @return a copy of all the SAT entries currently in the cache
+     */
+    List<ContainmentCacheSATEntry> getSATEntries();
+
+    /**
+     * @return a copy of all the UNSAT entries currently in the cache
+     */
+    List<ContainmentCacheUNSATEntry> getUNSATEntries();
+
     List<ContainmentCacheSATEntry> findMaxIntersections(final StationPackingInstance instance, int k);
 
     ImmutableBiMap<Station, Integer> getPermutation();
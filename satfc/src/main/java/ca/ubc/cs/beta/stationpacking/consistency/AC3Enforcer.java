@@ -31,38 +31,43 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
-import org.jgrapht.alg.NeighborIndex;
-import org.jgrapht.graph.DefaultEdge;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
-import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGrouper;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphView;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
-import ca.ubc.cs.beta.stationpacking.solvers.termination.infinite.NeverEndingTerminationCriterion;
 import lombok.extern.slf4j.Slf4j;
 
 /**
 * Created by newmanne on 10/06/15.
 */
 @Slf4j
-public class AC3Enforcer {
+public class AC3Enforcer implements IArcConsistencyEnforcer {
 
     private final IConstraintManager constraintManager;
+    private final ConstraintGraphService constraintGraphService;
 
     public AC3Enforcer(IConstraintManager constraintManager) {
+        this(constraintManager, new ConstraintGraphService(constraintManager));
+    }
+
+    public AC3Enforcer(IConstraintManager constraintManager, ConstraintGraphService constraintGraphService) {
         this.constraintManager = constraintManager;
+        this.constraintGraphService = constraintGraphService;
     }
 
     /**
      * Enforces arc consistency using AC3 (see https://en.wikipedia.org/wiki/AC-3_algorithm)
      * Will fail at the first indication of inconsistency.
      */
+    @Override
     public AC3Output AC3(StationPackingInstance instance, ITerminationCriterion criterion) {
         // Deep copy map
         final Map<Station, Set<Integer>> reducedDomains = instance.getDomains().entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> new HashSet<>(entry.getValue())));
         final AC3Output output = new AC3Output(reducedDomains);
-        final NeighborIndex<Station, DefaultEdge> neighborIndex = new NeighborIndex<>(ConstraintGrouper.getConstraintGraph(instance.getDomains(), constraintManager));
+        final ConstraintGraphView neighborIndex = constraintGraphService.getView(instance.getDomains());
         final LinkedBlockingQueue<Pair<Station, Station>> workList = getInterferingStationPairs(neighborIndex, instance);
         while (!criterion.hasToStop() && !workList.isEmpty()) {
             final Pair<Station, Station> pair = workList.poll();
@@ -80,12 +85,8 @@ public class AC3Enforcer {
         return output;
     }
 
-    public AC3Output AC3(StationPackingInstance instance) {
-        return AC3(instance, new NeverEndingTerminationCriterion());
-    }
-
     private void reenqueueAllAffectedPairs(Queue<Pair<Station, Station>> interferingStationPairs,
-                                           Pair<Station, Station> modifiedPair, NeighborIndex<Station, DefaultEdge> neighborIndex) {
+                                           Pair<Station, Station> modifiedPair, ConstraintGraphView neighborIndex) {
         final Station x = modifiedPair.getLeft();
         final Station y = modifiedPair.getRight();
 
@@ -94,7 +95,7 @@ public class AC3Enforcer {
         });
     }
 
-    private LinkedBlockingQueue<Pair<Station, Station>> getInterferingStationPairs(NeighborIndex<Station, DefaultEdge> neighborIndex, StationPackingInstance instance) {
+    private LinkedBlockingQueue<Pair<Station, Station>> getInterferingStationPairs(ConstraintGraphView neighborIndex, StationPackingInstance instance) {
         final LinkedBlockingQueue<Pair<Station, Station>> workList = new LinkedBlockingQueue<>();
         for (Station referenceStation : instance.getStations()) {
             for (Station neighborStation : neighborIndex.neighborsOf(referenceStation)) {
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.consistency;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * AC-3 (see https://en.wikipedia.org/wiki/AC-3_algorithm) over primitive channel masks.
+ * <p>
+ * Every domain is a 64 bit mask of channels. Each arc (x, y) between interfering stations has a conflict mask for every channel of x's domain,
+ * the mask of y's channels that interfere with it. A channel of x then has a support in y if y's domain is not contained in its conflict mask,
+ * a single bitwise operation. The worklist is a circular int queue of arc indices, with a flag per arc so that an arc is never queued twice.
+ * </p>
+ * <p>
+ * The arcs and their conflict masks are a {@link ChannelMaskArcs}, read from the bundle's precomputed interference adjacency when it covers the instance.
+ * </p>
+ * <p>
+ * Reaches the same fixed point as {@link AC3Enforcer}. Instances whose channels span more than 64 values are delegated to {@link AC3Enforcer}.
+ * </p>
+ */
+@Slf4j
+public class BitSetAC3Enforcer implements IArcConsistencyEnforcer {
+
+    /*
+     * How many arcs to revise between two checks of the termination criterion.
+     */
+    private static final int TERMINATION_CHECK_PERIOD = 64;
+
+    private final IConstraintManager constraintManager;
+    private final ConstraintGraphService constraintGraphService;
+    private final AC3Enforcer wideChannelRangeEnforcer;
+
+    public BitSetAC3Enforcer(IConstraintManager constraintManager) {
+        this(constraintManager, new ConstraintGraphService(constraintManager));
+    }
+
+    public BitSetAC3Enforcer(IConstraintManager constraintManager, ConstraintGraphService constraintGraphService) {
+        this.constraintManager = constraintManager;
+        this.constraintGraphService = constraintGraphService;
+        this.wideChannelRangeEnforcer = new AC3Enforcer(constraintManager, constraintGraphService);
+    }
+
+    @Override
+    public AC3Output AC3(StationPackingInstance instance, ITerminationCriterion criterion) {
+        final ChannelMaskArcs arcs = ChannelMaskArcs.create(constraintManager, constraintGraphService, instance.getDomains());
+        if (arcs == null) {
+            log.debug("Channels span more than {} values, too wide for channel masks.", Long.SIZE);
+            return wideChannelRangeEnforcer.AC3(instance, criterion);
+        }
+        final int numStations = arcs.getNumStations();
+        final long[] initialDomains = new long[numStations];
+        for (int x = 0; x < numStations; x++) {
+            initialDomains[x] = arcs.getDomain(x);
+        }
+
+        final long[] reducedDomains = Arrays.copyOf(initialDomains, initialDomains.length);
+        final boolean noSolution = enforce(arcs, initialDomains, reducedDomains, criterion);
+
+        final Map<Station, Set<Integer>> reducedDomainsMap = new HashMap<>();
+        int numReducedChannels = 0;
+        for (int i = 0; i < numStations; i++) {
+            reducedDomainsMap.put(arcs.getStation(i), arcs.toChannels(reducedDomains[i]));
+            numReducedChannels += Long.bitCount(initialDomains[i] & ~reducedDomains[i]);
+        }
+        final AC3Output result = new AC3Output(reducedDomainsMap);
+        result.setNoSolution(noSolution);
+        result.setNumReducedChannels(numReducedChannels);
+        return result;
+    }
+
+    /**
+     * Run the AC-3 worklist to completion (or until the criterion is met).
+     * @return true if a domain was reduced to empty.
+     */
+    private static boolean enforce(ChannelMaskArcs arcs, long[] initialDomains, long[] domains, ITerminationCriterion criterion) {
+        final int numArcs = arcs.getNumArcs();
+        final int[] queue = new int[Math.max(numArcs, 1)];
+        final boolean[] queued = new boolean[numArcs];
+        int head = 0;
+        int size = 0;
+        for (int arc = 0; arc < numArcs; arc++) {
+            queue[size++] = arc;
+            queued[arc] = true;
+        }
+
+        int numRevisions = 0;
+        while (size > 0) {
+            if (numRevisions++ % TERMINATION_CHECK_PERIOD == 0 && criterion.hasToStop()) {
+                break;
+            }
+            final int arc = queue[head];
+            head = head + 1 == queue.length ? 0 : head + 1;
+            size--;
+            queued[arc] = false;
+
+            final int x = arcs.getSource(arc);
+            final int y = arcs.getTarget(arc);
+            final long reduced = revise(arcs, arc, initialDomains[x], domains[x], domains[y]);
+            if (reduced != domains[x]) {
+                domains[x] = reduced;
+                if (reduced == 0) {
+                    log.debug("Reduced a domain to empty! Problem is solved UNSAT");
+                    return true;
+                }
+                // Every other neighbour of x may have lost its support in x
+                for (int out = arcs.getArcsStart(x); out < arcs.getArcsEnd(x); out++) {
+                    if (arcs.getTarget(out) != y) {
+                        final int in = arcs.getReverse(out);
+                        if (!queued[in]) {
+                            queued[in] = true;
+                            int tail = head + size;
+                            if (tail >= queue.length) {
+                                tail -= queue.length;
+                            }
+                            queue[tail] = in;
+                            size++;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return x's domain without the channels that have no support in y's domain.
+     */
+    private static long revise(ChannelMaskArcs arcs, int arc, long xInitialDomain, long xDomain, long yDomain) {
+        long reduced = xDomain;
+        long remaining = xInitialDomain;
+        int rank = 0;
+        while (remaining != 0) {
+            final long channelBit = Long.lowestOneBit(remaining);
+            remaining ^= channelBit;
+            if ((xDomain & channelBit) != 0 && (yDomain & ~arcs.getConflictMask(arc, rank)) == 0) {
+                reduced &= ~channelBit;
+            }
+            rank++;
+        }
+        return reduced;
+    }
+
+}
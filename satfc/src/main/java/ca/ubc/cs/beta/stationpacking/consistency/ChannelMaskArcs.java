@@ -0,0 +1,288 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.consistency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.Constraint;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.InterferenceAdjacency;
+import lombok.Getter;
+
+/**
+ * An instance's domains as 64 bit channel masks, with the arcs between its interfering stations.
+ * <p>
+ * Stations are indexed from 0 to {@link #getNumStations()} (exclusive), and bit i of a channel mask is channel {@link #getMinChannel()} + i.
+ * Station x's arcs are {@link #getArcsStart(int)} to {@link #getArcsEnd(int)} (exclusive), sorted by target station. Arc a has a conflict mask
+ * for every channel of its source's domain: the mask of the target's channels that interfere with it (see {@link #getConflictMask(int, int)}).
+ * </p>
+ * <p>
+ * When the bundle's {@link ConstraintGraphService} has a precomputed {@link InterferenceAdjacency} covering the instance, the conflict masks are read
+ * from its per station pair conflict windows, so no constraint is enumerated. Otherwise they are built from the instance's relevant constraints.
+ * </p>
+ */
+public class ChannelMaskArcs {
+
+    private final Station[] stations;
+    @Getter
+    private final int minChannel;
+    private final long[] domains;
+
+    private final int[] offsets;
+    private final int[] source;
+    private final int[] target;
+    private final int[] reverse;
+    private final int[] conflictOffsets;
+    private final long[] conflicts;
+
+    /**
+     * @return the instance's arcs, or null if its channels span more than 64 values.
+     */
+    public static ChannelMaskArcs create(IConstraintManager constraintManager, ConstraintGraphService constraintGraphService, Map<Station, Set<Integer>> domains) {
+        final InterferenceAdjacency adjacency = constraintGraphService.getAdjacency();
+        if (adjacency != null && adjacency.getNumChannels() <= Long.SIZE && covers(adjacency, domains)) {
+            // Local indices in increasing adjacency index, so that every station's arcs are sorted by target
+            final Station[] stations = domains.keySet().stream().sorted(Comparator.comparingInt(adjacency::indexOf)).toArray(Station[]::new);
+            return new ChannelMaskArcs(adjacency, stations, adjacency.getMinChannel(), toMasks(stations, domains, adjacency.getMinChannel()));
+        }
+        final int minChannel = domains.values().stream().flatMap(Set::stream).mapToInt(Integer::intValue).min().orElse(0);
+        final int maxChannel = domains.values().stream().flatMap(Set::stream).mapToInt(Integer::intValue).max().orElse(0);
+        if (maxChannel - minChannel >= Long.SIZE) {
+            return null;
+        }
+        final Station[] stations = domains.keySet().toArray(new Station[domains.size()]);
+        return new ChannelMaskArcs(constraintManager, stations, minChannel, toMasks(stations, domains, minChannel));
+    }
+
+    private ChannelMaskArcs(InterferenceAdjacency adjacency, Station[] stations, int minChannel, long[] initialDomains) {
+        this.stations = stations;
+        this.minChannel = minChannel;
+        this.domains = initialDomains;
+        final int numStations = stations.length;
+        final int[] globalIndices = new int[numStations];
+        for (int x = 0; x < numStations; x++) {
+            globalIndices[x] = adjacency.indexOf(stations[x]);
+        }
+        offsets = new int[numStations + 1];
+        final List<int[]> arcList = new ArrayList<>();
+        final List<long[]> conflictList = new ArrayList<>();
+        for (int x = 0; x < numStations; x++) {
+            final int global = globalIndices[x];
+            for (int entry = adjacency.getNeighboursStart(global); entry < adjacency.getNeighboursEnd(global); entry++) {
+                final int y = Arrays.binarySearch(globalIndices, adjacency.getNeighbour(entry));
+                if (y < 0) {
+                    continue;
+                }
+                final long[] arcConflicts = new long[Long.bitCount(initialDomains[x])];
+                boolean interferes = false;
+                int rank = 0;
+                for (long remaining = initialDomains[x]; remaining != 0; remaining &= remaining - 1) {
+                    arcConflicts[rank] = adjacency.getConflictMask(entry, Long.numberOfTrailingZeros(remaining)) & initialDomains[y];
+                    interferes |= arcConflicts[rank] != 0;
+                    rank++;
+                }
+                if (interferes) {
+                    arcList.add(new int[]{x, y});
+                    conflictList.add(arcConflicts);
+                    offsets[x + 1]++;
+                }
+            }
+        }
+        for (int x = 0; x < numStations; x++) {
+            offsets[x + 1] += offsets[x];
+        }
+
+        final int numArcs = arcList.size();
+        source = new int[numArcs];
+        target = new int[numArcs];
+        reverse = new int[numArcs];
+        conflictOffsets = new int[numArcs];
+        int numConflicts = 0;
+        for (int a = 0; a < numArcs; a++) {
+            source[a] = arcList.get(a)[0];
+            target[a] = arcList.get(a)[1];
+            conflictOffsets[a] = numConflicts;
+            numConflicts += conflictList.get(a).length;
+        }
+        conflicts = new long[numConflicts];
+        for (int a = 0; a < numArcs; a++) {
+            System.arraycopy(conflictList.get(a), 0, conflicts, conflictOffsets[a], conflictList.get(a).length);
+            // Conflict windows are symmetric, so the reverse arc always exists
+            reverse[a] = Arrays.binarySearch(target, offsets[target[a]], offsets[target[a] + 1], source[a]);
+        }
+    }
+
+    private ChannelMaskArcs(IConstraintManager constraintManager, Station[] stations, int minChannel, long[] initialDomains) {
+        this.stations = stations;
+        this.minChannel = minChannel;
+        this.domains = initialDomains;
+        final Map<Station, Integer> stationIndices = new HashMap<>();
+        for (int i = 0; i < stations.length; i++) {
+            stationIndices.put(stations[i], i);
+        }
+        final int numStations = initialDomains.length;
+        final Map<Station, Set<Integer>> channelDomains = new HashMap<>();
+        stationIndices.forEach((station, index) -> channelDomains.put(station, toChannels(initialDomains[index], minChannel)));
+
+        // Conflict masks of each (x, y) pair, by rank of x's channel in its initial domain
+        final Map<Long, long[]> pairConflicts = new HashMap<>();
+        for (Constraint constraint : constraintManager.getAllRelevantConstraints(channelDomains)) {
+            final int s = stationIndices.get(constraint.getSource());
+            final int t = stationIndices.get(constraint.getTarget());
+            if (s == t) {
+                continue;
+            }
+            final int sBit = constraint.getSourceChannel() - minChannel;
+            final int tBit = constraint.getTargetChannel() - minChannel;
+            conflictsOf(pairConflicts, s, t, initialDomains, numStations)[rank(initialDomains[s], 1L << sBit)] |= 1L << tBit;
+            conflictsOf(pairConflicts, t, s, initialDomains, numStations)[rank(initialDomains[t], 1L << tBit)] |= 1L << sBit;
+        }
+
+        final int numArcs = pairConflicts.size();
+        final long[] keys = pairConflicts.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        offsets = new int[numStations + 1];
+        source = new int[numArcs];
+        target = new int[numArcs];
+        reverse = new int[numArcs];
+        conflictOffsets = new int[numArcs];
+        int numConflicts = 0;
+        for (int a = 0; a < numArcs; a++) {
+            source[a] = (int) (keys[a] / numStations);
+            target[a] = (int) (keys[a] % numStations);
+            offsets[source[a] + 1]++;
+            conflictOffsets[a] = numConflicts;
+            numConflicts += Long.bitCount(initialDomains[source[a]]);
+        }
+        for (int x = 0; x < numStations; x++) {
+            offsets[x + 1] += offsets[x];
+        }
+        conflicts = new long[numConflicts];
+        for (int a = 0; a < numArcs; a++) {
+            final long[] arcConflicts = pairConflicts.get(keys[a]);
+            System.arraycopy(arcConflicts, 0, conflicts, conflictOffsets[a], arcConflicts.length);
+            // Conflicts are symmetric, so the reverse arc always exists
+            reverse[a] = Arrays.binarySearch(keys, (long) target[a] * numStations + source[a]);
+        }
+    }
+
+    public int getNumStations() {
+        return stations.length;
+    }
+
+    public Station getStation(int x) {
+        return stations[x];
+    }
+
+    /**
+     * @return station x's domain, as a channel mask.
+     */
+    public long getDomain(int x) {
+        return domains[x];
+    }
+
+    public int getNumArcs() {
+        return source.length;
+    }
+
+    public int getArcsStart(int x) {
+        return offsets[x];
+    }
+
+    public int getArcsEnd(int x) {
+        return offsets[x + 1];
+    }
+
+    public int getSource(int arc) {
+        return source[arc];
+    }
+
+    public int getTarget(int arc) {
+        return target[arc];
+    }
+
+    /**
+     * @return the arc going the other way.
+     */
+    public int getReverse(int arc) {
+        return reverse[arc];
+    }
+
+    /**
+     * @param rank - rank of a channel in the arc's source domain (0 for its lowest channel).
+     * @return the mask of the target's channels that interfere with the source on that channel.
+     */
+    public long getConflictMask(int arc, int rank) {
+        return conflicts[conflictOffsets[arc] + rank];
+    }
+
+    /**
+     * @return the rank of the given channel bit in the given mask.
+     */
+    public static int rank(long aDomain, long aChannelBit) {
+        return Long.bitCount(aDomain & (aChannelBit - 1));
+    }
+
+    /**
+     * @return the channels of a channel mask.
+     */
+    public Set<Integer> toChannels(long aDomain) {
+        return toChannels(aDomain, minChannel);
+    }
+
+    private static boolean covers(InterferenceAdjacency adjacency, Map<Station, Set<Integer>> domains) {
+        return domains.entrySet().stream().allMatch(entry -> adjacency.indexOf(entry.getKey()) >= 0 && entry.getValue().stream().allMatch(adjacency::isKnownChannel));
+    }
+
+    private static long[] toMasks(Station[] stations, Map<Station, Set<Integer>> domains, int minChannel) {
+        final long[] masks = new long[stations.length];
+        for (int i = 0; i < stations.length; i++) {
+            for (int channel : domains.get(stations[i])) {
+                masks[i] |= 1L << (channel - minChannel);
+            }
+        }
+        return masks;
+    }
+
+    private static Set<Integer> toChannels(long aDomain, int aMinChannel) {
+        final Set<Integer> channels = new HashSet<>();
+        long remaining = aDomain;
+        while (remaining != 0) {
+            channels.add(aMinChannel + Long.numberOfTrailingZeros(remaining));
+            remaining &= remaining - 1;
+        }
+        return channels;
+    }
+
+    private static long[] conflictsOf(Map<Long, long[]> aPairConflicts, int x, int y, long[] initialDomains, int numStations) {
+        return aPairConflicts.computeIfAbsent((long) x * numStations + y, k -> new long[Long.bitCount(initialDomains[x])]);
+    }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.consistency;
+
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.infinite.NeverEndingTerminationCriterion;
+
+/**
+ * Reduces the domains of an instance to arc consistency.
+ */
+public interface IArcConsistencyEnforcer {
+
+    /**
+     * Enforces arc consistency on the instance's domains, stopping at the first indication of inconsistency.
+     * @param instance - instance whose domains to reduce (it is not modified).
+     * @param criterion - termination criterion, the reduction stops (with partially reduced domains) when it is met.
+     * @return the reduced domains, and whether the instance was found to have no solution.
+     */
+    AC3Output AC3(StationPackingInstance instance, ITerminationCriterion criterion);
+
+    default AC3Output AC3(StationPackingInstance instance) {
+        return AC3(instance, new NeverEndingTerminationCriterion());
+    }
+
+}
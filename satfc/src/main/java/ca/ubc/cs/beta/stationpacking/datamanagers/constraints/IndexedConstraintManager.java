@@ -0,0 +1,384 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.datamanagers.constraints;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+import ca.ubc.cs.beta.stationpacking.utils.BinaryUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Constraint manager that stores interference constraints as primitive int arrays instead of nested {@link Station} maps.
+ * <p>
+ * Stations are remapped to a dense index (their rank by ID), and for each constraint key the interfering stations of every
+ * (station, channel) pair are stored as a sorted row of station indices in a compressed sparse row layout.
+ * Lookups never box channels or hash stations, and the whole structure is a handful of int arrays.
+ * </p>
+ * <p>
+ * It is compiled from an already parsed {@link AMapBasedConstraintManager}, so it holds exactly the same constraints (and hash).
+ * Its arrays can also be written out and read back (see {@link #writeTo(DataOutput)}), which skips parsing altogether.
+ * </p>
+ */
+@Slf4j
+public class IndexedConstraintManager extends AConstraintManager {
+
+    private static final int CO = 0;
+    private static final int ADJp1 = 1;
+    private static final int ADJp2 = 2;
+    private static final int NUM_KEYS = 3;
+
+    /*
+     * Stations sorted by ID. A station's index is its position in this array.
+     */
+    private final Station[] fStations;
+    private final int[] fStationIDs;
+
+    private final int fMinChannel;
+    private final int fNumChannels;
+
+    /*
+     * For each constraint key, row r = stationIndex * fNumChannels + (channel - fMinChannel) spans
+     * fTargets[key][fOffsets[key][r]] to fTargets[key][fOffsets[key][r+1]] (exclusive), sorted ascending.
+     */
+    private final int[][] fOffsets;
+    private final int[][] fTargets;
+
+    private final String fHash;
+
+    /**
+     * Whether the constraints were originally given in the channel specific (compact) format.
+     */
+    @Getter
+    private final boolean compactInterference;
+
+    /**
+     * Compile a map based constraint manager into an indexed one.
+     *
+     * @param aStationManager    - station manager the constraints were read with.
+     * @param aConstraintManager - parsed constraints to index.
+     */
+    public IndexedConstraintManager(IStationManager aStationManager, AMapBasedConstraintManager aConstraintManager) {
+        fStations = aStationManager.getStations().stream().sorted().toArray(Station[]::new);
+        fStationIDs = Arrays.stream(fStations).mapToInt(Station::getID).toArray();
+        compactInterference = aConstraintManager instanceof ChannelSpecificConstraintManager;
+        fHash = aConstraintManager.getConstraintHash();
+
+        // Indexed by constraint key
+        final List<Map<Station, Map<Integer, Set<Station>>>> constraintMaps = Arrays.asList(
+                aConstraintManager.fCOConstraints,
+                aConstraintManager.fADJp1Constraints,
+                aConstraintManager.fADJp2Constraints);
+
+        int minChannel = Integer.MAX_VALUE;
+        int maxChannel = Integer.MIN_VALUE;
+        for (Map<Station, Map<Integer, Set<Station>>> constraintMap : constraintMaps) {
+            for (Map<Integer, Set<Station>> channelMap : constraintMap.values()) {
+                for (Integer channel : channelMap.keySet()) {
+                    minChannel = Math.min(minChannel, channel);
+                    maxChannel = Math.max(maxChannel, channel);
+                }
+            }
+        }
+        if (minChannel > maxChannel) {
+            // No constraints at all
+            minChannel = 0;
+            maxChannel = -1;
+        }
+        fMinChannel = minChannel;
+        fNumChannels = maxChannel - minChannel + 1;
+
+        fOffsets = new int[NUM_KEYS][];
+        fTargets = new int[NUM_KEYS][];
+        final int numRows = fStations.length * fNumChannels;
+        for (int key = 0; key < NUM_KEYS; key++) {
+            final Map<Station, Map<Integer, Set<Station>>> constraintMap = constraintMaps.get(key);
+            // First pass: row sizes
+            final int[] offsets = new int[numRows + 1];
+            constraintMap.forEach((subject, channelMap) -> {
+                final int subjectIndex = checkedIndexOf(subject);
+                channelMap.forEach((channel, targets) -> offsets[rowOf(subjectIndex, channel) + 1] += targets.size());
+            });
+            for (int row = 0; row < numRows; row++) {
+                offsets[row + 1] += offsets[row];
+            }
+            // Second pass: fill and sort each row
+            final int[] targets = new int[offsets[numRows]];
+            final int[] next = Arrays.copyOf(offsets, numRows);
+            constraintMap.forEach((subject, channelMap) -> {
+                final int subjectIndex = checkedIndexOf(subject);
+                channelMap.forEach((channel, targetStations) -> {
+                    final int row = rowOf(subjectIndex, channel);
+                    for (Station target : targetStations) {
+                        targets[next[row]++] = checkedIndexOf(target);
+                    }
+                    Arrays.sort(targets, offsets[row], offsets[row + 1]);
+                });
+            });
+            fOffsets[key] = offsets;
+            fTargets[key] = targets;
+        }
+        log.debug("Indexed {} CO, {} ADJ+1 and {} ADJ+2 constraints over {} stations and {} channels", fTargets[CO].length, fTargets[ADJp1].length, fTargets[ADJp2].length, fStations.length, fNumChannels);
+    }
+
+    private IndexedConstraintManager(Station[] aStations, int aMinChannel, int aNumChannels, int[][] aOffsets, int[][] aTargets, String aHash, boolean aCompactInterference) {
+        fStations = aStations;
+        fStationIDs = Arrays.stream(fStations).mapToInt(Station::getID).toArray();
+        fMinChannel = aMinChannel;
+        fNumChannels = aNumChannels;
+        fOffsets = aOffsets;
+        fTargets = aTargets;
+        fHash = aHash;
+        compactInterference = aCompactInterference;
+    }
+
+    /**
+     * Write the constraint arrays and hash, to be read back by {@link #readFrom(ByteBuffer, IStationManager)}.
+     */
+    public void writeTo(DataOutput aOut) throws IOException {
+        BinaryUtils.writeString(aOut, fHash);
+        aOut.writeBoolean(compactInterference);
+        BinaryUtils.writeInts(aOut, fStationIDs);
+        aOut.writeInt(fMinChannel);
+        aOut.writeInt(fNumChannels);
+        for (int key = 0; key < NUM_KEYS; key++) {
+            BinaryUtils.writeInts(aOut, fOffsets[key]);
+            BinaryUtils.writeInts(aOut, fTargets[key]);
+        }
+    }
+
+    /**
+     * @param aStationManager - station manager holding (at least) the stations of the written constraints.
+     * @return the constraint manager written by {@link #writeTo(DataOutput)}.
+     */
+    public static IndexedConstraintManager readFrom(ByteBuffer aBuffer, IStationManager aStationManager) {
+        final String hash = BinaryUtils.readString(aBuffer);
+        final boolean compactInterference = aBuffer.get() != 0;
+        final Station[] stations = Arrays.stream(BinaryUtils.readInts(aBuffer)).mapToObj(aStationManager::getStationfromID).toArray(Station[]::new);
+        final int minChannel = aBuffer.getInt();
+        final int numChannels = aBuffer.getInt();
+        final int[][] offsets = new int[NUM_KEYS][];
+        final int[][] targets = new int[NUM_KEYS][];
+        for (int key = 0; key < NUM_KEYS; key++) {
+            offsets[key] = BinaryUtils.readInts(aBuffer);
+            targets[key] = BinaryUtils.readInts(aBuffer);
+            if (offsets[key].length != stations.length * numChannels + 1) {
+                throw new IllegalArgumentException("Constraint rows do not match " + stations.length + " stations and " + numChannels + " channels.");
+            }
+        }
+        return new IndexedConstraintManager(stations, minChannel, numChannels, offsets, targets, hash, compactInterference);
+    }
+
+    private int indexOf(Station aStation) {
+        return Arrays.binarySearch(fStationIDs, aStation.getID());
+    }
+
+    private int checkedIndexOf(Station aStation) {
+        final int index = indexOf(aStation);
+        if (index < 0) {
+            throw new IllegalArgumentException("Station " + aStation + " appears in the constraints but not in the station manager");
+        }
+        return index;
+    }
+
+    private int rowOf(int aStationIndex, int aChannel) {
+        return aStationIndex * fNumChannels + (aChannel - fMinChannel);
+    }
+
+    /**
+     * @return the row of the given station index and channel, or -1 if there cannot be any constraint on it.
+     */
+    private int safeRowOf(int aStationIndex, int aChannel) {
+        if (aStationIndex < 0 || aChannel < fMinChannel || aChannel >= fMinChannel + fNumChannels) {
+            return -1;
+        }
+        return rowOf(aStationIndex, aChannel);
+    }
+
+    private boolean interferes(int aKey, int aSubjectIndex, int aChannel, int aTargetIndex) {
+        final int row = safeRowOf(aSubjectIndex, aChannel);
+        return row >= 0 && aTargetIndex >= 0 && Arrays.binarySearch(fTargets[aKey], fOffsets[aKey][row], fOffsets[aKey][row + 1], aTargetIndex) >= 0;
+    }
+
+    private Set<Station> getInterferingStations(int aKey, Station aStation, int aChannel) {
+        final int row = safeRowOf(indexOf(aStation), aChannel);
+        if (row < 0 || fOffsets[aKey][row] == fOffsets[aKey][row + 1]) {
+            return Collections.emptySet();
+        }
+        return new StationRow(aKey, row);
+    }
+
+    @Override
+    public Set<Station> getCOInterferingStations(Station aStation, int aChannel) {
+        return getInterferingStations(CO, aStation, aChannel);
+    }
+
+    @Override
+    public Set<Station> getADJplusOneInterferingStations(Station aStation, int aChannel) {
+        return getInterferingStations(ADJp1, aStation, aChannel);
+    }
+
+    @Override
+    public Set<Station> getADJplusTwoInterferingStations(Station aStation, int aChannel) {
+        return getInterferingStations(ADJp2, aStation, aChannel);
+    }
+
+    @Override
+    public boolean isSatisfyingAssignment(Station s1, int c1, Station s2, int c2) {
+        if (s1.equals(s2)) {
+            // A station cannot be on two channels at once
+            return c1 == c2;
+        }
+        final int i1 = indexOf(s1);
+        final int i2 = indexOf(s2);
+        switch (c2 - c1) {
+            case 0:
+                return !interferes(CO, i1, c1, i2) && !interferes(CO, i2, c2, i1);
+            case 1:
+                return !interferes(ADJp1, i1, c1, i2);
+            case -1:
+                return !interferes(ADJp1, i2, c2, i1);
+            case 2:
+                return !interferes(ADJp2, i1, c1, i2);
+            case -2:
+                return !interferes(ADJp2, i2, c2, i1);
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public Iterable<Constraint> getAllRelevantConstraints(Map<Station, Set<Integer>> domains) {
+        // Index the domains once so that target checks are array lookups
+        final BitSet[] indexedDomains = new BitSet[fStations.length];
+        for (Map.Entry<Station, Set<Integer>> entry : domains.entrySet()) {
+            final int index = indexOf(entry.getKey());
+            if (index >= 0) {
+                final BitSet channels = new BitSet(fNumChannels);
+                for (Integer channel : entry.getValue()) {
+                    if (channel >= fMinChannel && channel < fMinChannel + fNumChannels) {
+                        channels.set(channel - fMinChannel);
+                    }
+                }
+                indexedDomains[index] = channels;
+            }
+        }
+
+        final Collection<Constraint> constraintCollection = new ArrayList<>();
+        for (Map.Entry<Station, Set<Integer>> entry : domains.entrySet()) {
+            final Station sourceStation = entry.getKey();
+            final int sourceIndex = indexOf(sourceStation);
+            if (sourceIndex < 0) {
+                continue;
+            }
+            for (Integer sourceChannel : entry.getValue()) {
+                final int row = safeRowOf(sourceIndex, sourceChannel);
+                if (row < 0) {
+                    continue;
+                }
+                for (int key = 0; key < NUM_KEYS; key++) {
+                    // The constraint key index is also the channel offset of the target station
+                    final int targetChannel = sourceChannel + key;
+                    final int[] targets = fTargets[key];
+                    for (int i = fOffsets[key][row]; i < fOffsets[key][row + 1]; i++) {
+                        final BitSet targetDomain = indexedDomains[targets[i]];
+                        if (targetDomain != null && targetChannel - fMinChannel < fNumChannels && targetDomain.get(targetChannel - fMinChannel)) {
+                            constraintCollection.add(new Constraint(sourceStation, fStations[targets[i]], sourceChannel, targetChannel));
+                        }
+                    }
+                }
+            }
+        }
+        return constraintCollection;
+    }
+
+    @Override
+    public String getConstraintHash() {
+        return fHash;
+    }
+
+    /**
+     * Read-only set view of a single row of interfering stations.
+     */
+    private class StationRow extends AbstractSet<Station> {
+
+        private final int[] fRowTargets;
+        private final int fFrom;
+        private final int fTo;
+
+        StationRow(int aKey, int aRow) {
+            fRowTargets = fTargets[aKey];
+            fFrom = fOffsets[aKey][aRow];
+            fTo = fOffsets[aKey][aRow + 1];
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Station)) {
+                return false;
+            }
+            final int index = indexOf((Station) o);
+            return index >= 0 && Arrays.binarySearch(fRowTargets, fFrom, fTo, index) >= 0;
+        }
+
+        @Override
+        public Iterator<Station> iterator() {
+            return new Iterator<Station>() {
+                private int i = fFrom;
+
+                @Override
+                public boolean hasNext() {
+                    return i < fTo;
+                }
+
+                @Override
+                public Station next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return fStations[fRowTargets[i++]];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return fTo - fFrom;
+        }
+    }
+
+}
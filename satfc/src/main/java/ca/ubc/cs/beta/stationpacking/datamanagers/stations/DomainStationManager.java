@@ -21,9 +21,11 @@
  */
 package ca.ubc.cs.beta.stationpacking.datamanagers.stations;
 
+import java.io.DataOutput;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -38,6 +40,7 @@ import com.google.common.hash.PrimitiveSink;
 
 import au.com.bytecode.opencsv.CSVReader;
 import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.utils.BinaryUtils;
 
 /**
  * In charge of managing collections of stations read from a domain file.
@@ -105,6 +108,57 @@ public class DomainStationManager implements IStationManager{
                 .hash();
         fHash = hc.toString();
 	}
+
+	private DomainStationManager(Map<Station, Set<Integer>> aDomains, String aHash) {
+		aDomains.forEach((station, domain) -> {
+			fStations.put(station.getID(), station);
+			fDomains.put(station, domain);
+		});
+		fHash = aHash;
+	}
+
+	/**
+	 * Write the stations, their domains and the domain hash, to be read back by {@link #readFrom(ByteBuffer)}.
+	 */
+	public void writeTo(DataOutput aOut) throws IOException {
+		final Station[] stations = fStations.values().stream().sorted().toArray(Station[]::new);
+		final int[] ids = new int[stations.length];
+		final int[] domainOffsets = new int[stations.length + 1];
+		for (int i = 0; i < stations.length; i++) {
+			ids[i] = stations[i].getID();
+			domainOffsets[i + 1] = domainOffsets[i] + fDomains.get(stations[i]).size();
+		}
+		final int[] channels = new int[domainOffsets[stations.length]];
+		for (int i = 0; i < stations.length; i++) {
+			int c = domainOffsets[i];
+			for (Integer channel : fDomains.get(stations[i])) {
+				channels[c++] = channel;
+			}
+		}
+		BinaryUtils.writeString(aOut, fHash);
+		BinaryUtils.writeInts(aOut, ids);
+		BinaryUtils.writeInts(aOut, domainOffsets);
+		BinaryUtils.writeInts(aOut, channels);
+	}
+
+	/**
+	 * @return the station manager written by {@link #writeTo(DataOutput)}, without recomputing its hash.
+	 */
+	public static DomainStationManager readFrom(ByteBuffer aBuffer) {
+		final String hash = BinaryUtils.readString(aBuffer);
+		final int[] ids = BinaryUtils.readInts(aBuffer);
+		final int[] domainOffsets = BinaryUtils.readInts(aBuffer);
+		final int[] channels = BinaryUtils.readInts(aBuffer);
+		final Map<Station, Set<Integer>> domains = new HashMap<>();
+		for (int i = 0; i < ids.length; i++) {
+			final ImmutableSet.Builder<Integer> domainBuilder = ImmutableSet.builder();
+			for (int c = domainOffsets[i]; c < domainOffsets[i + 1]; c++) {
+				domainBuilder.add(channels[c]);
+			}
+			domains.put(new Station(ids[i]), domainBuilder.build());
+		}
+		return new DomainStationManager(domains, hash);
+	}
 	
 	@Override
 	public Set<Station> getStations() {
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.execution;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.beust.jcommander.Parameter;
+
+import ca.ubc.cs.beta.aeatk.misc.jcommander.JCommanderHelper;
+import ca.ubc.cs.beta.aeatk.misc.options.UsageTextField;
+import ca.ubc.cs.beta.aeatk.options.AbstractOptions;
+import ca.ubc.cs.beta.stationpacking.facade.SATFCFacadeBuilder;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.CompiledConstraintSet;
+import ch.qos.logback.classic.Level;
+import lombok.Getter;
+
+/**
+ * Write the {@link CompiledConstraintSet} of station config folders, so that they are loaded without parsing their CSV files.
+ * Folders need to be compiled again whenever their CSV files change (stale compiled files are ignored).
+ */
+public class ConstraintSetCompiler {
+
+    private static org.slf4j.Logger log;
+
+    @UsageTextField(title = "Constraint set compiler", description = "Compile station config folders to their binary form")
+    public static class ConstraintSetCompilerOptions extends AbstractOptions {
+
+        @Parameter(names = "-CONSTRAINT-SETS", description = "Station config folders to compile")
+        @Getter
+        private List<String> constraintSets = new ArrayList<>();
+
+        @Parameter(names = "-ALL-CONSTRAINTS", description = "Folder with station config folders, all of which are compiled")
+        @Getter
+        private String allConstraints;
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        final ConstraintSetCompilerOptions options = new ConstraintSetCompilerOptions();
+        JCommanderHelper.parseCheckingForHelpAndVersion(args, options);
+        SATFCFacadeBuilder.initializeLogging(Level.INFO, null);
+        log = org.slf4j.LoggerFactory.getLogger(ConstraintSetCompiler.class);
+
+        final List<String> folders = new ArrayList<>(options.getConstraintSets());
+        if (options.getAllConstraints() != null) {
+            Arrays.stream(new File(options.getAllConstraints()).listFiles(File::isDirectory)).map(File::getAbsolutePath).forEach(folders::add);
+        }
+        if (folders.isEmpty()) {
+            throw new IllegalArgumentException("No station config folders to compile, use -CONSTRAINT-SETS or -ALL-CONSTRAINTS.");
+        }
+        for (String folder : folders) {
+            log.info("Compiling station config folder {}", folder);
+            CompiledConstraintSet.compile(folder);
+        }
+    }
+
+}
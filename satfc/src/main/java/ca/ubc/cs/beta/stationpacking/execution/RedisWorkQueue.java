@@ -0,0 +1,215 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.execution;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+import ca.ubc.cs.beta.aeatk.concurrent.threadfactory.SequentiallyNamedThreadFactory;
+import ca.ubc.cs.beta.stationpacking.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Transaction;
+
+/**
+ * A redis job queue shared by many workers (threads, possibly in many JVMs), where jobs are never lost if a worker dies.
+ * <p>
+ * Workers take jobs with a blocking BRPOPLPUSH that atomically moves the job into the worker's own processing list (queue:PROCESSING:workerID),
+ * so acknowledging a job only ever touches a list of (at most) a few elements, and is done in the same transaction as pushing the reply.
+ * Every worker is registered in the queue:WORKERS set and kept alive by a heartbeat key that expires if it is not refreshed (all the workers
+ * of a JVM are refreshed together, in one pipeline). Periodically, jobs sitting in the processing list of a registered worker whose heartbeat
+ * has expired are pushed back onto the queue, so that another worker can take them.
+ * </p>
+ */
+@Slf4j
+public class RedisWorkQueue implements AutoCloseable {
+
+    public static final String WORKERS_SET = "WORKERS";
+    public static final String HEARTBEAT = "HEARTBEAT";
+
+    private static final AtomicInteger workerCounter = new AtomicInteger();
+
+    private final JedisPool pool;
+    private final String queueName;
+    private final int heartbeatSeconds;
+    private final Set<String> localWorkers;
+    private final ScheduledExecutorService heartbeatService;
+
+    /**
+     * @param pool             pool of redis connections, should allow one connection per worker taking jobs at the same time, plus one for heartbeats.
+     * @param queueName        name of the job queue.
+     * @param heartbeatSeconds time after which a worker that does not give signs of life is considered dead, and its jobs are put back on the queue.
+     */
+    public RedisWorkQueue(JedisPool pool, String queueName, int heartbeatSeconds) {
+        Preconditions.checkArgument(heartbeatSeconds > 0, "Heartbeat must be strictly positive");
+        this.pool = pool;
+        this.queueName = queueName;
+        this.heartbeatSeconds = heartbeatSeconds;
+        localWorkers = new CopyOnWriteArraySet<>();
+        heartbeatService = Executors.newSingleThreadScheduledExecutor(new SequentiallyNamedThreadFactory("Redis Worker Heartbeat", true));
+        // Refresh well within the expiry so that a slow round trip does not get a live worker reclaimed
+        final long period = TimeUnit.SECONDS.toMillis(heartbeatSeconds) / 3;
+        heartbeatService.scheduleWithFixedDelay(() -> {
+            try {
+                heartbeat();
+                reclaim();
+            } catch (Throwable t) {
+                log.error("Could not send heartbeat or reclaim jobs of dead workers", t);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return a new worker name, unique across JVMs.
+     */
+    public String newWorker() {
+        final String worker = ManagementFactory.getRuntimeMXBean().getName() + "-" + workerCounter.getAndIncrement();
+        try (Jedis jedis = pool.getResource()) {
+            final Transaction transaction = jedis.multi();
+            transaction.setex(heartbeatKey(worker), heartbeatSeconds, "1");
+            transaction.sadd(workersKey(), worker);
+            transaction.exec();
+        }
+        localWorkers.add(worker);
+        log.debug("Registered worker {} on queue {}", worker, queueName);
+        return worker;
+    }
+
+    /**
+     * Take the next job from the queue, blocking until one is available or the timeout expires.
+     * The job stays in the worker's processing list until {@link #complete} is called.
+     * @return the job, or null if the timeout expired.
+     */
+    public String take(String worker, int timeoutSeconds) {
+        try (Jedis jedis = pool.getResource()) {
+            return jedis.brpoplpush(queueKey(), processingKey(worker), timeoutSeconds);
+        }
+    }
+
+    /**
+     * Acknowledge a job taken by the given worker, pushing its reply on the given queue in the same transaction.
+     */
+    public void complete(String worker, String job, String replyQueue, String reply) {
+        try (Jedis jedis = pool.getResource()) {
+            final Transaction transaction = jedis.multi();
+            transaction.lpush(replyQueue, reply);
+            transaction.lrem(processingKey(worker), 1, job);
+            transaction.exec();
+        }
+    }
+
+    /**
+     * Refresh the heartbeats of all the workers of this JVM.
+     */
+    public void heartbeat() {
+        if (localWorkers.isEmpty()) {
+            return;
+        }
+        try (Jedis jedis = pool.getResource()) {
+            final Pipeline pipeline = jedis.pipelined();
+            for (String worker : localWorkers) {
+                pipeline.setex(heartbeatKey(worker), heartbeatSeconds, "1");
+                // in case we were (wrongly) declared dead
+                pipeline.sadd(workersKey(), worker);
+            }
+            pipeline.sync();
+        }
+    }
+
+    /**
+     * Put the jobs of the workers whose heartbeat expired back on the queue.
+     * @return the number of jobs put back.
+     */
+    public int reclaim() {
+        int reclaimed = 0;
+        try (Jedis jedis = pool.getResource()) {
+            for (String worker : jedis.smembers(workersKey())) {
+                if (jedis.exists(heartbeatKey(worker))) {
+                    continue;
+                }
+                // Atomically moves one job at a time, so that a job is never lost (or doubled) even if several reclaimers run at once
+                while (jedis.rpoplpush(processingKey(worker), queueKey()) != null) {
+                    reclaimed++;
+                }
+                jedis.srem(workersKey(), worker);
+                log.info("Worker {} on queue {} stopped sending heartbeats, put its jobs back on the queue", worker, queueName);
+            }
+        }
+        if (reclaimed > 0) {
+            log.info("Reclaimed {} jobs from dead workers on queue {}", reclaimed, queueName);
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Stop the heartbeats and unregister the workers of this JVM. Their unacknowledged jobs (if any) will be reclaimed.
+     */
+    @Override
+    public void close() {
+        heartbeatService.shutdownNow();
+        try (Jedis jedis = pool.getResource()) {
+            for (String worker : localWorkers) {
+                jedis.del(heartbeatKey(worker));
+            }
+        }
+        localWorkers.clear();
+    }
+
+    /**
+     * Delete the processing lists of every worker registered on the queue, e.g. to drop all pending jobs along with the queue.
+     * Jobs that workers are still solving will simply not be found when they are acknowledged.
+     */
+    public static void deleteProcessingLists(Jedis jedis, String queueName) {
+        final String[] processingKeys = jedis.smembers(RedisUtils.makeKey(queueName, WORKERS_SET)).stream()
+                .map(worker -> RedisUtils.makeKey(queueName, RedisUtils.PROCESSING_QUEUE, worker))
+                .toArray(String[]::new);
+        if (processingKeys.length > 0) {
+            jedis.del(processingKeys);
+        }
+    }
+
+    public String queueKey() {
+        return RedisUtils.makeKey(queueName);
+    }
+
+    public String processingKey(String worker) {
+        return RedisUtils.makeKey(queueName, RedisUtils.PROCESSING_QUEUE, worker);
+    }
+
+    private String heartbeatKey(String worker) {
+        return RedisUtils.makeKey(queueName, HEARTBEAT, worker);
+    }
+
+    private String workersKey() {
+        return RedisUtils.makeKey(queueName, WORKERS_SET);
+    }
+
+}
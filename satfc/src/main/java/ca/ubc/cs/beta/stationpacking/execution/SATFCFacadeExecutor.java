@@ -24,7 +24,9 @@ package ca.ubc.cs.beta.stationpacking.execution;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.*;
@@ -37,6 +39,8 @@ import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.DataManager;
 import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.ManagerBundle;
 import ca.ubc.cs.beta.stationpacking.utils.StationPackingUtils;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import lombok.AllArgsConstructor;
 import lombok.Cleanup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +49,7 @@ import com.beust.jcommander.ParameterException;
 import com.google.common.base.Charsets;
 import com.google.common.io.Resources;
 
+import ca.ubc.cs.beta.aeatk.concurrent.threadfactory.SequentiallyNamedThreadFactory;
 import ca.ubc.cs.beta.aeatk.misc.jcommander.JCommanderHelper;
 import ca.ubc.cs.beta.aeatk.misc.returnvalues.AEATKReturnValues;
 import ca.ubc.cs.beta.aeatk.targetalgorithmevaluator.init.TargetAlgorithmEvaluatorLoader;
@@ -128,7 +133,8 @@ public class SATFCFacadeExecutor {
         satfc.augment(domains, startingAssignment, stationDB, parameters.augmentConstraintSet, parameters.fInstanceParameters.Cutoff, parameters.minimumAugmentStations);
     }
 
-    private static void solveProblems(SATFCFacadeParameters parameters, Logger log, SATFCFacade satfc) {
+    private static void solveProblems(SATFCFacadeParameters parameters, Logger log, SATFCFacade satfc) throws InterruptedException {
+        Preconditions.checkArgument(parameters.numConcurrentProblems > 0, "Number of concurrent problems must be strictly positive");
 
         final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
 
@@ -137,43 +143,30 @@ public class SATFCFacadeExecutor {
 
         ICutoffChooser cutoffChooser = CutoffChooserFactory.createFromParameters(parameters);
         IMetricWriter metricWriter = MetricWriterFactory.createFromParameters(parameters);
-        SATFCFacadeProblem problem;
-        while ((problem = problemReader.getNextProblem()) != null) {
-            final double cutoff = cutoffChooser.getCutoff(problem);
-            log.info("Beginning problem {} with cutoff {}", problem.getInstanceName(), cutoff);
-            log.info("Solving ...");
-            final InterruptibleSATFCResult interruptibleSATFCResult = satfc.solveInterruptibly(
-                    problem.getDomains(),
-                    problem.getPreviousAssignment(),
-                    cutoff,
-                    parameters.fInstanceParameters.Seed,
-                    problem.getStationConfigFolder(),
-                    problem.getInstanceName()
-            );
-            // Submit a job to check Redis every X time and call interrupt
-            ScheduledFuture<?> scheduledFuture = null;
-            if (problemReader instanceof SimulatorProblemReader) {
-                scheduledFuture = executorService.scheduleWithFixedDelay(() -> {
-                    if (((SimulatorProblemReader) problemReader).shouldInterrupt()) {
-                        interruptibleSATFCResult.interrupt();
-                    }
-                }, 0, 100, TimeUnit.MILLISECONDS);
-            }
-            final SATFCResult result = interruptibleSATFCResult.computeResult();
-            if (scheduledFuture != null) {
-                scheduledFuture.cancel(true);
-            }
-            log.info("..done!");
-            if (!log.isInfoEnabled()) {
-                System.out.println(result.getResult());
-                System.out.println(result.getRuntime());
-                System.out.println(result.getWitnessAssignment());
+        final ConcurrentProblemLoop problemLoop = new ConcurrentProblemLoop(parameters, log, satfc, executorService, problemReader, cutoffChooser, metricWriter);
+        try {
+            if (parameters.numConcurrentProblems == 1) {
+                problemLoop.run();
             } else {
-                log.info("Result:" + System.lineSeparator() + result.getResult() + System.lineSeparator() + result.getRuntime() + System.lineSeparator() + result.getWitnessAssignment());
+                log.info("Solving up to {} problems at a time", parameters.numConcurrentProblems);
+                final ExecutorService workers = Executors.newFixedThreadPool(parameters.numConcurrentProblems, new SequentiallyNamedThreadFactory("SATFC Problem Worker"));
+                final List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < parameters.numConcurrentProblems; i++) {
+                    futures.add(workers.submit(problemLoop));
+                }
+                workers.shutdown();
+                try {
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                } catch (ExecutionException e) {
+                    workers.shutdownNow();
+                    Throwables.propagateIfPossible(e.getCause());
+                    throw new RuntimeException(e.getCause());
+                }
             }
-            problemReader.onPostProblem(problem, result);
-            metricWriter.writeMetrics();
-            SATFCMetrics.clear();
+        } finally {
+            executorService.shutdownNow();
         }
 
         log.info("Finished all of the problems!");
@@ -181,6 +174,91 @@ public class SATFCFacadeExecutor {
         metricWriter.onFinished();
     }
 
+    /**
+     * Repeatedly takes the next problem from the reader and solves it, until the reader runs out of problems.
+     * Can be run by several threads at once: calls to the reader are serialized (one lock for taking problems, another for posting results,
+     * so that a reader blocking while it waits for problems does not hold up results), unless the reader allows concurrent reads.
+     */
+    @AllArgsConstructor
+    private static class ConcurrentProblemLoop implements Runnable {
+
+        private final Object readLock = new Object();
+        private final Object postLock = new Object();
+
+        private final SATFCFacadeParameters parameters;
+        private final Logger log;
+        private final SATFCFacade satfc;
+        private final ScheduledExecutorService executorService;
+        private final IProblemReader problemReader;
+        private final ICutoffChooser cutoffChooser;
+        private final IMetricWriter metricWriter;
+
+        @Override
+        public void run() {
+            while (true) {
+                final SATFCFacadeProblem problem;
+                final double cutoff;
+                if (problemReader.isConcurrent()) {
+                    // Every idle thread waits for problems (and answers signals) by itself
+                    problem = problemReader.getNextProblem();
+                    if (problem == null) {
+                        return;
+                    }
+                    synchronized (readLock) {
+                        cutoff = cutoffChooser.getCutoff(problem);
+                    }
+                } else {
+                    synchronized (readLock) {
+                        problem = problemReader.getNextProblem();
+                        if (problem == null) {
+                            return;
+                        }
+                        cutoff = cutoffChooser.getCutoff(problem);
+                    }
+                }
+                log.info("Beginning problem {} with cutoff {}", problem.getInstanceName(), cutoff);
+                log.info("Solving ...");
+                final InterruptibleSATFCResult interruptibleSATFCResult = satfc.solveInterruptibly(
+                        problem.getDomains(),
+                        problem.getPreviousAssignment(),
+                        cutoff,
+                        parameters.fInstanceParameters.Seed,
+                        problem.getStationConfigFolder(),
+                        problem.getInstanceName()
+                );
+                // Submit a job to check Redis every X time and call interrupt
+                ScheduledFuture<?> scheduledFuture = null;
+                if (problemReader instanceof SimulatorProblemReader) {
+                    scheduledFuture = executorService.scheduleWithFixedDelay(() -> {
+                        if (((SimulatorProblemReader) problemReader).shouldInterrupt()) {
+                            interruptibleSATFCResult.interrupt();
+                        }
+                    }, 0, 100, TimeUnit.MILLISECONDS);
+                }
+                final SATFCResult result = interruptibleSATFCResult.computeResult();
+                if (scheduledFuture != null) {
+                    scheduledFuture.cancel(true);
+                }
+                log.info("..done!");
+                if (!log.isInfoEnabled()) {
+                    synchronized (System.out) {
+                        System.out.println(result.getResult());
+                        System.out.println(result.getRuntime());
+                        System.out.println(result.getWitnessAssignment());
+                    }
+                } else {
+                    log.info("Result:" + System.lineSeparator() + result.getResult() + System.lineSeparator() + result.getRuntime() + System.lineSeparator() + result.getWitnessAssignment());
+                }
+                synchronized (postLock) {
+                    problemReader.onPostProblem(problem, result);
+                }
+                metricWriter.writeMetrics(interruptibleSATFCResult.getProblemID());
+                SATFCMetrics.clear(interruptibleSATFCResult.getProblemID());
+            }
+        }
+
+    }
+
     private static Logger parseParameter(String[] args, SATFCFacadeParameters parameters) {
         Logger log;
         try {
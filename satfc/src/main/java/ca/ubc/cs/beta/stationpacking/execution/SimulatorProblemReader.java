@@ -19,7 +19,9 @@ import org.apache.commons.lang3.RandomUtils;
 import redis.clients.jedis.Jedis;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -27,14 +29,15 @@ import java.util.Set;
 @Slf4j
 public class SimulatorProblemReader extends AProblemReader {
 
-    private final Jedis jedis;
-    private final String queueName;
-    private String activeProblemKey;
-    private SimulatorMessage activeMessage;
+    protected final Jedis jedis;
+    protected final String queueName;
+    // problems handed out but not yet posted, several of them can be solved at once
+    private final Map<SATFCFacadeProblem, ActiveProblem> activeProblems;
     private final Set<String> ackedAlready;
 
     public SimulatorProblemReader(Jedis jedis, String queueName) {
-        this.ackedAlready = new HashSet<>();
+        this.ackedAlready = Collections.synchronizedSet(new HashSet<>());
+        this.activeProblems = Collections.synchronizedMap(new IdentityHashMap<>());
         this.jedis = jedis;
         this.queueName = queueName;
         log.info("Reading instances from queue {}", RedisUtils.makeKey(queueName));
@@ -43,6 +46,7 @@ public class SimulatorProblemReader extends AProblemReader {
     @Override
     public SATFCFacadeProblem getNextProblem() {
         SATFCFacadeProblem problem;
+        String activeProblemKey;
         final ExponentialBackoffWait waiter = new ExponentialBackoffWait();
         while (true) {
             synchronized (jedis) {
@@ -52,37 +56,18 @@ public class SimulatorProblemReader extends AProblemReader {
 //                // Note: Not at all obvious you WANT the processing queue to be polled from in the Oct Alg use case b/c that means one of your workers went down... commenting out for now
 //                // Look at the first job in the processing queue. Could result in multiple workers doing the job, but that's OK. It's for errors anyways.
 //                activeProblemKey = jedis.lindex(RedisUtils.processing(queueName), 0);
-                // Check for a DIE or STOP signal
-                String interruptResult;
-                synchronized (jedis) {
-                    interruptResult = jedis.get(RedisUtils.interrupt(queueName));
-                }
-                if ("DIE".equals(interruptResult)) {
-                    log.info("Received a death signal, quitting!");
+                if (receivedDeathSignal("")) {
                     return null; // All done
-                } else if (interruptResult != null && interruptResult.startsWith("STOP") && !ackedAlready.contains(interruptResult)) {
-                    log.trace("Acknowledging stop signal");
-                    ackedAlready.add(interruptResult);
-                    synchronized (jedis) {
-                        jedis.incr(interruptResult);
-                    }
                 }
 
                 // Need to wait for a problem to appear
                 waiter.waitSleep();
                 continue;
             }
-            activeMessage = JSONUtils.toObject(activeProblemKey, SimulatorMessage.class);
-
-            problem = new SATFCFacadeProblem(
-                    null,
-                    null,
-                    activeMessage.getProblemSpec().getProblem().getDomains(),
-                    activeMessage.getProblemSpec().getProblem().getPreviousAssignment(),
-                    activeMessage.getProblemSpec().getStationInfoFolder(),
-                    Long.toString(activeMessage.getId()),
-                    activeMessage.getProblemSpec().getCutoff()
-            );
+            final SimulatorMessage activeMessage = JSONUtils.toObject(activeProblemKey, SimulatorMessage.class);
+
+            problem = toProblem(activeMessage);
+            activeProblems.put(problem, new ActiveProblem(activeProblemKey, activeMessage));
             break;
         }
         return problem;
@@ -91,20 +76,56 @@ public class SimulatorProblemReader extends AProblemReader {
     @Override
     public void onPostProblem(SATFCFacadeProblem problem, SATFCResult result) {
         super.onPostProblem(problem, result);
+        final ActiveProblem activeProblem = activeProblems.remove(problem);
+        Preconditions.checkArgument(activeProblem != null, "Posting a problem that was not read from this reader");
 
         // Put the reply back!
         synchronized (jedis) {
-            jedis.lpush(activeMessage.getReplyQueue(), JSONUtils.toString(new SATFCSimulatorReply(result, activeMessage.getId())));
-            final long numDeleted = jedis.lrem(RedisUtils.processing(queueName), 1, activeProblemKey);
+            jedis.lpush(activeProblem.getMessage().getReplyQueue(), JSONUtils.toString(new SATFCSimulatorReply(result, activeProblem.getMessage().getId())));
+            final long numDeleted = jedis.lrem(RedisUtils.processing(queueName), 1, activeProblem.getKey());
             if (numDeleted != 1) {
                 // This can happen due to a killAll, so not a big deal
-                log.trace("Couldn't delete problem {} from the processing queue!", activeProblemKey);
+                log.trace("Couldn't delete problem {} from the processing queue!", activeProblem.getKey());
             }
         }
 
 
     }
 
+    /**
+     * Check for a DIE or STOP signal, acknowledging STOP signals (once per worker).
+     * @param worker name of the worker that is idle, workers of the same reader must have different names.
+     * @return true if a DIE signal was received.
+     */
+    protected boolean receivedDeathSignal(String worker) {
+        String interruptResult;
+        synchronized (jedis) {
+            interruptResult = jedis.get(RedisUtils.interrupt(queueName));
+        }
+        if ("DIE".equals(interruptResult)) {
+            log.info("Received a death signal, quitting!");
+            return true;
+        } else if (interruptResult != null && interruptResult.startsWith("STOP") && ackedAlready.add(worker + interruptResult)) {
+            log.trace("Acknowledging stop signal");
+            synchronized (jedis) {
+                jedis.incr(interruptResult);
+            }
+        }
+        return false;
+    }
+
+    protected static SATFCFacadeProblem toProblem(SimulatorMessage message) {
+        return new SATFCFacadeProblem(
+                null,
+                null,
+                message.getProblemSpec().getProblem().getDomains(),
+                message.getProblemSpec().getProblem().getPreviousAssignment(),
+                message.getProblemSpec().getStationInfoFolder(),
+                Long.toString(message.getId()),
+                message.getProblemSpec().getCutoff()
+        );
+    }
+
     public boolean shouldInterrupt() {
         synchronized (jedis) {
             final String s = jedis.get(RedisUtils.makeKey(queueName) + ":INTERRUPT");
@@ -125,6 +146,12 @@ public class SimulatorProblemReader extends AProblemReader {
     }
 
 
+    @Data
+    private static class ActiveProblem {
+        private final String key;
+        private final SimulatorMessage message;
+    }
+
     @NoArgsConstructor
     @AllArgsConstructor
     @Data
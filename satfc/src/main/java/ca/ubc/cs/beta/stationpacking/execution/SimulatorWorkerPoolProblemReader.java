@@ -0,0 +1,108 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.execution;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+import ca.ubc.cs.beta.stationpacking.execution.problemgenerators.SATFCFacadeProblem;
+import ca.ubc.cs.beta.stationpacking.facade.SATFCResult;
+import ca.ubc.cs.beta.stationpacking.utils.JSONUtils;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Reads simulator problems from a {@link RedisWorkQueue}: each thread of the executor (see -NUM-CONCURRENT-PROBLEMS) is a separate worker
+ * that waits for problems with a blocking pop instead of sleeping, keeps the problem it is solving in its own processing list,
+ * and acknowledges it in the same transaction that sends the reply. Problems of workers that die are put back on the queue.
+ * <p>
+ * Every thread counts as a worker when acknowledging STOP signals, so the simulator must be told the total number of threads.
+ * Since each idle thread waits (and acknowledges) on its own, threads must be allowed to read problems concurrently.
+ * </p>
+ */
+@Slf4j
+public class SimulatorWorkerPoolProblemReader extends SimulatorProblemReader {
+
+    // How long a blocking pop waits before checking for STOP and DIE signals
+    private static final int TAKE_TIMEOUT_SECONDS = 1;
+
+    private final RedisWorkQueue workQueue;
+    private final ThreadLocal<String> worker;
+    // problems handed out but not yet posted
+    private final Map<SATFCFacadeProblem, PooledJob> activeJobs;
+
+    public SimulatorWorkerPoolProblemReader(Jedis jedis, JedisPool pool, String queueName, int heartbeatSeconds) {
+        super(jedis, queueName);
+        workQueue = new RedisWorkQueue(pool, queueName, heartbeatSeconds);
+        worker = ThreadLocal.withInitial(workQueue::newWorker);
+        activeJobs = Collections.synchronizedMap(new IdentityHashMap<>());
+    }
+
+    @Override
+    public SATFCFacadeProblem getNextProblem() {
+        final String worker = this.worker.get();
+        while (true) {
+            final String job = workQueue.take(worker, TAKE_TIMEOUT_SECONDS);
+            if (job == null) {
+                if (receivedDeathSignal(worker)) {
+                    return null;
+                }
+                continue;
+            }
+            final SimulatorMessage message = JSONUtils.toObject(job, SimulatorMessage.class);
+            final SATFCFacadeProblem problem = toProblem(message);
+            activeJobs.put(problem, new PooledJob(worker, job, message));
+            return problem;
+        }
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    @Override
+    public void onPostProblem(SATFCFacadeProblem problem, SATFCResult result) {
+        index++;
+        final PooledJob job = activeJobs.remove(problem);
+        Preconditions.checkArgument(job != null, "Posting a problem that was not read from this reader");
+        workQueue.complete(job.getWorker(), job.getJob(), job.getMessage().getReplyQueue(), JSONUtils.toString(new SATFCSimulatorReply(result, job.getMessage().getId())));
+    }
+
+    @Override
+    public void onFinishedAllProblems() {
+        workQueue.close();
+    }
+
+    @Data
+    private static class PooledJob {
+        private final String worker;
+        private final String job;
+        private final SimulatorMessage message;
+    }
+
+}
@@ -48,8 +48,8 @@ public class FileMetricsWriter implements IMetricWriter {
     }
 
     @Override
-    public void writeMetrics() {
-        SATFCMetrics.doWithMetrics(info -> {
+    public synchronized void writeMetrics(long problemID) {
+        SATFCMetrics.doWithMetrics(problemID, info -> {
             try {
                 Files.append(JSONUtils.toString(info) + System.lineSeparator(), metricsFile, Charsets.UTF_8);
             } catch (IOException e) {
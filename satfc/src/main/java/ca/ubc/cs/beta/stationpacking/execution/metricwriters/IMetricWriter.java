@@ -29,8 +29,9 @@ public interface IMetricWriter {
 
     /**
      * Write metrics for a particular problem
+     * @param problemID ID of the problem, as given by {@link ca.ubc.cs.beta.stationpacking.facade.InterruptibleSATFCResult#getProblemID()}
      */
-    void writeMetrics();
+    void writeMetrics(long problemID);
 
     void onFinished();
 }
@@ -42,7 +42,7 @@ public class MetricWriterFactory {
 
     public static class VoidMetricWriter implements IMetricWriter {
         @Override
-        public void writeMetrics() {
+        public void writeMetrics(long problemID) {
 
         }
 
@@ -23,6 +23,7 @@ package ca.ubc.cs.beta.stationpacking.execution.parameters;
 
 import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
@@ -35,6 +36,7 @@ import ca.ubc.cs.beta.aeatk.misc.options.UsageTextField;
 import ca.ubc.cs.beta.aeatk.options.AbstractOptions;
 import redis.clients.jedis.BinaryJedis;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisShardInfo;
 
 /**
@@ -50,7 +52,11 @@ public class RedisParameters extends AbstractOptions implements AutoCloseable {
     @Parameter(names = "-REDIS-HOST", description = "Redis host (for problem queue)")
     public String fRedisHost = "localhost";
 
+    @Parameter(names = "-REDIS-HEARTBEAT", description = "Seconds after which a silent worker is considered dead and its problems are put back on the queue (worker pool mode only)")
+    public int fHeartbeatSeconds = 10;
+
     private static Jedis jedis;
+    private static JedisPool jedisPool;
 
     synchronized public Jedis getJedis() {
         Logger log = LoggerFactory.getLogger(RedisParameters.class);
@@ -61,6 +67,18 @@ public class RedisParameters extends AbstractOptions implements AutoCloseable {
         return jedis;
     }
 
+    /**
+     * @param maxConnections maximum number of connections in use at the same time (blocking commands hold their connection while they wait).
+     */
+    synchronized public JedisPool getJedisPool(int maxConnections) {
+        if (jedisPool == null) {
+            final GenericObjectPoolConfig config = new GenericObjectPoolConfig();
+            config.setMaxTotal(maxConnections);
+            jedisPool = new JedisPool(config, fRedisHost, fRedisPort, (int) TimeUnit.SECONDS.toMillis(60));
+        }
+        return jedisPool;
+    }
+
     private JedisShardInfo getShardInfo() {
         final int timeout = (int) TimeUnit.SECONDS.toMillis(60);
         return new JedisShardInfo(fRedisHost, fRedisPort, timeout);
@@ -82,5 +100,8 @@ public class RedisParameters extends AbstractOptions implements AutoCloseable {
         if (jedis != null) {
             jedis.close();
         }
+        if (jedisPool != null) {
+            jedisPool.destroy();
+        }
     }
 }
\ No newline at end of file
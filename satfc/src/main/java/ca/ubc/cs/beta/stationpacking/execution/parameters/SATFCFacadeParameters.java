@@ -132,6 +132,18 @@ public class SATFCFacadeParameters extends AbstractOptions implements AutoClosea
     @Parameter(names = "-SIMULATOR-WORKER")
     public boolean simulatorWorker = false;
 
+    @UsageTextField(level = OptionLevel.DEVELOPER)
+    @Parameter(names = "-REDIS-WORKER-POOL", description = "As a simulator worker, take problems with blocking pops into per worker processing lists kept alive by heartbeats (every concurrent problem is a worker)")
+    public boolean redisWorkerPool = false;
+
+    @UsageTextField(level = OptionLevel.DEVELOPER)
+    @Parameter(names = "-INDEXED-CONSTRAINTS", description = "Compile interference constraints into primitive int arrays (less memory, faster lookups)")
+    public boolean indexedConstraints = false;
+
+    @UsageTextField(level = OptionLevel.DEVELOPER)
+    @Parameter(names = {"-NUM-CONCURRENT-PROBLEMS", "--num-concurrent-problems"}, description = "Number of problems from the problem reader to solve at the same time, each with its own solvers")
+    public int numConcurrentProblems = 1;
+
     @Getter
     @ParametersDelegate
     public DatabaseParameters databaseParameters = new DatabaseParameters();
@@ -34,6 +34,13 @@ public interface IProblemReader {
      */
     SATFCFacadeProblem getNextProblem();
 
+    /**
+     * @return whether several threads may call {@link #getNextProblem()} at once. Otherwise, calls to it must be serialized.
+     */
+    default boolean isConcurrent() {
+        return false;
+    }
+
     /**
      * Call this method after solving a problem. It handles cleanup that may be required (e.g. deleting from redis processing queue)
      * @param problem The problem that was just solved
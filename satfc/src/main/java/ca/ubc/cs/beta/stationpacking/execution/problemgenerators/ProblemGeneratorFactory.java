@@ -22,12 +22,14 @@
 package ca.ubc.cs.beta.stationpacking.execution.problemgenerators;
 
 import ca.ubc.cs.beta.stationpacking.execution.SimulatorProblemReader;
+import ca.ubc.cs.beta.stationpacking.execution.SimulatorWorkerPoolProblemReader;
 import ca.ubc.cs.beta.stationpacking.execution.parameters.SATFCFacadeParameters;
 import ca.ubc.cs.beta.stationpacking.execution.problemgenerators.problemparsers.CsvToProblem;
 import ca.ubc.cs.beta.stationpacking.execution.problemgenerators.problemparsers.DatabaseProblemParser;
 import ca.ubc.cs.beta.stationpacking.execution.problemgenerators.problemparsers.IProblemParser;
 import ca.ubc.cs.beta.stationpacking.execution.problemgenerators.problemparsers.SrpkToProblem;
 import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.DataManager;
+import redis.clients.jedis.JedisPool;
 
 /**
  * Created by newmanne on 12/05/15.
@@ -36,7 +38,11 @@ public class ProblemGeneratorFactory {
 
     public static IProblemReader createFromParameters(SATFCFacadeParameters parameters) {
         IProblemReader reader;
-        if (parameters.simulatorWorker && parameters.fRedisParameters.areValid()) {
+        if (parameters.simulatorWorker && parameters.fRedisParameters.areValid() && parameters.redisWorkerPool) {
+            // One connection per worker blocked waiting for a problem or posting a reply, plus the heartbeats
+            final JedisPool pool = parameters.fRedisParameters.getJedisPool(2 * parameters.numConcurrentProblems + 1);
+            reader = new SimulatorWorkerPoolProblemReader(parameters.fRedisParameters.getJedis(), pool, parameters.fRedisParameters.fRedisQueue, parameters.fRedisParameters.fHeartbeatSeconds);
+        } else if (parameters.simulatorWorker && parameters.fRedisParameters.areValid()) {
             reader = new SimulatorProblemReader(parameters.fRedisParameters.getJedis(), parameters.fRedisParameters.fRedisQueue);
         } else {
             IProblemParser nameToProblem = parameters.databaseParameters.isValid() ? new DatabaseProblemParser(new DataManager(), parameters.fInterferencesFolder, parameters.databaseParameters.getConnection()) : (parameters.fCsvRoot == null ? new SrpkToProblem(parameters.fInterferencesFolder) : new CsvToProblem(parameters.fInterferencesFolder, parameters.fCsvRoot, parameters.checkForSolution));
@@ -22,6 +22,11 @@
 package ca.ubc.cs.beta.stationpacking.execution.problemgenerators;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
 
 import ca.ubc.cs.beta.stationpacking.execution.AProblemReader;
 import ca.ubc.cs.beta.stationpacking.execution.problemgenerators.problemparsers.IProblemParser;
@@ -40,7 +45,8 @@ public class RedisProblemReader extends AProblemReader {
     private final Jedis jedis;
     private final String queueName;
     private final IProblemParser nameToProblem;
-    private String activeProblemDescription;
+    // problems handed out but not yet posted, several of them can be solved at once
+    private final Map<SATFCFacadeProblem, String> activeProblemDescriptions = Collections.synchronizedMap(new IdentityHashMap<>());
 
     public RedisProblemReader(Jedis jedis, String queueName, IProblemParser nameToProblem) {
         this.jedis = jedis;
@@ -55,7 +61,9 @@ public class RedisProblemReader extends AProblemReader {
         SATFCFacadeProblem problem = null;
         String problemDescription;
         while (true) {
-            problemDescription = jedis.rpoplpush(RedisUtils.makeKey(queueName), RedisUtils.makeKey(queueName, RedisUtils.PROCESSING_QUEUE));
+            synchronized (jedis) {
+                problemDescription = jedis.rpoplpush(RedisUtils.makeKey(queueName), RedisUtils.makeKey(queueName, RedisUtils.PROCESSING_QUEUE));
+            }
             if (problemDescription == null) { // all problems exhausted
                 return null;
             }
@@ -68,21 +76,29 @@ public class RedisProblemReader extends AProblemReader {
             }
         }
 
-        final long remainingJobs = jedis.llen(RedisUtils.makeKey(queueName));
+        final long remainingJobs;
+        synchronized (jedis) {
+            remainingJobs = jedis.llen(RedisUtils.makeKey(queueName));
+        }
         log.info("There are {} problems remaining in the queue", remainingJobs);
-        activeProblemDescription = problemDescription;
+        activeProblemDescriptions.put(problem, problemDescription);
         return problem;
     }
 
     @Override
     public void onPostProblem(SATFCFacadeProblem problem, SATFCResult result) {
         super.onPostProblem(problem, result);
+        final String activeProblemDescription = activeProblemDescriptions.remove(problem);
+        Preconditions.checkArgument(activeProblemDescription != null, "Posting a problem that was not read from this reader");
         // update redis queue - if the job timed out, move it to the timeout channel. Either way, delete it from the processing queue
-        if (!result.getResult().isConclusive()) {
-            log.info("Adding problem " + problem.getInstanceName() + " to the timeout queue");
-            jedis.rpush(RedisUtils.makeKey(queueName, RedisUtils.TIMEOUTS_QUEUE), activeProblemDescription);
+        final long numDeleted;
+        synchronized (jedis) {
+            if (!result.getResult().isConclusive()) {
+                log.info("Adding problem " + problem.getInstanceName() + " to the timeout queue");
+                jedis.rpush(RedisUtils.makeKey(queueName, RedisUtils.TIMEOUTS_QUEUE), activeProblemDescription);
+            }
+            numDeleted = jedis.lrem(RedisUtils.makeKey(queueName, RedisUtils.PROCESSING_QUEUE), 1, activeProblemDescription);
         }
-        final long numDeleted = jedis.lrem(RedisUtils.makeKey(queueName, RedisUtils.PROCESSING_QUEUE), 1, activeProblemDescription);
         if (numDeleted != 1) {
             log.error("Couldn't delete problem " + activeProblemDescription + " from the processing queue!");
         }
@@ -29,6 +29,7 @@ import ca.ubc.cs.beta.stationpacking.execution.AProblemReader;
 public class SingleProblemFromCommandLineProblemReader extends AProblemReader {
 
     private final SATFCFacadeProblem problem;
+    private boolean given = false;
 
     public SingleProblemFromCommandLineProblemReader(SATFCFacadeProblem problem) {
         this.problem = problem;
@@ -36,7 +37,12 @@ public class SingleProblemFromCommandLineProblemReader extends AProblemReader {
 
     @Override
     public SATFCFacadeProblem getNextProblem() {
-        return index == 1 ? problem : null;
+        // the problem may still be being solved when the next one is requested
+        if (given) {
+            return null;
+        }
+        given = true;
+        return problem;
     }
 
 }
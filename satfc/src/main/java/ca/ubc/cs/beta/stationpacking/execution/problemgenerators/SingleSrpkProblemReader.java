@@ -35,6 +35,7 @@ public class SingleSrpkProblemReader extends AProblemReader {
 
     private final String srpkFile;
     private final IProblemParser nameToProblem;
+    private boolean given = false;
 
     public SingleSrpkProblemReader(String srpkFile, IProblemParser nameToProblem) {
         this.srpkFile = srpkFile;
@@ -43,9 +44,11 @@ public class SingleSrpkProblemReader extends AProblemReader {
 
     @Override
     public SATFCFacadeProblem getNextProblem() {
-        if (index != 1) {
+        // the problem may still be being solved when the next one is requested
+        if (given) {
             return null;
         }
+        given = true;
         final SATFCFacadeProblem problem;
         try {
             problem = nameToProblem.problemFromName(srpkFile);
@@ -24,7 +24,9 @@ package ca.ubc.cs.beta.stationpacking.facade;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 
+import ca.ubc.cs.beta.stationpacking.metrics.SATFCMetrics;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import lombok.Getter;
 
 /**
 * Created by newmanne on 13/10/15.
@@ -36,10 +38,16 @@ public class InterruptibleSATFCResult {
     private final ITerminationCriterion.IInterruptibleTerminationCriterion criterion;
     private final Callable<SATFCResult> solveTask;
     private final CountDownLatch latch;
+    /**
+     * ID under which the metrics of the problem are collected, see {@link SATFCMetrics#doWithMetrics(long, SATFCMetrics.MetricHandler.IMetricCallback)}.
+     */
+    @Getter
+    private final long problemID;
 
-    public InterruptibleSATFCResult(ITerminationCriterion.IInterruptibleTerminationCriterion criterion, Callable<SATFCResult> solveTask) {
+    public InterruptibleSATFCResult(ITerminationCriterion.IInterruptibleTerminationCriterion criterion, Callable<SATFCResult> solveTask, long problemID) {
         this.criterion = criterion;
         this.solveTask = solveTask;
+        this.problemID = problemID;
         latch = new CountDownLatch(1);
     }
 
@@ -35,6 +35,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ca.ubc.cs.beta.aeatk.misc.cputime.CPUTime;
 import ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.factories.Clasp3LibraryGenerator;
@@ -83,7 +84,8 @@ import lombok.extern.slf4j.Slf4j;
  * A facade for solving station packing problems with SATFC.
  * Each instance of the facade corresponds to an independent copy
  * of SATFC (with different state).
- * A SATFCFacade should only be involved in one solve operation at a time: do not have multiple threads calling solve concurrently
+ * Several threads may call solve concurrently: each solve operation gets its own solver bundle (see {@link SolverManager#acquire(String)}),
+ * the data being shared. Concurrent problems must have distinct instance names if metrics are being collected.
  *
  * @author afrechet
  */
@@ -96,6 +98,8 @@ public class SATFCFacade implements AutoCloseable {
     // measures idle time since the last time this facade solved a problem
     private final Watch idleTime;
     private volatile ScheduledFuture<?> future;
+    // number of (non internal) solve operations in progress, augmentation only happens once there are none
+    private final AtomicInteger activeSolves = new AtomicInteger();
     private final IPollingService pollingService;
     private final CloseableHttpAsyncClient httpClient;
     @Getter
@@ -265,8 +269,9 @@ public class SATFCFacade implements AutoCloseable {
         log.debug("Setting termination criterion...");
         //Set termination criterion.
         final InterruptibleTerminationCriterion termination = new InterruptibleTerminationCriterion();
-        final SATFCProblemSolveCallable satfcProblemSolveCallable = new SATFCProblemSolveCallable(aDomains, aPreviousAssignment, aCutoff, aSeed, aStationConfigFolder, termination, instanceName, internal);
-        return new InterruptibleSATFCResult(termination, satfcProblemSolveCallable);
+        final long problemID = SATFCMetrics.newProblemID();
+        final SATFCProblemSolveCallable satfcProblemSolveCallable = new SATFCProblemSolveCallable(aDomains, aPreviousAssignment, aCutoff, aSeed, aStationConfigFolder, termination, instanceName, problemID, internal);
+        return new InterruptibleSATFCResult(termination, satfcProblemSolveCallable, problemID);
     }
 
     /**
@@ -293,27 +298,50 @@ public class SATFCFacade implements AutoCloseable {
         private final String aStationConfigFolder;
         private final ITerminationCriterion criterion;
         private final String instanceName;
+        // ID under which the problem's metrics are collected
+        private final long problemID;
         // true if the call was generated from a cache augmenter
         private final boolean internal;
 
         @Override
         public SATFCResult call() throws Exception {
-            if (parameter.getAutoAugmentOptions().isAugment() && !internal) {
+            final boolean augmenting = !internal && parameter.getAutoAugmentOptions().isAugment();
+            if (augmenting) {
+                activeSolves.incrementAndGet();
                 log.debug("Cancelling any ongoing augmentation operation (if one exists)");
                 // Cancel any ongoing augmentation
                 augmenter.stop();
             } else {
                 idleTime.reset();
             }
+            try {
+                return solve();
+            } finally {
+                if (augmenting && activeSolves.decrementAndGet() == 0) {
+                    log.debug("Starting up timer again from 0 for augmentation");
+                    // Start measuring time again and reschedule jobs
+                    idleTime.start();
+                    scheduleAugment(parameter);
+                }
+            }
+        }
 
+        private SATFCResult solve() {
             if (aDomains.isEmpty()) {
                 log.warn("Provided an empty domains map.");
                 return new SATFCResult(SATResult.SAT, 0.0, 0.0, ImmutableMap.of());
             }
             Preconditions.checkArgument(aCutoff > 0, "Cutoff must be strictly positive");
 
-            final ISolverBundle bundle = getSolverBundle(aStationConfigFolder);
+            final ISolverBundle bundle = acquireSolverBundle(aStationConfigFolder);
+            try {
+                return solve(bundle);
+            } finally {
+                fSolverManager.release(aStationConfigFolder, bundle);
+            }
+        }
 
+        private SATFCResult solve(ISolverBundle bundle) {
             final IStationManager stationManager = bundle.getStationManager();
 
             log.debug("Translating arguments to SATFC objects...");
@@ -351,6 +379,7 @@ public class SATFCFacade implements AutoCloseable {
             if (instanceName != null) {
                 metadata.put(StationPackingInstance.NAME_KEY, instanceName);
             }
+            metadata.put(StationPackingInstance.METRICS_ID_KEY, problemID);
             StationPackingInstance instance = new StationPackingInstance(domains, previousAssignment, metadata);
             SATFCMetrics.postEvent(new SATFCMetrics.NewStationPackingInstanceEvent(instance, bundle.getConstraintManager()));
 
@@ -387,7 +416,7 @@ public class SATFCFacade implements AutoCloseable {
                 throw new RuntimeException(e);
             }
             double cputime = testLib.getCpuTime() - cpuStart;
-            SATFCMetrics.postEvent(new SATFCMetrics.InstanceSolvedEvent(instanceName, result, cputime));
+            SATFCMetrics.postEvent(new SATFCMetrics.InstanceSolvedEvent(instance, result, cputime));
 
             log.debug("Transforming result into SATFC output...");
             // Transform back solver result to output result
@@ -405,13 +434,6 @@ public class SATFCFacade implements AutoCloseable {
             final SATFCResult outputResult = new SATFCResult(result.getResult(), result.getRuntime(), witness, result.getCpuTime() == 0 ? cputime : result.getCpuTime(), extraInfo);
             log.debug("Result: {}.", outputResult);
 
-            if (!internal && parameter.getAutoAugmentOptions().isAugment()) {
-                log.debug("Starting up timer again from 0 for augmentation");
-                // Start measuring time again and reschedule jobs
-                idleTime.start();
-                scheduleAugment(parameter);
-            }
-
             return outputResult;
         }
 
@@ -435,12 +457,12 @@ public class SATFCFacade implements AutoCloseable {
 
     }
 
-    private ISolverBundle getSolverBundle(String aStationConfigFolder) {
+    private ISolverBundle acquireSolverBundle(String aStationConfigFolder) {
         log.debug("Getting data managers...");
         //Get the data managers and solvers corresponding to the provided station config data.
         final ISolverBundle bundle;
         try {
-            bundle = fSolverManager.getData(aStationConfigFolder);
+            bundle = fSolverManager.acquire(aStationConfigFolder);
         } catch (FileNotFoundException e) {
             log.error("Did not find the necessary data files in provided station config data folder {}.", aStationConfigFolder);
             throw new IllegalArgumentException("Station config files not found.", e);
@@ -457,7 +479,7 @@ public class SATFCFacade implements AutoCloseable {
                 try {
                     final double elapsedTime = idleTime.getElapsedTime();
                     log.debug("Checking to see if cache augmentation should happen. SATFC Facade has been idle for {}s and we require it to be idle for {}s", elapsedTime, aSATFCParameters.getAutoAugmentOptions().getIdleTimeBeforeAugmentation());
-                    if (elapsedTime >= aSATFCParameters.getAutoAugmentOptions().getIdleTimeBeforeAugmentation()) {
+                    if (activeSolves.get() == 0 && elapsedTime >= aSATFCParameters.getAutoAugmentOptions().getIdleTimeBeforeAugmentation()) {
                         log.info("SATFC Facade has been idle for {}, time to start performing cache augmentations", elapsedTime);
                         augmenter.augment(aSATFCParameters.getAutoAugmentOptions().getAugmentStationConfigurationFolder(), aSATFCParameters.getServerURL(), httpClient, aSATFCParameters.getAutoAugmentOptions().getAugmentCutoff());
                     } else {
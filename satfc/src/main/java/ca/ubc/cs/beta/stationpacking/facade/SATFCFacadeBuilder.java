@@ -355,6 +355,7 @@ public class SATFCFacadeBuilder {
         		.builder()
         		.CNFSaver(CNFSaver)
         		.solverChoice(parameters.solverChoice)
+        		.dataManager(parameters.indexedConstraints ? new DataManager(true) : null)
         		.build()
         		);
         return builder;
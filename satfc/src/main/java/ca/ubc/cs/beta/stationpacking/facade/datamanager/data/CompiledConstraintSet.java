@@ -0,0 +1,138 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.facade.datamanager.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IndexedConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.DomainStationManager;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Binary form of a station config folder: its stations and domains, and its interference constraints as the arrays of an {@link IndexedConstraintManager},
+ * along with both (CSV derived) hashes so that nothing needs to be parsed or hashed again.
+ * <p>
+ * The file ({@link #COMPILED_FILE}, next to the CSV files) is written once by {@link #compile(String)} and memory mapped by {@link #load(String)}.
+ * It records a hash of the raw bytes of the CSV files it was compiled from, and is ignored once they change.
+ * </p>
+ */
+@Slf4j
+public class CompiledConstraintSet {
+
+    /**
+     * File path suffix for a compiled station config folder.
+     */
+    public static String COMPILED_FILE = "Constraints.bin";
+
+    private static final long MAGIC = 0x5341544643434F4EL;
+    private static final int VERSION = 1;
+
+    @Getter
+    private final DomainStationManager stationManager;
+    @Getter
+    private final IndexedConstraintManager constraintManager;
+
+    private CompiledConstraintSet(DomainStationManager aStationManager, IndexedConstraintManager aConstraintManager) {
+        stationManager = aStationManager;
+        constraintManager = aConstraintManager;
+    }
+
+    /**
+     * Parse the CSV files of a station config folder and write them to its {@link #COMPILED_FILE}.
+     * @param aPath - path to the station config folder.
+     */
+    public static void compile(String aPath) throws IOException {
+        final HashCode sourceHash = hashSources(aPath);
+        final DomainStationManager stationManager = new DomainStationManager(aPath + File.separator + DataManager.DOMAIN_FILE);
+        final IndexedConstraintManager constraintManager = new IndexedConstraintManager(stationManager, DataManager.parseConstraints(stationManager, aPath));
+
+        // Write to a temporary file first, so that a concurrent load never sees a partial file
+        final File compiledFile = new File(aPath, COMPILED_FILE);
+        final File temporaryFile = File.createTempFile(COMPILED_FILE, ".tmp", new File(aPath));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.write(sourceHash.asBytes());
+            stationManager.writeTo(out);
+            constraintManager.writeTo(out);
+        }
+        Files.move(temporaryFile.toPath(), compiledFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Compiled {} ({} bytes)", compiledFile, compiledFile.length());
+    }
+
+    /**
+     * @param aPath - path to the station config folder.
+     * @return the compiled form of the folder, or null if it was never compiled or its CSV files changed since.
+     */
+    public static CompiledConstraintSet load(String aPath) {
+        final File compiledFile = new File(aPath, COMPILED_FILE);
+        if (!compiledFile.exists()) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(compiledFile, "r")) {
+            final MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if (buffer.getLong() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("{} is not a compiled station config folder of version {}, ignoring it.", compiledFile, VERSION);
+                return null;
+            }
+            final byte[] sourceHash = new byte[Hashing.murmur3_128().bits() / Byte.SIZE];
+            buffer.get(sourceHash);
+            if (!HashCode.fromBytes(sourceHash).equals(hashSources(aPath))) {
+                log.warn("{} was compiled from different Domain and Interference files, ignoring it (it should be compiled again).", compiledFile);
+                return null;
+            }
+            final DomainStationManager stationManager = DomainStationManager.readFrom(buffer);
+            final IndexedConstraintManager constraintManager = IndexedConstraintManager.readFrom(buffer, stationManager);
+            return new CompiledConstraintSet(stationManager, constraintManager);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not read " + compiledFile + ", ignoring it.", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return a hash of the raw bytes of the folder's domain and interference files.
+     */
+    private static HashCode hashSources(String aPath) throws IOException {
+        final byte[] domains = Files.readAllBytes(new File(aPath, DataManager.DOMAIN_FILE).toPath());
+        final byte[] interferences = Files.readAllBytes(new File(aPath, DataManager.INTERFERENCES_FILE).toPath());
+        return Hashing.murmur3_128().newHasher()
+                .putInt(domains.length)
+                .putBytes(domains)
+                .putBytes(interferences)
+                .hash();
+    }
+
+}
@@ -24,14 +24,16 @@ package ca.ubc.cs.beta.stationpacking.facade.datamanager.data;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.base.Preconditions;
 
 import ca.ubc.cs.beta.stationpacking.cache.CacheCoordinate;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.AMapBasedConstraintManager;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ChannelSpecificConstraintManager;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IndexedConstraintManager;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.UnabridgedFormatConstraintManager;
 import ca.ubc.cs.beta.stationpacking.datamanagers.stations.DomainStationManager;
 import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
@@ -40,6 +42,8 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * Manages the data contained in different station config directories to make sure they are only read once.
+ * Station config directories are read from their {@link CompiledConstraintSet} when they have an up to date one, and from their CSV files otherwise.
+ * Data can be added from several threads at once.
  * @author afrechet
  */
 @Slf4j
@@ -54,24 +58,46 @@ public class DataManager {
 	 */
 	public static String INTERFERENCES_FILE = "Interference_Paired.csv";
 
-	private HashMap<String, ManagerBundle> fData;
+	private final Map<String, ManagerBundle> fData;
 	@Getter
 	private Map<CacheCoordinate, ManagerBundle> coordinateToBundle;
 
+	/**
+	 * Whether parsed interference constraints are compiled into an {@link IndexedConstraintManager}.
+	 * Constraints loaded from a {@link CompiledConstraintSet} always are.
+	 */
+	@Getter
+	private final boolean indexedConstraints;
+
 	/**
 	 * Create a new (empty) data manager.
 	 */
 	public DataManager()
 	{
-		fData = new HashMap<>();
-		coordinateToBundle = new HashMap<>();
+		this(false);
 	}
 
+	/**
+	 * Create a new (empty) data manager.
+	 * @param aIndexedConstraints if true, constraint managers are compiled into primitive int indexed constraint managers once parsed.
+	 */
+	public DataManager(boolean aIndexedConstraints)
+	{
+		fData = new ConcurrentHashMap<>();
+		coordinateToBundle = new ConcurrentHashMap<>();
+		indexedConstraints = aIndexedConstraints;
+	}
+
+	/**
+	 * Add the data of every station config folder contained in the given folder. Folders are read in parallel (they are independent),
+	 * and those compiled with {@link CompiledConstraintSet#compile(String)} are not parsed at all.
+	 * @param constraintFolder folder containing station config folders.
+	 */
 	public void loadMultipleConstraintSets(String constraintFolder) {
 		log.info("Looking in {} for station configuration folders", constraintFolder);
 		final File[] stationConfigurationFolders = new File(constraintFolder).listFiles(File::isDirectory);
 		log.info("Found {} station configuration folders", stationConfigurationFolders.length);
-		Arrays.stream(stationConfigurationFolders).forEach(folder -> {
+		Arrays.stream(stationConfigurationFolders).parallel().forEach(folder -> {
 			try {
 				final String path = folder.getAbsolutePath();
 				log.info("Adding data for station configuration folder {}", path);
@@ -102,63 +128,89 @@ public class DataManager {
 		}
 		else
 		{
-			final IStationManager stationManager = new DomainStationManager(path + File.separator + DOMAIN_FILE);
-
-			final IConstraintManager constraintManager;
-
-
-			//Try parsing unabridged.
-			Exception uaE = null;
-			IConstraintManager unabridgedConstraintManager = null;
-			try
-			{
-				unabridgedConstraintManager= new UnabridgedFormatConstraintManager(stationManager, path + File.separator + INTERFERENCES_FILE);
+			final IStationManager stationManager;
+			final IConstraintManager bundledConstraintManager;
+			final CompiledConstraintSet compiledConstraintSet = CompiledConstraintSet.load(path);
+			if (compiledConstraintSet != null) {
+				log.info("Loading compiled interference constraints.");
+				stationManager = compiledConstraintSet.getStationManager();
+				bundledConstraintManager = compiledConstraintSet.getConstraintManager();
+			} else {
+				stationManager = new DomainStationManager(path + File.separator + DOMAIN_FILE);
+				final AMapBasedConstraintManager constraintManager = parseConstraints(stationManager, path);
+				if (indexedConstraints) {
+					log.info("Indexing interference constraints.");
+					bundledConstraintManager = new IndexedConstraintManager(stationManager, constraintManager);
+				} else {
+					bundledConstraintManager = constraintManager;
+				}
 			}
-			catch(Exception e)
+
+			final ManagerBundle managerBundle = new ManagerBundle(stationManager, bundledConstraintManager, path);
+			if (fData.putIfAbsent(path, managerBundle) != null)
 			{
-				uaE = e;
+				// another thread added the same folder in the meantime, everyone uses its bundle
+				return false;
 			}
+			coordinateToBundle.put(managerBundle.getCacheCoordinate(), managerBundle);
+			return true;
+		}
+	}
 
+	/**
+	 * Parse the interference constraints of a station config folder, in whichever of the unabridged and channel specific formats they are.
+	 * @param stationManager station manager of the folder.
+	 * @param path to the station config folder.
+	 * @return the parsed constraints.
+	 */
+	public static AMapBasedConstraintManager parseConstraints(IStationManager stationManager, String path)
+	{
+		//Try parsing unabridged.
+		Exception uaE = null;
+		AMapBasedConstraintManager unabridgedConstraintManager = null;
+		try
+		{
+			unabridgedConstraintManager= new UnabridgedFormatConstraintManager(stationManager, path + File.separator + INTERFERENCES_FILE);
+		}
+		catch(Exception e)
+		{
+			uaE = e;
+		}
 
-			//Try parsing channel specific.
-			Exception csE = null;
-			IConstraintManager channelspecificConstraintManager = null;
-			try
-			{
-				channelspecificConstraintManager= new ChannelSpecificConstraintManager(stationManager, path + File.separator + INTERFERENCES_FILE);
-			}
-			catch(Exception e)
-			{
-				csE = e;
-			}
 
-			if(uaE != null && csE != null)
-			{
-				log.error("Could not parse interference data both in unabridged and channel specific formats.");
+		//Try parsing channel specific.
+		Exception csE = null;
+		AMapBasedConstraintManager channelspecificConstraintManager = null;
+		try
+		{
+			channelspecificConstraintManager= new ChannelSpecificConstraintManager(stationManager, path + File.separator + INTERFERENCES_FILE);
+		}
+		catch(Exception e)
+		{
+			csE = e;
+		}
 
-				log.error("Unabridged format exception:",uaE);
-				log.error("Channel specific format exception:",csE);
+		if(uaE != null && csE != null)
+		{
+			log.error("Could not parse interference data both in unabridged and channel specific formats.");
 
-				throw new IllegalArgumentException("Unrecognized interference constraint format.");
-			}
-			else if(uaE == null && csE == null)
-			{
-				throw new IllegalStateException("Provided interference constraint format satisfies both unabridged and channel specific formats.");
-			}
-			else if(uaE == null)
-			{
-                log.info("Unabridged format recognized for interference constraints.");
-				constraintManager = unabridgedConstraintManager;
-			}
-			else {
-                log.info("Channel specific format recognized for interference constraints.");
-				constraintManager = channelspecificConstraintManager;
-			}
+			log.error("Unabridged format exception:",uaE);
+			log.error("Channel specific format exception:",csE);
 
-			final ManagerBundle managerBundle = new ManagerBundle(stationManager, constraintManager, path);
-			fData.put(path, managerBundle);
-			coordinateToBundle.put(managerBundle.getCacheCoordinate(), managerBundle);
-			return true;
+			throw new IllegalArgumentException("Unrecognized interference constraint format.");
+		}
+		else if(uaE == null && csE == null)
+		{
+			throw new IllegalStateException("Provided interference constraint format satisfies both unabridged and channel specific formats.");
+		}
+		else if(uaE == null)
+		{
+			log.info("Unabridged format recognized for interference constraints.");
+			return unabridgedConstraintManager;
+		}
+		else {
+			log.info("Channel specific format recognized for interference constraints.");
+			return channelspecificConstraintManager;
 		}
 	}
 
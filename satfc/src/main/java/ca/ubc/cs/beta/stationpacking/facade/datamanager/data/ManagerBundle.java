@@ -25,9 +25,12 @@ import com.google.common.collect.ImmutableBiMap;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.cache.CacheCoordinate;
+import ca.ubc.cs.beta.stationpacking.cache.containment.CachePermutation;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ChannelSpecificConstraintManager;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IndexedConstraintManager;
 import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
 import containmentcache.util.PermutationUtils;
 import lombok.Getter;
 
@@ -46,6 +49,16 @@ public class ManagerBundle {
 	private CacheCoordinate cacheCoordinate;
 	@Getter
 	private final ImmutableBiMap<Station, Integer> permutation;
+	/**
+	 * The permutation shared by all the cache entries of this bundle's coordinate.
+	 */
+	@Getter
+	private final CachePermutation cachePermutation;
+	/**
+	 * Interference graphs of instances over this bundle's stations, shared by all the solvers using the bundle.
+	 */
+	@Getter
+	private final ConstraintGraphService constraintGraphService;
 
 	/**
 	 * Creates a new bundle containing the given station and constraint manager.
@@ -58,10 +71,16 @@ public class ManagerBundle {
 		this.interferenceFolder = interferenceFolder;
 		cacheCoordinate = new CacheCoordinate(stationManager.getDomainHash(), constraintManager.getConstraintHash());
 		permutation = PermutationUtils.makePermutation(getStationManager().getStations());
+		cachePermutation = CachePermutation.of(permutation);
+		constraintGraphService = new ConstraintGraphService(stationManager, constraintManager);
 	}
 
     public boolean isCompactInterference() {
-        return getConstraintManager() instanceof ChannelSpecificConstraintManager;
+        final IConstraintManager constraintManager = getConstraintManager();
+        if (constraintManager instanceof IndexedConstraintManager) {
+            return ((IndexedConstraintManager) constraintManager).isCompactInterference();
+        }
+        return constraintManager instanceof ChannelSpecificConstraintManager;
     }
 
 }
@@ -22,9 +22,14 @@
 package ca.ubc.cs.beta.stationpacking.facade.datamanager.solver;
 
 import java.io.FileNotFoundException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
 
 import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.DataManager;
 import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.ManagerBundle;
@@ -34,13 +39,19 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * Manages the solvers & data corresponding to different directories to make sure it is only read once.
+ * <p>
+ * Solver bundles hold solver state (native solver handles, reusable encoding buffers...) and must not be used by two threads at once,
+ * so for every directory the manager keeps a pool of bundles: {@link #acquire(String)} hands out an idle bundle (creating a new one if they are all in use)
+ * and {@link #release(String, ISolverBundle)} gives it back. The data (domain, interferences) is read once and shared by all bundles of a directory.
+ * </p>
  */
 @Slf4j
 public class SolverManager implements AutoCloseable {
 
-	private HashMap<String, ISolverBundle> fSolverData;
-	private ISolverBundleFactory fSolverBundleFactory;
-	private DataManager fDataManager;
+	private final Map<String, Deque<ISolverBundle>> fIdleBundles;
+	private final Map<String, List<ISolverBundle>> fAllBundles;
+	private final ISolverBundleFactory fSolverBundleFactory;
+	private final DataManager fDataManager;
 	
 	/**
 	 * Creates a solver manager that will use the given factory to create the solvers when needed.
@@ -49,7 +60,8 @@ public class SolverManager implements AutoCloseable {
     public SolverManager(ISolverBundleFactory aSolverBundleFactory, DataManager aDataManager) {
         fDataManager = aDataManager;
         fSolverBundleFactory = aSolverBundleFactory;
-        fSolverData = new HashMap<>();
+        fIdleBundles = new HashMap<>();
+        fAllBundles = new HashMap<>();
     }
 
     /**
@@ -58,12 +70,11 @@ public class SolverManager implements AutoCloseable {
 	 * @return true if the data was added and solver created, false if it was already contained.
 	 * @throws FileNotFoundException thrown if a file needed to add the data is not found.
 	 */
-	public boolean addData(String path) throws FileNotFoundException
+	public synchronized boolean addData(String path) throws FileNotFoundException
 	{	
 		log.debug("Adding data from {} to solver manager.",path);
 		
-		ISolverBundle bundle = fSolverData.get(path);
-		if (bundle != null)
+		if (fAllBundles.containsKey(path))
 		{
 			return false;
 		}
@@ -72,7 +83,8 @@ public class SolverManager implements AutoCloseable {
 			ManagerBundle dataBundle = fDataManager.getData(path);
 			ISolverBundle solverbundle = fSolverBundleFactory.getBundle(dataBundle);
 			
-			fSolverData.put(path, solverbundle);
+			fAllBundles.computeIfAbsent(path, p -> new ArrayList<>()).add(solverbundle);
+			fIdleBundles.computeIfAbsent(path, p -> new ArrayDeque<>()).push(solverbundle);
 			return true;
 		}
 	}
@@ -80,32 +92,79 @@ public class SolverManager implements AutoCloseable {
 	/**
 	 * Returns a solver bundle corresponding to the given directory path.  If the bundle does not exist,
 	 * it is added (read) into the manager and then returned.
+	 * The bundle is shared with the first caller of {@link #acquire(String)}, so this should only be used when problems are solved one at a time.
 	 * @param path path to the directory for which to get the bundle.
 	 * @return a solver bundle corresponding to the given directory path.
 	 * @throws FileNotFoundException thrown if a file needed to add the data is not found.
 	 */
-	public ISolverBundle getData(String path) throws FileNotFoundException
+	public synchronized ISolverBundle getData(String path) throws FileNotFoundException
 	{
-        ISolverBundle bundle = fSolverData.get(path);
-		if (bundle == null)
+		if (!fAllBundles.containsKey(path))
 		{
 			log.warn("Requested data from {} not available, will try to add it.",path);
 			addData(path);
-			bundle = fSolverData.get(path);
 		}
-		return bundle;
+		return fAllBundles.get(path).get(0);
+	}
+
+	/**
+	 * Takes a solver bundle corresponding to the given directory path for the exclusive use of the caller, who must give it back with {@link #release(String, ISolverBundle)}.
+	 * If all the bundles of this path are in use, a new one is created (reading the data first if needed).
+	 * @param path path to the directory for which to get the bundle.
+	 * @return a solver bundle corresponding to the given directory path that no one else is using.
+	 * @throws FileNotFoundException thrown if a file needed to add the data is not found.
+	 */
+	public ISolverBundle acquire(String path) throws FileNotFoundException
+	{
+		final ManagerBundle dataBundle;
+		synchronized (this)
+		{
+			final Deque<ISolverBundle> idle = fIdleBundles.get(path);
+			if (idle != null && !idle.isEmpty())
+			{
+				return idle.pop();
+			}
+			if (!fAllBundles.containsKey(path))
+			{
+				log.warn("Requested data from {} not available, will try to add it.",path);
+				addData(path);
+				return fIdleBundles.get(path).pop();
+			}
+			log.debug("All {} solver bundles for {} are in use, creating a new one.", fAllBundles.get(path).size(), path);
+			dataBundle = fDataManager.getData(path);
+		}
+		// Solver creation can be slow, don't hold up the other threads while doing it
+		final ISolverBundle solverBundle = fSolverBundleFactory.getBundle(dataBundle);
+		synchronized (this)
+		{
+			fAllBundles.get(path).add(solverBundle);
+		}
+		return solverBundle;
+	}
+
+	/**
+	 * Gives back a solver bundle obtained from {@link #acquire(String)} so that other callers can reuse it.
+	 * @param path path the bundle was acquired for.
+	 * @param bundle the bundle to give back.
+	 */
+	public synchronized void release(String path, ISolverBundle bundle)
+	{
+		Preconditions.checkArgument(fAllBundles.containsKey(path) && fAllBundles.get(path).contains(bundle), "Releasing a solver bundle that was not acquired from this manager for " + path);
+		fIdleBundles.get(path).push(bundle);
 	}
 
 	@Override
-	public void close() throws Exception
+	public synchronized void close() throws Exception
 	{
-		Set<String> keys = new HashSet<String>(fSolverData.keySet());
-		for (String path : keys)
+		for (List<ISolverBundle> bundles : fAllBundles.values())
 		{
-			ISolverBundle bundle = fSolverData.get(path);
-			bundle.close();
-			fSolverData.remove(path);
+			for (ISolverBundle bundle : bundles)
+			{
+				bundle.close();
+			}
 		}
+		fAllBundles.clear();
+		fIdleBundles.clear();
 	}
 	
 }
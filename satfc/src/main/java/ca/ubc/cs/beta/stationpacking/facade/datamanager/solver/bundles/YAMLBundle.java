@@ -23,6 +23,9 @@ package ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.cache.SharedMemoryResultCache;
+import ca.ubc.cs.beta.stationpacking.consistency.AC3Enforcer;
+import ca.ubc.cs.beta.stationpacking.consistency.BitSetAC3Enforcer;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
 import ca.ubc.cs.beta.stationpacking.facade.SATFCFacadeParameter;
 import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.ManagerBundle;
@@ -40,25 +43,36 @@ import ca.ubc.cs.beta.stationpacking.solvers.certifiers.cgneighborhood.Constrain
 import ca.ubc.cs.beta.stationpacking.solvers.certifiers.cgneighborhood.StationSubsetSATCertifier;
 import ca.ubc.cs.beta.stationpacking.solvers.certifiers.cgneighborhood.strategies.*;
 import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGrouper;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
 import ca.ubc.cs.beta.stationpacking.solvers.composites.ISolverFactory;
 import ca.ubc.cs.beta.stationpacking.solvers.composites.ParallelNoWaitSolverComposite;
+import ca.ubc.cs.beta.stationpacking.solvers.composites.PortfolioScheduler;
+import ca.ubc.cs.beta.stationpacking.solvers.composites.ThreadBudget;
 import ca.ubc.cs.beta.stationpacking.solvers.composites.ParallelSolverComposite;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.*;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.cache.CacheResultDecorator;
+import ca.ubc.cs.beta.stationpacking.solvers.decorators.cache.SharedMemoryCacheDecorator;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.cache.SubsetCacheUNSATDecorator;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.cache.SupersetCacheSATDecorator;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.consistency.ArcConsistencyEnforcerDecorator;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.consistency.ChannelKillerDecorator;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.greedy.GreedySolverDecorator;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.CompressedSATBasedSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.StreamingSATBasedSolver;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.GenericSATBasedSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.IncrementalSATBasedSolver;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.base.CNF;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.base.Literal;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder.ISATDecoder;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder.SATCompressor;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder.StreamingSATEncoder;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.AbstractCompressedSATSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.SizeThresholdSATSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.incremental.IncrementalClaspSATSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.jnalibraries.Clasp3Library;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonJNISolvers.ACLibSolver;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonJNISolvers.CommandLineSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental.CDCLSATSolver;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental.Clasp3SATSolver;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental.ubcsat.UBCSATSolver;
 import ca.ubc.cs.beta.stationpacking.solvers.underconstrained.HeuristicUnderconstrainedStationFinder;
@@ -95,6 +109,7 @@ import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by newmanne on 01/10/15.
@@ -176,10 +191,12 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
     private static ISolver concat(List<ISolverConfig> configs, SATFCContext context) {
         log.debug("Starting with a void solver...");
         ISolver solver = new VoidSolver();
-        for (ISolverConfig config : configs) {
+        for (int i = 0; i < configs.size(); i++) {
+            final ISolverConfig config = configs.get(i);
             if (!config.shouldSkip(context)) {
                 log.debug("Decorating with {} using config of type {}", solver.getClass().getSimpleName(), config.getClass().getSimpleName());
-                solver = config.createSolver(context, solver);
+                final List<ISolverConfig> decoratedConfigs = configs.subList(0, i);
+                solver = config.createSolver(context, solver, aSolver -> concat(decoratedConfigs, context));
                 context.getSolverTypes().add(SolverConfigDeserializer.typeToConfigClass.inverse().get(config.getClass()));
             } else {
                 log.debug("Skipping decorator {}", config.getClass().getSimpleName());
@@ -198,6 +215,10 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
         private final IPollingService pollingService;
         private final CloseableHttpAsyncClient httpClient;
         private PythonInterpreterContainer python;
+        // Worker threads shared by the parallel solvers of the bundle
+        private final ThreadBudget threadBudget = ThreadBudget.forAvailableProcessors();
+        // Shared memory result caches of the bundle, by file, so that every copy of a decorator maps its file once
+        private final Map<String, SharedMemoryResultCache> sharedMemoryCaches = new ConcurrentHashMap<>();
 
         private final Set<SolverType> solverTypes = new HashSet<>();
     }
@@ -222,10 +243,63 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
         public ISolver createSolver(SATFCContext context, ISolver solverToDecorate) {
             final IConstraintManager constraintManager = context.getManagerBundle().getConstraintManager();
             final Clasp3LibraryGenerator clasp3LibraryGenerator = context.getClasp3LibraryGenerator();
-            final AbstractCompressedSATSolver claspSATsolver = new Clasp3SATSolver(clasp3LibraryGenerator.createLibrary(), config, seedOffset, context.getPollingService(), nickname);
+            AbstractCompressedSATSolver claspSATsolver = new Clasp3SATSolver(clasp3LibraryGenerator.createLibrary(), config, seedOffset, context.getPollingService(), nickname, warmHandles);
+            if (javaMaxVariables > 0) {
+                claspSATsolver = new SizeThresholdSATSolver(new CDCLSATSolver(seedOffset, nickname), claspSATsolver, javaMaxVariables);
+            }
+            if (streamingEncoder) {
+                return new StreamingSATBasedSolver(claspSATsolver, new StreamingSATEncoder(constraintManager, encodingType));
+            }
             return new CompressedSATBasedSolver(claspSATsolver, new SATCompressor(constraintManager, encodingType));
         }
 
+        private String config;
+        private EncodingType encodingType = EncodingType.DIRECT;
+        // Encode straight into a reusable int buffer instead of building a CNF object
+        private boolean streamingEncoder = false;
+        private int seedOffset = 0;
+        private String nickname;
+        // Native clasp handles kept configured between solves, 0 to parse the configuration for every problem. Needs a clasp library built with resetProblem
+        private int warmHandles = 0;
+        // CNFs with at most this many variables are solved by the pure Java CDCL solver instead of clasp, 0 to always use clasp
+        private int javaMaxVariables = 0;
+
+    }
+
+    @Data
+    public static class JavaSATConfig implements ISolverConfig {
+
+        @Override
+        public ISolver createSolver(SATFCContext context, ISolver solverToDecorate) {
+            final IConstraintManager constraintManager = context.getManagerBundle().getConstraintManager();
+            final AbstractCompressedSATSolver javaSATSolver = new CDCLSATSolver(seedOffset, nickname);
+            if (streamingEncoder) {
+                return new StreamingSATBasedSolver(javaSATSolver, new StreamingSATEncoder(constraintManager, encodingType));
+            }
+            return new CompressedSATBasedSolver(javaSATSolver, new SATCompressor(constraintManager, encodingType));
+        }
+
+        private EncodingType encodingType = EncodingType.DIRECT;
+        // The solver works on the packed int literals, so encode straight into a reusable int buffer by default
+        private boolean streamingEncoder = true;
+        private int seedOffset = 0;
+        private String nickname;
+
+    }
+
+    @Data
+    public static class IncrementalClaspConfig implements ISolverConfig {
+
+        @Override
+        public ISolver createSolver(SATFCContext context, ISolver solverToDecorate) {
+            final ManagerBundle managerBundle = context.getManagerBundle();
+            // Both solvers are only ever used one after the other, so they can share a library
+            final Clasp3Library library = context.getClasp3LibraryGenerator().createLibrary();
+            final IncrementalClaspSATSolver incrementalSATSolver = new IncrementalClaspSATSolver(library, config, seedOffset, context.getPollingService(), nickname);
+            final ISolver fallbackSolver = new StreamingSATBasedSolver(new Clasp3SATSolver(library, config, seedOffset, context.getPollingService(), nickname), new StreamingSATEncoder(managerBundle.getConstraintManager(), encodingType));
+            return new IncrementalSATBasedSolver(incrementalSATSolver, fallbackSolver, managerBundle.getStationManager(), managerBundle.getConstraintManager(), encodingType, nickname);
+        }
+
         private String config;
         private EncodingType encodingType = EncodingType.DIRECT;
         private int seedOffset = 0;
@@ -241,11 +315,16 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
             final IConstraintManager constraintManager = context.getManagerBundle().getConstraintManager();
             final UBCSATLibraryGenerator ubcsatLibraryGenerator = context.getUbcsatLibraryGenerator();
             final AbstractCompressedSATSolver ubcsatSolver = new UBCSATSolver(ubcsatLibraryGenerator.createLibrary(), config, seedOffset, context.getPollingService(), nickname);
+            if (streamingEncoder) {
+                return new StreamingSATBasedSolver(ubcsatSolver, new StreamingSATEncoder(constraintManager, encodingType));
+            }
             return new CompressedSATBasedSolver(ubcsatSolver, new SATCompressor(constraintManager, encodingType));
         }
 
         private String config;
         private EncodingType encodingType = EncodingType.DIRECT;
+        // Encode straight into a reusable int buffer instead of building a CNF object
+        private boolean streamingEncoder = false;
         private int seedOffset = 0;
         private String nickname;
 
@@ -397,10 +476,18 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
 
         @Override
         public ISolver createSolver(SATFCContext context, ISolver solverToDecorate) {
-            return new ConnectedComponentGroupingDecorator(solverToDecorate, new ConstraintGrouper(), context.getManagerBundle().getConstraintManager(), solveEverything);
+            return createSolver(context, solverToDecorate, null);
+        }
+
+        @Override
+        public ISolver createSolver(SATFCContext context, ISolver solverToDecorate, ISolverFactory solverToDecorateFactory) {
+            return new ConnectedComponentGroupingDecorator(solverToDecorate, new ConstraintGrouper(context.getManagerBundle().getConstraintGraphService()), context.getManagerBundle().getConstraintManager(), solveEverything,
+                    solverToDecorateFactory, numThreads, context.getThreadBudget());
         }
 
         private boolean solveEverything = false;
+        // Number of components to solve at once, each extra thread with its own copy of the solvers below
+        private int numThreads = 1;
     }
 
     @Data
@@ -408,8 +495,13 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
 
         @Override
         public ISolver createSolver(SATFCContext context, ISolver solverToDecorate) {
-            return new ArcConsistencyEnforcerDecorator(solverToDecorate, context.getManagerBundle().getConstraintManager());
+            final IConstraintManager constraintManager = context.getManagerBundle().getConstraintManager();
+            final ConstraintGraphService constraintGraphService = context.getManagerBundle().getConstraintGraphService();
+            return new ArcConsistencyEnforcerDecorator(solverToDecorate, channelMasks ? new BitSetAC3Enforcer(constraintManager, constraintGraphService) : new AC3Enforcer(constraintManager, constraintGraphService));
         }
+
+        // Use the channel mask implementation, instead of the original set based one
+        private boolean channelMasks = true;
     }
 
     @EqualsAndHashCode(callSuper = true)
@@ -465,12 +557,30 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
 
     }
 
+    @Data
+    public static class SharedMemoryCacheConfig implements ISolverConfig {
+
+        @Override
+        public ISolver createSolver(SATFCContext context, ISolver solverToDecorate) {
+            final SharedMemoryResultCache cache = context.getSharedMemoryCaches().computeIfAbsent(path, p -> new SharedMemoryResultCache(p, numSlots, slotSize));
+            return new SharedMemoryCacheDecorator(solverToDecorate, cache, context.getManagerBundle().getConstraintManager().getConstraintHash());
+        }
+
+        // File mapped by every SATFC process of the host, best kept on a memory backed file system
+        private String path = "/dev/shm/satfc-result-cache";
+        // Number of cached results, a multiple of 8
+        private int numSlots = 4096;
+        // Bytes per cached result, a SAT result takes 8 bytes per station (plus 40)
+        private int slotSize = 16384;
+
+    }
+
     @Data
     public static class UnderconstrainedConfig implements ISolverConfig {
 
         @Override
         public ISolver createSolver(SATFCContext context, ISolver solverToDecorate) {
-            return new UnderconstrainedStationRemoverSolverDecorator(solverToDecorate, context.getManagerBundle().getConstraintManager(), new HeuristicUnderconstrainedStationFinder(context.getManagerBundle().getConstraintManager(), expensive), recursive);
+            return new UnderconstrainedStationRemoverSolverDecorator(solverToDecorate, context.getManagerBundle().getConstraintManager(), context.getManagerBundle().getConstraintGraphService(), new HeuristicUnderconstrainedStationFinder(context.getManagerBundle().getConstraintManager(), context.getManagerBundle().getConstraintGraphService(), expensive), recursive);
         }
 
         private boolean expensive = true;
@@ -500,7 +610,8 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
             return new ConstraintGraphNeighborhoodPresolver(solverToDecorate,
                     new StationSubsetSATCertifier(solverConfig.createSolver(context)),
                     strategy.createStrategy(),
-                    context.getManagerBundle().getConstraintManager());
+                    context.getManagerBundle().getConstraintManager(),
+                    context.getManagerBundle().getConstraintGraphService());
         }
 
         ;
@@ -519,7 +630,8 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
             return new ConstraintGraphNeighborhoodPresolver(solverToDecorate,
                     new StationSubsetSATCertifier(solverConfig.createSolver(context)),
                     strategy.createStrategy(),
-                    context.getManagerBundle().getConstraintManager());
+                    context.getManagerBundle().getConstraintManager(),
+                    context.getManagerBundle().getConstraintGraphService());
         }
 
 
@@ -540,13 +652,22 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
             }
             if (wait) {
                 return new ParallelSolverComposite(solverFactories.size(), solverFactories, stableAssignments);
+            } else if (adaptive) {
+                final PortfolioScheduler scheduler = new PortfolioScheduler(solverFactories.size(), timeSlice, minWinRate, context.getManagerBundle().getConstraintGraphService());
+                return new ParallelNoWaitSolverComposite(solverFactories.size(), solverFactories, context.getThreadBudget(), scheduler);
             } else {
-                return new ParallelNoWaitSolverComposite(solverFactories.size(), solverFactories);
+                return new ParallelNoWaitSolverComposite(solverFactories.size(), solverFactories, context.getThreadBudget());
             }
         }
 
         private boolean wait = false;
         private boolean stableAssignments = false;
+        // Learn which members win on which instances to order them, and only use the threads left in the budget (no wait portfolios only)
+        private boolean adaptive = false;
+        // Initial time slice (s) of each member when there are fewer threads than members, 0 to never slice
+        private double timeSlice = 0;
+        // Win rate under which an adaptive portfolio leaves a member out when there are fewer threads than members
+        private double minWinRate = 0.02;
         private List<List<ISolverConfig>> configs;
 
     }
@@ -610,12 +731,14 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
 
         @Override
         public ISolver createSolver(SATFCContext context, ISolver solverToDecorate) {
-            return new ChannelKillerDecorator(solverToDecorate, solverConfig.createSolver(context), context.getManagerBundle().getConstraintManager(), time, recurisve);
+            return new ChannelKillerDecorator(solverToDecorate, aSolver -> solverConfig.createSolver(context), numThreads, context.getManagerBundle().getConstraintManager(), context.getManagerBundle().getConstraintGraphService(), time, recurisve);
         }
 
         private double time;
         private boolean recurisve;
         private ISolverConfig solverConfig;
+        // Number of subproblems to solve concurrently, each thread with its own solver built from solverConfig
+        private int numThreads = 1;
 
     }
 
@@ -669,9 +792,12 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
 
         @Override
         public ISolver createSolver(SATFCContext context, ISolver solverToDecorate) {
-            return new GreedySolverDecorator(solverToDecorate, context.getManagerBundle().getConstraintManager(), context.getManagerBundle().getStationManager());
+            return new GreedySolverDecorator(solverToDecorate, context.getManagerBundle().getConstraintManager(), context.getManagerBundle().getStationManager(), context.getManagerBundle().getConstraintGraphService(), repairAttempts);
         }
 
+        // Number of single neighbour moves to try for each station that cannot be placed greedily
+        private int repairAttempts = 0;
+
     }
 
     @Data
@@ -747,6 +873,8 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
         public static final BiMap<SolverType, Class<? extends ISolverConfig>> typeToConfigClass =
                 ImmutableBiMap.<SolverType, Class<? extends ISolverConfig>>builder()
                         .put(SolverType.CLASP, ClaspConfig.class)
+                        .put(SolverType.INCREMENTAL_CLASP, IncrementalClaspConfig.class)
+                        .put(SolverType.JAVA_SAT, JavaSATConfig.class)
                         .put(SolverType.SATENSTEIN, UBCSATConfig.class)
                         .put(SolverType.SAT_PRESOLVER, SATPresolver.class)
                         .put(SolverType.UNSAT_PRESOLVER, UNSATPresolver.class)
@@ -757,6 +885,7 @@ public class YAMLBundle extends AVHFUHFSolverBundle {
                         .put(SolverType.CACHE, CacheConfig.class)
                         .put(SolverType.SAT_CACHE, SATCacheConfig.class)
                         .put(SolverType.UNSAT_CACHE, UNSATCacheConfig.class)
+                        .put(SolverType.SHARED_MEMORY_CACHE, SharedMemoryCacheConfig.class)
                         .put(SolverType.PARALLEL, ParallelConfig.class)
                         .put(SolverType.RESULT_SAVER, ResultSaverConfig.class)
                         .put(SolverType.CNF, CNFSaverConfig.class)
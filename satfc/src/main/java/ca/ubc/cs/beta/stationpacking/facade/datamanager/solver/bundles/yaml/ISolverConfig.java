@@ -24,6 +24,7 @@ package ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles.yaml;
 import ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles.YAMLBundle;
 import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
 import ca.ubc.cs.beta.stationpacking.solvers.VoidSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.composites.ISolverFactory;
 
 /**
 * Created by newmanne on 27/10/15.
@@ -33,6 +34,15 @@ public interface ISolverConfig {
      * Decorate an existing solver with a new solver created from the config object and the context
      */
     ISolver createSolver(YAMLBundle.SATFCContext context, ISolver solverToDecorate);
+
+    /**
+     * Same as {@link #createSolver(YAMLBundle.SATFCContext, ISolver)}, for configs that need more copies of the solver to decorate (e.g. one per thread).
+     * @param solverToDecorateFactory creates new solvers equivalent to solverToDecorate
+     */
+    default ISolver createSolver(YAMLBundle.SATFCContext context, ISolver solverToDecorate, ISolverFactory solverToDecorateFactory) {
+        return createSolver(context, solverToDecorate);
+    }
+
     default ISolver createSolver(YAMLBundle.SATFCContext context) {
         return createSolver(context, new VoidSolver());
     }
@@ -26,6 +26,8 @@ package ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles.yaml;
  */
 public enum SolverType {
     CLASP,
+    INCREMENTAL_CLASP,
+    JAVA_SAT,
     SATENSTEIN,
     SAT_PRESOLVER,
     UNSAT_PRESOLVER,
@@ -37,6 +39,7 @@ public enum SolverType {
     CACHE,
     SAT_CACHE,
     UNSAT_CACHE,
+    SHARED_MEMORY_CACHE,
     PARALLEL,
     RESULT_SAVER,
     CNF,
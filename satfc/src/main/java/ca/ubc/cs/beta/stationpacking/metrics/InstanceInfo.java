@@ -23,6 +23,7 @@ package ca.ubc.cs.beta.stationpacking.metrics;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -56,5 +57,10 @@ public class InstanceInfo {
     private String nickname;
     private String hash;
     private Double cputime;
+    // how the portfolio was scheduled, see ca.ubc.cs.beta.stationpacking.solvers.composites.PortfolioScheduler
+    private List<Integer> portfolioMembers;
+    private Integer portfolioWinner;
+    private Integer portfolioWorkers;
+    private Integer portfolioSlices;
 
 }
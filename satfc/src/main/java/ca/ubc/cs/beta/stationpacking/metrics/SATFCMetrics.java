@@ -23,11 +23,12 @@ package ca.ubc.cs.beta.stationpacking.metrics;
 
 import java.lang.management.ManagementFactory;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -43,6 +44,7 @@ import com.codahale.metrics.jvm.BufferPoolMetricSet;
 import com.codahale.metrics.jvm.GarbageCollectorMetricSet;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
 import com.codahale.metrics.jvm.ThreadStatesGaugeSet;
+import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 
@@ -60,13 +62,14 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * Created by newmanne on 15/01/15.
  * Collects metrics on solving SATFC problems
- * If your problems don't have  unique names, behaviour is undefined (because we use names to reference problems)
+ * Each problem is referenced by the unique ID it is given when it is submitted to the facade, so problems being solved at the same time may share names
  */
 @Slf4j
 public class SATFCMetrics {
 
     private static MetricHandler metricsHandler;
     private static EventBus eventBus;
+    private static final AtomicLong lastProblemID = new AtomicLong();
 
     public static void init() {
         metricsHandler = new MetricHandler();
@@ -86,13 +89,46 @@ public class SATFCMetrics {
         }
     }
 
-    public static void doWithMetrics(MetricHandler.IMetricCallback callback) {
-        metricsHandler.doWithMetrics(callback);
+    /**
+     * @return a new problem ID, to be stored under {@link StationPackingInstance#METRICS_ID_KEY} in the metadata of a (top level) problem.
+     */
+    public static long newProblemID() {
+        return lastProblemID.incrementAndGet();
     }
 
+    /**
+     * @return the ID of the (top level) problem the instance belongs to, or null if it doesn't belong to any (e.g. presolver instances).
+     */
+    public static Long getProblemID(StationPackingInstance instance) {
+        return (Long) instance.getMetadata().get(StationPackingInstance.METRICS_ID_KEY);
+    }
+
+    /**
+     * Run the callback on the metrics of the given (top level) problem, if any are being collected.
+     * @param problemID ID of the problem, as given by {@link #newProblemID()}.
+     */
+    public static void doWithMetrics(long problemID, MetricHandler.IMetricCallback callback) {
+        if (eventBus != null) {
+            metricsHandler.doWithMetrics(problemID, callback);
+        }
+    }
+
+    /**
+     * Stop collecting metrics for the given (top level) problem.
+     * @param problemID ID of the problem, as given by {@link #newProblemID()}.
+     */
+    public static void clear(long problemID) {
+        if (eventBus != null) {
+            metricsHandler.clear(problemID);
+        }
+    }
+
+    /**
+     * Stop collecting metrics for every problem.
+     */
     public static void clear() {
         if (eventBus != null) {
-            metricsHandler.clear();
+            metricsHandler.clearAll();
         }
     }
 
@@ -104,20 +140,20 @@ public class SATFCMetrics {
 
     @Data
     public static class InstanceSolvedEvent {
-        private final String name;
+        private final StationPackingInstance instance;
         private final SolverResult solverResult;
         private final Double cputime;
     }
 
     @Data
     public static class UnderconstrainedStationsRemovedEvent {
-        private final String name;
+        private final StationPackingInstance instance;
         private final Set<Station> underconstrainedStations;
     }
 
     @Data
     public static class SplitIntoConnectedComponentsEvent {
-        private final String name;
+        private final StationPackingInstance instance;
         private final Collection<StationPackingInstance> components;
     }
 
@@ -130,87 +166,103 @@ public class SATFCMetrics {
         public final static String CONNECTED_COMPONENTS = "split_connected_components";
         public final static String ARC_CONSISTENCY = "arc_consistency";
 
-        private final String name;
+        private final StationPackingInstance instance;
         private final String timedEvent;
         private final double time;
     }
 
+    @Data
+    public static class PortfolioScheduledEvent {
+        private final StationPackingInstance instance;
+        // members of the portfolio that were launched, in launch order
+        private final List<Integer> launchedMembers;
+        // member whose result was returned, null if none was conclusive
+        private final Integer winner;
+        private final int numWorkers;
+        private final int numSlices;
+    }
+
     @Data
     public static class JustifiedByCacheEvent {
-        private final String name;
+        private final StationPackingInstance instance;
         private final String key;
     }
 
+    /**
+     * Keeps one {@link InstanceInfo} per problem being solved, keyed by the problem's ID, so that several problems can be solved (and measured) at once.
+     * Events are routed through the problem ID in their instance's metadata, which instances derived from a problem (e.g. its components) inherit.
+     * Each problem's metrics are only ever edited while holding the lock of its top level {@link InstanceInfo}.
+     */
     public static class MetricHandler {
 
-        private InstanceInfo activeProblemMetrics;
-        private Lock metricsLock = new ReentrantLock();
+        private final Map<Long, InstanceInfo> activeProblemMetrics = new ConcurrentHashMap<>();
 
         public interface IMetricCallback {
             void doWithLock(InstanceInfo info);
         }
 
-        private void safeMetricEdit(String name, IMetricCallback callback) {
-            try {
-                metricsLock.lock();
-                // ensure that you only edit the "current problem" metrics.
-                if (activeProblemMetrics != null && name.startsWith(activeProblemMetrics.getName())) {
-                    final InstanceInfo info = getInfo(name);
+        private void safeMetricEdit(StationPackingInstance instance, IMetricCallback callback) {
+            final Long problemID = getProblemID(instance);
+            if (problemID == null) {
+                return;
+            }
+            // only edit metrics of problems that are currently being solved
+            final InstanceInfo problemInfo = activeProblemMetrics.get(problemID);
+            if (problemInfo != null) {
+                synchronized (problemInfo) {
+                    final String name = instance.getName();
+                    final InstanceInfo info = name.equals(problemInfo.getName()) ? problemInfo : problemInfo.getComponents().get(name);
                     if (info != null) {
                         callback.doWithLock(info);
                     }
                 }
-            } finally {
-                metricsLock.unlock();
             }
         }
 
-        public void doWithMetrics(IMetricCallback callback) {
-            try {
-                metricsLock.lock();
-                callback.doWithLock(activeProblemMetrics);
-            } finally {
-                metricsLock.unlock();
+        public void doWithMetrics(long problemID, IMetricCallback callback) {
+            final InstanceInfo info = activeProblemMetrics.get(problemID);
+            if (info != null) {
+                synchronized (info) {
+                    callback.doWithLock(info);
+                }
             }
         }
 
-        private void clear() {
-            activeProblemMetrics = null;
+        private void clear(long problemID) {
+            activeProblemMetrics.remove(problemID);
         }
 
-        private InstanceInfo getInfo(String name) {
-            if (activeProblemMetrics == null) {
-                throw new IllegalStateException("Trying to add metrics with no valid problem");
-            } else if (name.equals(activeProblemMetrics.getName())) {
-                return activeProblemMetrics;
-            } else if (name.contains("_component")) {
-                return activeProblemMetrics.getComponents().get(name);
-            }
-            return null; // This will catch presolver instances
+        private void clearAll() {
+            activeProblemMetrics.clear();
         }
 
         @Subscribe
+        @AllowConcurrentEvents
         public void onNewStationPackingInstanceEvent(NewStationPackingInstanceEvent event) {
-            // don't thread this one
-            if (activeProblemMetrics != null) {
-                throw new IllegalStateException("Metrics already in progress!");
-            }
-            activeProblemMetrics = new InstanceInfo();
             final StationPackingInstance instance = event.getInstance();
-            activeProblemMetrics.setName(instance.getName());
-            activeProblemMetrics.setStations(instance.getStations());
-            activeProblemMetrics.setNumStations(instance.getStations().size());
-            activeProblemMetrics.setHash(StationPackingInstanceHasher.hash(instance).toString());
+            final Long problemID = getProblemID(instance);
+            if (problemID == null) {
+                log.warn("Instance {} was not given a problem ID, not collecting its metrics", instance.getName());
+                return;
+            }
+            final InstanceInfo info = new InstanceInfo();
+            info.setName(instance.getName());
+            info.setStations(instance.getStations());
+            info.setNumStations(instance.getStations().size());
+            info.setHash(StationPackingInstanceHasher.hash(instance).toString());
 
             // Calculate degrees. May be a bit expensive...
             final SimpleGraph<Station, DefaultEdge> constraintGraph = ConstraintGrouper.getConstraintGraph(instance.getDomains(), event.getConstraintManager());
             final NeighborIndex<Station, DefaultEdge> neighborIndex = new NeighborIndex<>(constraintGraph);
-            activeProblemMetrics.setStationToDegree(instance.getStations().stream().collect(Collectors.toMap(Function.identity(), s -> neighborIndex.neighborsOf(s).size())));
+            info.setStationToDegree(instance.getStations().stream().collect(Collectors.toMap(Function.identity(), s -> neighborIndex.neighborsOf(s).size())));
+
+            activeProblemMetrics.put(problemID, info);
         }
 
         @Subscribe
+        @AllowConcurrentEvents
         public void onInstanceSolvedEvent(InstanceSolvedEvent event) {
-            safeMetricEdit(event.getName(), info -> {
+            safeMetricEdit(event.getInstance(), info -> {
                 info.setResult(event.getSolverResult().getResult());
                 if (event.getSolverResult().getResult().equals(SATResult.SAT)) {
                     info.setAssignment(StationPackingUtils.stationToChannelFromChannelToStation(event.getSolverResult().getAssignment()));
@@ -223,15 +275,17 @@ public class SATFCMetrics {
         }
 
         @Subscribe
+        @AllowConcurrentEvents
         public void onUnderconstrainedStationsRemovedEvent(UnderconstrainedStationsRemovedEvent event) {
-            safeMetricEdit(event.getName(), info -> {
+            safeMetricEdit(event.getInstance(), info -> {
                 info.getUnderconstrainedStations().addAll(event.getUnderconstrainedStations().stream().map(Station::getID).collect(Collectors.toSet()));
             });
         }
 
         @Subscribe
+        @AllowConcurrentEvents
         public void onSplitIntoConnectedComponentsEvent(SplitIntoConnectedComponentsEvent event) {
-            safeMetricEdit(event.getName(), outerInfo -> {
+            safeMetricEdit(event.getInstance(), outerInfo -> {
                 event.getComponents().forEach(component -> {
                     final InstanceInfo instanceInfo = new InstanceInfo();
                     outerInfo.getComponents().put(component.getName(), instanceInfo);
@@ -243,15 +297,28 @@ public class SATFCMetrics {
         }
 
         @Subscribe
+        @AllowConcurrentEvents
         public void onTimingEvent(TimingEvent event) {
-            safeMetricEdit(event.getName(), info -> {
+            safeMetricEdit(event.getInstance(), info -> {
                 info.getTimingInfo().put(event.getTimedEvent(), event.getTime());
             });
         }
 
         @Subscribe
+        @AllowConcurrentEvents
+        public void onPortfolioScheduledEvent(PortfolioScheduledEvent event) {
+            safeMetricEdit(event.getInstance(), info -> {
+                info.setPortfolioMembers(event.getLaunchedMembers());
+                info.setPortfolioWinner(event.getWinner());
+                info.setPortfolioWorkers(event.getNumWorkers());
+                info.setPortfolioSlices(event.getNumSlices());
+            });
+        }
+
+        @Subscribe
+        @AllowConcurrentEvents
         public void onJustifiedByCacheEvent(JustifiedByCacheEvent event) {
-            safeMetricEdit(event.getName(), info -> {
+            safeMetricEdit(event.getInstance(), info -> {
                 info.setCacheResultUsed(event.getKey());
             });
         }
@@ -260,6 +327,49 @@ public class SATFCMetrics {
     // codahale metrics for jvm stuff:
     private final static MetricRegistry registry = new MetricRegistry();
 
+    /**
+     * Names of the timers of the phases of native clasp calls, across all problems.
+     */
+    public final static String CLASP_INIT_TIMER = "clasp.init";
+    public final static String CLASP_SOLVE_TIMER = "clasp.solve";
+    public final static String CLASP_TEARDOWN_TIMER = "clasp.teardown";
+
+    /**
+     * Names of the timers of building CPLEX models and of solving them, across all problems.
+     */
+    public final static String CPLEX_BUILD_TIMER = "cplex.build";
+    public final static String CPLEX_SOLVE_TIMER = "cplex.solve";
+
+    /**
+     * Name of the timer of the pure Java CDCL solver, across all problems (to compare with {@link #CLASP_SOLVE_TIMER}).
+     */
+    public final static String JAVA_SAT_SOLVE_TIMER = "javasat.solve";
+
+    /**
+     * Name of the timer of how long solvers keep running after their termination criterion is met (from the interrupt to the end of the solve).
+     */
+    public final static String INTERRUPT_OVERSHOOT_TIMER = "interrupt.overshoot";
+
+    /**
+     * Record a duration in one of the (process wide) timers, e.g. {@link #CLASP_INIT_TIMER}. Timers are logged by {@link #report()}.
+     */
+    public static void updateTimer(String name, long durationNanos) {
+        registry.timer(name).update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Names of the counters of lookups in the shared memory result cache, across all problems.
+     */
+    public final static String SHARED_CACHE_HITS = "cache.shared.hits";
+    public final static String SHARED_CACHE_MISSES = "cache.shared.misses";
+
+    /**
+     * Increment one of the (process wide) counters, e.g. {@link #SHARED_CACHE_HITS}. Counters are logged by {@link #report()}.
+     */
+    public static void incrementCounter(String name) {
+        registry.counter(name).inc();
+    }
+
     // log jvm metrics
     public static void report() {
         log.info("Reporting jvm metrics");
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.polling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.base.Preconditions;
+
+import lombok.extern.slf4j.Slf4j;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Hashed timer wheel running callbacks at (System.nanoTime()) deadlines, at most a tick late.
+ * <p>
+ * Deadlines are hashed by tick into a fixed number of buckets, and a single daemon thread goes through the buckets tick by tick, so scheduling and
+ * cancelling are constant time no matter how many deadlines are pending. The thread sleeps until the next non empty bucket, or until a deadline is
+ * scheduled, so an idle wheel costs nothing. Callbacks run on the wheel's thread and must be short (e.g. handing an interrupt to an executor).
+ * </p>
+ */
+@Slf4j
+@ThreadSafe
+public class DeadlineTimerWheel {
+
+    private static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int DEFAULT_WHEEL_SIZE = 1024;
+
+    private static class DefaultHolder {
+        private static final DeadlineTimerWheel INSTANCE = new DeadlineTimerWheel(DEFAULT_TICK_NANOS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @return the process wide wheel, with a tick of 1 ms.
+     */
+    public static DeadlineTimerWheel getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * A scheduled callback.
+     */
+    public static class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final long fDeadlineNanos;
+        private final Runnable fCallback;
+        private final AtomicInteger fState = new AtomicInteger(PENDING);
+        // Tick (since the start of the wheel) at which the timeout expires, set by the wheel's thread
+        private long fDeadlineTick;
+
+        private Timeout(long aDeadlineNanos, Runnable aCallback) {
+            fDeadlineNanos = aDeadlineNanos;
+            fCallback = aCallback;
+        }
+
+        /**
+         * @return true if the callback will not run, false if it already ran (or is running).
+         */
+        public boolean cancel() {
+            return fState.compareAndSet(PENDING, CANCELLED) || fState.get() == CANCELLED;
+        }
+
+        public long getDeadlineNanos() {
+            return fDeadlineNanos;
+        }
+
+        private void expire() {
+            if (fState.compareAndSet(PENDING, EXPIRED)) {
+                try {
+                    fCallback.run();
+                } catch (Throwable t) {
+                    log.error("Caught exception in timer wheel callback", t);
+                }
+            }
+        }
+    }
+
+    private final long fTickNanos;
+    private final int fMask;
+    private final long fStartNanos;
+    // Only touched by the wheel's thread
+    private final List<List<Timeout>> fBuckets;
+    private long fTick = 0;
+    private int fNumTimeouts = 0;
+
+    private final Queue<Timeout> fNewTimeouts = new ConcurrentLinkedQueue<>();
+    private final Thread fThread;
+
+    /**
+     * @param aTickNanos - duration of a tick (ns), the resolution of the wheel.
+     * @param aWheelSize - number of buckets, a power of 2.
+     */
+    public DeadlineTimerWheel(long aTickNanos, int aWheelSize) {
+        Preconditions.checkArgument(aTickNanos > 0, "Tick must be positive (was %s ns)", aTickNanos);
+        Preconditions.checkArgument(aWheelSize > 0 && Integer.bitCount(aWheelSize) == 1, "Wheel size must be a power of 2 (was %s)", aWheelSize);
+        fTickNanos = aTickNanos;
+        fMask = aWheelSize - 1;
+        fBuckets = new ArrayList<>(aWheelSize);
+        for (int i = 0; i < aWheelSize; i++) {
+            fBuckets.add(new ArrayList<>());
+        }
+        fStartNanos = System.nanoTime();
+        fThread = new Thread(this::run, "SATFC Deadline Timer Wheel");
+        fThread.setDaemon(true);
+        fThread.start();
+    }
+
+    /**
+     * Run a callback at the given deadline, or right away (on the wheel's thread) if it has already passed.
+     * @param aDeadlineNanos - deadline, as a {@link System#nanoTime()} value.
+     * @return the timeout, to cancel it.
+     */
+    public Timeout schedule(long aDeadlineNanos, Runnable aCallback) {
+        final Timeout timeout = new Timeout(aDeadlineNanos, aCallback);
+        fNewTimeouts.add(timeout);
+        LockSupport.unpark(fThread);
+        return timeout;
+    }
+
+    private void run() {
+        while (true) {
+            addNewTimeouts();
+            final long currentTick = (System.nanoTime() - fStartNanos) / fTickNanos;
+            while (fTick <= currentTick) {
+                expireBucket(fBuckets.get((int) (fTick & fMask)));
+                fTick++;
+            }
+            if (!fNewTimeouts.isEmpty()) {
+                continue;
+            }
+            if (fNumTimeouts == 0) {
+                LockSupport.park(this);
+            } else {
+                // Sleep until the next non empty bucket (or a whole turn if all the timeouts are in later turns)
+                int ticksToNext = 1;
+                while (ticksToNext <= fMask && fBuckets.get((int) ((fTick + ticksToNext - 1) & fMask)).isEmpty()) {
+                    ticksToNext++;
+                }
+                final long wakeUpNanos = fStartNanos + (fTick + ticksToNext - 1) * fTickNanos;
+                LockSupport.parkNanos(this, wakeUpNanos - System.nanoTime());
+            }
+        }
+    }
+
+    private void addNewTimeouts() {
+        Timeout timeout;
+        while ((timeout = fNewTimeouts.poll()) != null) {
+            // Round up so that a timeout never expires before its deadline
+            final long deadlineTick = Math.max(fTick, Math.floorDiv(timeout.fDeadlineNanos - fStartNanos + fTickNanos - 1, fTickNanos));
+            timeout.fDeadlineTick = deadlineTick;
+            fBuckets.get((int) (deadlineTick & fMask)).add(timeout);
+            fNumTimeouts++;
+        }
+    }
+
+    private void expireBucket(List<Timeout> aBucket) {
+        int kept = 0;
+        for (int i = 0; i < aBucket.size(); i++) {
+            final Timeout timeout = aBucket.get(i);
+            if (timeout.fDeadlineTick <= fTick) {
+                timeout.expire();
+                fNumTimeouts--;
+            } else if (timeout.fState.get() == Timeout.CANCELLED) {
+                fNumTimeouts--;
+            } else {
+                aBucket.set(kept++, timeout);
+            }
+        }
+        aBucket.subList(kept, aBucket.size()).clear();
+    }
+
+}
@@ -23,12 +23,14 @@ package ca.ubc.cs.beta.stationpacking.polling;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import ca.ubc.cs.beta.stationpacking.metrics.SATFCMetrics;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.ISATFCInterruptible;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 import lombok.NonNull;
@@ -37,7 +39,8 @@ import lombok.extern.slf4j.Slf4j;
 /**
 * Created by newmanne on 15/10/15.
 * Some SATFC methods delve into long blocks of code that will not periodically check for interrupt signals (because we didn't write them). However, often these code blocks expose an interrupt mechanism.
-* This class provides an easy way to poll periodically to see if you should trigger this interrupt signal
+* This class provides an easy way to trigger this interrupt signal as soon as the termination criterion is met: through the criterion's callback when it has one
+* (e.g. at the deadline of a walltime criterion, or upon interrupting an interruptible criterion), and by polling periodically otherwise.
 */
 @Slf4j
 public class ProblemIncrementor {
@@ -47,58 +50,94 @@ public class ProblemIncrementor {
     // A constantly increasing value that identifies the current problem being solved
     private final AtomicLong problemID;
     private final IPollingService pollingService;
-    private final Map<Long, ScheduledFuture<?>> idToFuture;
+    private final Map<Long, ScheduledTermination> idToTermination;
     private final ISATFCInterruptible solver;
     private final Lock lock;
 
+    private static class ScheduledTermination {
+        private ITerminationCriterion.ICallbackRegistration registration;
+        private ScheduledFuture<?> pollingFuture;
+        // When the criterion was found to be met, -1 until then
+        private volatile long metNanos = -1;
+
+        private void met() {
+            if (metNanos < 0) {
+                metNanos = System.nanoTime();
+            }
+        }
+    }
+
     public ProblemIncrementor(@NonNull IPollingService pollingService, @NonNull ISATFCInterruptible solver) {
         this.solver = solver;
         problemID = new AtomicLong();
         this.pollingService = pollingService;
-        idToFuture = new HashMap<>();
+        idToTermination = new HashMap<>();
         lock = new ReentrantLock();
     }
 
     /**
-     * Call this method to schedule a task to periodically poll for whether or not the termination criterion says to stop. If it does, interrupt the solver.
-     * Must alternate calls between this and @link{#jobDone} to cancel the polling when the problem in question is finished solving
+     * Call this method to interrupt the solver as soon as the termination criterion says to stop.
+     * Must alternate calls between this and @link{#jobDone} to cancel the interrupt when the problem in question is finished solving
      * @param criterion termination criterion to check
      */
     public void scheduleTermination(ITerminationCriterion criterion) {
         final long newProblemId = problemID.incrementAndGet();
         log.trace("New problem ID {}", newProblemId);
-        final ScheduledFuture<?> scheduledFuture = pollingService.getService().scheduleWithFixedDelay(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    lock.lock();
-                    long currentProblemId = problemID.get();
-                    log.trace("Problem id is {} and we are {}", currentProblemId, newProblemId);
-                    if (criterion.hasToStop() && currentProblemId == newProblemId) {
-                        log.trace("Interupting problem {}", currentProblemId);
-                        solver.interrupt();
-                    }
-                } catch (Throwable t) {
-                    log.error("Caught exception in ScheduledExecutorService for interrupting problem", t);
-                } finally {
-                    lock.unlock();
+        final ScheduledTermination termination = new ScheduledTermination();
+        idToTermination.put(newProblemId, termination);
+        // The interrupt itself runs on the polling thread, so that a slow interrupt never holds up the thread that noticed the criterion is met
+        termination.registration = criterion.registerCallback(() -> {
+            termination.met();
+            try {
+                pollingService.getService().execute(() -> interrupt(newProblemId));
+            } catch (RejectedExecutionException e) {
+                log.debug("Polling service is shut down, not interrupting problem {}", newProblemId);
+            }
+        });
+        if (!termination.registration.isComplete()) {
+            // Some ways of meeting the criterion do not call back (e.g. CPU time), poll for them
+            termination.pollingFuture = pollingService.getService().scheduleWithFixedDelay(() -> {
+                if (criterion.hasToStop()) {
+                    termination.met();
+                    interrupt(newProblemId);
                 }
+            }, POLLING_TIME_IN_MS, POLLING_TIME_IN_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void interrupt(long aProblemId) {
+        try {
+            lock.lock();
+            long currentProblemId = problemID.get();
+            log.trace("Problem id is {} and we are {}", currentProblemId, aProblemId);
+            if (currentProblemId == aProblemId) {
+                log.trace("Interupting problem {}", currentProblemId);
+                solver.interrupt();
             }
-        }, POLLING_TIME_IN_MS, POLLING_TIME_IN_MS, TimeUnit.MILLISECONDS);
-        idToFuture.put(newProblemId, scheduledFuture);
+        } catch (Throwable t) {
+            log.error("Caught exception while interrupting problem", t);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
-     * Cancel polling for the current job
+     * Cancel the interrupt for the current job
      */
     public void jobDone() {
         try {
             lock.lock();
             final long completedJobID = problemID.getAndIncrement();
-            final ScheduledFuture scheduledFuture = idToFuture.remove(completedJobID);
-            if (scheduledFuture != null) {
-                log.trace("Cancelling future for completed ID {}", completedJobID);
-                scheduledFuture.cancel(false);
+            final ScheduledTermination termination = idToTermination.remove(completedJobID);
+            if (termination != null) {
+                log.trace("Cancelling interrupt for completed ID {}", completedJobID);
+                termination.registration.cancel();
+                if (termination.pollingFuture != null) {
+                    termination.pollingFuture.cancel(false);
+                }
+                if (termination.metNanos >= 0) {
+                    SATFCMetrics.updateTimer(SATFCMetrics.INTERRUPT_OVERSHOOT_TIMER, System.nanoTime() - termination.metNanos);
+                }
             }
         } finally {
             lock.unlock();
@@ -86,7 +86,8 @@ public class SolverResult implements Serializable {
         PICOSAT,
         PROBSAT,
         GNOVELTYPCL,
-		COMMAND_LINE_SOLVER, SIMPSAT
+		COMMAND_LINE_SOLVER, SIMPSAT,
+        JAVA_SAT
     }
 
 	public SolverResult(SATResult aResult, double aRuntime, Map<Integer,Set<Station>> aAssignment, SolvedBy aSolvedBy) {
@@ -35,7 +35,7 @@ import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
 import ca.ubc.cs.beta.stationpacking.solvers.certifiers.cgneighborhood.strategies.IStationPackingConfigurationStrategy;
 import ca.ubc.cs.beta.stationpacking.solvers.certifiers.cgneighborhood.strategies.StationPackingConfiguration;
-import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGrouper;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.ASolverDecorator;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.composite.DisjunctiveCompositeTerminationCriterion;
@@ -66,6 +66,7 @@ public class ConstraintGraphNeighborhoodPresolver extends ASolverDecorator {
     private final IStationPackingConfigurationStrategy fStationAddingStrategy;
     private final IConstraintManager constraintManager;
     private final boolean dontSolveFullInstances;
+    private final ConstraintGraphService constraintGraphService;
 
     
     /**
@@ -73,14 +74,26 @@ public class ConstraintGraphNeighborhoodPresolver extends ASolverDecorator {
      * @param aStationAddingStrategy - determines which stations to fix / unfix, and how long to attempt at each expansion
      */
     public ConstraintGraphNeighborhoodPresolver(ISolver decoratedSolver, IStationSubsetCertifier aCertifier, IStationPackingConfigurationStrategy aStationAddingStrategy, IConstraintManager constraintManager) {
-    	this(decoratedSolver, aCertifier, aStationAddingStrategy, constraintManager, true);
+    	this(decoratedSolver, aCertifier, aStationAddingStrategy, constraintManager, new ConstraintGraphService(constraintManager), true);
+    }
+
+    /**
+     * @param aConstraintGraphService - service to get the instances' constraint graphs from.
+     */
+    public ConstraintGraphNeighborhoodPresolver(ISolver decoratedSolver, IStationSubsetCertifier aCertifier, IStationPackingConfigurationStrategy aStationAddingStrategy, IConstraintManager constraintManager, ConstraintGraphService aConstraintGraphService) {
+    	this(decoratedSolver, aCertifier, aStationAddingStrategy, constraintManager, aConstraintGraphService, true);
     }
     
     ConstraintGraphNeighborhoodPresolver(ISolver decoratedSolver, IStationSubsetCertifier aCertifier, IStationPackingConfigurationStrategy aStationAddingStrategy, IConstraintManager constraintManager, boolean dontSolveFullInstances) {
+        this(decoratedSolver, aCertifier, aStationAddingStrategy, constraintManager, new ConstraintGraphService(constraintManager), dontSolveFullInstances);
+    }
+
+    ConstraintGraphNeighborhoodPresolver(ISolver decoratedSolver, IStationSubsetCertifier aCertifier, IStationPackingConfigurationStrategy aStationAddingStrategy, IConstraintManager constraintManager, ConstraintGraphService aConstraintGraphService, boolean dontSolveFullInstances) {
         super(decoratedSolver);
         this.fCertifier = aCertifier;
         this.fStationAddingStrategy = aStationAddingStrategy;
         this.constraintManager = constraintManager;
+        this.constraintGraphService = aConstraintGraphService;
         this.dontSolveFullInstances = dontSolveFullInstances;
     }
 
@@ -99,7 +112,7 @@ public class ConstraintGraphNeighborhoodPresolver extends ASolverDecorator {
         log.debug("There are {} stations that are not part of previous assignment.", stationsWithNoPreviousAssignment.size());
 
         SolverResult result = null;
-        final SimpleGraph<Station, DefaultEdge> constraintGraph = ConstraintGrouper.getConstraintGraph(aInstance.getDomains(), constraintManager);
+        final SimpleGraph<Station, DefaultEdge> constraintGraph = constraintGraphService.getView(aInstance.getDomains()).getGraph();
         for (final StationPackingConfiguration configuration : fStationAddingStrategy.getConfigurations(constraintGraph, stationsWithNoPreviousAssignment)) {
             if (aTerminationCriterion.hasToStop()) {
                 log.debug("All time spent.");
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.componentgrouper;
+
+import static ca.ubc.cs.beta.stationpacking.utils.GuavaCollectors.toImmutableMap;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+import lombok.extern.slf4j.Slf4j;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Hands out {@link ConstraintGraphView}s of domain maps, without enumerating the constraints of every instance again.
+ * <p>
+ * When given a station manager, the {@link InterferenceAdjacency} of all its stations over all their channels is precomputed once (on first use),
+ * and the graph of a given domain map is obtained by filtering it against the domains. Domain maps that contain stations or channels unknown to the station manager (or any domain map, without a station manager)
+ * fall back to enumerating the relevant constraints.
+ * </p>
+ * <p>
+ * The last few views are memoized by domains, so the several pre-solvers looking at the same instance during a solve share a single view.
+ * </p>
+ */
+@Slf4j
+@ThreadSafe
+public class ConstraintGraphService {
+
+    private static final int DEFAULT_NUM_MEMOIZED_VIEWS = 32;
+
+    private final IConstraintManager fConstraintManager;
+    private final Supplier<InterferenceAdjacency> fAdjacency;
+    private final Cache<Map<Station, Set<Integer>>, ConstraintGraphView> fViews;
+
+    /**
+     * @param aStationManager    - station manager whose stations and domains the adjacency is precomputed for.
+     * @param aConstraintManager - constraints of the stations.
+     */
+    public ConstraintGraphService(IStationManager aStationManager, IConstraintManager aConstraintManager) {
+        this(aStationManager, aConstraintManager, DEFAULT_NUM_MEMOIZED_VIEWS);
+    }
+
+    public ConstraintGraphService(IStationManager aStationManager, IConstraintManager aConstraintManager, int aNumMemoizedViews) {
+        fConstraintManager = aConstraintManager;
+        fAdjacency = aStationManager == null ? () -> null : Suppliers.memoize(() -> new InterferenceAdjacency(aStationManager, aConstraintManager));
+        fViews = CacheBuilder.newBuilder().maximumSize(aNumMemoizedViews).build();
+    }
+
+    /**
+     * A service without precomputed adjacency, that enumerates the relevant constraints of every new domain map.
+     * @param aConstraintManager - constraints of the stations.
+     */
+    public ConstraintGraphService(IConstraintManager aConstraintManager) {
+        this(null, aConstraintManager, DEFAULT_NUM_MEMOIZED_VIEWS);
+    }
+
+    /**
+     * @param aDomains - a domain map (it can be modified after the call, the memoized view is keyed by a copy).
+     * @return the constraint graph of the given domains.
+     */
+    public ConstraintGraphView getView(Map<Station, Set<Integer>> aDomains) {
+        final ConstraintGraphView memoized = fViews.getIfPresent(aDomains);
+        if (memoized != null) {
+            return memoized;
+        }
+        final ConstraintGraphView view = computeView(aDomains);
+        fViews.put(aDomains.entrySet().stream().collect(toImmutableMap(Map.Entry::getKey, entry -> ImmutableSet.copyOf(entry.getValue()))), view);
+        return view;
+    }
+
+    /**
+     * Compute the constraint graph of the given domains, ignoring memoized views.
+     */
+    public ConstraintGraphView computeView(Map<Station, Set<Integer>> aDomains) {
+        final InterferenceAdjacency adjacency = fAdjacency.get();
+        if (adjacency != null) {
+            final ConstraintGraphView view = adjacency.filter(aDomains);
+            if (view != null) {
+                return view;
+            }
+            log.debug("Domains are not covered by the precomputed interference adjacency, enumerating constraints instead.");
+        }
+        return new ConstraintGraphView(ConstraintGrouper.getConstraintGraph(aDomains, fConstraintManager));
+    }
+
+    /**
+     * @return the precomputed interference adjacency of the station manager's stations (computed on the first call), or null if this service has no station manager.
+     */
+    public InterferenceAdjacency getAdjacency() {
+        return fAdjacency.get();
+    }
+
+}
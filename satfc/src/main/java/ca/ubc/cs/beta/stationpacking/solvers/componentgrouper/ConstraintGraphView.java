@@ -0,0 +1,105 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.componentgrouper;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleGraph;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * The interference constraint graph of a given domain map: two stations are neighbours if some constraint involves both of them on channels of their domains.
+ * <p>
+ * Views are immutable and shared between all the callers asking for the same domains (see {@link ConstraintGraphService}),
+ * so the neighbour sets and the graph returned must never be modified.
+ * </p>
+ */
+@ThreadSafe
+public class ConstraintGraphView {
+
+    private final ImmutableMap<Station, ImmutableSet<Station>> fNeighbours;
+    private SimpleGraph<Station, DefaultEdge> fGraph;
+
+    ConstraintGraphView(ImmutableMap<Station, ImmutableSet<Station>> aNeighbours) {
+        fNeighbours = aNeighbours;
+    }
+
+    ConstraintGraphView(SimpleGraph<Station, DefaultEdge> aGraph) {
+        final ImmutableMap.Builder<Station, ImmutableSet<Station>> builder = ImmutableMap.builder();
+        for (Station station : aGraph.vertexSet()) {
+            final ImmutableSet.Builder<Station> neighbours = ImmutableSet.builder();
+            for (DefaultEdge edge : aGraph.edgesOf(station)) {
+                final Station source = aGraph.getEdgeSource(edge);
+                neighbours.add(source.equals(station) ? aGraph.getEdgeTarget(edge) : source);
+            }
+            builder.put(station, neighbours.build());
+        }
+        fNeighbours = builder.build();
+        fGraph = aGraph;
+    }
+
+    /**
+     * @return the stations of the domain map this view was made from.
+     */
+    public Set<Station> getStations() {
+        return fNeighbours.keySet();
+    }
+
+    /**
+     * @param aStation - a station of the view.
+     * @return the stations sharing at least one constraint with the given station.
+     */
+    public Set<Station> neighborsOf(Station aStation) {
+        final Set<Station> neighbours = fNeighbours.get(aStation);
+        Preconditions.checkArgument(neighbours != null, "Station %s is not part of the constraint graph", aStation);
+        return neighbours;
+    }
+
+    /**
+     * @return all the neighbour sets, keyed by station.
+     */
+    public Map<Station, ? extends Set<Station>> getNeighbours() {
+        return fNeighbours;
+    }
+
+    /**
+     * @return the view as a JGraphT graph, built on the first call. The graph is shared and must not be modified.
+     */
+    public synchronized SimpleGraph<Station, DefaultEdge> getGraph() {
+        if (fGraph == null) {
+            final SimpleGraph<Station, DefaultEdge> graph = new SimpleGraph<>(DefaultEdge.class);
+            fNeighbours.keySet().forEach(graph::addVertex);
+            fNeighbours.forEach((station, neighbours) -> neighbours.forEach(neighbour -> graph.addEdge(station, neighbour)));
+            fGraph = graph;
+        }
+        return fGraph;
+    }
+
+}
@@ -40,10 +40,26 @@ import net.jcip.annotations.ThreadSafe;
  */
 @ThreadSafe
 public class ConstraintGrouper implements IComponentGrouper {
-	
+
+	private final ConstraintGraphService fConstraintGraphService;
+
+	/**
+	 * A grouper that builds the constraint graph of every instance from the given constraint manager.
+	 */
+	public ConstraintGrouper() {
+		this(null);
+	}
+
+	/**
+	 * @param aConstraintGraphService - service to get constraint graphs from, instead of building them from the constraint manager.
+	 */
+	public ConstraintGrouper(ConstraintGraphService aConstraintGraphService) {
+		fConstraintGraphService = aConstraintGraphService;
+	}
+
 	@Override
 	public Set<Set<Station>> group(StationPackingInstance aInstance, IConstraintManager aConstraintManager){
-		final SimpleGraph<Station,DefaultEdge> aConstraintGraph = getConstraintGraph(aInstance.getDomains(), aConstraintManager);
+		final SimpleGraph<Station,DefaultEdge> aConstraintGraph = fConstraintGraphService != null ? fConstraintGraphService.getView(aInstance.getDomains()).getGraph() : getConstraintGraph(aInstance.getDomains(), aConstraintManager);
 		return group(aConstraintGraph);
 	}
 
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.componentgrouper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+import ca.ubc.cs.beta.stationpacking.utils.Watch;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Interference adjacency of all the stations of a station manager over all their channels, as primitive arrays.
+ * <p>
+ * Stations are indexed by their rank by ID, and channels by their offset from the lowest channel. Station i's neighbours are the entries
+ * {@link #getNeighboursStart(int)} to {@link #getNeighboursEnd(int)} (exclusive), sorted by station index. Since interference constraints only ever
+ * involve channels at most {@value #WINDOW} apart, each entry stores, for every channel of the station, a 5 bit window of the neighbour's channels
+ * it interferes with (see {@link #getConflictMask(int, int)}).
+ * </p>
+ */
+@Slf4j
+@Immutable
+public class InterferenceAdjacency {
+
+    /**
+     * Largest channel difference of an interference constraint (ADJ+2).
+     */
+    public static final int WINDOW = 2;
+    private static final int WINDOW_MASK = (1 << (2 * WINDOW + 1)) - 1;
+
+    private final Station[] fStations;
+    private final int[] fStationIDs;
+    @Getter
+    private final int minChannel;
+    @Getter
+    private final int numChannels;
+    private final BitSet fChannels;
+
+    private final int[] fOffsets;
+    private final int[] fNeighbours;
+    /*
+     * Bit w of fConflicts[k * numChannels + c] is set if the row station on channel index c interferes with neighbour entry k on channel index c - WINDOW + w.
+     */
+    private final byte[] fConflicts;
+
+    /**
+     * @param aStationManager    - station manager whose stations and domains to compute the adjacency of.
+     * @param aConstraintManager - constraints of the stations.
+     */
+    public InterferenceAdjacency(IStationManager aStationManager, IConstraintManager aConstraintManager) {
+        final Watch watch = Watch.constructAutoStartWatch();
+        fStations = aStationManager.getStations().stream().sorted().toArray(Station[]::new);
+        fStationIDs = Arrays.stream(fStations).mapToInt(Station::getID).toArray();
+        final int[] channels = aStationManager.getStations().stream().flatMap(s -> aStationManager.getDomain(s).stream()).mapToInt(Integer::intValue).distinct().sorted().toArray();
+        minChannel = channels.length > 0 ? channels[0] : 0;
+        numChannels = channels.length > 0 ? channels[channels.length - 1] - minChannel + 1 : 0;
+        fChannels = new BitSet(numChannels);
+        Arrays.stream(channels).forEach(channel -> fChannels.set(channel - minChannel));
+
+        // Collect the conflict windows of every interfering pair, in both stations' rows
+        final List<Map<Integer, byte[]>> rows = new ArrayList<>(fStations.length);
+        for (int i = 0; i < fStations.length; i++) {
+            rows.add(new HashMap<>());
+        }
+        for (int i = 0; i < fStations.length; i++) {
+            final Station station = fStations[i];
+            for (int channel : channels) {
+                addConflicts(rows, i, channel, 0, aConstraintManager.getCOInterferingStations(station, channel));
+                addConflicts(rows, i, channel, 1, aConstraintManager.getADJplusOneInterferingStations(station, channel));
+                addConflicts(rows, i, channel, 2, aConstraintManager.getADJplusTwoInterferingStations(station, channel));
+            }
+        }
+
+        // Compact the rows
+        fOffsets = new int[fStations.length + 1];
+        for (int i = 0; i < fStations.length; i++) {
+            fOffsets[i + 1] = fOffsets[i] + rows.get(i).size();
+        }
+        fNeighbours = new int[fOffsets[fStations.length]];
+        fConflicts = new byte[fNeighbours.length * numChannels];
+        for (int i = 0; i < fStations.length; i++) {
+            final int[] neighbours = rows.get(i).keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            for (int j = 0; j < neighbours.length; j++) {
+                final int k = fOffsets[i] + j;
+                fNeighbours[k] = neighbours[j];
+                System.arraycopy(rows.get(i).get(neighbours[j]), 0, fConflicts, k * numChannels, numChannels);
+            }
+            rows.set(i, null);
+        }
+        log.info("Precomputed the interference adjacency of {} stations over {} channels ({} neighbour entries) in {} s.", fStations.length, numChannels, fNeighbours.length, watch.getElapsedTime());
+    }
+
+    private void addConflicts(List<Map<Integer, byte[]>> aRows, int aStationIndex, int aChannel, int aOffset, Set<Station> aNeighbours) {
+        if (!isKnownChannel(aChannel + aOffset)) {
+            // Covered domains only contain known channels, so this constraint can never be relevant
+            return;
+        }
+        final int channelIndex = aChannel - minChannel;
+        for (Station neighbour : aNeighbours) {
+            final int neighbourIndex = indexOf(neighbour);
+            if (neighbourIndex < 0 || neighbourIndex == aStationIndex) {
+                continue;
+            }
+            aRows.get(aStationIndex).computeIfAbsent(neighbourIndex, k -> new byte[numChannels])[channelIndex] |= 1 << (WINDOW + aOffset);
+            aRows.get(neighbourIndex).computeIfAbsent(aStationIndex, k -> new byte[numChannels])[channelIndex + aOffset] |= 1 << (WINDOW - aOffset);
+        }
+    }
+
+    /**
+     * @return the index of the given station, or a negative number if it is not one of the adjacency's stations.
+     */
+    public int indexOf(Station aStation) {
+        return Arrays.binarySearch(fStationIDs, aStation.getID());
+    }
+
+    public Station getStation(int aIndex) {
+        return fStations[aIndex];
+    }
+
+    public int getNumStations() {
+        return fStations.length;
+    }
+
+    /**
+     * @return whether the channel is one of the station manager's channels, which are the only ones whose constraints are known.
+     */
+    public boolean isKnownChannel(int aChannel) {
+        return aChannel >= minChannel && aChannel < minChannel + numChannels && fChannels.get(aChannel - minChannel);
+    }
+
+    public int getNeighboursStart(int aStationIndex) {
+        return fOffsets[aStationIndex];
+    }
+
+    public int getNeighboursEnd(int aStationIndex) {
+        return fOffsets[aStationIndex + 1];
+    }
+
+    /**
+     * @return the station index of the given neighbour entry.
+     */
+    public int getNeighbour(int aEntry) {
+        return fNeighbours[aEntry];
+    }
+
+    /**
+     * @param aEntry        - a neighbour entry of some row station.
+     * @param aChannelIndex - a channel index (channel minus {@link #getMinChannel()}) of the row station.
+     * @return the mask of the neighbour's channel indices that interfere with the row station on the given channel (only meaningful with at most 64 channels).
+     */
+    public long getConflictMask(int aEntry, int aChannelIndex) {
+        final long window = fConflicts[aEntry * numChannels + aChannelIndex] & WINDOW_MASK;
+        return aChannelIndex >= WINDOW ? window << (aChannelIndex - WINDOW) : window >>> (WINDOW - aChannelIndex);
+    }
+
+    /**
+     * @return the constraint graph of the given domains, or null if they contain stations or channels this adjacency does not cover.
+     */
+    ConstraintGraphView filter(Map<Station, Set<Integer>> aDomains) {
+        final int[] indices = new int[aDomains.size()];
+        final BitSet[] indexedDomains = new BitSet[fStations.length];
+        int n = 0;
+        for (Map.Entry<Station, Set<Integer>> entry : aDomains.entrySet()) {
+            final int index = indexOf(entry.getKey());
+            if (index < 0) {
+                return null;
+            }
+            final BitSet domain = new BitSet(numChannels);
+            for (Integer channel : entry.getValue()) {
+                if (!isKnownChannel(channel)) {
+                    return null;
+                }
+                domain.set(channel - minChannel);
+            }
+            indexedDomains[index] = domain;
+            indices[n++] = index;
+        }
+
+        final ImmutableMap.Builder<Station, ImmutableSet<Station>> builder = ImmutableMap.builder();
+        for (int i : indices) {
+            final BitSet domain = indexedDomains[i];
+            final ImmutableSet.Builder<Station> neighbours = ImmutableSet.builder();
+            for (int k = fOffsets[i]; k < fOffsets[i + 1]; k++) {
+                final BitSet neighbourDomain = indexedDomains[fNeighbours[k]];
+                if (neighbourDomain != null && interferes(k, domain, neighbourDomain)) {
+                    neighbours.add(fStations[fNeighbours[k]]);
+                }
+            }
+            builder.put(fStations[i], neighbours.build());
+        }
+        return new ConstraintGraphView(builder.build());
+    }
+
+    private boolean interferes(int aEntry, BitSet aDomain, BitSet aNeighbourDomain) {
+        for (int c = aDomain.nextSetBit(0); c >= 0; c = aDomain.nextSetBit(c + 1)) {
+            final int window = fConflicts[aEntry * numChannels + c] & WINDOW_MASK;
+            for (int w = Integer.lowestOneBit(window), bits = window; bits != 0; bits ^= w, w = Integer.lowestOneBit(bits)) {
+                if (aNeighbourDomain.get(c - WINDOW + Integer.numberOfTrailingZeros(w))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -28,9 +28,14 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import com.google.common.collect.Queues;
 import com.google.common.util.concurrent.FutureCallback;
@@ -41,11 +46,15 @@ import com.google.common.util.concurrent.MoreExecutors;
 
 import ca.ubc.cs.beta.aeatk.concurrent.threadfactory.SequentiallyNamedThreadFactory;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.metrics.SATFCMetrics;
 import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.composite.DisjunctiveCompositeTerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.interrupt.InterruptibleTerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.walltime.WalltimeTerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.utils.Watch;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -55,18 +64,39 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * This class executes the ISolver's created from the ISolverFactories that are passed into its constructor in parallel.
  * A result is returned **immediately** after a conclusive result is found, even though other threads may still be computing the (now stale) result.
+ * With a {@link PortfolioScheduler}, only the threads left in the budget are used, and the scheduler decides which members run on them, in which order and for how long.
  */
 public class ParallelNoWaitSolverComposite implements ISolver {
 
     private final ListeningExecutorService executorService;
     private final List<BlockingQueue<ISolver>> listOfSolverQueues;
     private final AtomicReference<Throwable> error;
+    private final ThreadBudget threadBudget;
+    private final int threadPoolSize;
+    private final PortfolioScheduler scheduler;
 
     /**
      * @param threadPoolSize The number of threads to use in the thread pool
      * @param solvers        A list of ISolverFactory, sorted by priority (first in the list means high priority). This is the order that we will try things in if there are not enough threads to go around
      */
     public ParallelNoWaitSolverComposite(int threadPoolSize, List<ISolverFactory> solvers) {
+        this(threadPoolSize, solvers, new ThreadBudget(threadPoolSize));
+    }
+
+    /**
+     * @param threadBudget Budget shared with the other parallel parts of the solver, on which the portfolio's workers are reserved while solving
+     */
+    public ParallelNoWaitSolverComposite(int threadPoolSize, List<ISolverFactory> solvers, ThreadBudget threadBudget) {
+        this(threadPoolSize, solvers, threadBudget, null);
+    }
+
+    /**
+     * @param scheduler Decides which members to launch, in which order and for how long, given the threads left in the budget. Null to always launch every member in list order, reserving a thread for each
+     */
+    public ParallelNoWaitSolverComposite(int threadPoolSize, List<ISolverFactory> solvers, ThreadBudget threadBudget, PortfolioScheduler scheduler) {
+        this.threadBudget = threadBudget;
+        this.threadPoolSize = threadPoolSize;
+        this.scheduler = scheduler;
         log.debug("Creating a fixed pool with {} threads", threadPoolSize);
         executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(threadPoolSize, new SequentiallyNamedThreadFactory("SATFC Parallel Worker Thread")));
         listOfSolverQueues = new ArrayList<>(solvers.size());
@@ -90,48 +120,88 @@ public class ParallelNoWaitSolverComposite implements ISolver {
         final Watch watch = Watch.constructAutoStartWatch();
         // Swap out the termination criterion to one that can be interrupted
         final ITerminationCriterion.IInterruptibleTerminationCriterion interruptibleCriterion = new InterruptibleTerminationCriterion(aTerminationCriterion);
-        //Semaphore holding how many components are done working on the current instance.
+        final int numMembers = listOfSolverQueues.size();
+        // The calling thread sleeps while the portfolio works
+        final PortfolioFeatures features;
+        final List<Integer> members;
+        final double timeSlice;
+        int numReservedThreads;
+        if (scheduler == null) {
+            features = null;
+            members = IntStream.range(0, numMembers).boxed().collect(Collectors.toList());
+            timeSlice = Double.POSITIVE_INFINITY;
+            numReservedThreads = numMembers - 1;
+            threadBudget.reserve(numReservedThreads);
+        } else {
+            features = scheduler.getFeatures(aInstance);
+            numReservedThreads = threadBudget.tryReserve(Math.min(numMembers, threadPoolSize) - 1);
+            final PortfolioScheduler.Schedule schedule = scheduler.schedule(features, numReservedThreads + 1);
+            members = schedule.getMembers();
+            timeSlice = schedule.getTimeSlice();
+            final int numUnusedThreads = numReservedThreads + 1 - Math.min(numReservedThreads + 1, members.size());
+            threadBudget.release(numUnusedThreads);
+            numReservedThreads -= numUnusedThreads;
+        }
+        final int numWorkers = numReservedThreads + 1;
+        // Members waiting for a worker, with the time slice they get once they have one
+        final Queue<MemberSlice> pendingSlices = new ConcurrentLinkedQueue<>();
+        members.forEach(member -> pendingSlices.add(new MemberSlice(member, timeSlice)));
+        //Semaphore holding how many workers are done working on the current instance.
         final Semaphore workDone = new Semaphore(0);
-        //Number of completed solver processes we need before terminating with a timeout.
-        final int numWorkToDo = listOfSolverQueues.size();
         final AtomicReference<SolverResult> resultReference = new AtomicReference<>();
+        final AtomicReference<Integer> winner = new AtomicReference<>();
+        final List<Integer> launchedMembers = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger numSlices = new AtomicInteger();
         // We maintain a list of all the solvers current solving the problem so we know who to interrupt via the interrupt method
         final List<ISolver> solversSolvingCurrentProblem = Collections.synchronizedList(new ArrayList<>());
         final List<Future<Void>> futures = new ArrayList<>();
         try {
-            // Submit one job per each solver in the portfolio
-            listOfSolverQueues.forEach(solverQueue -> {
+            // Submit one job per worker, each running members of the portfolio until there are none left
+            for (int worker = 0; worker < numWorkers; worker++) {
                 final ListenableFuture<Void> future = executorService.submit(() -> {
                     log.debug("Job starting...");
-                    if (!interruptibleCriterion.hasToStop()) {
+                    MemberSlice slice;
+                    while (!interruptibleCriterion.hasToStop() && (slice = pendingSlices.poll()) != null) {
+                        final BlockingQueue<ISolver> solverQueue = listOfSolverQueues.get(slice.getMember());
                         final ISolver solver = solverQueue.poll();
                         if (solver == null) {
                             throw new IllegalStateException("Couldn't take a solver from the queue!");
                         }
+                        if (!launchedMembers.contains(slice.getMember())) {
+                            launchedMembers.add(slice.getMember());
+                        }
+                        numSlices.incrementAndGet();
+                        final ITerminationCriterion sliceCriterion = Double.isInfinite(slice.getTimeSlice()) ? interruptibleCriterion : new DisjunctiveCompositeTerminationCriterion(interruptibleCriterion, new WalltimeTerminationCriterion(slice.getTimeSlice()));
                         // During this block (while you are added to this list) it is safe for you to be interrupted via the interrupt method
                         solversSolvingCurrentProblem.add(solver);
                         log.debug("Begin solve {}", solver.getClass().getSimpleName());
-                        final SolverResult solverResult = solver.solve(aInstance, interruptibleCriterion, aSeed);
+                        final SolverResult solverResult = solver.solve(aInstance, sliceCriterion, aSeed);
                         log.debug("End solve {}", solver.getClass().getSimpleName());
                         solversSolvingCurrentProblem.remove(solver);
+                        // Return your solver back to the queue
+                        if (!solverQueue.offer(solver)) {
+                            throw new IllegalStateException("Wasn't able to return solver to the queue!");
+                        }
                         // Interrupt if the result is conclusive OR if the timeout has expired. Only the first one will go through this block
                         if ((solverResult.isConclusive() || interruptibleCriterion.hasToStop()) && interruptibleCriterion.interrupt()) {
                             log.debug("Found a conclusive result, interrupting other concurrent solvers");
                             synchronized (solversSolvingCurrentProblem) {
                                 solversSolvingCurrentProblem.forEach(ISolver::interrupt);
                             }
+                            if (solverResult.isConclusive()) {
+                                winner.set(slice.getMember());
+                            }
                             // Signal the initial thread that it can move forwards
                             log.debug("Signalling the blocked thread to wake up!");
                             resultReference.set(solverResult);
-                            workDone.release(numWorkToDo);
-                        }
-                        log.debug("Releasing a single permit as the work for this thread is done.");
-                        workDone.release(1);
-                        // Return your solver back to the queue
-                        if (!solverQueue.offer(solver)) {
-                            throw new IllegalStateException("Wasn't able to return solver to the queue!");
+                            workDone.release(numWorkers);
+                        } else if (!solverResult.isConclusive() && sliceCriterion.hasToStop() && !interruptibleCriterion.hasToStop()) {
+                            log.debug("Time slice of member {} is over, putting it back in line", slice.getMember());
+                            pendingSlices.add(new MemberSlice(slice.getMember(), 2 * slice.getTimeSlice()));
                         }
                     }
+                    log.debug("Releasing a single permit as the work for this thread is done.");
+                    workDone.release(1);
                     log.debug("Job ending...");
                     return null;
                 });
@@ -151,21 +221,31 @@ public class ParallelNoWaitSolverComposite implements ISolver {
                         // Only set the first error
                         error.compareAndSet(null, t);
                         // Wake up the main thread (if it's still sleeping)
-                        workDone.release(numWorkToDo);
+                        workDone.release(numWorkers);
                     }
                 });
-            });
+            }
             // Wait for a thread to complete solving and signal you, or all threads to timeout
             log.debug("Main thread going to sleep");
-            workDone.acquire(numWorkToDo);
+            workDone.acquire(numWorkers);
             log.debug("Main thread waking up, checking for errors then cancelling futures");
             checkForErrors();
             // Might as well cancel any jobs that haven't run yet. We don't interrupt them (via Thread interrupt) if they have already started, because we have our own interrupt system
             futures.forEach(future -> future.cancel(false));
+            final List<Integer> launched;
+            synchronized (launchedMembers) {
+                launched = new ArrayList<>(launchedMembers);
+            }
+            if (scheduler != null) {
+                scheduler.record(features, launched, winner.get(), watch.getElapsedTime());
+            }
+            SATFCMetrics.postEvent(new SATFCMetrics.PortfolioScheduledEvent(aInstance, launched, winner.get(), numWorkers, numSlices.get()));
             log.debug("Returning now");
             return resultReference.get() == null ? SolverResult.createTimeoutResult(watch.getElapsedTime()) : SolverResult.relabelTime(resultReference.get(), watch.getElapsedTime());
         } catch (InterruptedException e) {
             throw new RuntimeException("Interrupted while running parallel job", e);
+        } finally {
+            threadBudget.release(numReservedThreads);
         }
     }
 
@@ -182,6 +262,13 @@ public class ParallelNoWaitSolverComposite implements ISolver {
         }
     }
 
+    @Value
+    private static class MemberSlice {
+        int member;
+        // time (s) the member can run before yielding its worker
+        double timeSlice;
+    }
+
     @Override
     public void notifyShutdown() {
         listOfSolverQueues.forEach(queue -> queue.forEach(ISolver::notifyShutdown));
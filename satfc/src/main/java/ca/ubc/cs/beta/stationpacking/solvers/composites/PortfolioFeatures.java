@@ -0,0 +1,93 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.composites;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import lombok.Value;
+
+/**
+ * Cheap features of an instance, coarsely bucketed, under which a {@link PortfolioScheduler} keeps its statistics.
+ */
+@Value
+public class PortfolioFeatures {
+
+    /**
+     * Number of coverage buckets, the coverage being the fraction of stations with a previous assignment.
+     */
+    private static final int NUM_COVERAGE_BUCKETS = 4;
+
+    // floor(log2(number of stations + 1))
+    int stationBucket;
+    // floor(log2(number of connected components + 1)), -1 if unknown
+    int componentBucket;
+    // fraction of the stations with a previous assignment, from 0 to NUM_COVERAGE_BUCKETS
+    int coverageBucket;
+
+    /**
+     * @param aConstraintGraphService - service to count the instance's connected components with, or null to leave them out.
+     */
+    public static PortfolioFeatures of(StationPackingInstance aInstance, ConstraintGraphService aConstraintGraphService) {
+        final int numStations = aInstance.getStations().size();
+        final int componentBucket = aConstraintGraphService == null ? -1 : log2Bucket(countComponents(aConstraintGraphService.getView(aInstance.getDomains()).getNeighbours()));
+        int numPreviouslyAssigned = 0;
+        for (Station station : aInstance.getStations()) {
+            if (aInstance.getPreviousAssignment().containsKey(station)) {
+                numPreviouslyAssigned++;
+            }
+        }
+        final int coverageBucket = numStations == 0 ? 0 : numPreviouslyAssigned * NUM_COVERAGE_BUCKETS / numStations;
+        return new PortfolioFeatures(log2Bucket(numStations), componentBucket, coverageBucket);
+    }
+
+    private static int log2Bucket(int aValue) {
+        return 31 - Integer.numberOfLeadingZeros(aValue + 1);
+    }
+
+    private static int countComponents(Map<Station, ? extends Set<Station>> aNeighbours) {
+        final Set<Station> visited = new HashSet<>();
+        final Deque<Station> toVisit = new ArrayDeque<>();
+        int numComponents = 0;
+        for (Station station : aNeighbours.keySet()) {
+            if (visited.add(station)) {
+                numComponents++;
+                toVisit.push(station);
+                while (!toVisit.isEmpty()) {
+                    for (Station neighbour : aNeighbours.get(toVisit.pop())) {
+                        if (visited.add(neighbour)) {
+                            toVisit.push(neighbour);
+                        }
+                    }
+                }
+            }
+        }
+        return numComponents;
+    }
+
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.composites;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.common.base.Preconditions;
+
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Learns which members of a portfolio win on which kind of instance, and uses it to schedule the portfolio.
+ * <p>
+ * For every bucket of {@link PortfolioFeatures}, the scheduler counts how often each member was launched and how often it returned the portfolio's result,
+ * along with the time it took when it did. Members are launched by decreasing (smoothed) win rate, then increasing mean time to win, then their position in the portfolio,
+ * so that without any statistics the portfolio's own order is kept.
+ * </p>
+ * <p>
+ * When there are fewer workers than members, members that rarely win are left out (except on every {@value #EXPLORATION_PERIOD}th instance of a bucket,
+ * so that their statistics can recover), and the members that are launched share the workers in time slices.
+ * </p>
+ */
+@Slf4j
+@ThreadSafe
+public class PortfolioScheduler {
+
+    /*
+     * Every so many instances of a bucket, all members are launched regardless of their statistics.
+     */
+    private static final int EXPLORATION_PERIOD = 10;
+    /*
+     * Number of launches of a member in a bucket before it can be left out.
+     */
+    private static final int MIN_LAUNCHES_BEFORE_PRUNING = 20;
+
+    private final int fNumMembers;
+    private final double fTimeSlice;
+    private final double fMinWinRate;
+    private final ConstraintGraphService fConstraintGraphService;
+
+    private final Map<PortfolioFeatures, BucketStatistics> fStatistics = new ConcurrentHashMap<>();
+
+    /**
+     * @param aNumMembers - number of members of the portfolio.
+     * @param aTimeSlice - initial time slice (s) of a member when there are fewer workers than members (doubled every time the member gets the worker back), 0 to never slice.
+     * @param aMinWinRate - win rate under which a member is left out when there are fewer workers than members.
+     * @param aConstraintGraphService - service to compute the component count feature with, or null to leave it out.
+     */
+    public PortfolioScheduler(int aNumMembers, double aTimeSlice, double aMinWinRate, ConstraintGraphService aConstraintGraphService) {
+        Preconditions.checkArgument(aNumMembers > 0, "Portfolio must have at least one member");
+        Preconditions.checkArgument(aTimeSlice >= 0, "Time slice cannot be negative, was %s", aTimeSlice);
+        fNumMembers = aNumMembers;
+        fTimeSlice = aTimeSlice;
+        fMinWinRate = aMinWinRate;
+        fConstraintGraphService = aConstraintGraphService;
+    }
+
+    public PortfolioFeatures getFeatures(StationPackingInstance aInstance) {
+        return PortfolioFeatures.of(aInstance, fConstraintGraphService);
+    }
+
+    /**
+     * @param aNumWorkers - number of members that can run at once.
+     * @return which members to launch, in which order, and for how long at a time.
+     */
+    public Schedule schedule(PortfolioFeatures aFeatures, int aNumWorkers) {
+        final BucketStatistics statistics = fStatistics.computeIfAbsent(aFeatures, features -> new BucketStatistics(fNumMembers));
+        final List<Integer> order;
+        final boolean explore;
+        synchronized (statistics) {
+            explore = statistics.numInstances++ % EXPLORATION_PERIOD == 0;
+            order = IntStream.range(0, fNumMembers).boxed()
+                    .sorted(Comparator.<Integer>comparingDouble(statistics::getWinRate).reversed()
+                            .thenComparingDouble(statistics::getMeanTimeToWin)
+                            .thenComparingInt(member -> member))
+                    .collect(Collectors.toCollection(ArrayList::new));
+            if (aNumWorkers < fNumMembers && !explore) {
+                // Never leave out more members than what the workers could run anyways
+                for (int i = order.size() - 1; i >= aNumWorkers; i--) {
+                    final int member = order.get(i);
+                    if (statistics.launches[member] >= MIN_LAUNCHES_BEFORE_PRUNING && statistics.getWinRate(member) < fMinWinRate) {
+                        order.remove(i);
+                    }
+                }
+            }
+        }
+        final double timeSlice = order.size() > aNumWorkers && fTimeSlice > 0 ? fTimeSlice : Double.POSITIVE_INFINITY;
+        log.debug("Scheduling members {} on {} workers with time slice {} s for instance features {}", order, aNumWorkers, timeSlice, aFeatures);
+        return new Schedule(order, timeSlice);
+    }
+
+    /**
+     * Record the outcome of a portfolio run.
+     * @param aLaunched - members that were launched.
+     * @param aWinner - member whose result the portfolio returned, or null if there was no conclusive result.
+     * @param aTimeToWin - time (s) from the start of the portfolio to the winner's result.
+     */
+    public void record(PortfolioFeatures aFeatures, List<Integer> aLaunched, Integer aWinner, double aTimeToWin) {
+        final BucketStatistics statistics = fStatistics.computeIfAbsent(aFeatures, features -> new BucketStatistics(fNumMembers));
+        synchronized (statistics) {
+            aLaunched.forEach(member -> statistics.launches[member]++);
+            if (aWinner != null) {
+                statistics.wins[aWinner]++;
+                statistics.timeToWin[aWinner] += aTimeToWin;
+            }
+        }
+    }
+
+    @Value
+    public static class Schedule {
+        // members to launch, in order
+        List<Integer> members;
+        // time (s) a member runs before yielding its worker for the first time, infinite for no time slicing
+        double timeSlice;
+    }
+
+    private static class BucketStatistics {
+
+        private int numInstances = 0;
+        private final int[] launches;
+        private final int[] wins;
+        private final double[] timeToWin;
+
+        private BucketStatistics(int aNumMembers) {
+            launches = new int[aNumMembers];
+            wins = new int[aNumMembers];
+            timeToWin = new double[aNumMembers];
+        }
+
+        /**
+         * @return the win rate, smoothed towards 1/2 so that members without statistics rank between winners and losers.
+         */
+        private double getWinRate(int aMember) {
+            return (wins[aMember] + 0.5) / (launches[aMember] + 1.0);
+        }
+
+        private double getMeanTimeToWin(int aMember) {
+            return wins[aMember] == 0 ? Double.POSITIVE_INFINITY : timeToWin[aMember] / wins[aMember];
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.composites;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A number of worker threads shared by the parallel parts of a solver, so that nesting them (e.g. solving connected components in parallel
+ * inside a parallel portfolio) does not oversubscribe the cores.
+ * <p>
+ * The budget counts threads busy on top of the threads that call {@link ca.ubc.cs.beta.stationpacking.solvers.ISolver#solve}.
+ * Fixed portfolios always run all their members, so they {@link #reserve(int)} their workers even if that overdraws the budget,
+ * while opportunistic parallelism (and adaptive portfolios) only gets what is left through {@link #tryReserve(int)}. Every reservation must be {@link #release(int)}d.
+ * </p>
+ */
+@ThreadSafe
+public class ThreadBudget {
+
+    private final AtomicInteger fAvailable;
+
+    /**
+     * @param aNumThreads - number of worker threads that can be busy at once.
+     */
+    public ThreadBudget(int aNumThreads) {
+        Preconditions.checkArgument(aNumThreads >= 0, "Thread budget cannot be negative, was %s", aNumThreads);
+        fAvailable = new AtomicInteger(aNumThreads);
+    }
+
+    /**
+     * @return a budget of one worker thread per available processor, besides the calling thread.
+     */
+    public static ThreadBudget forAvailableProcessors() {
+        return new ThreadBudget(Math.max(Runtime.getRuntime().availableProcessors() - 1, 0));
+    }
+
+    /**
+     * Reserve threads unconditionally, possibly overdrawing the budget.
+     */
+    public void reserve(int aNumThreads) {
+        fAvailable.addAndGet(-aNumThreads);
+    }
+
+    /**
+     * Reserve as many threads as available, up to the given number.
+     * @return the number of threads reserved, possibly 0.
+     */
+    public int tryReserve(int aMaxNumThreads) {
+        while (true) {
+            final int available = fAvailable.get();
+            final int reserved = Math.min(aMaxNumThreads, available);
+            if (reserved <= 0) {
+                return 0;
+            }
+            if (fAvailable.compareAndSet(available, available - reserved)) {
+                return reserved;
+            }
+        }
+    }
+
+    public void release(int aNumThreads) {
+        fAvailable.addAndGet(aNumThreads);
+    }
+
+    /**
+     * @return the number of threads currently left (negative if overdrawn).
+     */
+    public int getAvailable() {
+        return fAvailable.get();
+    }
+
+}
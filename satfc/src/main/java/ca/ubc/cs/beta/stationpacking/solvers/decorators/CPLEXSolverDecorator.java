@@ -4,6 +4,7 @@ import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.Constraint;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.metrics.SATFCMetrics;
 import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
@@ -55,7 +56,9 @@ public class CPLEXSolverDecorator extends ASolverDecorator {
     @Override
     public SolverResult solve(StationPackingInstance aInstance, ITerminationCriterion aTerminationCriterion, long aSeed) {
         final Watch watch = Watch.constructAutoStartWatch();
+        final long buildStart = System.nanoTime();
         MIPSaverDecorator.MIPEncoderResult encode = encoder.encode(aInstance);
+        SATFCMetrics.updateTimer(SATFCMetrics.CPLEX_BUILD_TIMER, System.nanoTime() - buildStart);
         final IloCplex cplex = encode.getCplex();
         try {
             aborter = new IloCplex.Aborter();
@@ -144,7 +147,9 @@ public class CPLEXSolverDecorator extends ASolverDecorator {
                 cplex.setParam(IloCplex.Param.MIP.Strategy.Order, true);
             }
 
+            final long solveStart = System.nanoTime();
             cplex.solve();
+            SATFCMetrics.updateTimer(SATFCMetrics.CPLEX_SOLVE_TIMER, System.nanoTime() - solveStart);
             lock.lock();
             aborter = null;
             lock.unlock();
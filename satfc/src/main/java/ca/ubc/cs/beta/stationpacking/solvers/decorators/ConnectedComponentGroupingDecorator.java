@@ -24,14 +24,27 @@ package ca.ubc.cs.beta.stationpacking.solvers.decorators;
 import static ca.ubc.cs.beta.stationpacking.utils.GuavaCollectors.toImmutableMap;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Queues;
+
+import ca.ubc.cs.beta.aeatk.concurrent.threadfactory.SequentiallyNamedThreadFactory;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
@@ -42,12 +55,20 @@ import ca.ubc.cs.beta.stationpacking.solvers.SolverHelper;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
 import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.IComponentGrouper;
+import ca.ubc.cs.beta.stationpacking.solvers.composites.ISolverFactory;
+import ca.ubc.cs.beta.stationpacking.solvers.composites.ThreadBudget;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.interrupt.InterruptibleTerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.utils.Watch;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Created by newmanne on 28/11/14.
+ * Splits an instance into its connected components and solves each one of them with the decorated solver, smallest first.
+ *
+ * With more than one thread, components are solved concurrently: the calling thread uses the decorated solver, and every extra thread its own solver chain
+ * created from a factory. Extra threads are only used if the shared {@link ThreadBudget} has them to spare. As soon as a component is not SAT,
+ * the components still being solved are interrupted.
  */
 @Slf4j
 public class ConnectedComponentGroupingDecorator extends ASolverDecorator {
@@ -56,15 +77,39 @@ public class ConnectedComponentGroupingDecorator extends ASolverDecorator {
     private final IConstraintManager fConstraintManager;
     private final boolean fSolveEverything;
 
+    // solver chains of the extra threads
+    private final BlockingQueue<ISolver> fComponentSolvers;
+    private final ExecutorService fExecutorService;
+    private final ThreadBudget fThreadBudget;
+    private final List<ISolver> fSolversSolvingCurrentProblem = Collections.synchronizedList(new ArrayList<>());
+
     /**
      * @param aSolveEverythingForCaching if true, solve every component, even when you know the problem is logically finished. (Used for caching results)
      * @param aComponentGrouper
      */
     public ConnectedComponentGroupingDecorator(ISolver aSolver, IComponentGrouper aComponentGrouper, IConstraintManager aConstraintManager, boolean aSolveEverythingForCaching) {
+        this(aSolver, aComponentGrouper, aConstraintManager, aSolveEverythingForCaching, null, 1, new ThreadBudget(0));
+    }
+
+    /**
+     * @param aComponentSolverFactory creates the solver chains of the extra threads, each one equivalent to the decorated solver
+     * @param aNumThreads             maximal number of components to solve at once, including the calling thread
+     * @param aThreadBudget           budget shared with the other parallel parts of the solver
+     */
+    public ConnectedComponentGroupingDecorator(ISolver aSolver, IComponentGrouper aComponentGrouper, IConstraintManager aConstraintManager, boolean aSolveEverythingForCaching,
+                                               ISolverFactory aComponentSolverFactory, int aNumThreads, ThreadBudget aThreadBudget) {
         super(aSolver);
+        Preconditions.checkArgument(aNumThreads > 0, "Number of threads must be positive, was %s", aNumThreads);
+        Preconditions.checkArgument(aNumThreads == 1 || aComponentSolverFactory != null, "Solving components with multiple threads requires a solver factory");
         fComponentGrouper = aComponentGrouper;
         fConstraintManager = aConstraintManager;
         fSolveEverything = aSolveEverythingForCaching;
+        fThreadBudget = aThreadBudget;
+        fComponentSolvers = Queues.newLinkedBlockingQueue();
+        for (int i = 1; i < aNumThreads; i++) {
+            fComponentSolvers.offer(aComponentSolverFactory.create());
+        }
+        fExecutorService = aNumThreads > 1 ? Executors.newFixedThreadPool(aNumThreads - 1, new SequentiallyNamedThreadFactory("SATFC Connected Component Thread", true)) : null;
     }
 
     public ConnectedComponentGroupingDecorator(ISolver aSolver, IComponentGrouper aComponentGrouper, IConstraintManager aConstraintManger) {
@@ -78,7 +123,7 @@ public class ConnectedComponentGroupingDecorator extends ASolverDecorator {
 
         // Split into groups
         final Set<Set<Station>> stationComponents = fComponentGrouper.group(aInstance, fConstraintManager);
-        SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance.getName(), SATFCMetrics.TimingEvent.CONNECTED_COMPONENTS, watch.getElapsedTime()));
+        SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance, SATFCMetrics.TimingEvent.CONNECTED_COMPONENTS, watch.getElapsedTime()));
         log.debug("Problem separated in {} groups.", stationComponents.size());
 
         // sort the components in ascending order of size. The idea is that this would decrease runtime if one of the small components was UNSAT
@@ -99,29 +144,136 @@ public class ConnectedComponentGroupingDecorator extends ASolverDecorator {
             componentInstances.add(new StationPackingInstance(subDomains, aInstance.getPreviousAssignment(), metadata));
         }
 
-        SATFCMetrics.postEvent(new SATFCMetrics.SplitIntoConnectedComponentsEvent(aInstance.getName(), componentInstances));
+        SATFCMetrics.postEvent(new SATFCMetrics.SplitIntoConnectedComponentsEvent(aInstance, componentInstances));
+
+        final int numExtraThreads = fThreadBudget.tryReserve(Math.min(fComponentSolvers.size(), componentInstances.size() - 1));
+        final List<SolverResult> solverResults = numExtraThreads > 0 ? solveConcurrently(componentInstances, numExtraThreads, aTerminationCriterion, aSeed) : solveSequentially(componentInstances, aTerminationCriterion, aSeed);
+        final SolverResult mergedResult = SolverHelper.mergeComponentResults(solverResults);
+        final SolverResult result = SolverResult.relabelTimeAndSolvedBy(mergedResult, watch.getElapsedTime(), SolverResult.SolvedBy.CONNECTED_COMPONENTS);
+
+        if (result.getResult().equals(SATResult.SAT)) {
+            Preconditions.checkState(solverResults.size() == stationComponents.size(), "Determined result was SAT without looking at every component!");
+        }
+        log.debug("Result:" + System.lineSeparator() + result.toParsableString());
+        return result;
+    }
 
+    private List<SolverResult> solveSequentially(List<StationPackingInstance> componentInstances, ITerminationCriterion aTerminationCriterion, long aSeed) {
         final List<SolverResult> solverResults = new ArrayList<>();
         for (int i = 0; i < componentInstances.size(); i++) {
-            final StationPackingInstance stationComponent = componentInstances.get(i);
-            log.debug("Solving component {}...", i);
-            log.debug("Component {} has {} stations.", i, stationComponent.getStations().size());
-            final SolverResult componentResult = fDecoratedSolver.solve(stationComponent, aTerminationCriterion, aSeed);
-            SATFCMetrics.postEvent(new SATFCMetrics.InstanceSolvedEvent(stationComponent.getName(), componentResult, null));
+            final SolverResult componentResult = solveComponent(fDecoratedSolver, componentInstances.get(i), i, aTerminationCriterion, aSeed);
             solverResults.add(componentResult);
             // If any component matches this clause (is not SAT), the whole instance cannot be SAT, might as well stop then
             if (!componentResult.getResult().equals(SATResult.SAT) && !fSolveEverything) {
                 break;
             }
         }
-        final SolverResult mergedResult = SolverHelper.mergeComponentResults(solverResults);
-        final SolverResult result = SolverResult.relabelTimeAndSolvedBy(mergedResult, watch.getElapsedTime(), SolverResult.SolvedBy.CONNECTED_COMPONENTS);
+        return solverResults;
+    }
 
-        if (result.getResult().equals(SATResult.SAT)) {
-            Preconditions.checkState(solverResults.size() == stationComponents.size(), "Determined result was SAT without looking at every component!");
+    /**
+     * Components are taken smallest first by the calling thread and the extra threads. The first component that is not SAT interrupts the others,
+     * whose results are then dropped unless conclusive.
+     * Each extra thread gives its share of the reservation back to the budget as soon as it is done, so the reservation must not be released by the caller.
+     */
+    private List<SolverResult> solveConcurrently(List<StationPackingInstance> componentInstances, int numExtraThreads, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        log.debug("Solving {} components with {} extra threads", componentInstances.size(), numExtraThreads);
+        final ITerminationCriterion.IInterruptibleTerminationCriterion interruptibleCriterion = new InterruptibleTerminationCriterion(aTerminationCriterion);
+        final SolverResult[] solverResults = new SolverResult[componentInstances.size()];
+        final AtomicInteger nextComponent = new AtomicInteger();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final Runnable worker = () -> {
+            try {
+                final ISolver solver = fComponentSolvers.poll();
+                if (solver == null) {
+                    // Another instance is using all the chains, the other threads will pick up the work
+                    return;
+                }
+                try {
+                    solveComponents(solver, componentInstances, nextComponent, stop, solverResults, interruptibleCriterion, aSeed);
+                } finally {
+                    fComponentSolvers.offer(solver);
+                }
+            } finally {
+                fThreadBudget.release(1);
+            }
+        };
+        final List<Future<?>> futures = new ArrayList<>(numExtraThreads);
+        try {
+            for (int i = 0; i < numExtraThreads; i++) {
+                futures.add(fExecutorService.submit(worker));
+            }
+        } finally {
+            // threads that could not be submitted
+            fThreadBudget.release(numExtraThreads - futures.size());
+        }
+        try {
+            solveComponents(fDecoratedSolver, componentInstances, nextComponent, stop, solverResults, interruptibleCriterion, aSeed);
+        } finally {
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException("Interrupted while solving components in parallel", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error occurred while solving a component", e.getCause());
+            }
+        }
+        return Arrays.stream(solverResults).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private void solveComponents(ISolver aSolver, List<StationPackingInstance> componentInstances, AtomicInteger nextComponent, AtomicBoolean stop, SolverResult[] solverResults,
+                                 ITerminationCriterion.IInterruptibleTerminationCriterion interruptibleCriterion, long aSeed) {
+        int i;
+        while (!stop.get() && (i = nextComponent.getAndIncrement()) < componentInstances.size()) {
+            fSolversSolvingCurrentProblem.add(aSolver);
+            final SolverResult componentResult;
+            try {
+                componentResult = solveComponent(aSolver, componentInstances.get(i), i, interruptibleCriterion, aSeed);
+            } finally {
+                fSolversSolvingCurrentProblem.remove(aSolver);
+            }
+            final boolean sat = componentResult.getResult().equals(SATResult.SAT);
+            // Results of components interrupted because a sibling was not SAT are meaningless
+            if (componentResult.isConclusive() || !stop.get()) {
+                solverResults[i] = componentResult;
+            }
+            // If any component is not SAT, the whole instance cannot be SAT, might as well stop the others then
+            if (!sat && !fSolveEverything && interruptibleCriterion.interrupt()) {
+                log.debug("Component {} is {}, interrupting the other components", i, componentResult.getResult());
+                stop.set(true);
+                solverResults[i] = componentResult;
+                synchronized (fSolversSolvingCurrentProblem) {
+                    fSolversSolvingCurrentProblem.forEach(ISolver::interrupt);
+                }
+            }
+        }
+    }
+
+    private SolverResult solveComponent(ISolver aSolver, StationPackingInstance stationComponent, int i, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        log.debug("Solving component {}...", i);
+        log.debug("Component {} has {} stations.", i, stationComponent.getStations().size());
+        final SolverResult componentResult = aSolver.solve(stationComponent, aTerminationCriterion, aSeed);
+        SATFCMetrics.postEvent(new SATFCMetrics.InstanceSolvedEvent(stationComponent, componentResult, null));
+        return componentResult;
+    }
+
+    @Override
+    public void interrupt() {
+        super.interrupt();
+        synchronized (fSolversSolvingCurrentProblem) {
+            fSolversSolvingCurrentProblem.stream().filter(solver -> solver != fDecoratedSolver).forEach(ISolver::interrupt);
+        }
+    }
+
+    @Override
+    public void notifyShutdown() {
+        super.notifyShutdown();
+        fComponentSolvers.forEach(ISolver::notifyShutdown);
+        if (fExecutorService != null) {
+            fExecutorService.shutdown();
         }
-        log.debug("Result:" + System.lineSeparator() + result.toParsableString());
-        return result;
     }
 
 }
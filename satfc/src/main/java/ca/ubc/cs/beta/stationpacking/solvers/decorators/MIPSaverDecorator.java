@@ -2,10 +2,10 @@ package ca.ubc.cs.beta.stationpacking.solvers.decorators;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
-import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.Constraint;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
 import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.mip.MIPEncodingIndex;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 import ilog.concert.IloException;
 import ilog.concert.IloIntVar;
@@ -17,11 +17,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.output.NullOutputStream;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
 /**
  * Created by newmanne on 2016-06-27.
@@ -49,37 +47,24 @@ public class MIPSaverDecorator extends ASolverDecorator {
         public MIPEncoderResult encode(StationPackingInstance aInstance) {
             try {
                 final IloCplex cplex = new IloCplex();
+                final MIPEncodingIndex index = new MIPEncodingIndex(constraintManager, aInstance.getDomains());
 
                 // Make all the variables for station channel pairings
+                final IloIntVar[] variables = index.createVariables(cplex);
                 final Map<IloIntVar, StationChannel> variablesDecoder = new HashMap<>();
-                final Map<Station, Map<Integer, IloIntVar>> variablesMap = new HashMap<>();
-
-                for (final Entry<Station, Set<Integer>> entry : aInstance.getDomains().entrySet()) {
-                    final Station station = entry.getKey();
-                    final Set<Integer> domain = entry.getValue();
-                    final Map<Integer, IloIntVar> stationVariablesMap = new HashMap<>();
-                    variablesMap.put(station, stationVariablesMap);
-                    final IloIntVar[] domainVars = cplex.boolVarArray(domain.size());
-                    Iterator<Integer> domainIterator = domain.iterator();
-                    int i = 0;
-                    while (domainIterator.hasNext()) {
-                        final int channel = domainIterator.next();
-                        final IloIntVar domainVar = domainVars[i];
-                        domainVar.setName(station + "." + channel);
-                        stationVariablesMap.put(channel, domainVar);
-                        variablesDecoder.put(domainVar, new StationChannel(station, channel));
-                        i++;
-                    }
+                for (int v = 0; v < variables.length; v++) {
+                    final Station station = index.getVariableStation(v);
+                    final int channel = index.getVariableChannel(v);
+                    variables[v].setName(station + "." + channel);
+                    variablesDecoder.put(variables[v], new StationChannel(station, channel));
+                }
+                for (int i = 0; i < index.getNumStations(); i++) {
                     // Domain constraint
-                    cplex.addEq(cplex.sum(domainVars), 1);
+                    cplex.addEq(cplex.sum(Arrays.copyOfRange(variables, index.getVariablesStart(i), index.getVariablesEnd(i))), 1);
                 }
 
                 // Add interference
-                for (Constraint constraint : constraintManager.getAllRelevantConstraints(aInstance.getDomains())) {
-                    final IloIntVar var1 = variablesMap.get(constraint.getSource()).get(constraint.getSourceChannel());
-                    final IloIntVar var2 = variablesMap.get(constraint.getTarget()).get(constraint.getTargetChannel());
-                    cplex.addLe(cplex.sum(var1, var2), 1);
-                }
+                index.addInterferenceConstraints(cplex, variables);
 
                 //Add dummy objective function.
                 cplex.addMaximize();
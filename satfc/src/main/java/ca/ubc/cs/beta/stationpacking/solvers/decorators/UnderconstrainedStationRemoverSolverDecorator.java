@@ -28,10 +28,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.jgrapht.alg.NeighborIndex;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.SimpleGraph;
-
 import com.google.common.collect.Sets;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
@@ -42,7 +38,8 @@ import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult.SolvedBy;
-import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGrouper;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphView;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.solvers.underconstrained.IUnderconstrainedStationFinder;
 import ca.ubc.cs.beta.stationpacking.utils.StationPackingUtils;
@@ -64,11 +61,17 @@ public class UnderconstrainedStationRemoverSolverDecorator extends ASolverDecora
     private final IUnderconstrainedStationFinder underconstrainedStationFinder;
     private final IConstraintManager constraintManager;
     private final boolean recurse;
+    private final ConstraintGraphService constraintGraphService;
 
     public UnderconstrainedStationRemoverSolverDecorator(ISolver aSolver, IConstraintManager constraintManager, IUnderconstrainedStationFinder underconstrainedStationFinder, boolean recurse) {
+        this(aSolver, constraintManager, new ConstraintGraphService(constraintManager), underconstrainedStationFinder, recurse);
+    }
+
+    public UnderconstrainedStationRemoverSolverDecorator(ISolver aSolver, IConstraintManager constraintManager, ConstraintGraphService constraintGraphService, IUnderconstrainedStationFinder underconstrainedStationFinder, boolean recurse) {
         super(aSolver);
         this.underconstrainedStationFinder = underconstrainedStationFinder;
         this.constraintManager = constraintManager;
+        this.constraintGraphService = constraintGraphService;
         this.recurse = recurse;
     }
 
@@ -85,7 +88,7 @@ public class UnderconstrainedStationRemoverSolverDecorator extends ASolverDecora
             return SolverResult.createTimeoutResult(watch.getElapsedTime());
         }
         final Set<Station> underconstrainedStations = underconstrainedStationFinder.getUnderconstrainedStations(domains, aTerminationCriterion, stationsToCheck);
-        SATFCMetrics.postEvent(new SATFCMetrics.UnderconstrainedStationsRemovedEvent(aInstance.getName(), underconstrainedStations));
+        SATFCMetrics.postEvent(new SATFCMetrics.UnderconstrainedStationsRemovedEvent(aInstance, underconstrainedStations));
         if (aTerminationCriterion.hasToStop()) {
             log.debug("All time spent.");
             return SolverResult.createTimeoutResult(watch.getElapsedTime());
@@ -106,14 +109,13 @@ public class UnderconstrainedStationRemoverSolverDecorator extends ASolverDecora
             if (recurse && !underconstrainedStations.isEmpty()) {
                 log.debug("Going one layer deeper with underconstrained station removal");
                 // You only need to recheck a station that might be underconstrained because some of his neigbhours have disappeared
-                final SimpleGraph<Station, DefaultEdge> constraintGraph = ConstraintGrouper.getConstraintGraph(domains, constraintManager);
-                final NeighborIndex<Station, DefaultEdge> neighborIndex = new NeighborIndex<>(constraintGraph);
+                final ConstraintGraphView neighborIndex = constraintGraphService.getView(domains);
                 final Set<Station> stationsToRecheck = underconstrainedStations.stream().map(neighborIndex::neighborsOf).flatMap(Collection::stream).filter(s -> !underconstrainedStations.contains(s)).collect(Collectors.toSet());
                 subResult = solve(alteredInstance, aTerminationCriterion, aSeed, stationsToRecheck, overallWatch);
             } else { // we bottomed out
                 //Solve the reduced instance.
                 log.debug("Spent {} overall on finding underconstrained stations", overallWatch.getElapsedTime());
-                SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance.getName(), SATFCMetrics.TimingEvent.FIND_UNDERCONSTRAINED_STATIONS, overallWatch.getElapsedTime()));
+                SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance, SATFCMetrics.TimingEvent.FIND_UNDERCONSTRAINED_STATIONS, overallWatch.getElapsedTime()));
                 log.debug("Solving the sub-instance...");
                 subResult = fDecoratedSolver.solve(alteredInstance, aTerminationCriterion, aSeed);
             }
@@ -125,8 +127,7 @@ public class UnderconstrainedStationRemoverSolverDecorator extends ASolverDecora
         }
 
         if (subResult.getResult().equals(SATResult.SAT)) {
-            final SimpleGraph<Station, DefaultEdge> constraintGraph = ConstraintGrouper.getConstraintGraph(domains, constraintManager);
-            final NeighborIndex<Station, DefaultEdge> neighborIndex = new NeighborIndex<>(constraintGraph);
+            final ConstraintGraphView neighborIndex = constraintGraphService.getView(domains);
             final Watch findChannelsForUnderconstrainedStationsTimer = Watch.constructAutoStartWatch();
             log.debug("Sub-instance is packable, adding back the underconstrained stations...");
             //If satisfiable, find a channel for the under constrained nodes that were removed by brute force through their domain.
@@ -174,7 +175,7 @@ public class UnderconstrainedStationRemoverSolverDecorator extends ASolverDecora
                 }
                 assignedStations.add(station);
             }
-            SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance.getName(), SATFCMetrics.TimingEvent.PUT_BACK_UNDERCONSTRAINED_STATIONS, findChannelsForUnderconstrainedStationsTimer.getElapsedTime()));
+            SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance, SATFCMetrics.TimingEvent.PUT_BACK_UNDERCONSTRAINED_STATIONS, findChannelsForUnderconstrainedStationsTimer.getElapsedTime()));
             log.trace("It took {} to find SAT channels for all of the underconstrained stations", findChannelsForUnderconstrainedStationsTimer.getElapsedTime());
             return new SolverResult(SATResult.SAT, watch.getElapsedTime(), alteredAssignment, subResult.getSolvedBy());
         } else {
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.decorators.cache;
+
+import java.util.Optional;
+
+import com.google.common.hash.HashCode;
+
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.cache.SharedMemoryResultCache;
+import ca.ubc.cs.beta.stationpacking.cache.StationPackingInstanceHasher;
+import ca.ubc.cs.beta.stationpacking.metrics.SATFCMetrics;
+import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.decorators.ASolverDecorator;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.utils.Watch;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Look the instance up in the host's {@link SharedMemoryResultCache} before solving it, and store the conclusive results of the decorated solver.
+ * Meant to sit above the decorators that query the SATFCServer, since an exact hit costs a hash and a few memory reads instead of a round trip.
+ */
+@Slf4j
+public class SharedMemoryCacheDecorator extends ASolverDecorator {
+
+    private final SharedMemoryResultCache cache;
+    // The cache file is shared by every constraint set, results are only valid for the decorated solver's
+    private final String constraintHash;
+
+    /**
+     * @param constraintHash - hash of the interference constraints the decorated solver solves against.
+     */
+    public SharedMemoryCacheDecorator(ISolver aSolver, SharedMemoryResultCache cache, String constraintHash) {
+        super(aSolver);
+        this.cache = cache;
+        this.constraintHash = constraintHash;
+    }
+
+    @Override
+    public SolverResult solve(StationPackingInstance aInstance, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        final Watch watch = Watch.constructAutoStartWatch();
+        final HashCode hash = StationPackingInstanceHasher.hashCanonical(aInstance, constraintHash);
+        final Optional<SolverResult> cachedResult = cache.lookup(aInstance, constraintHash, hash);
+        if (cachedResult.isPresent()) {
+            log.debug("Found the instance in the shared memory cache, result is {}", cachedResult.get().getResult());
+            SATFCMetrics.incrementCounter(SATFCMetrics.SHARED_CACHE_HITS);
+            SATFCMetrics.postEvent(new SATFCMetrics.JustifiedByCacheEvent(aInstance, "shm:" + hash));
+            return SolverResult.relabelTime(cachedResult.get(), watch.getElapsedTime());
+        }
+        SATFCMetrics.incrementCounter(SATFCMetrics.SHARED_CACHE_MISSES);
+        final SolverResult result = fDecoratedSolver.solve(aInstance, aTerminationCriterion, aSeed);
+        // Labelled timeouts are not proofs
+        if (result.getResult().isConclusive() && !result.getSolvedBy().equals(SolverResult.SolvedBy.UNSAT_LABELLER)) {
+            cache.cacheResult(aInstance, constraintHash, hash, result);
+        }
+        return SolverResult.relabelTime(result, watch.getElapsedTime());
+    }
+
+}
@@ -51,11 +51,11 @@ public class SubsetCacheUNSATDecorator extends ASolverDecorator {
         final SolverResult result;
         log.debug("Querying UNSAT cache");
         ContainmentCacheUNSATResult proveUNSATBySubset = containmentCache.proveUNSATBySubset(aInstance, aTerminationCriterion);
-        SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance.getName(), SATFCMetrics.TimingEvent.FIND_SUBSET, watch.getElapsedTime()));
+        SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance, SATFCMetrics.TimingEvent.FIND_SUBSET, watch.getElapsedTime()));
         if (proveUNSATBySubset.isValid()) {
             log.debug("Found a subset in the UNSAT cache - declaring problem UNSAT due to problem " + proveUNSATBySubset.getKey());
             result = SolverResult.createNonSATResult(SATResult.UNSAT, watch.getElapsedTime(), SolverResult.SolvedBy.UNSAT_CACHE);
-            SATFCMetrics.postEvent(new SATFCMetrics.JustifiedByCacheEvent(aInstance.getName(), proveUNSATBySubset.getKey()));
+            SATFCMetrics.postEvent(new SATFCMetrics.JustifiedByCacheEvent(aInstance, proveUNSATBySubset.getKey()));
         } else {
             log.debug("UNSAT cache unsuccessful");
             result = SolverResult.relabelTime(fDecoratedSolver.solve(aInstance, aTerminationCriterion, aSeed), watch.getElapsedTime());
@@ -61,7 +61,7 @@ public class SupersetCacheSATDecorator extends ASolverDecorator {
         final SolverResult result;
         log.debug("Sending query to cache");
         final ContainmentCacheSATResult containmentCacheSATResult = proxy.proveSATBySuperset(aInstance, aTerminationCriterion);
-        SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance.getName(), SATFCMetrics.TimingEvent.FIND_SUPERSET, watch.getElapsedTime()));
+        SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance, SATFCMetrics.TimingEvent.FIND_SUPERSET, watch.getElapsedTime()));
         if (containmentCacheSATResult.isValid()) {
             final Map<Integer, Set<Station>> assignment = containmentCacheSATResult.getResult();
             log.debug("Found a superset in the SAT cache - declaring result SAT because of " + containmentCacheSATResult.getKey());
@@ -75,7 +75,7 @@ public class SupersetCacheSATDecorator extends ASolverDecorator {
                 });
             }
             result = new SolverResult(SATResult.SAT, watch.getElapsedTime(), reducedAssignment, SolverResult.SolvedBy.SAT_CACHE);
-            SATFCMetrics.postEvent(new SATFCMetrics.JustifiedByCacheEvent(aInstance.getName(), containmentCacheSATResult.getKey()));
+            SATFCMetrics.postEvent(new SATFCMetrics.JustifiedByCacheEvent(aInstance, containmentCacheSATResult.getKey()));
         } else {
             log.debug("Cache query unsuccessful");
             result = SolverResult.relabelTime(fDecoratedSolver.solve(aInstance, aTerminationCriterion, aSeed), watch.getElapsedTime());
@@ -24,11 +24,13 @@ package ca.ubc.cs.beta.stationpacking.solvers.decorators.consistency;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
 import ca.ubc.cs.beta.stationpacking.consistency.AC3Enforcer;
 import ca.ubc.cs.beta.stationpacking.consistency.AC3Output;
+import ca.ubc.cs.beta.stationpacking.consistency.IArcConsistencyEnforcer;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
 import ca.ubc.cs.beta.stationpacking.metrics.SATFCMetrics;
 import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.ASolverDecorator;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.utils.Watch;
@@ -41,7 +43,7 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class ArcConsistencyEnforcerDecorator extends ASolverDecorator {
 
-    private final AC3Enforcer ac3Enforcer;
+    private final IArcConsistencyEnforcer ac3Enforcer;
 
     /**
      * @param aSolver           - decorated ISolver.
@@ -52,11 +54,29 @@ public class ArcConsistencyEnforcerDecorator extends ASolverDecorator {
         ac3Enforcer = new AC3Enforcer(constraintManager);
     }
 
+    /**
+     * @param aSolver                - decorated ISolver.
+     * @param constraintManager
+     * @param constraintGraphService - service to get the instances' constraint graphs from.
+     */
+    public ArcConsistencyEnforcerDecorator(ISolver aSolver, IConstraintManager constraintManager, ConstraintGraphService constraintGraphService) {
+        this(aSolver, new AC3Enforcer(constraintManager, constraintGraphService));
+    }
+
+    /**
+     * @param aSolver     - decorated ISolver.
+     * @param ac3Enforcer - arc consistency implementation to reduce the domains with.
+     */
+    public ArcConsistencyEnforcerDecorator(ISolver aSolver, IArcConsistencyEnforcer ac3Enforcer) {
+        super(aSolver);
+        this.ac3Enforcer = ac3Enforcer;
+    }
+
     @Override
     public SolverResult solve(StationPackingInstance aInstance, ITerminationCriterion aTerminationCriterion, long aSeed) {
         final Watch watch = Watch.constructAutoStartWatch();
         final AC3Output ac3Output = ac3Enforcer.AC3(aInstance, aTerminationCriterion);
-        SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance.getName(), SATFCMetrics.TimingEvent.ARC_CONSISTENCY, watch.getElapsedTime()));
+        SATFCMetrics.postEvent(new SATFCMetrics.TimingEvent(aInstance, SATFCMetrics.TimingEvent.ARC_CONSISTENCY, watch.getElapsedTime()));
         if (ac3Output.isNoSolution()) {
             return SolverResult.createNonSATResult(SATResult.UNSAT, watch.getElapsedTime(), SolverResult.SolvedBy.ARC_CONSISTENCY);
         } else {
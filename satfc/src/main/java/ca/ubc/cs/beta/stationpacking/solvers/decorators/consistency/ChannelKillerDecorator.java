@@ -21,20 +21,28 @@
  */
 package ca.ubc.cs.beta.stationpacking.solvers.decorators.consistency;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import org.jgrapht.alg.NeighborIndex;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.SimpleGraph;
-
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Queues;
 
+import ca.ubc.cs.beta.aeatk.concurrent.threadfactory.SequentiallyNamedThreadFactory;
 import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
@@ -42,10 +50,13 @@ import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult.SolvedBy;
-import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGrouper;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphView;
+import ca.ubc.cs.beta.stationpacking.solvers.composites.ISolverFactory;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.ASolverDecorator;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.composite.DisjunctiveCompositeTerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.interrupt.InterruptibleTerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.walltime.WalltimeTerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.utils.Watch;
 import lombok.extern.slf4j.Slf4j;
@@ -58,6 +69,12 @@ import lombok.extern.slf4j.Slf4j;
  * Then that channel can be soundly removed from that station's domain
  *
  * This class uses this idea to shrink domains by solving many of the above type of problems with short cutoffs
+ *
+ * The subproblems of a station are independent, so with more than one thread they are solved in waves of one channel per thread,
+ * each thread using its own solver from a pool. A wave's results are then merged in channel order exactly as if they had been solved one after the other:
+ * a channel already shown SAT by an earlier channel's assignment ignores its own result, and a SAT assignment still lets the remaining channels be skipped.
+ *
+ * An interrupt stops the current solve as a whole, including the subproblems that were not started yet when it came.
  */
 @Slf4j
 public class ChannelKillerDecorator extends ASolverDecorator {
@@ -66,13 +83,39 @@ public class ChannelKillerDecorator extends ASolverDecorator {
     private final double subProblemCutoff;
     // if true, any time a station's domain changes, we will recheck all of its neighbours
     private final boolean recursive;
-    private final ISolver SATSolver;
+    // solvers for the subproblems, one per thread
+    private final BlockingQueue<ISolver> SATSolvers;
+    private final int numThreads;
+    private final ExecutorService executorService;
+    private final List<ISolver> solversSolvingCurrentProblem = Collections.synchronizedList(new ArrayList<>());
+    // criterion of the current problem, met as soon as the decorator is interrupted
+    private volatile InterruptibleTerminationCriterion currentCriterion;
     private final IConstraintManager constraintManager;
+    private final ConstraintGraphService constraintGraphService;
 
     public ChannelKillerDecorator(ISolver aSolver, ISolver SATSolver, IConstraintManager constraintManager, double subProblemCutoff, boolean recursive) {
+        this(aSolver, SATSolver, constraintManager, new ConstraintGraphService(constraintManager), subProblemCutoff, recursive);
+    }
+
+    public ChannelKillerDecorator(ISolver aSolver, ISolver SATSolver, IConstraintManager constraintManager, ConstraintGraphService constraintGraphService, double subProblemCutoff, boolean recursive) {
+        this(aSolver, aSolverToDecorate -> SATSolver, 1, constraintManager, constraintGraphService, subProblemCutoff, recursive);
+    }
+
+    /**
+     * @param SATSolverFactory - creates the solvers of the subproblems, called once per thread.
+     * @param numThreads       - number of subproblems to solve at once.
+     */
+    public ChannelKillerDecorator(ISolver aSolver, ISolverFactory SATSolverFactory, int numThreads, IConstraintManager constraintManager, ConstraintGraphService constraintGraphService, double subProblemCutoff, boolean recursive) {
         super(aSolver);
-        this.SATSolver = SATSolver;
+        Preconditions.checkArgument(numThreads > 0, "Number of threads must be positive, was %s", numThreads);
+        this.numThreads = numThreads;
+        this.SATSolvers = Queues.newLinkedBlockingQueue(numThreads);
+        for (int i = 0; i < numThreads; i++) {
+            SATSolvers.offer(SATSolverFactory.create());
+        }
+        this.executorService = numThreads > 1 ? Executors.newFixedThreadPool(numThreads, new SequentiallyNamedThreadFactory("SATFC Channel Killer Thread")) : null;
         this.constraintManager = constraintManager;
+        this.constraintGraphService = constraintGraphService;
         this.subProblemCutoff = subProblemCutoff;
         this.recursive = recursive;
     }
@@ -80,10 +123,19 @@ public class ChannelKillerDecorator extends ASolverDecorator {
     @Override
     public SolverResult solve(StationPackingInstance aInstance, ITerminationCriterion aTerminationCriterion, long aSeed) {
         final Watch watch = Watch.constructAutoStartWatch();
+        final InterruptibleTerminationCriterion criterion = new InterruptibleTerminationCriterion(aTerminationCriterion);
+        currentCriterion = criterion;
+        try {
+            return solve(aInstance, criterion, aSeed, watch);
+        } finally {
+            currentCriterion = null;
+        }
+    }
+
+    private SolverResult solve(StationPackingInstance aInstance, ITerminationCriterion aTerminationCriterion, long aSeed, Watch watch) {
         // Deep copy map
         final Map<Station, Set<Integer>> domainsCopy = aInstance.getDomains().entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> new HashSet<>(entry.getValue())));
-        final SimpleGraph<Station, DefaultEdge> constraintGraph = ConstraintGrouper.getConstraintGraph(domainsCopy, constraintManager);
-        final NeighborIndex<Station, DefaultEdge> neighborIndex = new NeighborIndex<>(constraintGraph);
+        final ConstraintGraphView neighborIndex = constraintGraphService.getView(domainsCopy);
         final LinkedHashSet<Station> stationQueue = new LinkedHashSet<>(aInstance.getStations());
         int numChannelsRemoved = 0;
         int numTimeouts = 0;
@@ -97,46 +149,41 @@ public class ChannelKillerDecorator extends ASolverDecorator {
             final Set<Integer> SATChannels = new HashSet<>();
             final Set<Integer> UNSATChannels = new HashSet<>();
             boolean changed = false;
-            for (int channel : domain) {
-                if (SATChannels.contains(channel)) {
-                    log.trace("Channel {} is already known to be SAT, skipping...", channel);
-                    continue;
+            final List<Integer> channelsToCheck = new ArrayList<>(domain);
+            int next = 0;
+            while (next < channelsToCheck.size() && !aTerminationCriterion.hasToStop()) {
+                // Gather the next wave of channels whose status is unknown
+                final List<Integer> wave = new ArrayList<>(numThreads);
+                while (next < channelsToCheck.size() && wave.size() < numThreads) {
+                    final int channel = channelsToCheck.get(next++);
+                    if (SATChannels.contains(channel)) {
+                        log.trace("Channel {} is already known to be SAT, skipping...", channel);
+                    } else {
+                        wave.add(channel);
+                    }
                 }
-                neighbourDomains.put(station, ImmutableSet.of(channel));
-                final StationPackingInstance reducedInstance = new StationPackingInstance(neighbourDomains);
-                final ITerminationCriterion subCriterion = new DisjunctiveCompositeTerminationCriterion(Arrays.asList(aTerminationCriterion, new WalltimeTerminationCriterion(subProblemCutoff)));
-                final SolverResult subResult = SATSolver.solve(reducedInstance, subCriterion, aSeed);
-                if (subResult.getResult().equals(SATResult.UNSAT)) {
-                    log.debug("Station {} on channel {} is UNSAT with its neigbhours, removing channel!", station, channel);
-                    UNSATChannels.add(channel);
-                    numChannelsRemoved++;
-                    changed = true;
-                    changedStations.add(station);
-                } else if (subResult.getResult().equals(SATResult.SAT)) {
-                    // What other channels would have also satisfied this assignment? We can skip those
-                    SATChannels.add(channel);
-                    final Set<Integer> unknownChannels = domain.stream().filter(c -> !SATChannels.contains(c) && !UNSATChannels.contains(c)).collect(Collectors.toSet());
-                    final Map<Integer, Set<Station>> mutableAssignment = subResult.getAssignment().entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> new HashSet<>(entry.getValue())));
-                    mutableAssignment.get(channel).remove(station);
-                    unknownChannels.stream().forEach(unknownChannel -> {
-                        mutableAssignment.putIfAbsent(unknownChannel, new HashSet<>());
-                        mutableAssignment.get(unknownChannel).add(station);
-                        if (constraintManager.isSatisfyingAssignment(mutableAssignment)) {
-                            log.trace("No need to check channel {} for station {} because it also a SAT to the previously checked problem", unknownChannel, station);
-                            SATChannels.add(unknownChannel);
-                        }
-                        mutableAssignment.get(unknownChannel).remove(station);
-                        if (mutableAssignment.get(unknownChannel).isEmpty()) {
-                            mutableAssignment.remove(unknownChannel);
+                final List<SolverResult> subResults = solveWave(station, wave, neighbourDomains, aTerminationCriterion, aSeed);
+                for (int i = 0; i < wave.size(); i++) {
+                    final int channel = wave.get(i);
+                    final SolverResult subResult = subResults.get(i);
+                    if (SATChannels.contains(channel)) {
+                        log.trace("Channel {} was shown to be SAT by an earlier channel of its wave, ignoring its result", channel);
+                    } else if (subResult.getResult().equals(SATResult.UNSAT)) {
+                        log.debug("Station {} on channel {} is UNSAT with its neigbhours, removing channel!", station, channel);
+                        UNSATChannels.add(channel);
+                        numChannelsRemoved++;
+                        changed = true;
+                        changedStations.add(station);
+                    } else if (subResult.getResult().equals(SATResult.SAT)) {
+                        SATChannels.add(channel);
+                        skipSATChannels(station, channel, domain, subResult, SATChannels, UNSATChannels);
+                    } else {
+                        if (subResult.getResult().equals(SATResult.TIMEOUT)) {
+                            numTimeouts++;
                         }
-                    });
-                } else {
-                    if (subResult.getResult().equals(SATResult.TIMEOUT)) {
-                        numTimeouts++;
+                        log.trace("Sub result was {}", subResult.getResult());
                     }
-                    log.trace("Sub result was {}", subResult.getResult());
                 }
-                neighbourDomains.remove(station);
             }
             domain.removeAll(UNSATChannels);
             log.debug("Done with station {}, now with domain {}", station, domain);
@@ -154,15 +201,100 @@ public class ChannelKillerDecorator extends ASolverDecorator {
         return SolverResult.relabelTime(fDecoratedSolver.solve(reducedInstance, aTerminationCriterion, aSeed), watch.getElapsedTime());
     }
 
+    /**
+     * What other channels would have also satisfied this assignment? We can skip those
+     */
+    private void skipSATChannels(Station station, int channel, Set<Integer> domain, SolverResult subResult, Set<Integer> SATChannels, Set<Integer> UNSATChannels) {
+        final Set<Integer> unknownChannels = domain.stream().filter(c -> !SATChannels.contains(c) && !UNSATChannels.contains(c)).collect(Collectors.toSet());
+        final Map<Integer, Set<Station>> mutableAssignment = subResult.getAssignment().entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> new HashSet<>(entry.getValue())));
+        mutableAssignment.get(channel).remove(station);
+        unknownChannels.stream().forEach(unknownChannel -> {
+            mutableAssignment.putIfAbsent(unknownChannel, new HashSet<>());
+            mutableAssignment.get(unknownChannel).add(station);
+            if (constraintManager.isSatisfyingAssignment(mutableAssignment)) {
+                log.trace("No need to check channel {} for station {} because it also a SAT to the previously checked problem", unknownChannel, station);
+                SATChannels.add(unknownChannel);
+            }
+            mutableAssignment.get(unknownChannel).remove(station);
+            if (mutableAssignment.get(unknownChannel).isEmpty()) {
+                mutableAssignment.remove(unknownChannel);
+            }
+        });
+    }
+
+    /**
+     * Solve the subproblems of the given station on each of the given channels, concurrently if there are multiple threads.
+     * @return the results, in the order of the channels.
+     */
+    private List<SolverResult> solveWave(Station station, List<Integer> channels, Map<Station, Set<Integer>> neighbourDomains, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        final List<StationPackingInstance> reducedInstances = new ArrayList<>(channels.size());
+        for (int channel : channels) {
+            final Map<Station, Set<Integer>> reducedDomains = new HashMap<>(neighbourDomains);
+            reducedDomains.put(station, ImmutableSet.of(channel));
+            reducedInstances.add(new StationPackingInstance(reducedDomains));
+        }
+        if (executorService == null || reducedInstances.size() == 1) {
+            return reducedInstances.stream().map(reducedInstance -> solveSubProblem(reducedInstance, aTerminationCriterion, aSeed)).collect(Collectors.toList());
+        }
+        final List<Future<SolverResult>> futures = new ArrayList<>(reducedInstances.size());
+        for (StationPackingInstance reducedInstance : reducedInstances) {
+            if (aTerminationCriterion.hasToStop()) {
+                break;
+            }
+            futures.add(executorService.submit(() -> solveSubProblem(reducedInstance, aTerminationCriterion, aSeed)));
+        }
+        final List<SolverResult> subResults = new ArrayList<>(reducedInstances.size());
+        try {
+            for (Future<SolverResult> future : futures) {
+                subResults.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while solving channel killer subproblems", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error occurred while solving a channel killer subproblem", e.getCause());
+        }
+        // Subproblems that were never submitted
+        while (subResults.size() < reducedInstances.size()) {
+            subResults.add(SolverResult.createTimeoutResult(0));
+        }
+        return subResults;
+    }
+
+    private SolverResult solveSubProblem(StationPackingInstance reducedInstance, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        if (aTerminationCriterion.hasToStop()) {
+            return SolverResult.createTimeoutResult(0);
+        }
+        final ISolver SATSolver = SATSolvers.poll();
+        Preconditions.checkState(SATSolver != null, "Couldn't take a solver from the queue!");
+        try {
+            solversSolvingCurrentProblem.add(SATSolver);
+            final ITerminationCriterion subCriterion = new DisjunctiveCompositeTerminationCriterion(Arrays.asList(aTerminationCriterion, new WalltimeTerminationCriterion(subProblemCutoff)));
+            return SATSolver.solve(reducedInstance, subCriterion, aSeed);
+        } finally {
+            solversSolvingCurrentProblem.remove(SATSolver);
+            SATSolvers.offer(SATSolver);
+        }
+    }
+
     @Override
     public void notifyShutdown() {
         super.notifyShutdown();
-        SATSolver.notifyShutdown();
+        SATSolvers.forEach(ISolver::notifyShutdown);
+        if (executorService != null) {
+            executorService.shutdown();
+        }
     }
 
     @Override
     public void interrupt() {
         super.interrupt();
-        SATSolver.interrupt();
+        // Subproblems and solves that start from now on see the interrupt through their criterion
+        final InterruptibleTerminationCriterion criterion = currentCriterion;
+        if (criterion != null) {
+            criterion.interrupt();
+        }
+        synchronized (solversSolvingCurrentProblem) {
+            solversSolvingCurrentProblem.forEach(ISolver::interrupt);
+        }
     }
 }
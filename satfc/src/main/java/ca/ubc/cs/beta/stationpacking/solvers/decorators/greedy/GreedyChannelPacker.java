@@ -0,0 +1,167 @@
+package ca.ubc.cs.beta.stationpacking.solvers.decorators.greedy;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.consistency.ChannelMaskArcs;
+import com.google.common.base.Preconditions;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental partial assignment of an instance, for greedy packing.
+ * <p>
+ * Every station keeps a count, per channel of its domain, of the assigned neighbours that block it, along with the mask of its blocked channels.
+ * Assigning or unassigning a station updates its neighbours' counts through the conflict masks of its arcs, so whether a station can go on a channel
+ * is a single bitwise test instead of a check of the whole assignment.
+ * </p>
+ * Not thread safe.
+ */
+public class GreedyChannelPacker {
+
+    private final ChannelMaskArcs arcs;
+    // channel bit of each station, 0 if unassigned
+    private final long[] assignment;
+    private final long[] blocked;
+    // block counts of station x's channels, by rank in its domain, start at blockCountOffsets[x]
+    private final int[] blockCountOffsets;
+    private final int[] blockCounts;
+    private int numAssigned = 0;
+
+    public GreedyChannelPacker(ChannelMaskArcs arcs) {
+        this.arcs = arcs;
+        final int numStations = arcs.getNumStations();
+        assignment = new long[numStations];
+        blocked = new long[numStations];
+        blockCountOffsets = new int[numStations + 1];
+        for (int x = 0; x < numStations; x++) {
+            blockCountOffsets[x + 1] = blockCountOffsets[x] + Long.bitCount(arcs.getDomain(x));
+        }
+        blockCounts = new int[blockCountOffsets[numStations]];
+    }
+
+    /**
+     * @return the channels of station x's domain that no assigned neighbour interferes with.
+     */
+    public long getFreeChannels(int x) {
+        return arcs.getDomain(x) & ~blocked[x];
+    }
+
+    public boolean isAssigned(int x) {
+        return assignment[x] != 0;
+    }
+
+    public boolean isComplete() {
+        return numAssigned == assignment.length;
+    }
+
+    /**
+     * Put station x on the given channel (which need not be free).
+     */
+    public void assign(int x, long channelBit) {
+        Preconditions.checkArgument(Long.bitCount(channelBit) == 1 && (arcs.getDomain(x) & channelBit) != 0, "Channel is not in the station's domain");
+        Preconditions.checkState(assignment[x] == 0, "Station %s is already assigned", arcs.getStation(x));
+        assignment[x] = channelBit;
+        numAssigned++;
+        updateNeighbours(x, channelBit, 1);
+    }
+
+    public void unassign(int x) {
+        Preconditions.checkState(assignment[x] != 0, "Station %s is not assigned", arcs.getStation(x));
+        updateNeighbours(x, assignment[x], -1);
+        assignment[x] = 0;
+        numAssigned--;
+    }
+
+    /**
+     * Put station x on its lowest free channel, if any.
+     * @return whether it was assigned.
+     */
+    public boolean assignLowestFree(int x) {
+        final long free = getFreeChannels(x);
+        if (free == 0) {
+            return false;
+        }
+        assign(x, Long.lowestOneBit(free));
+        return true;
+    }
+
+    /**
+     * Bounded local search for a station without any free channel: find a channel blocked by a single assigned neighbour,
+     * move that neighbour to one of its own free channels, and take the channel.
+     *
+     * @param maxAttempts - maximal number of neighbour moves to try.
+     * @return whether station x was assigned (the assignment is unchanged otherwise).
+     */
+    public boolean repair(int x, int maxAttempts) {
+        int attempts = 0;
+        for (long remaining = arcs.getDomain(x); remaining != 0 && attempts < maxAttempts; remaining &= remaining - 1) {
+            final long channelBit = Long.lowestOneBit(remaining);
+            final int blocker = getSingleBlocker(x, channelBit);
+            if (blocker < 0) {
+                continue;
+            }
+            attempts++;
+            final long blockerChannel = assignment[blocker];
+            unassign(blocker);
+            assign(x, channelBit);
+            if (assignLowestFree(blocker)) {
+                return true;
+            }
+            unassign(x);
+            assign(blocker, blockerChannel);
+        }
+        return false;
+    }
+
+    /**
+     * @return the only assigned neighbour that blocks station x on the given channel, or -1 if there are none or several.
+     */
+    private int getSingleBlocker(int x, long channelBit) {
+        final int rank = ChannelMaskArcs.rank(arcs.getDomain(x), channelBit);
+        if (blockCounts[blockCountOffsets[x] + rank] != 1) {
+            return -1;
+        }
+        for (int arc = arcs.getArcsStart(x); arc < arcs.getArcsEnd(x); arc++) {
+            final int y = arcs.getTarget(arc);
+            if ((arcs.getConflictMask(arc, rank) & assignment[y]) != 0) {
+                return y;
+            }
+        }
+        throw new IllegalStateException("Block count of station " + arcs.getStation(x) + " does not match its assigned neighbours");
+    }
+
+    private void updateNeighbours(int x, long channelBit, int delta) {
+        final int rank = ChannelMaskArcs.rank(arcs.getDomain(x), channelBit);
+        for (int arc = arcs.getArcsStart(x); arc < arcs.getArcsEnd(x); arc++) {
+            final int y = arcs.getTarget(arc);
+            final long yDomain = arcs.getDomain(y);
+            for (long conflicts = arcs.getConflictMask(arc, rank); conflicts != 0; conflicts &= conflicts - 1) {
+                final long yChannelBit = Long.lowestOneBit(conflicts);
+                final int index = blockCountOffsets[y] + ChannelMaskArcs.rank(yDomain, yChannelBit);
+                blockCounts[index] += delta;
+                if (blockCounts[index] > 0) {
+                    blocked[y] |= yChannelBit;
+                } else {
+                    blocked[y] &= ~yChannelBit;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the current (partial) assignment, as channel to stations.
+     */
+    public Map<Integer, Set<Station>> getAssignment() {
+        final Map<Integer, Set<Station>> channelAssignment = new HashMap<>();
+        for (int x = 0; x < assignment.length; x++) {
+            if (assignment[x] != 0) {
+                final int channel = arcs.getMinChannel() + Long.numberOfTrailingZeros(assignment[x]);
+                channelAssignment.computeIfAbsent(channel, c -> new HashSet<>()).add(arcs.getStation(x));
+            }
+        }
+        return channelAssignment;
+    }
+
+}
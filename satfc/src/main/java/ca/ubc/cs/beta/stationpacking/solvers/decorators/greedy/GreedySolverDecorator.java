@@ -2,11 +2,13 @@ package ca.ubc.cs.beta.stationpacking.solvers.decorators.greedy;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.consistency.ChannelMaskArcs;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
 import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
 import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.ASolverDecorator;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.utils.StationPackingUtils;
@@ -22,24 +24,76 @@ import java.util.stream.Collectors;
 
 /**
  * Created by newmanne on 2016-06-15.
+ * Keeps the previous assignment and puts every other station on the first channel that does not interfere with the stations already placed.
+ * Placements are checked incrementally with a {@link GreedyChannelPacker}, and stations that cannot be placed may optionally move a single blocking neighbour.
  */
 public class GreedySolverDecorator extends ASolverDecorator {
 
     private final IConstraintManager constraintManager;
     private final IStationManager stationManager;
+    private final ConstraintGraphService constraintGraphService;
+    // neighbour moves to try for each station that cannot be placed
+    private final int maxRepairAttempts;
 
     /**
      * @param aSolver - decorated ISolver.
      */
     public GreedySolverDecorator(ISolver aSolver, IConstraintManager constraintManager, IStationManager stationManager) {
+        this(aSolver, constraintManager, stationManager, new ConstraintGraphService(constraintManager), 0);
+    }
+
+    public GreedySolverDecorator(ISolver aSolver, IConstraintManager constraintManager, IStationManager stationManager, ConstraintGraphService constraintGraphService, int maxRepairAttempts) {
         super(aSolver);
+        Preconditions.checkArgument(maxRepairAttempts >= 0, "Number of repair attempts cannot be negative, was %s", maxRepairAttempts);
         this.constraintManager = constraintManager;
         this.stationManager = stationManager;
+        this.constraintGraphService = constraintGraphService;
+        this.maxRepairAttempts = maxRepairAttempts;
     }
 
     @Override
     public SolverResult solve(StationPackingInstance aInstance, ITerminationCriterion aTerminationCriterion, long aSeed) {
         Watch watch = Watch.constructAutoStartWatch();
+        final ChannelMaskArcs arcs = ChannelMaskArcs.create(constraintManager, constraintGraphService, aInstance.getDomains());
+        final Map<Integer, Set<Station>> assignment = arcs != null ? packIncrementally(aInstance, arcs) : packWithFullVerification(aInstance);
+        if (assignment != null) {
+            return new SolverResult(SATResult.SAT, watch.getElapsedTime(), assignment, SolverResult.SolvedBy.GREEDY);
+        } else {
+            return super.solve(aInstance, aTerminationCriterion, aSeed);
+        }
+    }
+
+    /**
+     * @return a complete assignment, or null if the greedy packing failed.
+     */
+    private Map<Integer, Set<Station>> packIncrementally(StationPackingInstance aInstance, ChannelMaskArcs arcs) {
+        final Map<Station, Integer> previousAssignment = aInstance.getPreviousAssignment();
+        final GreedyChannelPacker packer = new GreedyChannelPacker(arcs);
+        for (int x = 0; x < arcs.getNumStations(); x++) {
+            final Integer previousChannel = previousAssignment.get(arcs.getStation(x));
+            if (previousChannel != null) {
+                final int channelIndex = previousChannel - arcs.getMinChannel();
+                if (channelIndex < 0 || channelIndex >= Long.SIZE || (arcs.getDomain(x) & 1L << channelIndex) == 0) {
+                    // Previous channel is not in the station's domain, the greedy solver will not be able to prove SAT
+                    return null;
+                }
+                Preconditions.checkArgument((packer.getFreeChannels(x) & 1L << channelIndex) != 0, "Greedy solver requires previous assignment to be valid!");
+                packer.assign(x, 1L << channelIndex);
+            }
+        }
+        for (int x = 0; x < arcs.getNumStations(); x++) {
+            if (!packer.isAssigned(x) && !packer.assignLowestFree(x) && !packer.repair(x, maxRepairAttempts)) {
+                // Greedy checker won't be able to prove SAT here...
+                return null;
+            }
+        }
+        return packer.getAssignment();
+    }
+
+    /**
+     * Original greedy packing, which checks the whole assignment for every channel tried. Only used for instances whose channels do not fit in channel masks.
+     */
+    private Map<Integer, Set<Station>> packWithFullVerification(StationPackingInstance aInstance) {
         final Map<Station, Set<Integer>> domains = aInstance.getDomains();
         final Map<Station, Integer> previousAssignment = aInstance.getPreviousAssignment();
         final Map<Integer, Integer> intPrevAssignment = previousAssignment.entrySet().stream().collect(Collectors.toMap(e -> e.getKey().getID(), Map.Entry::getValue));
@@ -67,11 +121,7 @@ public class GreedySolverDecorator extends ASolverDecorator {
                 break;
             }
         }
-        if (assignment.size() == domains.size()) {
-            return new SolverResult(SATResult.SAT, watch.getElapsedTime(), Multimaps.asMap(assignment), SolverResult.SolvedBy.GREEDY);
-        } else {
-            return super.solve(aInstance, aTerminationCriterion, aSeed);
-        }
+        return assignment.size() == domains.size() ? Multimaps.asMap(assignment) : null;
     }
 
 }
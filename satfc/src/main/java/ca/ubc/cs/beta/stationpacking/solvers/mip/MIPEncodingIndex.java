@@ -0,0 +1,216 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.mip;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.Constraint;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ilog.concert.IloException;
+import ilog.concert.IloIntVar;
+import ilog.cplex.IloCplex;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Station channel variables and interference of an instance, as the MIP encodings see them.
+ * <p>
+ * Every (station, channel) pair of the domains is a dense variable index: stations are sorted by ID, and each station's variables are its channels in increasing order.
+ * The relevant constraints are enumerated once, when the index is built, into unique interfering variable pairs (the edges), and into the sorted list of interfering
+ * variables of every variable (its neighbours). Encodings look both up by index instead of going back to the constraint manager.
+ * </p>
+ */
+@Slf4j
+public class MIPEncodingIndex {
+
+    private final Station[] fStations;
+    private final Map<Station, Integer> fStationIndices;
+    // Variables of station i are fVariableOffsets[i] to fVariableOffsets[i + 1] (exclusive)
+    private final int[] fVariableOffsets;
+    private final int[] fVariableStations;
+    private final int[] fVariableChannels;
+
+    // Interfering variable pairs, source < target
+    private final int[] fEdgeSources;
+    private final int[] fEdgeTargets;
+
+    // Neighbours of variable v are fNeighbours[fNeighbourOffsets[v]] to fNeighbours[fNeighbourOffsets[v + 1]] (exclusive)
+    private final int[] fNeighbourOffsets;
+    private final int[] fNeighbours;
+
+    public MIPEncodingIndex(IConstraintManager aConstraintManager, Map<Station, Set<Integer>> aDomains) {
+        fStations = aDomains.keySet().stream().sorted().toArray(Station[]::new);
+        fStationIndices = new HashMap<>();
+        fVariableOffsets = new int[fStations.length + 1];
+        for (int i = 0; i < fStations.length; i++) {
+            fStationIndices.put(fStations[i], i);
+            fVariableOffsets[i + 1] = fVariableOffsets[i] + aDomains.get(fStations[i]).size();
+        }
+        final int numVariables = fVariableOffsets[fStations.length];
+        fVariableStations = new int[numVariables];
+        fVariableChannels = new int[numVariables];
+        for (int i = 0; i < fStations.length; i++) {
+            final int[] channels = aDomains.get(fStations[i]).stream().mapToInt(Integer::intValue).sorted().toArray();
+            System.arraycopy(channels, 0, fVariableChannels, fVariableOffsets[i], channels.length);
+            Arrays.fill(fVariableStations, fVariableOffsets[i], fVariableOffsets[i + 1], i);
+        }
+
+        // Unique edges, as sorted (source, target) keys
+        long[] edges = new long[64];
+        int numEdges = 0;
+        for (Constraint constraint : aConstraintManager.getAllRelevantConstraints(aDomains)) {
+            final int u = getVariable(constraint.getSource(), constraint.getSourceChannel());
+            final int v = getVariable(constraint.getTarget(), constraint.getTargetChannel());
+            if (u < 0 || v < 0) {
+                continue;
+            }
+            if (numEdges == edges.length) {
+                edges = Arrays.copyOf(edges, 2 * edges.length);
+            }
+            edges[numEdges++] = ((long) Math.min(u, v) << Integer.SIZE) | Math.max(u, v);
+        }
+        Arrays.sort(edges, 0, numEdges);
+        int numUniqueEdges = 0;
+        for (int e = 0; e < numEdges; e++) {
+            if (e == 0 || edges[e] != edges[e - 1]) {
+                edges[numUniqueEdges++] = edges[e];
+            }
+        }
+        fEdgeSources = new int[numUniqueEdges];
+        fEdgeTargets = new int[numUniqueEdges];
+        fNeighbourOffsets = new int[numVariables + 1];
+        for (int e = 0; e < numUniqueEdges; e++) {
+            fEdgeSources[e] = (int) (edges[e] >>> Integer.SIZE);
+            fEdgeTargets[e] = (int) edges[e];
+            fNeighbourOffsets[fEdgeSources[e] + 1]++;
+            fNeighbourOffsets[fEdgeTargets[e] + 1]++;
+        }
+        for (int v = 0; v < numVariables; v++) {
+            fNeighbourOffsets[v + 1] += fNeighbourOffsets[v];
+        }
+        fNeighbours = new int[2 * numUniqueEdges];
+        final int[] next = Arrays.copyOf(fNeighbourOffsets, numVariables);
+        for (int e = 0; e < numUniqueEdges; e++) {
+            fNeighbours[next[fEdgeSources[e]]++] = fEdgeTargets[e];
+            fNeighbours[next[fEdgeTargets[e]]++] = fEdgeSources[e];
+        }
+        for (int v = 0; v < numVariables; v++) {
+            Arrays.sort(fNeighbours, fNeighbourOffsets[v], fNeighbourOffsets[v + 1]);
+        }
+        log.debug("Indexed {} variables and {} interfering pairs (from {} constraints) over {} stations", numVariables, numUniqueEdges, numEdges, fStations.length);
+    }
+
+    public int getNumStations() {
+        return fStations.length;
+    }
+
+    public Station getStation(int aStationIndex) {
+        return fStations[aStationIndex];
+    }
+
+    /**
+     * @return the index of the station, or -1 if it is not in the domains.
+     */
+    public int getStationIndex(Station aStation) {
+        return fStationIndices.getOrDefault(aStation, -1);
+    }
+
+    public int getNumVariables() {
+        return fVariableChannels.length;
+    }
+
+    public int getVariablesStart(int aStationIndex) {
+        return fVariableOffsets[aStationIndex];
+    }
+
+    public int getVariablesEnd(int aStationIndex) {
+        return fVariableOffsets[aStationIndex + 1];
+    }
+
+    /**
+     * @return the variable of the station on the channel, or -1 if the channel is not in the station's domain.
+     */
+    public int getVariable(Station aStation, int aChannel) {
+        final int stationIndex = getStationIndex(aStation);
+        if (stationIndex < 0) {
+            return -1;
+        }
+        final int variable = Arrays.binarySearch(fVariableChannels, fVariableOffsets[stationIndex], fVariableOffsets[stationIndex + 1], aChannel);
+        return variable < 0 ? -1 : variable;
+    }
+
+    public Station getVariableStation(int aVariable) {
+        return fStations[fVariableStations[aVariable]];
+    }
+
+    public int getVariableChannel(int aVariable) {
+        return fVariableChannels[aVariable];
+    }
+
+    public int getNumEdges() {
+        return fEdgeSources.length;
+    }
+
+    public int getEdgeSource(int aEdge) {
+        return fEdgeSources[aEdge];
+    }
+
+    public int getEdgeTarget(int aEdge) {
+        return fEdgeTargets[aEdge];
+    }
+
+    public int getNeighboursStart(int aVariable) {
+        return fNeighbourOffsets[aVariable];
+    }
+
+    public int getNeighboursEnd(int aVariable) {
+        return fNeighbourOffsets[aVariable + 1];
+    }
+
+    public int getNeighbour(int aIndex) {
+        return fNeighbours[aIndex];
+    }
+
+    /**
+     * Create a boolean CPLEX variable for every variable of the index.
+     * @return the CPLEX variables, by variable index.
+     */
+    public IloIntVar[] createVariables(IloCplex aCplex) throws IloException {
+        return getNumVariables() == 0 ? new IloIntVar[0] : aCplex.boolVarArray(getNumVariables());
+    }
+
+    /**
+     * Add the constraint that no two interfering variables are both on, once per interfering pair.
+     * @param aVariables - CPLEX variables, by variable index.
+     * @return the number of constraints added.
+     */
+    public int addInterferenceConstraints(IloCplex aCplex, IloIntVar[] aVariables) throws IloException {
+        for (int e = 0; e < fEdgeSources.length; e++) {
+            aCplex.addLe(aCplex.sum(aVariables[fEdgeSources[e]], aVariables[fEdgeTargets[e]]), 1);
+        }
+        return fEdgeSources.length;
+    }
+
+}
@@ -38,6 +38,7 @@ import ca.ubc.cs.beta.stationpacking.solvers.sat.base.Literal;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder.ISATDecoder;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder.ISATEncoder;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder.SATEncoder;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder.StationChannelVariableTable;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.ISATSolver;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.base.SATSolverResult;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
@@ -51,7 +52,7 @@ import lombok.extern.slf4j.Slf4j;
 public class GenericSATBasedSolver implements ISolver {
 
     private final ISATEncoder fSATEncoder;
-    private final ISATSolver fSATSolver;
+    protected final ISATSolver fSATSolver;
 
     protected GenericSATBasedSolver(ISATSolver aSATSolver, ISATEncoder aSATEncoder) {
         fSATEncoder = aSATEncoder;
@@ -78,28 +79,41 @@ public class GenericSATBasedSolver implements ISolver {
         {
             log.debug("Solving the subproblem CNF with " + aTerminationCriterion.getRemainingTime() + " s remaining.");
             SATSolverResult satSolverResult = fSATSolver.solve(aCNF, aEncoding.getInitialAssignment(), aTerminationCriterion, aSeed);
-            // Even if the SAT solver was interrupted, this would be due to the fact that SATFC timed out. So to avoid confusion in output results, we make this change
-            if (satSolverResult.getResult().equals(SATResult.INTERRUPTED)) {
-                satSolverResult = new SATSolverResult(SATResult.TIMEOUT, satSolverResult.getRuntime(), satSolverResult.getAssignment(), satSolverResult.getSolvedBy(), satSolverResult.getNickname());
-            }
-            log.debug("Parsing result.");
-            final Map<Integer, Set<Station>> aStationAssignment;
-            if (satSolverResult.getResult().equals(SATResult.SAT)) {
-                aStationAssignment = decodeSolution(aInstance, aDecoder, satSolverResult.getAssignment());
+            return toSolverResult(aInstance, aDecoder, satSolverResult, watch);
+        }
+    }
+
+    /**
+     * Decode a SAT solver result into a station packing solver result.
+     * When the decoder is a {@link StationChannelVariableTable}, the solver's primitive model is decoded directly to a channel per station.
+     */
+    protected SolverResult toSolverResult(StationPackingInstance aInstance, ISATDecoder aDecoder, SATSolverResult aSATSolverResult, Watch aWatch) {
+        // Even if the SAT solver was interrupted, this would be due to the fact that SATFC timed out. So to avoid confusion in output results, we make this change
+        final SATResult result = aSATSolverResult.getResult().equals(SATResult.INTERRUPTED) ? SATResult.TIMEOUT : aSATSolverResult.getResult();
+        log.debug("Parsing result.");
+        final Map<Integer, Set<Station>> aStationAssignment;
+        if (result.equals(SATResult.SAT)) {
+            if (aDecoder instanceof StationChannelVariableTable) {
+                final StationChannelVariableTable variables = (StationChannelVariableTable) aDecoder;
+                aStationAssignment = variables.toAssignment(variables.decodeChannels(aSATSolverResult.getModel()));
             } else {
-                aStationAssignment = new HashMap<>();
+                aStationAssignment = decodeSolution(aInstance, aDecoder, aSATSolverResult.getAssignment());
             }
-    
-            log.debug("...done.");
-            log.debug("Cleaning up...");
-    
-            final SolverResult solverResult = new SolverResult(satSolverResult.getResult(), watch.getElapsedTime(), aStationAssignment, satSolverResult.getSolvedBy(), satSolverResult.getNickname());
+        } else {
+            aStationAssignment = new HashMap<>();
+        }
 
+        log.debug("...done.");
+        log.debug("Cleaning up...");
+
+        final SolverResult solverResult = new SolverResult(result, aWatch.getElapsedTime(), aStationAssignment, aSATSolverResult.getSolvedBy(), aSATSolverResult.getNickname());
+
+        if (log.isDebugEnabled()) {
             log.debug("Result:");
             log.debug(solverResult.toParsableString());
-
-            return solverResult;
         }
+
+        return solverResult;
     }
 
     public static Map<Integer, Set<Station>> decodeSolution(StationPackingInstance aInstance, ISATDecoder aDecoder, Set<Literal> literals) {
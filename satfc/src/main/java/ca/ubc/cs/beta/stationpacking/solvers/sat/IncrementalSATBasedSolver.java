@@ -0,0 +1,209 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.Constraint;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles.yaml.EncodingType;
+import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult.SolvedBy;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder.StationChannelVariableTable;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.incremental.IncrementalClaspSATSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental.ClaspResult;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.utils.Watch;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SAT based solver that keeps the whole constraint set loaded in an {@link IncrementalClaspSATSolver} and answers each problem with assumptions only.
+ * <p>
+ * The base CNF covers every station of the station manager over its full domain: one variable per (station, channel), one binary clause per interference constraint
+ * and (for the direct encoding) per pair of channels of a station, and for each station s a clause "selector(s) implies s is on some channel".
+ * A problem is then the assumptions that the selectors of its stations are true and that every channel outside of its domains is false.
+ * Stations that are not part of the problem are unconstrained (all their clauses are satisfied when they are off the air).
+ * </p>
+ * <p>
+ * When a problem has a previous assignment, it is first solved with the previous channels of its stations assumed as well,
+ * which is quick when the problem is the previous one plus a station; if that is UNSAT, it is solved again without them.
+ * Problems that reach outside of the station manager's domains are handed to the fallback solver.
+ * </p>
+ */
+@Slf4j
+public class IncrementalSATBasedSolver implements ISolver {
+
+    private final IncrementalClaspSATSolver fSATSolver;
+    private final ISolver fFallbackSolver;
+    private final IStationManager fStationManager;
+    private final IConstraintManager fConstraintManager;
+    private final EncodingType fEncodingType;
+    private final String fNickname;
+
+    private final StationChannelVariableTable fVariables = new StationChannelVariableTable();
+    // Selector variable of the station at index s is fSelectorOffset + s
+    private int fSelectorOffset;
+    private int[] fAssumptions = new int[0];
+
+    public IncrementalSATBasedSolver(IncrementalClaspSATSolver aSATSolver, ISolver aFallbackSolver, IStationManager aStationManager, IConstraintManager aConstraintManager, EncodingType aEncodingType, String aNickname) {
+        fSATSolver = aSATSolver;
+        fFallbackSolver = aFallbackSolver;
+        fStationManager = aStationManager;
+        fConstraintManager = aConstraintManager;
+        fEncodingType = aEncodingType;
+        fNickname = aNickname;
+    }
+
+    @Override
+    public SolverResult solve(StationPackingInstance aInstance, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        final Watch watch = Watch.constructAutoStartWatch();
+        if (!fSATSolver.isLoaded()) {
+            load(aSeed);
+        }
+
+        // Assumptions: domains first, then previous channels
+        final Map<Station, Set<Integer>> domains = aInstance.getDomains();
+        int numAssumptions = 0;
+        ensureAssumptionCapacity(fSelectorOffset + 2 * domains.size());
+        for (Map.Entry<Station, Set<Integer>> entry : domains.entrySet()) {
+            final int stationIndex = fVariables.indexOf(entry.getKey());
+            if (stationIndex < 0) {
+                log.debug("Station {} is not in the loaded problem, using fallback solver.", entry.getKey());
+                return fFallbackSolver.solve(aInstance, aTerminationCriterion, aSeed);
+            }
+            final Set<Integer> domain = entry.getValue();
+            int channelsInDomain = 0;
+            fAssumptions[numAssumptions++] = fSelectorOffset + stationIndex;
+            for (int variable = fVariables.getFirstVariable(stationIndex); variable < fVariables.getLastVariable(stationIndex); variable++) {
+                if (domain.contains(fVariables.getChannel(variable))) {
+                    channelsInDomain++;
+                } else {
+                    fAssumptions[numAssumptions++] = -variable;
+                }
+            }
+            if (channelsInDomain != domain.size()) {
+                log.debug("Domain of station {} is not in the loaded problem, using fallback solver.", entry.getKey());
+                return fFallbackSolver.solve(aInstance, aTerminationCriterion, aSeed);
+            }
+        }
+        final int numDomainAssumptions = numAssumptions;
+        for (Map.Entry<Station, Integer> entry : aInstance.getPreviousAssignment().entrySet()) {
+            if (domains.containsKey(entry.getKey())) {
+                final int variable = fVariables.findVariable(fVariables.indexOf(entry.getKey()), entry.getValue());
+                if (variable > 0 && domains.get(entry.getKey()).contains(entry.getValue())) {
+                    fAssumptions[numAssumptions++] = variable;
+                }
+            }
+        }
+
+        ClaspResult claspResult = fSATSolver.solve(fAssumptions, numAssumptions, aTerminationCriterion);
+        if (claspResult.getSATResult().equals(SATResult.UNSAT) && numAssumptions > numDomainAssumptions) {
+            log.debug("Previous assignment cannot be extended, solving without it.");
+            claspResult = fSATSolver.solve(fAssumptions, numDomainAssumptions, aTerminationCriterion);
+        }
+
+        // Even if the SAT solver was interrupted, this would be due to the fact that SATFC timed out.
+        final SATResult result = claspResult.getSATResult().equals(SATResult.INTERRUPTED) ? SATResult.TIMEOUT : claspResult.getSATResult();
+        final Map<Integer, Set<Station>> assignment = result.equals(SATResult.SAT) ? decode(domains, claspResult.getAssignment()) : new HashMap<>();
+        return new SolverResult(result, watch.getElapsedTime(), assignment, SolvedBy.CLASP, fNickname);
+    }
+
+    /**
+     * Encode the whole constraint set and load it in clasp.
+     */
+    private void load(long aSeed) {
+        final Watch watch = Watch.constructAutoStartWatch();
+        final Map<Station, Set<Integer>> domains = new HashMap<>();
+        for (Station station : fStationManager.getStations()) {
+            domains.put(station, fStationManager.getDomain(station));
+        }
+        fVariables.index(domains);
+        fSelectorOffset = fVariables.getNumVariables() + 1;
+
+        final IntCNF cnf = new IntCNF();
+        for (int stationIndex = 0; stationIndex < fVariables.getNumStations(); stationIndex++) {
+            final int first = fVariables.getFirstVariable(stationIndex);
+            final int last = fVariables.getLastVariable(stationIndex);
+            cnf.addLiteral(-(fSelectorOffset + stationIndex));
+            for (int variable = first; variable < last; variable++) {
+                cnf.addLiteral(variable);
+            }
+            cnf.endClause();
+            if (fEncodingType.equals(EncodingType.DIRECT)) {
+                for (int i = first; i < last; i++) {
+                    for (int j = i + 1; j < last; j++) {
+                        cnf.addClause(-i, -j);
+                    }
+                }
+            }
+        }
+        for (Constraint constraint : fConstraintManager.getAllRelevantConstraints(domains)) {
+            cnf.addClause(-fVariables.variableOf(constraint.getSource(), constraint.getSourceChannel()), -fVariables.variableOf(constraint.getTarget(), constraint.getTargetChannel()));
+        }
+        log.info("Encoded incremental base problem with {} clauses in {} s.", cnf.size(), watch.getElapsedTime());
+        fSATSolver.load(cnf, aSeed);
+    }
+
+    private Map<Integer, Set<Station>> decode(Map<Station, Set<Integer>> aDomains, int[] aModel) {
+        final Map<Integer, Set<Station>> assignment = new HashMap<>();
+        for (Station station : aDomains.keySet()) {
+            final int stationIndex = fVariables.indexOf(station);
+            for (int variable = fVariables.getFirstVariable(stationIndex); variable < fVariables.getLastVariable(stationIndex); variable++) {
+                // Entry i of the model is the literal of variable i
+                if (variable < aModel[0] && aModel[variable] > 0) {
+                    assignment.computeIfAbsent(fVariables.getChannel(variable), k -> new HashSet<>()).add(station);
+                    break;
+                }
+            }
+        }
+        return assignment;
+    }
+
+    private void ensureAssumptionCapacity(int aCapacity) {
+        if (fAssumptions.length < aCapacity) {
+            fAssumptions = Arrays.copyOf(fAssumptions, aCapacity);
+        }
+    }
+
+    @Override
+    public void interrupt() {
+        fSATSolver.interrupt();
+        fFallbackSolver.interrupt();
+    }
+
+    @Override
+    public void notifyShutdown() {
+        fSATSolver.notifyShutdown();
+        fFallbackSolver.notifyShutdown();
+    }
+
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat;
+
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder.StreamingSATEncoder;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.AbstractCompressedSATSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.base.SATSolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.utils.Watch;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SAT based feasibility checking solver that streams the encoding of a problem into a reusable packed int buffer
+ * and hands it to the SAT solver without ever building an object based CNF.
+ */
+@Slf4j
+public class StreamingSATBasedSolver extends GenericSATBasedSolver {
+
+    private final StreamingSATEncoder fStreamingSATEncoder;
+
+    public StreamingSATBasedSolver(AbstractCompressedSATSolver aSATSolver, StreamingSATEncoder aSATEncoder) {
+        super(aSATSolver, aSATEncoder);
+        fStreamingSATEncoder = aSATEncoder;
+    }
+
+    @Override
+    public SolverResult solve(StationPackingInstance aInstance, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        final Watch watch = Watch.constructAutoStartWatch();
+        log.debug("Solving instance of {}...", aInstance.getInfo());
+
+        log.debug("Streaming subproblem CNF...");
+        final StreamingSATEncoder.IntCNFEncodedProblem encoding = fStreamingSATEncoder.encodeToBuffer(aInstance);
+        if (aTerminationCriterion.hasToStop()) {
+            log.debug("All time spent.");
+            return SolverResult.createTimeoutResult(watch.getElapsedTime());
+        }
+        log.debug("Solving the subproblem CNF with {} s remaining.", aTerminationCriterion.getRemainingTime());
+        final SATSolverResult satSolverResult = fSATSolver.solve(encoding.getCnf(), encoding.getInitialAssignment(), aTerminationCriterion, aSeed);
+        return toSolverResult(aInstance, encoding.getDecoder(), satSolverResult, watch);
+    }
+
+}
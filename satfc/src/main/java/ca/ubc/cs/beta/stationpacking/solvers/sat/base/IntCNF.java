@@ -0,0 +1,222 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.base;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A CNF stored as packed DIMACS int literals in a growable primitive buffer: every clause is its literals followed by a 0.
+ * <p>
+ * Unlike {@link CNF}, no object is created per clause or per literal, and the buffer (as well as the DIMACS bytes produced from it)
+ * is kept across {@link #clear()} calls so that a single instance can be reused for many problems. Not thread safe.
+ * </p>
+ */
+public class IntCNF {
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    private int[] fLiterals = new int[INITIAL_CAPACITY];
+    private int fSize = 0;
+    private int fNumClauses = 0;
+    private int fNumVariables = 0;
+    private int fClauseStart = 0;
+
+    private byte[] fDIMACS = new byte[INITIAL_CAPACITY];
+    private int fDIMACSLength = -1;
+
+    /**
+     * Empty the CNF, keeping the allocated buffers.
+     */
+    public void clear() {
+        fSize = 0;
+        fNumClauses = 0;
+        fNumVariables = 0;
+        fClauseStart = 0;
+        fDIMACSLength = -1;
+    }
+
+    /**
+     * Add a literal to the clause currently being built.
+     * @param aLiteral - a non zero DIMACS literal (the sign is the literal's sign, the magnitude its variable).
+     */
+    public void addLiteral(int aLiteral) {
+        if (aLiteral == 0) {
+            throw new IllegalArgumentException("Cannot add a literal with variable value 0 to a CNF.");
+        }
+        ensureCapacity(fSize + 1);
+        fLiterals[fSize++] = aLiteral;
+        fDIMACSLength = -1;
+        fNumVariables = Math.max(fNumVariables, Math.abs(aLiteral));
+    }
+
+    /**
+     * Terminate the clause currently being built.
+     */
+    public void endClause() {
+        if (fSize == fClauseStart) {
+            throw new IllegalStateException("Cannot end an empty clause.");
+        }
+        ensureCapacity(fSize + 1);
+        fLiterals[fSize++] = 0;
+        fClauseStart = fSize;
+        fNumClauses++;
+        fDIMACSLength = -1;
+    }
+
+    /**
+     * Add the binary clause (aLiteral1 v aLiteral2).
+     */
+    public void addClause(int aLiteral1, int aLiteral2) {
+        addLiteral(aLiteral1);
+        addLiteral(aLiteral2);
+        endClause();
+    }
+
+    /**
+     * Add all the clauses of an object based CNF.
+     */
+    public void addAll(CNF aCNF) {
+        for (Clause clause : aCNF.clauses) {
+            for (Literal literal : clause.getLiterals()) {
+                addLiteral(Math.toIntExact(literal.getSign() ? literal.getVariable() : -literal.getVariable()));
+            }
+            endClause();
+        }
+    }
+
+    /**
+     * @return the number of clauses in the CNF.
+     */
+    public int size() {
+        return fNumClauses;
+    }
+
+    /**
+     * @return the largest variable appearing in the CNF.
+     */
+    public int getNumVariables() {
+        return fNumVariables;
+    }
+
+    /**
+     * @return the number of ints of the packed literal buffer that are in use (literals and clause terminators).
+     */
+    public int getPackedLength() {
+        return fSize;
+    }
+
+    /**
+     * @return the packed literal buffer itself; only the first {@link #getPackedLength()} entries are meaningful, and it is overwritten upon reuse.
+     */
+    public int[] getPackedLiterals() {
+        return fLiterals;
+    }
+
+    /**
+     * Builds the DIMACS representation of the CNF as a null terminated ASCII byte array, ready to be handed to a native solver.
+     * The array is owned by this CNF and overwritten upon reuse; clauses are written in the order they were added.
+     *
+     * @return the (reused) DIMACS byte buffer.
+     */
+    public byte[] toDIMACS() {
+        if (fDIMACSLength >= 0) {
+            return fDIMACS;
+        }
+        Preconditions.checkState(fSize == fClauseStart, "Cannot write a CNF whose last clause was not ended.");
+        final byte[] header = ("p cnf " + fNumVariables + " " + fNumClauses + "\n").getBytes(StandardCharsets.US_ASCII);
+        // Each int takes at most 11 characters plus a separator, and we need one more byte for the null terminator.
+        ensureDIMACSCapacity(header.length + fSize * 12 + 1);
+        System.arraycopy(header, 0, fDIMACS, 0, header.length);
+        int position = header.length;
+        for (int i = 0; i < fSize; i++) {
+            final int literal = fLiterals[i];
+            position = writeInt(literal, position);
+            fDIMACS[position++] = literal == 0 ? (byte) '\n' : (byte) ' ';
+        }
+        fDIMACS[position] = 0;
+        fDIMACSLength = position;
+        return fDIMACS;
+    }
+
+    /**
+     * @return the DIMACS string representation of the CNF (mostly for debugging and saving, solvers should prefer {@link #toDIMACS()}).
+     */
+    public String toDIMACSString() {
+        final byte[] dimacs = toDIMACS();
+        return new String(dimacs, 0, fDIMACSLength, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return an object based {@link CNF} copy of this CNF.
+     */
+    public CNF toCNF() {
+        final CNF cnf = new CNF();
+        Clause clause = new Clause();
+        for (int i = 0; i < fSize; i++) {
+            final int literal = fLiterals[i];
+            if (literal == 0) {
+                cnf.add(clause);
+                clause = new Clause();
+            } else {
+                clause.add(new Literal(Math.abs(literal), literal > 0));
+            }
+        }
+        return cnf;
+    }
+
+    private int writeInt(int aValue, int aPosition) {
+        int position = aPosition;
+        long value = aValue;
+        if (value < 0) {
+            fDIMACS[position++] = '-';
+            value = -value;
+        }
+        final int start = position;
+        do {
+            fDIMACS[position++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        // Digits were written least significant first
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            final byte tmp = fDIMACS[i];
+            fDIMACS[i] = fDIMACS[j];
+            fDIMACS[j] = tmp;
+        }
+        return position;
+    }
+
+    private void ensureCapacity(int aCapacity) {
+        if (aCapacity > fLiterals.length) {
+            fLiterals = Arrays.copyOf(fLiterals, Math.max(aCapacity, fLiterals.length * 2));
+        }
+    }
+
+    private void ensureDIMACSCapacity(int aCapacity) {
+        if (aCapacity > fDIMACS.length) {
+            fDIMACS = new byte[Math.max(aCapacity, fDIMACS.length * 2)];
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.math3.util.Pair;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+
+/**
+ * Dense numbering of (station, channel) SAT variables from 1 to n, stored in primitive arrays.
+ * <p>
+ * Stations are sorted by ID; the variables of the station at index s are {@link #getFirstVariable(int)} to {@link #getLastVariable(int)} (exclusive),
+ * one per domain channel in increasing channel order. The table is rebuilt in place by {@link #index(Map)} so that it can be reused across problems.
+ * </p>
+ */
+public class StationChannelVariableTable implements ISATDecoder {
+
+    /**
+     * Channel of a station that no variable of the model puts on a channel, see {@link #decodeChannels(int[])}.
+     */
+    public static final int NO_CHANNEL = -1;
+
+    private Station[] fStations = new Station[0];
+    private int[] fStationIDs = new int[0];
+    private int fNumStations = 0;
+    private int[] fFirstVariable = new int[1];
+    // Indexed by variable, entry 0 is unused
+    private int[] fVariableStation = new int[1];
+    private int[] fVariableChannel = new int[1];
+    private int fNumVariables = 0;
+
+    /**
+     * (Re)build the table for the given domains.
+     */
+    public void index(Map<Station, Set<Integer>> aDomains) {
+        fNumStations = aDomains.size();
+        if (fStations.length < fNumStations) {
+            fStations = new Station[fNumStations];
+            fStationIDs = new int[fNumStations];
+            fFirstVariable = new int[fNumStations + 1];
+        }
+        int numVariables = 0;
+        int s = 0;
+        for (Map.Entry<Station, Set<Integer>> entry : aDomains.entrySet()) {
+            fStations[s++] = entry.getKey();
+            numVariables += entry.getValue().size();
+        }
+        Arrays.fill(fStations, fNumStations, fStations.length, null);
+        Arrays.sort(fStations, 0, fNumStations);
+        if (fVariableChannel.length < numVariables + 1) {
+            fVariableStation = new int[numVariables + 1];
+            fVariableChannel = new int[numVariables + 1];
+        }
+
+        int variable = 1;
+        for (int stationIndex = 0; stationIndex < fNumStations; stationIndex++) {
+            final Station station = fStations[stationIndex];
+            fStationIDs[stationIndex] = station.getID();
+            fFirstVariable[stationIndex] = variable;
+            for (Integer channel : aDomains.get(station)) {
+                fVariableStation[variable] = stationIndex;
+                fVariableChannel[variable] = channel;
+                variable++;
+            }
+            Arrays.sort(fVariableChannel, fFirstVariable[stationIndex], variable);
+        }
+        fFirstVariable[fNumStations] = variable;
+        fNumVariables = numVariables;
+    }
+
+    public int getNumStations() {
+        return fNumStations;
+    }
+
+    public int getNumVariables() {
+        return fNumVariables;
+    }
+
+    public Station getStation(int aStationIndex) {
+        return fStations[aStationIndex];
+    }
+
+    /**
+     * @return the index of the given station, or a negative number if it is not in the table.
+     */
+    public int indexOf(Station aStation) {
+        return Arrays.binarySearch(fStationIDs, 0, fNumStations, aStation.getID());
+    }
+
+    public int getFirstVariable(int aStationIndex) {
+        return fFirstVariable[aStationIndex];
+    }
+
+    public int getLastVariable(int aStationIndex) {
+        return fFirstVariable[aStationIndex + 1];
+    }
+
+    public int getChannel(int aVariable) {
+        return fVariableChannel[aVariable];
+    }
+
+    public int getStationIndex(int aVariable) {
+        return fVariableStation[aVariable];
+    }
+
+    /**
+     * @return the variable of the station at the given index on the given channel, or a negative number if the channel is not in its domain.
+     */
+    public int findVariable(int aStationIndex, int aChannel) {
+        return Arrays.binarySearch(fVariableChannel, fFirstVariable[aStationIndex], fFirstVariable[aStationIndex + 1], aChannel);
+    }
+
+    /**
+     * @return the variable of the given station on the given channel.
+     * @throws IllegalArgumentException if the station and channel are not in the table.
+     */
+    public int variableOf(Station aStation, int aChannel) {
+        final int stationIndex = indexOf(aStation);
+        if (stationIndex >= 0) {
+            final int variable = findVariable(stationIndex, aChannel);
+            if (variable >= 0) {
+                return variable;
+            }
+        }
+        throw new IllegalArgumentException("Station " + aStation + " on channel " + aChannel + " is not part of the encoded instance.");
+    }
+
+    @Override
+    public Pair<Station, Integer> decode(long aVariable) {
+        if (aVariable <= 0 || aVariable > fNumVariables) {
+            throw new IllegalArgumentException("Variable " + aVariable + " is not part of the encoded instance.");
+        }
+        final int variable = (int) aVariable;
+        return new Pair<>(fStations[fVariableStation[variable]], fVariableChannel[variable]);
+    }
+
+    /**
+     * Decode a SAT model straight to the channel of every station, without going through literal or pair objects.
+     * A station with several true variables keeps the first one.
+     *
+     * @param aModel - model in clasp's layout: entry 0 is one past the last entry, every other entry is a literal.
+     * @return the channel of each station, by station index, or {@link #NO_CHANNEL}.
+     */
+    public int[] decodeChannels(int[] aModel) {
+        final int[] channels = new int[fNumStations];
+        Arrays.fill(channels, NO_CHANNEL);
+        for (int i = 1; i < aModel[0]; i++) {
+            final int literal = aModel[i];
+            if (literal > 0) {
+                if (literal > fNumVariables) {
+                    throw new IllegalArgumentException("Variable " + literal + " is not part of the encoded instance.");
+                }
+                final int stationIndex = fVariableStation[literal];
+                if (channels[stationIndex] == NO_CHANNEL) {
+                    channels[stationIndex] = fVariableChannel[literal];
+                }
+            }
+        }
+        return channels;
+    }
+
+    /**
+     * @param aChannels - the channel of each station, by station index (see {@link #decodeChannels(int[])}).
+     * @return the corresponding channel to stations assignment.
+     */
+    public Map<Integer, Set<Station>> toAssignment(int[] aChannels) {
+        final Map<Integer, Set<Station>> assignment = new HashMap<>();
+        for (int stationIndex = 0; stationIndex < fNumStations; stationIndex++) {
+            if (aChannels[stationIndex] != NO_CHANNEL) {
+                assignment.computeIfAbsent(aChannels[stationIndex], channel -> new HashSet<>()).add(fStations[stationIndex]);
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * @return a copy of the table that stays valid once this one is reused.
+     */
+    public StationChannelVariableTable copy() {
+        final StationChannelVariableTable copy = new StationChannelVariableTable();
+        copy.fNumStations = fNumStations;
+        copy.fStations = Arrays.copyOf(fStations, fNumStations);
+        copy.fStationIDs = Arrays.copyOf(fStationIDs, fNumStations);
+        copy.fFirstVariable = Arrays.copyOf(fFirstVariable, fNumStations + 1);
+        copy.fNumVariables = fNumVariables;
+        copy.fVariableStation = Arrays.copyOf(fVariableStation, fNumVariables + 1);
+        copy.fVariableChannel = Arrays.copyOf(fVariableChannel, fNumVariables + 1);
+        return copy;
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.math3.util.Pair;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.Constraint;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles.yaml.EncodingType;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.CNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Encodes a problem instance as a propositional satisfiability problem, writing clauses as packed int literals into a reusable {@link IntCNF}.
+ * <p>
+ * The encoding is the same as the one of {@link SATCompressor} (contiguous variables from 1 to n, base clauses and one binary clause per interference constraint),
+ * but variables are numbered directly from a table of the instance's stations (sorted by ID) and their sorted domains instead of going through
+ * a pairing function and a bijection (see {@link StationChannelVariableTable}), and no clause or literal object is ever created. The variable table doubles as the decoder.
+ * </p>
+ * <p>
+ * The buffers are reused from one problem to the next, so an encoded problem is only valid until the next call to {@link #encodeToBuffer(StationPackingInstance)}. Not thread safe.
+ * </p>
+ */
+@Slf4j
+public class StreamingSATEncoder implements ISATEncoder {
+
+    private final IConstraintManager fConstraintManager;
+    private final EncodingType fEncodingType;
+
+    private final IntCNF fCNF = new IntCNF();
+    private final StationChannelVariableTable fVariables = new StationChannelVariableTable();
+
+    public StreamingSATEncoder(IConstraintManager aConstraintManager, EncodingType aEncodingType) {
+        fConstraintManager = aConstraintManager;
+        fEncodingType = aEncodingType;
+    }
+
+    /**
+     * Encode the given instance into this encoder's reusable buffer.
+     * @param aInstance - an instance to encode as a SAT problem.
+     * @return the encoded problem, valid until the next call to this method.
+     */
+    public IntCNFEncodedProblem encodeToBuffer(StationPackingInstance aInstance) {
+        final Map<Station, Set<Integer>> domains = aInstance.getDomains();
+        fVariables.index(domains);
+        fCNF.clear();
+
+        encodeBaseClauses();
+        for (Constraint constraint : fConstraintManager.getAllRelevantConstraints(domains)) {
+            final int sourceVariable = fVariables.variableOf(constraint.getSource(), constraint.getSourceChannel());
+            final int targetVariable = fVariables.variableOf(constraint.getTarget(), constraint.getTargetChannel());
+            fCNF.addClause(-sourceVariable, -targetVariable);
+        }
+        log.debug("Streamed {} clauses over {} variables.", fCNF.size(), fCNF.getNumVariables());
+
+        return new IntCNFEncodedProblem(fCNF, fVariables, encodeInitialAssignment(aInstance));
+    }
+
+    /**
+     * Each station must be on at least one channel of its domain, and (for the direct encoding) on at most one.
+     */
+    private void encodeBaseClauses() {
+        for (int stationIndex = 0; stationIndex < fVariables.getNumStations(); stationIndex++) {
+            final int first = fVariables.getFirstVariable(stationIndex);
+            final int last = fVariables.getLastVariable(stationIndex);
+            for (int variable = first; variable < last; variable++) {
+                fCNF.addLiteral(variable);
+            }
+            fCNF.endClause();
+            if (fEncodingType.equals(EncodingType.DIRECT)) {
+                for (int i = first; i < last; i++) {
+                    for (int j = i + 1; j < last; j++) {
+                        fCNF.addClause(-i, -j);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Starting values of the variables based on the previous assignment, see {@link SATEncoder#encodeWithAssignment(StationPackingInstance)}.
+     * Each entry is a variable, negated if it should start as false.
+     */
+    private long[] encodeInitialAssignment(StationPackingInstance aInstance) {
+        final Map<Station, Integer> previousAssignment = aInstance.getPreviousAssignment();
+        if (previousAssignment.isEmpty()) {
+            return new long[0];
+        }
+        int size = 0;
+        final long[] initialAssignment = new long[fVariables.getNumVariables()];
+        for (int stationIndex = 0; stationIndex < fVariables.getNumStations(); stationIndex++) {
+            final Integer previousChannel = previousAssignment.get(fVariables.getStation(stationIndex));
+            if (previousChannel != null) {
+                for (int variable = fVariables.getFirstVariable(stationIndex); variable < fVariables.getLastVariable(stationIndex); variable++) {
+                    initialAssignment[size++] = fVariables.getChannel(variable) == previousChannel ? variable : -variable;
+                }
+            }
+        }
+        return Arrays.copyOf(initialAssignment, size);
+    }
+
+    @Override
+    public Pair<CNF, ISATDecoder> encode(StationPackingInstance aInstance) {
+        final IntCNFEncodedProblem encodedProblem = encodeToBuffer(aInstance);
+        return new Pair<>(encodedProblem.getCnf().toCNF(), fVariables.copy());
+    }
+
+    @Override
+    public SATEncoder.CNFEncodedProblem encodeWithAssignment(StationPackingInstance aInstance) {
+        final IntCNFEncodedProblem encodedProblem = encodeToBuffer(aInstance);
+        final Map<Long, Boolean> initialAssignment = new LinkedHashMap<>();
+        for (long literal : encodedProblem.getInitialAssignment()) {
+            initialAssignment.put(Math.abs(literal), literal > 0);
+        }
+        return new SATEncoder.CNFEncodedProblem(encodedProblem.getCnf().toCNF(), fVariables.copy(), initialAssignment);
+    }
+
+    @Data
+    public static class IntCNFEncodedProblem {
+        private final IntCNF cnf;
+        private final ISATDecoder decoder;
+        /**
+         * Starting values of (some of) the variables, each entry being a variable, negated if it starts as false.
+         */
+        private final long[] initialAssignment;
+    }
+
+}
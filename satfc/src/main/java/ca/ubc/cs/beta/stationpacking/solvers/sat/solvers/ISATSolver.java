@@ -21,10 +21,12 @@
  */
 package ca.ubc.cs.beta.stationpacking.solvers.sat.solvers;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.ISATFCInterruptible;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.base.CNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.base.SATSolverResult;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 
@@ -45,6 +47,22 @@ public interface ISATSolver extends ISATFCInterruptible {
 		return solve(aCNF, aTerminationCriterion, aSeed);
 	}
 
+	/**
+	 * Solve a CNF given as packed int literals. Solvers that can consume the packed representation directly should override this,
+	 * the default falls back on an object based {@link CNF}.
+	 * @param aCNF - a CNF to solve.
+	 * @param aPreviousAssignment - starting values of some variables, each entry being a variable, negated if it should start as false.
+	 * @param aTerminationCriterion - the criterion dictating when to stop execution of solver.
+	 * @param aSeed - the seed for the execution.
+	 */
+	default SATSolverResult solve(IntCNF aCNF, long[] aPreviousAssignment, ITerminationCriterion aTerminationCriterion, long aSeed) {
+		final Map<Long, Boolean> previousAssignment = new LinkedHashMap<>();
+		for (long literal : aPreviousAssignment) {
+			previousAssignment.put(Math.abs(literal), literal > 0);
+		}
+		return solve(aCNF.toCNF(), previousAssignment, aTerminationCriterion, aSeed);
+	}
+
 	void notifyShutdown();
 	
 	default void interrupt() {};
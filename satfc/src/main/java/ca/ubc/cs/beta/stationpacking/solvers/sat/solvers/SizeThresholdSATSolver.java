@@ -0,0 +1,93 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.solvers;
+
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.CNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.base.SATSolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Routes CNFs with at most a given number of variables to a solver for small problems (e.g. {@link ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental.CDCLSATSolver}),
+ * and larger ones to another solver (e.g. clasp). Not thread safe.
+ */
+@Slf4j
+public class SizeThresholdSATSolver extends AbstractCompressedSATSolver {
+
+    private final ISATSolver fSmallSolver;
+    private final ISATSolver fLargeSolver;
+    private final int fMaxSmallVariables;
+    // Solver of the problem in progress, for interrupts
+    private volatile ISATSolver fCurrentSolver;
+
+    /**
+     * @param aMaxSmallVariables - largest number of variables of a CNF solved by the small solver.
+     */
+    public SizeThresholdSATSolver(ISATSolver aSmallSolver, ISATSolver aLargeSolver, int aMaxSmallVariables) {
+        Preconditions.checkArgument(aMaxSmallVariables >= 0, "Variable threshold must be non negative (was %s)", aMaxSmallVariables);
+        fSmallSolver = aSmallSolver;
+        fLargeSolver = aLargeSolver;
+        fMaxSmallVariables = aMaxSmallVariables;
+    }
+
+    @Override
+    public SATSolverResult solve(CNF aCNF, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        return select(aCNF.getVariables().size()).solve(aCNF, aTerminationCriterion, aSeed);
+    }
+
+    @Override
+    public SATSolverResult solve(CNF aCNF, Map<Long, Boolean> aPreviousAssignment, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        return select(aCNF.getVariables().size()).solve(aCNF, aPreviousAssignment, aTerminationCriterion, aSeed);
+    }
+
+    @Override
+    public SATSolverResult solve(IntCNF aCNF, long[] aPreviousAssignment, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        return select(aCNF.getNumVariables()).solve(aCNF, aPreviousAssignment, aTerminationCriterion, aSeed);
+    }
+
+    private ISATSolver select(int aNumVariables) {
+        final boolean small = aNumVariables <= fMaxSmallVariables;
+        log.trace("CNF has {} variables, solving it with the {} problem solver", aNumVariables, small ? "small" : "large");
+        fCurrentSolver = small ? fSmallSolver : fLargeSolver;
+        return fCurrentSolver;
+    }
+
+    @Override
+    public void notifyShutdown() {
+        fSmallSolver.notifyShutdown();
+        fLargeSolver.notifyShutdown();
+    }
+
+    @Override
+    public void interrupt() {
+        final ISATSolver currentSolver = fCurrentSolver;
+        if (currentSolver != null) {
+            currentSolver.interrupt();
+        }
+    }
+
+}
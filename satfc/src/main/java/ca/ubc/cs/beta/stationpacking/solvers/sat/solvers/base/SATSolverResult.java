@@ -37,7 +37,10 @@ public class SATSolverResult implements Serializable {
 
 	private final SATResult fResult;
 	private final double fRuntime;
-	private final ImmutableSet<Literal> fAssignment;
+	// Model in clasp's layout: entry 0 is one past the last entry, every other entry is a literal. Null if the result was built from literals.
+	private final int[] fModel;
+	// Built lazily from the model
+	private volatile ImmutableSet<Literal> fAssignment;
     @Getter
     private final SolverResult.SolvedBy solvedBy;
 	@Getter
@@ -53,9 +56,24 @@ public class SATSolverResult implements Serializable {
 		this.nickname = nickname;
 		fResult = aResult;
 		fRuntime = aRuntime;
+		fModel = null;
 		fAssignment = ImmutableSet.copyOf(aAssignment);
         this.solvedBy = aResult.isConclusive() ? solvedBy : SolvedBy.UNSOLVED;
 	}
+
+	/**
+	 * @param aModel - model in clasp's layout (entry 0 is one past the last entry, every other entry is a literal), kept as is.
+	 */
+	public SATSolverResult(SATResult aResult, double aRuntime, int[] aModel, SolverResult.SolvedBy solvedBy, String nickname)
+	{
+		Preconditions.checkArgument(aRuntime >= 0, "Cannot create a " + getClass().getSimpleName() + " with negative runtime: " + aRuntime);
+		Preconditions.checkArgument(aModel.length > 0 && aModel[0] <= aModel.length, "Malformed model, its length entry is %s for an array of length %s", aModel.length > 0 ? aModel[0] : null, aModel.length);
+		this.nickname = nickname;
+		fResult = aResult;
+		fRuntime = aRuntime;
+		fModel = aModel;
+		this.solvedBy = aResult.isConclusive() ? solvedBy : SolvedBy.UNSOLVED;
+	}
 	
 	public SATResult getResult(){
 		return fResult;
@@ -67,13 +85,37 @@ public class SATSolverResult implements Serializable {
 	}
 	
 	public ImmutableSet<Literal> getAssignment() {
+		if (fAssignment == null) {
+			final ImmutableSet.Builder<Literal> builder = ImmutableSet.builder();
+			for (int i = 1; i < fModel[0]; i++) {
+				builder.add(new Literal(Math.abs(fModel[i]), fModel[i] > 0));
+			}
+			fAssignment = builder.build();
+		}
 		return fAssignment;
 	}
+
+	/**
+	 * @return the assignment as a model in clasp's layout: entry 0 is one past the last entry, every other entry is a literal.
+	 */
+	public int[] getModel() {
+		if (fModel != null) {
+			return fModel;
+		}
+		final int[] model = new int[fAssignment.size() + 1];
+		model[0] = model.length;
+		int i = 1;
+		for (Literal literal : fAssignment) {
+			final int variable = Math.toIntExact(literal.getVariable());
+			model[i++] = literal.getSign() ? variable : -variable;
+		}
+		return model;
+	}
 	
 	@Override
 	public String toString()
 	{
-		return fResult+","+fRuntime+","+fAssignment;
+		return fResult+","+fRuntime+","+getAssignment();
 	}
 
     public static SATSolverResult timeout(double time) {
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.incremental;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.google.common.base.Preconditions;
+import com.sun.jna.Pointer;
+
+import ca.ubc.cs.beta.stationpacking.polling.IPollingService;
+import ca.ubc.cs.beta.stationpacking.polling.ProblemIncrementor;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult.SolvedBy;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.CNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.AbstractCompressedSATSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.base.SATSolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.jnalibraries.Clasp3Library;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental.Clasp3SATSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental.ClaspResult;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.utils.Watch;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Clasp SAT solver that keeps a problem loaded across calls. A base CNF is loaded once with {@link #load(IntCNF, long)}, and then
+ * solved as many times as needed under different assumptions with {@link #solve(int[], int, ITerminationCriterion)}: clasp keeps
+ * its learnt clauses and heuristic state from one call to the next, and nothing is encoded or parsed per call.
+ * <p>
+ * An interrupted or timed out solve leaves clasp unable to continue the session, so the session is then closed and must be reloaded.
+ * NOT THREAD SAFE!
+ * </p>
+ */
+@Slf4j
+public class IncrementalClaspSATSolver extends AbstractCompressedSATSolver {
+
+    private final Clasp3Library fClaspLibrary;
+    private final String fParameters;
+    private final int fSeedOffset;
+    private final String nickname;
+    private final ProblemIncrementor problemIncrementor;
+    private final Lock lock = new ReentrantLock();
+    // boolean represents whether or not a solve is in progress, so that it is safe to do an interrupt
+    private final AtomicBoolean isCurrentlySolving = new AtomicBoolean(false);
+    private Pointer fSession;
+
+    public IncrementalClaspSATSolver(Clasp3Library library, String parameters, int seedOffset, IPollingService pollingService, String nickname) {
+        this.nickname = nickname;
+        fClaspLibrary = library;
+        fParameters = parameters;
+        fSeedOffset = seedOffset;
+        if (parameters.contains("--seed")) {
+            throw new IllegalArgumentException("The parameter string cannot contain a seed as it is given upon loading a problem!");
+        }
+        // make sure the configuration is valid
+        final Pointer jnaProblem = fClaspLibrary.initConfig(fParameters + " --seed=1");
+        try {
+            if (fClaspLibrary.getConfigState(jnaProblem) == 2) {
+                throw new IllegalArgumentException(fClaspLibrary.getConfigErrorMessage(jnaProblem));
+            }
+        } finally {
+            fClaspLibrary.destroyProblem(jnaProblem);
+        }
+        problemIncrementor = new ProblemIncrementor(pollingService, this);
+    }
+
+    /**
+     * @return whether a problem is currently loaded.
+     */
+    public boolean isLoaded() {
+        return fSession != null;
+    }
+
+    /**
+     * Load a new base problem, replacing the loaded one if any.
+     * @param aCNF - the base CNF.
+     * @param aSeed - the seed for the whole session.
+     */
+    public void load(IntCNF aCNF, long aSeed) {
+        close();
+        final Watch watch = Watch.constructAutoStartWatch();
+        final int seed = Math.abs(new Random(aSeed + fSeedOffset).nextInt());
+        final Pointer session = fClaspLibrary.initConfig(fParameters + " --seed=" + seed);
+        if (!fClaspLibrary.initIncrementalProblem(session, aCNF.toDIMACS())) {
+            log.warn("Incremental clasp base problem is unsatisfiable.");
+        }
+        fSession = session;
+        log.debug("Loaded {} clauses over {} variables in clasp in {} s.", aCNF.size(), aCNF.getNumVariables(), watch.getElapsedTime());
+    }
+
+    /**
+     * Solve the loaded problem under the given assumptions.
+     * @param aAssumptions - DIMACS literals assumed to be true.
+     * @param aNumAssumptions - number of assumptions to read from the array.
+     * @param aTerminationCriterion - the criterion dictating when to stop execution of solver.
+     * @return clasp's result, with the raw model if SAT (first entry is the size, then one literal per variable).
+     */
+    public ClaspResult solve(int[] aAssumptions, int aNumAssumptions, ITerminationCriterion aTerminationCriterion) {
+        Preconditions.checkState(isLoaded(), "Went to solve an incremental problem, but no problem is loaded!");
+        final Watch watch = Watch.constructAutoStartWatch();
+        if (aTerminationCriterion.hasToStop()) {
+            return new ClaspResult(SATResult.TIMEOUT, new int[]{0}, watch.getElapsedTime());
+        }
+        ClaspResult claspResult = null;
+        // whether clasp was actually handed the problem, the session is untouched otherwise
+        boolean claspInvoked = false;
+        try {
+            problemIncrementor.scheduleTermination(aTerminationCriterion);
+            lock.lock();
+            isCurrentlySolving.set(true);
+            lock.unlock();
+
+            final double cutoff = aTerminationCriterion.getRemainingTime();
+            if (cutoff <= 0 || aTerminationCriterion.hasToStop()) {
+                return new ClaspResult(SATResult.TIMEOUT, new int[]{0}, watch.getElapsedTime());
+            }
+            log.debug("Send {} assumptions to clasp cutting off after {}s", aNumAssumptions, cutoff);
+            claspInvoked = true;
+            fClaspLibrary.solveIncrementalProblem(fSession, aAssumptions, aNumAssumptions, cutoff);
+
+            lock.lock();
+            isCurrentlySolving.set(false);
+            lock.unlock();
+
+            claspResult = Clasp3SATSolver.getSolverResult(fClaspLibrary, fSession, watch.getElapsedTime());
+            log.debug("Came back from incremental clasp with {} after {}s.", claspResult.getSATResult(), claspResult.getRuntime());
+            return claspResult;
+        } finally {
+            problemIncrementor.jobDone();
+            lock.lock();
+            isCurrentlySolving.set(false);
+            lock.unlock();
+            if (claspInvoked && (claspResult == null || !claspResult.getSATResult().isConclusive())) {
+                // clasp cannot start a new step after an interrupted one
+                close();
+            }
+        }
+    }
+
+    /**
+     * Free the loaded problem, if any.
+     */
+    public void close() {
+        if (fSession != null) {
+            log.trace("Destroying incremental problem");
+            lock.lock();
+            try {
+                fClaspLibrary.destroyProblem(fSession);
+                fSession = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * One shot solve of a CNF, replacing the loaded problem.
+     */
+    @Override
+    public SATSolverResult solve(CNF aCNF, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        final Watch watch = Watch.constructAutoStartWatch();
+        final IntCNF cnf = new IntCNF();
+        cnf.addAll(aCNF);
+        load(cnf, aSeed);
+        final ClaspResult claspResult = solve(new int[0], 0, aTerminationCriterion);
+        close();
+        return new SATSolverResult(claspResult.getSATResult(), watch.getElapsedTime(), claspResult.getAssignment(), SolvedBy.CLASP, nickname);
+    }
+
+    @Override
+    public void notifyShutdown() {
+        close();
+    }
+
+    @Override
+    public void interrupt() {
+        lock.lock();
+        if (isCurrentlySolving.get()) {
+            log.debug("Interrupting incremental clasp");
+            fClaspLibrary.interrupt(fSession);
+            log.debug("Back from interrupting incremental clasp");
+        }
+        lock.unlock();
+    }
+
+}
@@ -45,6 +45,14 @@ public interface Clasp3Library extends Library {
      */
     void initProblem(Pointer jnaProblemPointer, final String problemString);
 
+    /**
+     * Same as {@link #initProblem(Pointer, String)}, but takes the DIMACS problem as a null terminated ASCII byte array (e.g. from {@link ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF#toDIMACS()}),
+     * which JNA hands over as is instead of encoding a string.
+     * @param jnaProblemPointer A pointer from having previously called {@link #initConfig(String)} method
+     * @param problemBytes null terminated CNF of the problem to solve
+     */
+    void initProblem(Pointer jnaProblemPointer, final byte[] problemBytes);
+
     /**
      * Actually solve the problem. Must have previously called {@link #initProblem(com.sun.jna.Pointer, String)} or this has undefined behavior
      * @param jnaProblemPointer A pointer from having previously called {@link #initConfig(String)} method
@@ -58,6 +66,15 @@ public interface Clasp3Library extends Library {
      */
     void destroyProblem(Pointer jnaProblemPointer);
 
+    /**
+     * Keep the (already parsed) configuration of a problem and drop the problem, its result and its solving state, so that the pointer can be handed a new problem
+     * with {@link #initProblem(Pointer, byte[])} instead of being destroyed. Must not be called while the problem is being solved.
+     * @param jnaProblemPointer A pointer from having previously called {@link #initConfig(String)} method
+     * @param seed The seed to solve the next problem with
+     * @return false if the seed could not be set, in which case the pointer should be destroyed
+     */
+    boolean resetProblem(Pointer jnaProblemPointer, int seed);
+
     /**
      * Interrupt the problem currently being solved. Should be called when another thread is blocking on {@link #solveProblem(com.sun.jna.Pointer, double)}
      * @param jnaProblemPointer A pointer from having previously called {@link #initConfig(String)} method
@@ -92,4 +109,23 @@ public interface Clasp3Library extends Library {
     String getConfigErrorMessage(Pointer jnaProblemPointer);
 
     double getCpuTime();
+
+    /**
+     * Pass a problem to the solver for an incremental session: once solved, the problem (and everything clasp learnt about it) stays loaded
+     * and can be solved again under different assumptions with {@link #solveIncrementalProblem(Pointer, int[], int, double)}. All variables are frozen so that preprocessing keeps them.
+     * @param jnaProblemPointer A pointer from having previously called {@link #initConfig(String)} method
+     * @param problemBytes null terminated CNF of the problem to solve
+     * @return false if the problem is trivially unsatisfiable
+     */
+    boolean initIncrementalProblem(Pointer jnaProblemPointer, final byte[] problemBytes);
+
+    /**
+     * Solve an incremental problem under the given assumptions. Can be called repeatedly, assumptions from previous calls are dropped.
+     * Must have previously called {@link #initIncrementalProblem(Pointer, byte[])}, and the previous call must not have been interrupted.
+     * @param jnaProblemPointer A pointer from having previously called {@link #initConfig(String)} method
+     * @param assumptions DIMACS literals assumed to be true
+     * @param numAssumptions number of literals to read from assumptions
+     * @param timeoutTime How long to try solving the problem for before returning a timeout
+     */
+    void solveIncrementalProblem(Pointer jnaProblemPointer, int[] assumptions, int numAssumptions, double timeoutTime);
 }
\ No newline at end of file
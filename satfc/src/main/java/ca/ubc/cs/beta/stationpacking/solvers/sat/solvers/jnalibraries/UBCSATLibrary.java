@@ -58,6 +58,15 @@ public interface UBCSATLibrary extends Library {
      */
     boolean initProblem(Pointer jnaProblemPointer, final String problemString);
 
+    /**
+     * Same as {@link #initProblem(Pointer, String)}, but takes the DIMACS problem as a null terminated ASCII byte array (e.g. from {@link ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF#toDIMACS()}),
+     * which JNA hands over as is instead of encoding a string.
+     * @param jnaProblemPointer A pointer from having previously called {@link #initConfig(String)} method
+     * @param problemBytes null terminated CNF of the problem to solve
+     * @return True if returned error free
+     */
+    boolean initProblem(Pointer jnaProblemPointer, final byte[] problemBytes);
+
     /**
      * Set the values of the variables for a given problem.
      * Must be called after {@link #initProblem(Pointer, String)}
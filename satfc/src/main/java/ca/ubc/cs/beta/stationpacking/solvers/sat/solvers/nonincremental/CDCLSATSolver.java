@@ -0,0 +1,683 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableSet;
+
+import ca.ubc.cs.beta.stationpacking.metrics.SATFCMetrics;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult.SolvedBy;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.CNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.AbstractCompressedSATSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.base.SATSolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.utils.Watch;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pure Java CDCL SAT solver working on the packed int literals of an {@link IntCNF}. It is meant for the many tiny problems of the pre-solvers,
+ * for which building DIMACS, configuring clasp and going through JNA cost more than the search itself.
+ * <p>
+ * Two watched literals, first UIP learning with local minimization, VSIDS branching with phase saving, Luby restarts and LBD based reduction
+ * of the learnt clauses. Everything is stored in int arrays: clauses live in a single arena (size, LBD, then literals), and a literal is coded
+ * as twice its variable, plus one if it is negated.
+ * </p>
+ * <p>
+ * The search polls the termination criterion itself, so no polling thread is involved. Not thread safe, except for {@link #interrupt()}.
+ * </p>
+ */
+@Slf4j
+public class CDCLSATSolver extends AbstractCompressedSATSolver {
+
+    private final int fSeedOffset;
+    private final String fNickname;
+    private volatile boolean fInterrupted = false;
+
+    public CDCLSATSolver() {
+        this(0, null);
+    }
+
+    public CDCLSATSolver(int aSeedOffset, String aNickname) {
+        fSeedOffset = aSeedOffset;
+        fNickname = aNickname;
+    }
+
+    @Override
+    public SATSolverResult solve(CNF aCNF, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        final IntCNF cnf = new IntCNF();
+        cnf.addAll(aCNF);
+        return solve(cnf, new long[0], aTerminationCriterion, aSeed);
+    }
+
+    @Override
+    public SATSolverResult solve(CNF aCNF, Map<Long, Boolean> aPreviousAssignment, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        final IntCNF cnf = new IntCNF();
+        cnf.addAll(aCNF);
+        final long[] previousAssignment = aPreviousAssignment.entrySet().stream().mapToLong(e -> e.getValue() ? e.getKey() : -e.getKey()).toArray();
+        return solve(cnf, previousAssignment, aTerminationCriterion, aSeed);
+    }
+
+    /*
+     * (non-Javadoc)
+     * The previous assignment gives the initial phase of its variables.
+     * NOT THREAD SAFE!
+     */
+    @Override
+    public SATSolverResult solve(IntCNF aCNF, long[] aPreviousAssignment, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        final Watch watch = Watch.constructAutoStartWatch();
+        fInterrupted = false;
+        if (aTerminationCriterion.hasToStop()) {
+            return SATSolverResult.timeout(watch.getElapsedTime());
+        }
+        final long solveStart = System.nanoTime();
+        final Search search = new Search(aCNF.getNumVariables(), new Random(aSeed + fSeedOffset));
+        search.setPhases(aPreviousAssignment);
+        final SATResult result = search.solve(aCNF.getPackedLiterals(), aCNF.getPackedLength(), aTerminationCriterion);
+        SATFCMetrics.updateTimer(SATFCMetrics.JAVA_SAT_SOLVE_TIMER, System.nanoTime() - solveStart);
+        log.debug("CDCL search returned {} after {} conflicts in {}s.", result, search.numConflicts, watch.getElapsedTime());
+        if (result.equals(SATResult.SAT)) {
+            return new SATSolverResult(result, watch.getElapsedTime(), search.getModel(), SolvedBy.JAVA_SAT, fNickname);
+        }
+        return new SATSolverResult(result, watch.getElapsedTime(), ImmutableSet.of(), SolvedBy.JAVA_SAT, fNickname);
+    }
+
+    @Override
+    public void notifyShutdown() {
+    }
+
+    @Override
+    public void interrupt() {
+        fInterrupted = true;
+    }
+
+    /**
+     * The state of the search on a single problem.
+     */
+    private class Search {
+
+        // Number of conflicts and decisions between two checks of the termination criterion
+        private static final int TERMINATION_CHECK_PERIOD = 256;
+        private static final int RESTART_BASE = 100;
+        private static final int MIN_LEARNTS = 2000;
+        private static final double VARIABLE_DECAY = 0.95;
+        private static final int CLAUSE_HEADER = 2;
+
+        private final int numVariables;
+
+        // Clauses: arena[ref] is the size, arena[ref + 1] the LBD (0 for problem clauses), then come the literals, the first two being watched
+        private int[] arena = new int[1024];
+        private int arenaSize = 0;
+        private int[] learnts = new int[64];
+        private int numLearnts = 0;
+        private int maxLearnts;
+
+        // Per literal: clauses watching it, visited when it becomes false
+        private final int[][] watches;
+        private final int[] numWatches;
+
+        // Per literal: 1 if true, -1 if false, 0 if unassigned
+        private final byte[] values;
+        // Per variable
+        private final int[] levels;
+        private final int[] reasons;
+        private final boolean[] phases;
+        private final boolean[] seen;
+        private final double[] activities;
+        private double activityIncrement = 1;
+
+        private final int[] trail;
+        private int trailSize = 0;
+        private int[] trailLimits = new int[64];
+        private int decisionLevel = 0;
+        private int propagationHead = 0;
+
+        // Binary max heap of variables by activity
+        private final int[] heap;
+        private final int[] heapPositions;
+        private int heapSize = 0;
+
+        private int[] learnt = new int[64];
+        private int learntSize = 0;
+        private final int[] levelStamps;
+        private int stamp = 0;
+
+        private long numConflicts = 0;
+        private long numSteps = 0;
+
+        Search(int aNumVariables, Random aRandom) {
+            numVariables = aNumVariables;
+            watches = new int[2 * (numVariables + 1)][];
+            numWatches = new int[2 * (numVariables + 1)];
+            values = new byte[2 * (numVariables + 1)];
+            levels = new int[numVariables + 1];
+            reasons = new int[numVariables + 1];
+            phases = new boolean[numVariables + 1];
+            seen = new boolean[numVariables + 1];
+            activities = new double[numVariables + 1];
+            trail = new int[numVariables + 1];
+            heap = new int[numVariables + 1];
+            heapPositions = new int[numVariables + 1];
+            levelStamps = new int[numVariables + 2];
+            Arrays.fill(reasons, -1);
+            Arrays.fill(heapPositions, -1);
+            for (int v = 1; v <= numVariables; v++) {
+                // Tiny random activities so that the seed breaks ties
+                activities[v] = aRandom.nextDouble() * 1e-5;
+                heapInsert(v);
+            }
+        }
+
+        void setPhases(long[] aPreviousAssignment) {
+            for (long literal : aPreviousAssignment) {
+                final long variable = Math.abs(literal);
+                if (variable <= numVariables) {
+                    phases[(int) variable] = literal > 0;
+                }
+            }
+        }
+
+        SATResult solve(int[] aPackedLiterals, int aPackedLength, ITerminationCriterion aTerminationCriterion) {
+            if (!addProblemClauses(aPackedLiterals, aPackedLength)) {
+                return SATResult.UNSAT;
+            }
+            maxLearnts = Math.max(MIN_LEARNTS, arenaSize / 8);
+            int restart = 0;
+            long restartLimit = RESTART_BASE * luby(restart);
+            long conflictsSinceRestart = 0;
+            while (true) {
+                if (++numSteps % TERMINATION_CHECK_PERIOD == 0) {
+                    if (aTerminationCriterion.hasToStop()) {
+                        return SATResult.TIMEOUT;
+                    }
+                    if (fInterrupted) {
+                        return SATResult.INTERRUPTED;
+                    }
+                }
+                final int conflict = propagate();
+                if (conflict >= 0) {
+                    numConflicts++;
+                    conflictsSinceRestart++;
+                    if (decisionLevel == 0) {
+                        return SATResult.UNSAT;
+                    }
+                    final int backtrackLevel = analyze(conflict);
+                    backtrack(backtrackLevel);
+                    if (learntSize == 1) {
+                        assign(learnt[0], -1);
+                    } else {
+                        final int ref = addClause(learnt, learntSize, computeLBD());
+                        if (numLearnts == learnts.length) {
+                            learnts = Arrays.copyOf(learnts, 2 * numLearnts);
+                        }
+                        learnts[numLearnts++] = ref;
+                        assign(learnt[0], ref);
+                    }
+                    activityIncrement /= VARIABLE_DECAY;
+                } else if (conflictsSinceRestart >= restartLimit) {
+                    backtrack(0);
+                    conflictsSinceRestart = 0;
+                    restartLimit = RESTART_BASE * luby(++restart);
+                    if (numLearnts > maxLearnts) {
+                        reduceLearnts();
+                    }
+                } else {
+                    final int decision = pickBranchLiteral();
+                    if (decision < 0) {
+                        return SATResult.SAT;
+                    }
+                    if (decisionLevel == trailLimits.length) {
+                        trailLimits = Arrays.copyOf(trailLimits, 2 * decisionLevel);
+                    }
+                    trailLimits[decisionLevel++] = trailSize;
+                    assign(decision, -1);
+                }
+            }
+        }
+
+        /**
+         * @return the model in clasp's layout: entry 0 is one past the last entry, entry v is v if it is true and -v otherwise.
+         */
+        int[] getModel() {
+            final int[] model = new int[numVariables + 1];
+            model[0] = model.length;
+            for (int v = 1; v <= numVariables; v++) {
+                model[v] = values[2 * v] > 0 ? v : -v;
+            }
+            return model;
+        }
+
+        /**
+         * Add the clauses of the problem, dropping satisfied clauses, false and duplicate literals, and assigning unit clauses.
+         * @return false if the problem is trivially unsatisfiable.
+         */
+        private boolean addProblemClauses(int[] aPackedLiterals, int aPackedLength) {
+            int[] clause = new int[16];
+            int size = 0;
+            boolean satisfied = false;
+            for (int i = 0; i < aPackedLength; i++) {
+                final int dimacs = aPackedLiterals[i];
+                if (dimacs != 0) {
+                    final int literal = dimacs > 0 ? 2 * dimacs : -2 * dimacs + 1;
+                    if (values[literal] > 0) {
+                        satisfied = true;
+                    }
+                    if (size == clause.length) {
+                        clause = Arrays.copyOf(clause, 2 * size);
+                    }
+                    clause[size++] = literal;
+                    continue;
+                }
+                // End of a clause, sorted so that duplicates and complementary literals are next to each other
+                if (!satisfied) {
+                    Arrays.sort(clause, 0, size);
+                    int kept = 0;
+                    for (int j = 0; j < size; j++) {
+                        if (kept > 0 && clause[kept - 1] == (clause[j] ^ 1)) {
+                            satisfied = true;
+                            break;
+                        }
+                        // Literals already false (at level 0) can be dropped
+                        if ((kept == 0 || clause[kept - 1] != clause[j]) && values[clause[j]] == 0) {
+                            clause[kept++] = clause[j];
+                        }
+                    }
+                    if (!satisfied) {
+                        if (kept == 0) {
+                            return false;
+                        } else if (kept == 1) {
+                            assign(clause[0], -1);
+                            if (propagate() >= 0) {
+                                return false;
+                            }
+                        } else {
+                            addClause(clause, kept, 0);
+                        }
+                    }
+                }
+                size = 0;
+                satisfied = false;
+            }
+            return true;
+        }
+
+        private int addClause(int[] aLiterals, int aSize, int aLBD) {
+            if (arenaSize + CLAUSE_HEADER + aSize > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(2 * arena.length, arenaSize + CLAUSE_HEADER + aSize));
+            }
+            final int ref = arenaSize;
+            arena[ref] = aSize;
+            arena[ref + 1] = aLBD;
+            System.arraycopy(aLiterals, 0, arena, ref + CLAUSE_HEADER, aSize);
+            arenaSize += CLAUSE_HEADER + aSize;
+            watch(aLiterals[0], ref);
+            watch(aLiterals[1], ref);
+            return ref;
+        }
+
+        private void watch(int aLiteral, int aRef) {
+            int[] watchList = watches[aLiteral];
+            if (watchList == null) {
+                watchList = watches[aLiteral] = new int[4];
+            } else if (numWatches[aLiteral] == watchList.length) {
+                watchList = watches[aLiteral] = Arrays.copyOf(watchList, 2 * watchList.length);
+            }
+            watchList[numWatches[aLiteral]++] = aRef;
+        }
+
+        private void assign(int aLiteral, int aReason) {
+            final int variable = aLiteral >> 1;
+            values[aLiteral] = 1;
+            values[aLiteral ^ 1] = -1;
+            levels[variable] = decisionLevel;
+            reasons[variable] = aReason;
+            trail[trailSize++] = aLiteral;
+        }
+
+        /**
+         * Unit propagation over the watched literals.
+         * @return a conflicting clause, or -1 if there is none.
+         */
+        private int propagate() {
+            while (propagationHead < trailSize) {
+                final int falseLiteral = trail[propagationHead++] ^ 1;
+                final int[] watchList = watches[falseLiteral];
+                final int size = numWatches[falseLiteral];
+                int i = 0;
+                int j = 0;
+                while (i < size) {
+                    final int ref = watchList[i++];
+                    final int literals = ref + CLAUSE_HEADER;
+                    // Keep the false literal second
+                    if (arena[literals] == falseLiteral) {
+                        arena[literals] = arena[literals + 1];
+                        arena[literals + 1] = falseLiteral;
+                    }
+                    final int first = arena[literals];
+                    if (values[first] > 0) {
+                        watchList[j++] = ref;
+                        continue;
+                    }
+                    // Look for another literal to watch
+                    final int end = literals + arena[ref];
+                    boolean moved = false;
+                    for (int k = literals + 2; k < end; k++) {
+                        final int literal = arena[k];
+                        if (values[literal] >= 0) {
+                            arena[literals + 1] = literal;
+                            arena[k] = falseLiteral;
+                            watch(literal, ref);
+                            moved = true;
+                            break;
+                        }
+                    }
+                    if (moved) {
+                        continue;
+                    }
+                    watchList[j++] = ref;
+                    if (values[first] < 0) {
+                        while (i < size) {
+                            watchList[j++] = watchList[i++];
+                        }
+                        numWatches[falseLiteral] = j;
+                        propagationHead = trailSize;
+                        return ref;
+                    }
+                    assign(first, ref);
+                }
+                numWatches[falseLiteral] = j;
+            }
+            return -1;
+        }
+
+        /**
+         * First UIP conflict analysis, leaving the (minimized) learnt clause in {@link #learnt} with its asserting literal first
+         * and a literal of the backtrack level second.
+         * @return the level to backtrack to.
+         */
+        private int analyze(int aConflict) {
+            learntSize = 1;
+            int pathCount = 0;
+            int literal = -1;
+            int index = trailSize - 1;
+            int ref = aConflict;
+            do {
+                final int literals = ref + CLAUSE_HEADER;
+                final int end = literals + arena[ref];
+                for (int k = literal < 0 ? literals : literals + 1; k < end; k++) {
+                    final int other = arena[k];
+                    final int variable = other >> 1;
+                    if (!seen[variable] && levels[variable] > 0) {
+                        bumpActivity(variable);
+                        seen[variable] = true;
+                        if (levels[variable] >= decisionLevel) {
+                            pathCount++;
+                        } else {
+                            addToLearnt(other);
+                        }
+                    }
+                }
+                while (!seen[trail[index] >> 1]) {
+                    index--;
+                }
+                literal = trail[index--];
+                ref = reasons[literal >> 1];
+                seen[literal >> 1] = false;
+                pathCount--;
+            } while (pathCount > 0);
+            learnt[0] = literal ^ 1;
+
+            // Move the literals implied by the others to the end, and drop them
+            int kept = 1;
+            for (int i = 1; i < learntSize; i++) {
+                final int variable = learnt[i] >> 1;
+                if (reasons[variable] < 0 || !isImpliedBySeen(reasons[variable])) {
+                    final int swap = learnt[kept];
+                    learnt[kept++] = learnt[i];
+                    learnt[i] = swap;
+                }
+            }
+            for (int i = 1; i < learntSize; i++) {
+                seen[learnt[i] >> 1] = false;
+            }
+            learntSize = kept;
+
+            if (learntSize == 1) {
+                return 0;
+            }
+            int highest = 1;
+            for (int i = 2; i < learntSize; i++) {
+                if (levels[learnt[i] >> 1] > levels[learnt[highest] >> 1]) {
+                    highest = i;
+                }
+            }
+            final int swap = learnt[1];
+            learnt[1] = learnt[highest];
+            learnt[highest] = swap;
+            return levels[learnt[1] >> 1];
+        }
+
+        private void addToLearnt(int aLiteral) {
+            if (learntSize == learnt.length) {
+                learnt = Arrays.copyOf(learnt, 2 * learntSize);
+            }
+            learnt[learntSize++] = aLiteral;
+        }
+
+        private boolean isImpliedBySeen(int aReason) {
+            final int literals = aReason + CLAUSE_HEADER;
+            final int end = literals + arena[aReason];
+            for (int k = literals + 1; k < end; k++) {
+                final int variable = arena[k] >> 1;
+                if (!seen[variable] && levels[variable] > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return the number of distinct decision levels in the learnt clause.
+         */
+        private int computeLBD() {
+            stamp++;
+            int lbd = 0;
+            for (int i = 0; i < learntSize; i++) {
+                final int level = levels[learnt[i] >> 1];
+                if (levelStamps[level] != stamp) {
+                    levelStamps[level] = stamp;
+                    lbd++;
+                }
+            }
+            return lbd;
+        }
+
+        private void backtrack(int aLevel) {
+            if (decisionLevel <= aLevel) {
+                return;
+            }
+            for (int i = trailSize - 1; i >= trailLimits[aLevel]; i--) {
+                final int literal = trail[i];
+                final int variable = literal >> 1;
+                phases[variable] = (literal & 1) == 0;
+                values[literal] = 0;
+                values[literal ^ 1] = 0;
+                reasons[variable] = -1;
+                if (heapPositions[variable] < 0) {
+                    heapInsert(variable);
+                }
+            }
+            trailSize = trailLimits[aLevel];
+            propagationHead = trailSize;
+            decisionLevel = aLevel;
+        }
+
+        private int pickBranchLiteral() {
+            while (heapSize > 0) {
+                final int variable = heapRemoveMax();
+                if (values[2 * variable] == 0) {
+                    return phases[variable] ? 2 * variable : 2 * variable + 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Keep the learnt clauses of LBD at most 2 and the better half of the others, then compact the arena. Only called at level 0.
+         */
+        private void reduceLearnts() {
+            final long[] byLBD = new long[numLearnts];
+            for (int i = 0; i < numLearnts; i++) {
+                byLBD[i] = ((long) arena[learnts[i] + 1] << 32) | learnts[i];
+            }
+            Arrays.sort(byLBD);
+            final boolean[] keep = new boolean[arenaSize];
+            int numKept = 0;
+            for (int i = 0; i < numLearnts; i++) {
+                final int ref = (int) byLBD[i];
+                if (i < numLearnts / 2 || arena[ref + 1] <= 2) {
+                    keep[ref] = true;
+                    numKept++;
+                }
+            }
+            log.trace("Reducing learnt clauses from {} to {}", numLearnts, numKept);
+
+            // Compact the arena in place, clauses keep their literal order and so their watches
+            Arrays.fill(numWatches, 0);
+            int newSize = 0;
+            numLearnts = 0;
+            for (int ref = 0; ref < arenaSize; ) {
+                final int length = CLAUSE_HEADER + arena[ref];
+                if (arena[ref + 1] == 0 || keep[ref]) {
+                    System.arraycopy(arena, ref, arena, newSize, length);
+                    watch(arena[newSize + CLAUSE_HEADER], newSize);
+                    watch(arena[newSize + CLAUSE_HEADER + 1], newSize);
+                    if (arena[newSize + 1] != 0) {
+                        learnts[numLearnts++] = newSize;
+                    }
+                    newSize += length;
+                }
+                ref += length;
+            }
+            arenaSize = newSize;
+            // Level 0 assignments are never analyzed, their reasons can go
+            for (int i = 0; i < trailSize; i++) {
+                reasons[trail[i] >> 1] = -1;
+            }
+            maxLearnts += maxLearnts / 10;
+        }
+
+        private void bumpActivity(int aVariable) {
+            activities[aVariable] += activityIncrement;
+            if (activities[aVariable] > 1e100) {
+                for (int v = 1; v <= numVariables; v++) {
+                    activities[v] *= 1e-100;
+                }
+                activityIncrement *= 1e-100;
+            }
+            if (heapPositions[aVariable] >= 0) {
+                siftUp(heapPositions[aVariable]);
+            }
+        }
+
+        private void heapInsert(int aVariable) {
+            heap[heapSize] = aVariable;
+            heapPositions[aVariable] = heapSize;
+            siftUp(heapSize++);
+        }
+
+        private int heapRemoveMax() {
+            final int max = heap[0];
+            heapPositions[max] = -1;
+            heapSize--;
+            if (heapSize > 0) {
+                heap[0] = heap[heapSize];
+                heapPositions[heap[0]] = 0;
+                siftDown(0);
+            }
+            return max;
+        }
+
+        private void siftUp(int aPosition) {
+            final int variable = heap[aPosition];
+            int position = aPosition;
+            while (position > 0) {
+                final int parent = (position - 1) >> 1;
+                if (activities[heap[parent]] >= activities[variable]) {
+                    break;
+                }
+                heap[position] = heap[parent];
+                heapPositions[heap[position]] = position;
+                position = parent;
+            }
+            heap[position] = variable;
+            heapPositions[variable] = position;
+        }
+
+        private void siftDown(int aPosition) {
+            final int variable = heap[aPosition];
+            int position = aPosition;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && activities[heap[child + 1]] > activities[heap[child]]) {
+                    child++;
+                }
+                if (activities[heap[child]] <= activities[variable]) {
+                    break;
+                }
+                heap[position] = heap[child];
+                heapPositions[heap[position]] = position;
+                position = child;
+            }
+            heap[position] = variable;
+            heapPositions[variable] = position;
+        }
+
+    }
+
+    /**
+     * @return the term of index x (starting at 0) of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+     */
+    static long luby(int x) {
+        int size = 1;
+        int sequence = 0;
+        while (size < x + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        int index = x;
+        while (size - 1 != index) {
+            size = (size - 1) >> 1;
+            sequence--;
+            index = index % size;
+        }
+        return 1L << sequence;
+    }
+
+}
@@ -21,23 +21,24 @@
  */
 package ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental;
 
-import java.util.HashSet;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import com.google.common.base.Preconditions;
 import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import com.sun.jna.ptr.IntByReference;
 
+import ca.ubc.cs.beta.stationpacking.metrics.SATFCMetrics;
 import ca.ubc.cs.beta.stationpacking.polling.IPollingService;
 import ca.ubc.cs.beta.stationpacking.polling.ProblemIncrementor;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult.SolvedBy;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.base.CNF;
-import ca.ubc.cs.beta.stationpacking.solvers.sat.base.Literal;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.AbstractCompressedSATSolver;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.base.SATSolverResult;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.jnalibraries.Clasp3Library;
@@ -50,7 +51,7 @@ import lombok.extern.slf4j.Slf4j;
 public class Clasp3SATSolver extends AbstractCompressedSATSolver {
 
     private Clasp3Library fClaspLibrary;
-    private String fParameters;
+    private final ClaspHandlePool fHandlePool;
     private final Lock lock = new ReentrantLock();
     private Pointer currentProblemPointer;
     // boolean represents whether or not a solve is in progress, so that it is safe to do an interrupt
@@ -68,26 +69,20 @@ public class Clasp3SATSolver extends AbstractCompressedSATSolver {
     }
 
     public Clasp3SATSolver(Clasp3Library library, String parameters, int seedOffset, IPollingService pollingService, String nickname) {
+        this(library, parameters, seedOffset, pollingService, nickname, 0);
+    }
+
+    /**
+     * @param maxWarmHandles - number of native problem handles kept configured between solves (see {@link ClaspHandlePool}), 0 to configure clasp anew for every problem.
+     *                       Only worth it with a clasp library that supports {@link Clasp3Library#resetProblem(Pointer, int)}.
+     */
+    public Clasp3SATSolver(Clasp3Library library, String parameters, int seedOffset, IPollingService pollingService, String nickname, int maxWarmHandles) {
         this.nickname = nickname;
         log.debug("Initializing clasp with params {}", parameters);
         fSeedOffset = seedOffset;
         fClaspLibrary = library;
-        fParameters = parameters;
-        // set the info about parameters, throw an exception if seed is contained.
-        if (parameters.contains("--seed")) {
-            throw new IllegalArgumentException("The parameter string cannot contain a seed as it is given upon a call to solve!");
-        }
-        // make sure the configuration is valid
-        String params = fParameters + " --seed=1";
-        Pointer jnaProblem = fClaspLibrary.initConfig(params);
-        try {
-            int status = fClaspLibrary.getConfigState(jnaProblem);
-            if (status == 2) {
-                throw new IllegalArgumentException(fClaspLibrary.getConfigErrorMessage(jnaProblem));
-            }
-        } finally {
-            fClaspLibrary.destroyProblem(jnaProblem);
-        }
+        // makes sure the configuration is valid, and throws an exception if the parameters contain a seed
+        fHandlePool = new ClaspHandlePool(library, parameters, maxWarmHandles);
         problemIncrementor = new ProblemIncrementor(pollingService, this);
     }
 
@@ -98,9 +93,24 @@ public class Clasp3SATSolver extends AbstractCompressedSATSolver {
      */
     @Override
     public SATSolverResult solve(CNF aCNF, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        return solve(problem -> fClaspLibrary.initProblem(problem, aCNF.toDIMACS(null)), aTerminationCriterion, aSeed);
+    }
+
+    /*
+     * (non-Javadoc)
+     * Hands the DIMACS bytes of the packed CNF straight to clasp. Clasp does not take an initial assignment.
+     * NOT THREAD SAFE!
+     */
+    @Override
+    public SATSolverResult solve(IntCNF aCNF, long[] aPreviousAssignment, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        return solve(problem -> fClaspLibrary.initProblem(problem, aCNF.toDIMACS()), aTerminationCriterion, aSeed);
+    }
+
+    private SATSolverResult solve(Consumer<Pointer> aProblemInitializer, ITerminationCriterion aTerminationCriterion, long aSeed) {
         final Watch watch = Watch.constructAutoStartWatch();
         final int seed = Math.abs(new Random(aSeed + fSeedOffset).nextInt());
-        final String params = fParameters + " --seed=" + seed;
+        // whether the native handle ended up in a state from which it can solve another problem
+        boolean reusable = false;
         try {
             // create the problem - config params have already been validated in the constructor, so this should work
             Preconditions.checkState(currentProblemPointer == null, "Went to solve a new problem, but there is a problem in progress!");
@@ -109,8 +119,10 @@ public class Clasp3SATSolver extends AbstractCompressedSATSolver {
             }
 
             problemIncrementor.scheduleTermination(aTerminationCriterion);
-            currentProblemPointer = fClaspLibrary.initConfig(params);
-            fClaspLibrary.initProblem(currentProblemPointer, aCNF.toDIMACS(null));
+            final long initStart = System.nanoTime();
+            currentProblemPointer = fHandlePool.acquire(seed);
+            aProblemInitializer.accept(currentProblemPointer);
+            SATFCMetrics.updateTimer(SATFCMetrics.CLASP_INIT_TIMER, System.nanoTime() - initStart);
 
             if (aTerminationCriterion.hasToStop()) {
                 return SATSolverResult.timeout(watch.getElapsedTime());
@@ -129,7 +141,9 @@ public class Clasp3SATSolver extends AbstractCompressedSATSolver {
             // Start solving
             log.debug("Send problem to clasp cutting off after {}s", cutoff);
             final Watch runtime = Watch.constructAutoStartWatch();
+            final long solveStart = System.nanoTime();
             fClaspLibrary.solveProblem(currentProblemPointer, cutoff);
+            SATFCMetrics.updateTimer(SATFCMetrics.CLASP_SOLVE_TIMER, System.nanoTime() - solveStart);
             double runtimeDouble = runtime.getElapsedTime();
             log.debug("Came back from clasp after {}s. (initial cutoff was {}s)", runtimeDouble, cutoff);
             if (!(runtimeDouble < cutoff + 5)) {
@@ -146,14 +160,15 @@ public class Clasp3SATSolver extends AbstractCompressedSATSolver {
             
             final Watch postTime = Watch.constructAutoStartWatch();
             final ClaspResult claspResult = getSolverResult(fClaspLibrary, currentProblemPointer, runtime.getElapsedTime());
+            // an interrupted or crashed clasp is not trusted with another problem
+            reusable = !claspResult.getSATResult().equals(SATResult.INTERRUPTED) && !claspResult.getSATResult().equals(SATResult.CRASHED);
             log.trace("Time to parse clasp result: {} s.", postTime.getElapsedTime());
-            final HashSet<Literal> assignment = parseAssignment(claspResult.getAssignment());
-            log.trace("Total post time (parsing result + assignment): {} s.", postTime.getElapsedTime());
             if (postTime.getElapsedTime() > 60) {
                 log.error("Clasp SAT solver post solving time was greater than 1 minute, something wrong must have happened.");
             }
 
-            final SATSolverResult output = new SATSolverResult(claspResult.getSATResult(), watch.getElapsedTime(), assignment, SolvedBy.CLASP, nickname);
+            // The model is handed over as clasp returned it, it is only decoded by whoever knows the encoding
+            final SATSolverResult output = new SATSolverResult(claspResult.getSATResult(), watch.getElapsedTime(), claspResult.getAssignment(), SolvedBy.CLASP, nickname);
             log.debug("Returning result: {}, {}s.", output.getResult(), output.getRuntime());
             log.trace("Full result: {}", output);
             return output;
@@ -161,11 +176,13 @@ public class Clasp3SATSolver extends AbstractCompressedSATSolver {
             problemIncrementor.jobDone();
             // Cleanup in the finally block so it always executes: if we instantiated a problem, we make sure that we free it
             if (currentProblemPointer != null) {
-                log.trace("Destroying problem");
+                log.trace("Releasing problem");
                 lock.lock();
                 isCurrentlySolving.set(false);
                 lock.unlock();
-                fClaspLibrary.destroyProblem(currentProblemPointer);
+                final long teardownStart = System.nanoTime();
+                fHandlePool.release(currentProblemPointer, reusable);
+                SATFCMetrics.updateTimer(SATFCMetrics.CLASP_TEARDOWN_TIMER, System.nanoTime() - teardownStart);
                 currentProblemPointer = null;
             }
         }
@@ -173,7 +190,7 @@ public class Clasp3SATSolver extends AbstractCompressedSATSolver {
 
     @Override
     public void notifyShutdown() {
-
+        fHandlePool.close();
     }
 
     @Override
@@ -187,18 +204,6 @@ public class Clasp3SATSolver extends AbstractCompressedSATSolver {
         lock.unlock();
     }
 
-    private HashSet<Literal> parseAssignment(int[] assignment) {
-        HashSet<Literal> set = new HashSet<>();
-        for (int i = 1; i < assignment[0]; i++) {
-            int intLit = assignment[i];
-            int var = Math.abs(intLit);
-            boolean sign = intLit > 0;
-            Literal aLit = new Literal(var, sign);
-            set.add(aLit);
-        }
-        return set;
-    }
-
     /**
      * Extract solver result from JNA Clasp library.
      */
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import com.sun.jna.Pointer;
+
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.jnalibraries.Clasp3Library;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Pool of native clasp problem handles of a single library, all configured with the same parameter string.
+ * <p>
+ * Creating a handle parses the whole parameter string. A released handle is instead kept warm: its problem is dropped but its configuration
+ * is kept, and only the seed is reset when it is acquired again. Handles that may be in a bad state (e.g. after an interrupt) are destroyed on release.
+ * </p>
+ * <p>
+ * Every acquired handle must be released exactly once. Each release reports (and destroys) the handles whose acquiring thread died without
+ * releasing them, and handles still acquired when the pool is closed are reported as well.
+ * Warm handles need a clasp library with {@link Clasp3Library#resetProblem(Pointer, int)}; if the library does not support it, the pool falls back to
+ * creating a handle for every problem.
+ * </p>
+ */
+@Slf4j
+@ThreadSafe
+public class ClaspHandlePool {
+
+    private final Clasp3Library fLibrary;
+    @Getter
+    private final String parameters;
+    private final int fMaxIdleHandles;
+
+    private final Deque<Pointer> fIdleHandles = new ArrayDeque<>();
+    // acquired handles, with the thread that acquired them
+    private final Map<Pointer, Thread> fAcquiredHandles = new HashMap<>();
+    private boolean fReuseHandles = true;
+    private boolean fClosed = false;
+
+    /**
+     * @param aLibrary - library to create handles with, every handle of the pool belongs to it.
+     * @param aParameters - clasp parameters, without a seed.
+     * @param aMaxIdleHandles - maximal number of released handles kept warm, 0 to destroy every handle on release.
+     * @throws IllegalArgumentException if clasp does not accept the parameters.
+     */
+    public ClaspHandlePool(Clasp3Library aLibrary, String aParameters, int aMaxIdleHandles) {
+        Preconditions.checkArgument(!aParameters.contains("--seed"), "The parameter string cannot contain a seed as it is given upon a call to solve!");
+        Preconditions.checkArgument(aMaxIdleHandles >= 0, "Maximal number of idle handles cannot be negative, was %s", aMaxIdleHandles);
+        fLibrary = aLibrary;
+        parameters = aParameters;
+        fMaxIdleHandles = aMaxIdleHandles;
+        // make sure the configuration is valid, and keep the handle warm if it is
+        final Pointer handle = create(1);
+        if (fMaxIdleHandles > 0) {
+            fIdleHandles.push(handle);
+        } else {
+            fLibrary.destroyProblem(handle);
+        }
+    }
+
+    /**
+     * @return a handle configured with the pool's parameters and the given seed, ready for a new problem.
+     */
+    public Pointer acquire(int aSeed) {
+        Pointer handle;
+        synchronized (this) {
+            Preconditions.checkState(!fClosed, "Clasp handle pool was already closed");
+            handle = fIdleHandles.poll();
+        }
+        if (handle != null && !reset(handle, aSeed)) {
+            fLibrary.destroyProblem(handle);
+            handle = null;
+        }
+        if (handle == null) {
+            handle = create(aSeed);
+        }
+        synchronized (this) {
+            fAcquiredHandles.put(handle, Thread.currentThread());
+        }
+        return handle;
+    }
+
+    /**
+     * Give back a handle obtained from {@link #acquire(int)}.
+     * @param aReusable - whether the handle can solve another problem, false if it may be in a bad state.
+     */
+    public void release(Pointer aHandle, boolean aReusable) {
+        final boolean keep;
+        final List<Pointer> leakedHandles = new ArrayList<>();
+        synchronized (this) {
+            Preconditions.checkState(fAcquiredHandles.remove(aHandle) != null, "Released a clasp handle that was not acquired from this pool");
+            keep = aReusable && fReuseHandles && !fClosed && fIdleHandles.size() < fMaxIdleHandles;
+            if (keep) {
+                fIdleHandles.push(aHandle);
+            }
+            // nobody can release the handles of a dead thread anymore
+            final Iterator<Map.Entry<Pointer, Thread>> iterator = fAcquiredHandles.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<Pointer, Thread> acquired = iterator.next();
+                if (!acquired.getValue().isAlive()) {
+                    leakedHandles.add(acquired.getKey());
+                    iterator.remove();
+                }
+            }
+        }
+        if (!keep) {
+            fLibrary.destroyProblem(aHandle);
+        }
+        if (!leakedHandles.isEmpty()) {
+            log.error("Found {} clasp handles never released by their (dead) thread, destroying them.", leakedHandles.size());
+            leakedHandles.forEach(fLibrary::destroyProblem);
+        }
+    }
+
+    /**
+     * Destroy the idle handles. Handles that are still acquired are destroyed when released.
+     */
+    public void close() {
+        synchronized (this) {
+            fClosed = true;
+            if (!fAcquiredHandles.isEmpty()) {
+                log.error("Closing clasp handle pool with {} handles that were never released, they leak unless released later.", fAcquiredHandles.size());
+            }
+            fIdleHandles.forEach(fLibrary::destroyProblem);
+            fIdleHandles.clear();
+        }
+    }
+
+    /**
+     * @return the number of handles acquired and not yet released.
+     */
+    public synchronized int getNumAcquiredHandles() {
+        return fAcquiredHandles.size();
+    }
+
+    private Pointer create(int aSeed) {
+        final Pointer handle = fLibrary.initConfig(parameters + " --seed=" + aSeed);
+        if (fLibrary.getConfigState(handle) == 2) {
+            final String message = fLibrary.getConfigErrorMessage(handle);
+            fLibrary.destroyProblem(handle);
+            throw new IllegalArgumentException(message);
+        }
+        return handle;
+    }
+
+    private boolean reset(Pointer aHandle, int aSeed) {
+        try {
+            if (fLibrary.resetProblem(aHandle, aSeed)) {
+                return true;
+            }
+            log.warn("Could not set seed {} on a warm clasp handle, creating a new one.", aSeed);
+        } catch (UnsatisfiedLinkError e) {
+            log.warn("Clasp library does not support resetting problems, clasp handles will not be reused.");
+            synchronized (this) {
+                fReuseHandles = false;
+            }
+        }
+        return false;
+    }
+
+}
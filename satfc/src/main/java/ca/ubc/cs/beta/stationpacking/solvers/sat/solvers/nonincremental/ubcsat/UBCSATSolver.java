@@ -27,6 +27,7 @@ import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 import com.google.common.base.Preconditions;
 import com.sun.jna.Native;
@@ -38,6 +39,7 @@ import ca.ubc.cs.beta.stationpacking.polling.ProblemIncrementor;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult.SolvedBy;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.base.CNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.base.Literal;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.AbstractCompressedSATSolver;
 import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.base.SATSolverResult;
@@ -114,6 +116,18 @@ public class UBCSATSolver extends AbstractCompressedSATSolver {
 
     @Override
     public SATSolverResult solve(CNF aCNF, Map<Long, Boolean> aPreviousAssignment, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        return solve(state -> fLibrary.initProblem(state, aCNF.toDIMACS(null)), aPreviousAssignment == null ? null : toLiterals(aPreviousAssignment), aTerminationCriterion, aSeed);
+    }
+
+    /**
+     * Hands the DIMACS bytes of the packed CNF straight to UBCSAT.
+     */
+    @Override
+    public SATSolverResult solve(IntCNF aCNF, long[] aPreviousAssignment, ITerminationCriterion aTerminationCriterion, long aSeed) {
+        return solve(state -> fLibrary.initProblem(state, aCNF.toDIMACS()), aPreviousAssignment, aTerminationCriterion, aSeed);
+    }
+
+    private SATSolverResult solve(Predicate<Pointer> aProblemInitializer, long[] aPreviousAssignment, ITerminationCriterion aTerminationCriterion, long aSeed) {
         final Watch watch = Watch.constructAutoStartWatch();
         final int seed = Math.abs(new Random(aSeed + seedOffset).nextInt());
         final String seededParameters = fParameters + " -seed " + seed;
@@ -134,7 +148,7 @@ public class UBCSATSolver extends AbstractCompressedSATSolver {
                 return SATSolverResult.timeout(watch.getElapsedTime());
             }
 
-            status = fLibrary.initProblem(fState, aCNF.toDIMACS(null));
+            status = aProblemInitializer.test(fState);
 
 
             // We lock this variable so that the interrupt code will only execute if there is a valid problem to interrupt
@@ -145,7 +159,7 @@ public class UBCSATSolver extends AbstractCompressedSATSolver {
             checkStatus(status, fLibrary, fState);
 
             if (aPreviousAssignment != null) {
-                setPreviousAssignment(aPreviousAssignment);
+                fLibrary.initAssignment(fState, aPreviousAssignment, aPreviousAssignment.length);
             }
 
             preTime = watch.getElapsedTime();
@@ -234,7 +248,7 @@ public class UBCSATSolver extends AbstractCompressedSATSolver {
         return assignment;
     }
 
-    private void setPreviousAssignment(Map<Long, Boolean> aPreviousAssignment) {
+    private static long[] toLiterals(Map<Long, Boolean> aPreviousAssignment) {
         long[] assignment = new long[aPreviousAssignment.size()];
         int i = 0;
         for (Long varID : aPreviousAssignment.keySet()) {
@@ -245,7 +259,7 @@ public class UBCSATSolver extends AbstractCompressedSATSolver {
             }
             i++;
         }
-        fLibrary.initAssignment(fState, assignment, assignment.length);
+        return assignment;
     }
 
     @Override
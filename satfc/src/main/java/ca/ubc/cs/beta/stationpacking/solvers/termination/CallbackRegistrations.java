@@ -0,0 +1,128 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.termination;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.collect.ImmutableList;
+
+import ca.ubc.cs.beta.stationpacking.polling.DeadlineTimerWheel;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion.ICallbackRegistration;
+
+/**
+ * Building blocks for the {@link ITerminationCriterion#registerCallback(Runnable)} implementations.
+ */
+public class CallbackRegistrations {
+
+    // Deadlines further away than this (ns) are never reached
+    private static final long MAX_DELAY_NANOS = TimeUnit.DAYS.toNanos(365);
+
+    /**
+     * The registration of a criterion that does not call back, and must be polled.
+     */
+    public static final ICallbackRegistration UNSUPPORTED = new ICallbackRegistration() {
+        @Override
+        public boolean isComplete() {
+            return false;
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    /**
+     * The registration of a callback that will never (or already did) run, nothing is left to poll.
+     */
+    public static final ICallbackRegistration DONE = new ICallbackRegistration() {
+        @Override
+        public boolean isComplete() {
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private CallbackRegistrations() {
+    }
+
+    /**
+     * @return a callback that only runs the given one the first time it is called.
+     */
+    public static Runnable once(Runnable aCallback) {
+        final AtomicBoolean ran = new AtomicBoolean(false);
+        return () -> {
+            if (ran.compareAndSet(false, true)) {
+                aCallback.run();
+            }
+        };
+    }
+
+    /**
+     * Run a callback once a given amount of wall time has passed, on the {@link DeadlineTimerWheel#getDefault() process wide timer wheel}.
+     * @param aDelayNanos - time (ns) to wait, the callback runs right away on the calling thread if it is not positive.
+     */
+    public static ICallbackRegistration afterDelay(long aDelayNanos, Runnable aCallback) {
+        if (aDelayNanos <= 0) {
+            aCallback.run();
+            return DONE;
+        } else if (aDelayNanos > MAX_DELAY_NANOS) {
+            return DONE;
+        }
+        final DeadlineTimerWheel.Timeout timeout = DeadlineTimerWheel.getDefault().schedule(System.nanoTime() + aDelayNanos, aCallback);
+        return new ICallbackRegistration() {
+            @Override
+            public boolean isComplete() {
+                return true;
+            }
+
+            @Override
+            public void cancel() {
+                timeout.cancel();
+            }
+        };
+    }
+
+    /**
+     * @return a registration standing for all the given ones, complete if they all are.
+     */
+    public static ICallbackRegistration all(Collection<ICallbackRegistration> aRegistrations) {
+        final ImmutableList<ICallbackRegistration> registrations = ImmutableList.copyOf(aRegistrations);
+        final boolean complete = registrations.stream().allMatch(ICallbackRegistration::isComplete);
+        return new ICallbackRegistration() {
+            @Override
+            public boolean isComplete() {
+                return complete;
+            }
+
+            @Override
+            public void cancel() {
+                registrations.forEach(ICallbackRegistration::cancel);
+            }
+        };
+    }
+
+}
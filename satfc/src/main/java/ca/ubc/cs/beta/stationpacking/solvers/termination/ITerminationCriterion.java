@@ -57,6 +57,30 @@ public interface ITerminationCriterion {
 	 */
 	public void notifyEvent(double aTime);
 
+	/**
+	 * Ask for a callback as soon as the criterion is met, so that blocking code (<i>e.g.</i> a native solver) can be interrupted right away
+	 * instead of at the next poll of {@link #hasToStop()}. The callback runs at most once, on whichever thread notices that the criterion is met
+	 * (possibly right away), and must be short.
+	 * @param aCallback - callback to run when the criterion is met.
+	 * @return the registration, to cancel once the callback is no longer needed.
+	 */
+	default ICallbackRegistration registerCallback(Runnable aCallback) {
+		return CallbackRegistrations.UNSUPPORTED;
+	}
+
+	/**
+	 * A callback registered with {@link ITerminationCriterion#registerCallback(Runnable)}.
+	 */
+	public interface ICallbackRegistration {
+
+		/**
+		 * @return true if the callback runs however the criterion gets met. Otherwise (<i>e.g.</i> for CPU time) the criterion still has to be polled.
+		 */
+		boolean isComplete();
+
+		void cancel();
+	}
+
     /**
      * A termination criterion that can be interrupted.
      */
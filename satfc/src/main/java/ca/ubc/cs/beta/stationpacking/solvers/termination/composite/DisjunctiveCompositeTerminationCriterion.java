@@ -21,13 +21,16 @@
  */
 package ca.ubc.cs.beta.stationpacking.solvers.termination.composite;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.commons.math3.util.FastMath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ca.ubc.cs.beta.stationpacking.solvers.termination.CallbackRegistrations;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 
 /**
@@ -86,6 +89,20 @@ public class DisjunctiveCompositeTerminationCriterion implements ITerminationCri
 		}
 	}
 
+	/**
+	 * The callback runs when the first of the criteria calls back.
+	 */
+	@Override
+	public ICallbackRegistration registerCallback(Runnable aCallback) {
+		final Runnable callback = CallbackRegistrations.once(aCallback);
+		final List<ICallbackRegistration> registrations = new ArrayList<>();
+		for(ITerminationCriterion criterion : fTerminationCriteria)
+		{
+			registrations.add(criterion.registerCallback(callback));
+		}
+		return CallbackRegistrations.all(registrations);
+	}
+
 	
 
 }
@@ -21,6 +21,7 @@
  */
 package ca.ubc.cs.beta.stationpacking.solvers.termination.infinite;
 
+import ca.ubc.cs.beta.stationpacking.solvers.termination.CallbackRegistrations;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 
 /**
@@ -43,4 +44,10 @@ public class NeverEndingTerminationCriterion implements ITerminationCriterion {
     public void notifyEvent(double aTime) {
 
     }
+
+    @Override
+    public ICallbackRegistration registerCallback(Runnable aCallback) {
+        return CallbackRegistrations.DONE;
+    }
+
 }
@@ -21,10 +21,13 @@
  */
 package ca.ubc.cs.beta.stationpacking.solvers.termination.interrupt;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import ca.ubc.cs.beta.stationpacking.solvers.termination.CallbackRegistrations;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.infinite.NeverEndingTerminationCriterion;
 import lombok.extern.slf4j.Slf4j;
@@ -38,7 +41,8 @@ public class InterruptibleTerminationCriterion implements ITerminationCriterion.
 
     private final ITerminationCriterion decoratedCriterion;
     private final AtomicBoolean interrupt;
-
+    // Run by the interrupting thread
+    private final Queue<Runnable> callbacks = new ConcurrentLinkedQueue<>();
 
     public InterruptibleTerminationCriterion(ITerminationCriterion decoratedCriterion) {
         this.decoratedCriterion = decoratedCriterion;
@@ -65,7 +69,37 @@ public class InterruptibleTerminationCriterion implements ITerminationCriterion.
     }
 
     public boolean interrupt() {
-        return interrupt.compareAndSet(false, true);
+        if (interrupt.compareAndSet(false, true)) {
+            callbacks.forEach(Runnable::run);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The callback runs upon {@link #interrupt()}, or when the decorated criterion calls back.
+     */
+    @Override
+    public ICallbackRegistration registerCallback(Runnable aCallback) {
+        final Runnable callback = CallbackRegistrations.once(aCallback);
+        final ICallbackRegistration decoratedRegistration = decoratedCriterion.registerCallback(callback);
+        callbacks.add(callback);
+        // An interrupt that came before the callback was added did not run it
+        if (interrupt.get()) {
+            callback.run();
+        }
+        return new ICallbackRegistration() {
+            @Override
+            public boolean isComplete() {
+                return decoratedRegistration.isComplete();
+            }
+
+            @Override
+            public void cancel() {
+                callbacks.remove(callback);
+                decoratedRegistration.cancel();
+            }
+        };
     }
 
 
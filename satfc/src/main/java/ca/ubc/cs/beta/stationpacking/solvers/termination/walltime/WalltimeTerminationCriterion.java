@@ -21,8 +21,11 @@
  */
 package ca.ubc.cs.beta.stationpacking.solvers.termination.walltime;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.math.util.FastMath;
 
+import ca.ubc.cs.beta.stationpacking.solvers.termination.CallbackRegistrations;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 
 public class WalltimeTerminationCriterion implements ITerminationCriterion {
@@ -64,6 +67,14 @@ public class WalltimeTerminationCriterion implements ITerminationCriterion {
 		//Do not need to account for any additional (parallel) time with walltime.
 		
 	}
+
+	/**
+	 * The callback runs at the deadline, on the process wide timer wheel.
+	 */
+	@Override
+	public ICallbackRegistration registerCallback(Runnable aCallback) {
+		return CallbackRegistrations.afterDelay(TimeUnit.MILLISECONDS.toNanos(fEndTimeMilli - System.currentTimeMillis()), aCallback);
+	}
 	
 
 	
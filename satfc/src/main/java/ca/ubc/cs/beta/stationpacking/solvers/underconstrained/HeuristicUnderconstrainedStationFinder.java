@@ -25,15 +25,14 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import org.jgrapht.alg.NeighborIndex;
-import org.jgrapht.graph.DefaultEdge;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Sets;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
-import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGrouper;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphView;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
 import lombok.extern.slf4j.Slf4j;
 
@@ -70,9 +69,15 @@ public class HeuristicUnderconstrainedStationFinder implements IUnderconstrained
 
     private final IConstraintManager constraintManager;
     private final boolean performExpensiveAnalysis;
+    private final ConstraintGraphService constraintGraphService;
 
     public HeuristicUnderconstrainedStationFinder(IConstraintManager constraintManager, boolean performExpensiveAnalysis) {
+        this(constraintManager, new ConstraintGraphService(constraintManager), performExpensiveAnalysis);
+    }
+
+    public HeuristicUnderconstrainedStationFinder(IConstraintManager constraintManager, ConstraintGraphService constraintGraphService, boolean performExpensiveAnalysis) {
         this.constraintManager = constraintManager;
+        this.constraintGraphService = constraintGraphService;
         this.performExpensiveAnalysis = performExpensiveAnalysis;
     }
 
@@ -92,7 +97,7 @@ public class HeuristicUnderconstrainedStationFinder implements IUnderconstrained
             badChannels.put(constraint.getTarget(), constraint.getTargetChannel());
         });
 
-        final NeighborIndex<Station, DefaultEdge> neighborIndex = new NeighborIndex<>(ConstraintGrouper.getConstraintGraph(domains, constraintManager));
+        final ConstraintGraphView neighborIndex = constraintGraphService.getView(domains);
 
         for (final Station station : stationsToCheck) {
             if (criterion.hasToStop()) {
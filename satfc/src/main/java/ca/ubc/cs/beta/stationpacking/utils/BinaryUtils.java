@@ -0,0 +1,62 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.utils;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Length prefixed int arrays and strings, written to a {@link DataOutput} and read back from a (memory mapped) {@link ByteBuffer}.
+ * Both use the big-endian byte order.
+ */
+public class BinaryUtils {
+
+    public static void writeInts(DataOutput aOut, int[] aValues) throws IOException {
+        aOut.writeInt(aValues.length);
+        for (int value : aValues) {
+            aOut.writeInt(value);
+        }
+    }
+
+    public static int[] readInts(ByteBuffer aBuffer) {
+        final int length = aBuffer.getInt();
+        final int[] values = new int[length];
+        aBuffer.asIntBuffer().get(values);
+        aBuffer.position(aBuffer.position() + length * Integer.BYTES);
+        return values;
+    }
+
+    public static void writeString(DataOutput aOut, String aString) throws IOException {
+        final byte[] bytes = aString.getBytes(StandardCharsets.UTF_8);
+        aOut.writeInt(bytes.length);
+        aOut.write(bytes);
+    }
+
+    public static String readString(ByteBuffer aBuffer) {
+        final byte[] bytes = new byte[aBuffer.getInt()];
+        aBuffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Sets;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.cache.ContainmentCacheSnapshot.Snapshot;
+import ca.ubc.cs.beta.stationpacking.cache.RedisCacher.ContainmentCacheInitData;
+import ca.ubc.cs.beta.stationpacking.cache.containment.CachePermutation;
+import ca.ubc.cs.beta.stationpacking.cache.containment.ContainmentCacheSATEntry;
+import ca.ubc.cs.beta.stationpacking.cache.containment.ContainmentCacheUNSATEntry;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.DataManager;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.ManagerBundle;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+
+public class ContainmentCacheSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    final Station s1 = new Station(1);
+    final Station s2 = new Station(2);
+    final Station s3 = new Station(3);
+    final ImmutableBiMap<Station, Integer> permutation = ImmutableBiMap.of(s1, 0, s2, 1, s3, 2);
+    final CacheCoordinate coordinate = new CacheCoordinate("domains", "interference");
+
+    private DataManager makeDataManager() {
+        final ManagerBundle bundle = mock(ManagerBundle.class);
+        when(bundle.getPermutation()).thenReturn(permutation);
+        when(bundle.getCachePermutation()).thenReturn(CachePermutation.of(permutation));
+        final DataManager dataManager = mock(DataManager.class);
+        when(dataManager.getCoordinateToBundle()).thenReturn(ImmutableMap.of(coordinate, bundle));
+        when(dataManager.getData(coordinate)).thenReturn(bundle);
+        return dataManager;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final ContainmentCacheSATEntry sat1 = new ContainmentCacheSATEntry(ImmutableMap.of(14, Sets.newHashSet(s1), 51, Sets.newHashSet(s3)), permutation);
+        sat1.setKey(coordinate.toKey(SATResult.SAT, 3));
+        sat1.setAuction("1234");
+        final ContainmentCacheSATEntry sat2 = new ContainmentCacheSATEntry(ImmutableMap.of(20, Sets.newHashSet(s1, s2, s3)), permutation);
+        sat2.setKey(coordinate.toKey(SATResult.SAT, 7));
+        final ContainmentCacheUNSATEntry unsat = new ContainmentCacheUNSATEntry(ImmutableMap.of(s2, Sets.newHashSet(15, 16), s3, Sets.newHashSet(40)), permutation);
+        unsat.setKey(coordinate.toKey(SATResult.UNSAT, 5));
+        // Entries of a coordinate the data manager does not know about are skipped
+        final ContainmentCacheSATEntry unknown = new ContainmentCacheSATEntry(ImmutableMap.of(20, Sets.newHashSet(s1)), permutation);
+        final CacheCoordinate unknownCoordinate = new CacheCoordinate("other", "interference");
+        unknown.setKey(unknownCoordinate.toKey(SATResult.SAT, 6));
+
+        final ListMultimap<CacheCoordinate, ContainmentCacheSATEntry> SATEntries = ArrayListMultimap.create();
+        SATEntries.put(coordinate, sat1);
+        SATEntries.put(coordinate, sat2);
+        SATEntries.put(unknownCoordinate, unknown);
+        final ListMultimap<CacheCoordinate, ContainmentCacheUNSATEntry> UNSATEntries = ArrayListMultimap.create();
+        UNSATEntries.put(coordinate, unsat);
+
+        final File file = new File(folder.getRoot(), "snapshot.bin");
+        ContainmentCacheSnapshot.write(file, 7, new ContainmentCacheInitData(SATEntries, UNSATEntries));
+        final Snapshot snapshot = ContainmentCacheSnapshot.read(file, makeDataManager(), false, false);
+
+        assertEquals(7, snapshot.getHighWaterMark());
+        assertEquals(2, snapshot.getData().getSATResults().size());
+        assertEquals(sat1, snapshot.getData().getSATResults().get(coordinate).get(0));
+        assertEquals(sat2, snapshot.getData().getSATResults().get(coordinate).get(1));
+        assertEquals(sat1.getAssignmentChannelToStation(), snapshot.getData().getSATResults().get(coordinate).get(0).getAssignmentChannelToStation());
+        assertEquals(1, snapshot.getData().getUNSATResults().size());
+        assertEquals(unsat, snapshot.getData().getUNSATResults().get(coordinate).get(0));
+        assertEquals(unsat.getDomains(), snapshot.getData().getUNSATResults().get(coordinate).get(0).getDomains());
+
+        final Snapshot SATOnly = ContainmentCacheSnapshot.read(file, makeDataManager(), false, true);
+        assertEquals(0, SATOnly.getData().getUNSATResults().size());
+        assertEquals(2, SATOnly.getData().getSATResults().size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotASnapshot() throws IOException {
+        final File file = folder.newFile("garbage.bin");
+        Files.write(file.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        ContainmentCacheSnapshot.read(file, makeDataManager(), false, false);
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+
+public class SharedMemoryResultCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String CONSTRAINTS = "constraints";
+
+    final Station s1 = new Station(1);
+    final Station s2 = new Station(2);
+    final Map<Station, Set<Integer>> domains = ImmutableMap.of(s1, ImmutableSet.of(14, 15), s2, ImmutableSet.of(15, 16));
+
+    @Test
+    public void testResultsAreSharedAcrossMappings() throws Exception {
+        final String path = new File(folder.getRoot(), "cache").getPath();
+        final SharedMemoryResultCache writer = new SharedMemoryResultCache(path, 64, 256);
+        final SharedMemoryResultCache reader = new SharedMemoryResultCache(path, 64, 256);
+
+        final StationPackingInstance instance = new StationPackingInstance(domains, ImmutableMap.of(), ImmutableMap.of(StationPackingInstance.NAME_KEY, "original"));
+        assertFalse(reader.lookup(instance, CONSTRAINTS).isPresent());
+        writer.cacheResult(instance, CONSTRAINTS, new SolverResult(SATResult.SAT, 3.0, ImmutableMap.of(14, ImmutableSet.of(s1), 16, ImmutableSet.of(s2)), SolverResult.SolvedBy.CLASP));
+
+        // Same domains under another name
+        final StationPackingInstance renamed = new StationPackingInstance(domains, ImmutableMap.of(), ImmutableMap.of(StationPackingInstance.NAME_KEY, "renamed"));
+        final Optional<SolverResult> result = reader.lookup(renamed, CONSTRAINTS);
+        assertTrue(result.isPresent());
+        assertEquals(SATResult.SAT, result.get().getResult());
+        assertEquals(SolverResult.SolvedBy.SAT_CACHE, result.get().getSolvedBy());
+        assertEquals(ImmutableMap.of(14, ImmutableSet.of(s1), 16, ImmutableSet.of(s2)), result.get().getAssignment());
+
+        final StationPackingInstance smaller = new StationPackingInstance(ImmutableMap.of(s1, ImmutableSet.of(14, 15)));
+        assertFalse(reader.lookup(smaller, CONSTRAINTS).isPresent());
+        writer.cacheResult(smaller, CONSTRAINTS, SolverResult.createNonSATResult(SATResult.UNSAT, 1.0, SolverResult.SolvedBy.CLASP));
+        assertEquals(SolverResult.SolvedBy.UNSAT_CACHE, reader.lookup(smaller, CONSTRAINTS).get().getSolvedBy());
+    }
+
+    @Test
+    public void testResultsAreNotSharedAcrossConstraintSets() throws Exception {
+        final SharedMemoryResultCache cache = new SharedMemoryResultCache(new File(folder.getRoot(), "cache").getPath(), 64, 256);
+        final StationPackingInstance instance = new StationPackingInstance(domains);
+        cache.cacheResult(instance, CONSTRAINTS, SolverResult.createNonSATResult(SATResult.UNSAT, 1.0, SolverResult.SolvedBy.CLASP));
+        assertTrue(cache.lookup(instance, CONSTRAINTS).isPresent());
+        assertFalse(cache.lookup(instance, "other constraints").isPresent());
+
+        // The same domains can hold a different result under the other constraints
+        cache.cacheResult(instance, "other constraints", new SolverResult(SATResult.SAT, 3.0, ImmutableMap.of(14, ImmutableSet.of(s1), 16, ImmutableSet.of(s2)), SolverResult.SolvedBy.CLASP));
+        assertEquals(SATResult.SAT, cache.lookup(instance, "other constraints").get().getResult());
+        assertEquals(SATResult.UNSAT, cache.lookup(instance, CONSTRAINTS).get().getResult());
+    }
+
+    @Test
+    public void testFullSetEvictsUnreferencedSlot() throws Exception {
+        // A single set
+        final SharedMemoryResultCache cache = new SharedMemoryResultCache(new File(folder.getRoot(), "cache").getPath(), SharedMemoryResultCache.WAYS, 256);
+        final SolverResult unsat = SolverResult.createNonSATResult(SATResult.UNSAT, 1.0, SolverResult.SolvedBy.CLASP);
+        final StationPackingInstance[] instances = new StationPackingInstance[SharedMemoryResultCache.WAYS + 1];
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = new StationPackingInstance(ImmutableMap.of(new Station(i), ImmutableSet.of(14)));
+        }
+        for (int i = 0; i < SharedMemoryResultCache.WAYS; i++) {
+            cache.cacheResult(instances[i], CONSTRAINTS, unsat);
+            assertTrue(cache.lookup(instances[i], CONSTRAINTS).isPresent());
+        }
+        cache.cacheResult(instances[SharedMemoryResultCache.WAYS], CONSTRAINTS, unsat);
+        int numCached = 0;
+        for (StationPackingInstance instance : instances) {
+            numCached += cache.lookup(instance, CONSTRAINTS).isPresent() ? 1 : 0;
+        }
+        assertTrue(cache.lookup(instances[SharedMemoryResultCache.WAYS], CONSTRAINTS).isPresent());
+        assertEquals(SharedMemoryResultCache.WAYS, numCached);
+    }
+
+    @Test
+    public void testResultTooLargeForSlotIsNotCached() throws Exception {
+        final SharedMemoryResultCache cache = new SharedMemoryResultCache(new File(folder.getRoot(), "cache").getPath(), SharedMemoryResultCache.WAYS, 48);
+        final StationPackingInstance instance = new StationPackingInstance(domains);
+        cache.cacheResult(instance, CONSTRAINTS, new SolverResult(SATResult.SAT, 3.0, ImmutableMap.of(14, ImmutableSet.of(s1), 16, ImmutableSet.of(s2)), SolverResult.SolvedBy.CLASP));
+        assertFalse(cache.lookup(instance, CONSTRAINTS).isPresent());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDifferentLayoutIsRejected() throws Exception {
+        final String path = new File(folder.getRoot(), "cache").getPath();
+        new SharedMemoryResultCache(path, 64, 256);
+        new SharedMemoryResultCache(path, 128, 256);
+    }
+
+}
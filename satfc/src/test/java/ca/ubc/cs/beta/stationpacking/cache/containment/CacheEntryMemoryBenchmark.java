@@ -0,0 +1,107 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.cache.containment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableBiMap;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+
+/**
+ * Reports the heap taken per SAT entry and the time to iterate over entries' elements on a synthetic cache,
+ * with entries sharing their coordinate's permutation, and with each entry holding its own copy of it (as they used to).
+ * Run the main method from the test classpath with a large heap, e.g. -Xmx8g.
+ */
+public class CacheEntryMemoryBenchmark {
+
+    private static final int NUM_STATIONS = 2000;
+    private static final int ENTRY_SIZE = 400;
+
+    public static void main(String[] args) {
+        final int numEntries = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        final List<Station> stations = IntStream.range(0, NUM_STATIONS).mapToObj(Station::new).collect(Collectors.toList());
+        final Map<Station, Integer> bits = new HashMap<>();
+        for (int i = 0; i < stations.size(); i++) {
+            bits.put(stations.get(i), i);
+        }
+        final ImmutableBiMap<Station, Integer> permutation = ImmutableBiMap.copyOf(bits);
+        measure(numEntries, stations, permutation, true);
+        measure(numEntries, stations, permutation, false);
+    }
+
+    private static void measure(int numEntries, List<Station> stations, ImmutableBiMap<Station, Integer> permutation, boolean shared) {
+        final long before = usedHeap();
+        final List<ContainmentCacheSATEntry> entries = makeEntries(numEntries, stations, permutation, shared);
+        final long after = usedHeap();
+        double elementsSeconds = 0;
+        double assignmentSeconds = 0;
+        long numElements = 0;
+        // Only the last repetition counts, the first ones warm up the JIT
+        for (int repetition = 0; repetition < 3; repetition++) {
+            numElements = 0;
+            long start = System.nanoTime();
+            for (ContainmentCacheSATEntry entry : entries) {
+                numElements += entry.getElements().size();
+            }
+            elementsSeconds = (System.nanoTime() - start) / 1e9;
+            start = System.nanoTime();
+            for (ContainmentCacheSATEntry entry : entries) {
+                numElements += entry.getAssignmentStationToChannel().size();
+            }
+            assignmentSeconds = (System.nanoTime() - start) / 1e9;
+        }
+        System.out.printf("%s permutation: %d bytes per entry, getElements %.3fs, getAssignmentStationToChannel %.3fs (%d elements)%n",
+                shared ? "Shared" : "Per entry", (after - before) / numEntries, elementsSeconds, assignmentSeconds, numElements);
+    }
+
+    private static List<ContainmentCacheSATEntry> makeEntries(int numEntries, List<Station> stations, ImmutableBiMap<Station, Integer> permutation, boolean shared) {
+        final Random random = new Random(0);
+        final List<ContainmentCacheSATEntry> entries = new ArrayList<>(numEntries);
+        for (int i = 0; i < numEntries; i++) {
+            final Map<Integer, Set<Station>> assignment = new HashMap<>();
+            for (int j = 0; j < ENTRY_SIZE; j++) {
+                assignment.computeIfAbsent(14 + random.nextInt(38), c -> new HashSet<>()).add(stations.get(random.nextInt(stations.size())));
+            }
+            entries.add(new ContainmentCacheSATEntry(assignment, shared ? permutation : HashBiMap.create(permutation)));
+        }
+        return entries;
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
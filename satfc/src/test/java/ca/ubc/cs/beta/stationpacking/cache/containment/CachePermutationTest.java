@@ -0,0 +1,85 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.cache.containment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+
+public class CachePermutationTest {
+
+    final Station s1 = new Station(1);
+    final Station s2 = new Station(2);
+    final Station s3 = new Station(3);
+    final ImmutableBiMap<Station, Integer> permutation = ImmutableBiMap.of(s1, 2, s2, 0, s3, 1);
+
+    @Test
+    public void testInverse() {
+        final CachePermutation cachePermutation = CachePermutation.of(permutation);
+        assertEquals(s2, cachePermutation.getStation(0));
+        assertEquals(s3, cachePermutation.getStation(1));
+        assertEquals(s1, cachePermutation.getStation(2));
+        assertNull(cachePermutation.getStation(3));
+        assertEquals(Integer.valueOf(2), cachePermutation.getBit(s1));
+    }
+
+    @Test
+    public void testEntriesShareThePermutation() {
+        final ContainmentCacheSATEntry sat = new ContainmentCacheSATEntry(ImmutableMap.of(20, Sets.newHashSet(s1, s2)), permutation);
+        final ContainmentCacheUNSATEntry unsat = new ContainmentCacheUNSATEntry(ImmutableMap.of(s3, Sets.newHashSet(20)), permutation);
+        assertSame(sat.getPermutation(), unsat.getPermutation());
+        assertSame(CachePermutation.of(permutation), sat.getPermutation());
+        assertEquals(Sets.newHashSet(s1, s2), sat.getElements());
+        // An equal permutation from another map is a different instance, but entries over it are still equal
+        final ContainmentCacheSATEntry copy = new ContainmentCacheSATEntry(ImmutableMap.of(20, Sets.newHashSet(s1, s2)), HashBiMap.create(permutation));
+        assertEquals(sat, copy);
+    }
+
+    @Test
+    public void testUnusedPermutationIsReleased() throws InterruptedException {
+        final WeakReference<ImmutableBiMap<Station, Integer>> unused = internUnusedPermutation();
+        for (int i = 0; i < 50 && unused.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertTrue(unused.get() == null);
+    }
+
+    private WeakReference<ImmutableBiMap<Station, Integer>> internUnusedPermutation() {
+        final ImmutableBiMap<Station, Integer> unused = ImmutableBiMap.of(s1, 0, s2, 1);
+        CachePermutation.of(unused);
+        return new WeakReference<>(unused);
+    }
+
+}
@@ -33,6 +33,7 @@ import org.junit.Test;
 import com.google.common.collect.ImmutableBiMap;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
 
 /**
  * Created by emily404 on 5/12/15.
@@ -120,4 +121,38 @@ public class ContainmentCacheUNSATEntryTest {
 
         Assert.assertFalse(firstEntry.isLessRestrictive(secondEntry));
     }
+
+    /**
+     * Checking against a packed query agrees with the domains, including for stations whose channels straddle two words of the domains bitset
+     */
+    @Test
+    public void lessRestrictiveThanQueryTest(){
+        final Station s1 = new Station(1), s2 = new Station(2), s3 = new Station(3), s4 = new Station(4);
+        final ImmutableBiMap<Station, Integer> bigPermutation = ImmutableBiMap.of(s1, 0, s2, 1, s3, 2, s4, 3);
+        Map<Station, Set<Integer>> entryDomains = new HashMap<>();
+        entryDomains.put(s1, new HashSet<>(Arrays.asList(14, 30)));
+        entryDomains.put(s2, new HashSet<>(Arrays.asList(20, 51)));
+        entryDomains.put(s4, new HashSet<>(Arrays.asList(15, 16, 17)));
+        ContainmentCacheUNSATEntry entry = new ContainmentCacheUNSATEntry(entryDomains, bigPermutation);
+
+        Map<Station, Set<Integer>> query = new HashMap<>();
+        query.put(s1, new HashSet<>(Arrays.asList(30)));
+        query.put(s2, new HashSet<>(Arrays.asList(20, 51)));
+        query.put(s3, new HashSet<>(Arrays.asList(40)));
+        query.put(s4, new HashSet<>(Arrays.asList(15, 17)));
+        Assert.assertTrue(entry.isLessRestrictive(new PackedDomains(new StationPackingInstance(query), bigPermutation)));
+
+        // s2 has a channel the entry does not have
+        query.put(s2, new HashSet<>(Arrays.asList(21, 51)));
+        Assert.assertFalse(entry.isLessRestrictive(new PackedDomains(new StationPackingInstance(query), bigPermutation)));
+
+        // s4 is missing from the query
+        query.put(s2, new HashSet<>(Arrays.asList(51)));
+        query.remove(s4);
+        Assert.assertFalse(entry.isLessRestrictive(new PackedDomains(new StationPackingInstance(query), bigPermutation)));
+
+        // the domains survive a round trip through the raw bitset
+        final ContainmentCacheUNSATEntry copy = new ContainmentCacheUNSATEntry(entry.getBitSet(), entry.getDomainsBitSet(), "key", bigPermutation, null);
+        Assert.assertEquals(entryDomains, copy.getDomains());
+    }
 }
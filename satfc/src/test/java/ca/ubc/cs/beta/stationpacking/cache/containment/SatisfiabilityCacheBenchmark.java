@@ -0,0 +1,160 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.cache.containment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.collect.ImmutableBiMap;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.cache.SatisfiabilityCacheFactory;
+import containmentcache.ILockableContainmentCache;
+import containmentcache.SimpleCacheSet;
+import containmentcache.util.PermutationUtils;
+
+/**
+ * Compares SAT superset queries on a synthetic cache: the original sequential, map based search against the sharded parallel search on packed entries.
+ * Queries mostly miss, which is the expensive case. Run with the main method from the test classpath (needs a large heap for the default cache size).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SatisfiabilityCacheBenchmark {
+
+    private static final int NUM_STATIONS = 2000;
+    private static final int ENTRY_SIZE = 400;
+    private static final int QUERY_SIZE = 40;
+    private static final int NUM_QUERIES = 64;
+    private static final int MIN_CHANNEL = 14;
+    private static final int MAX_CHANNEL = 51;
+
+    @Param({"1000000"})
+    public int numEntries;
+
+    @Param({"1", "8"})
+    public int numShards;
+
+    private SatisfiabilityCache cache;
+    private List<StationPackingInstance> queries;
+    private int nextQuery = 0;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(0);
+        final Set<Station> universe = IntStream.range(0, NUM_STATIONS).mapToObj(Station::new).collect(Collectors.toSet());
+        final List<Station> stations = new ArrayList<>(universe);
+        final ImmutableBiMap<Station, Integer> permutation = PermutationUtils.makePermutation(universe);
+        cache = (SatisfiabilityCache) new SatisfiabilityCacheFactory(1, 0, numShards).create(permutation);
+        for (int i = 0; i < numEntries; i++) {
+            final Map<Integer, Set<Station>> assignment = new HashMap<>();
+            for (Station station : randomSubset(stations, ENTRY_SIZE, random)) {
+                assignment.computeIfAbsent(randomChannel(random), c -> new HashSet<>()).add(station);
+            }
+            cache.add(new ContainmentCacheSATEntry(assignment, permutation));
+        }
+        queries = new ArrayList<>(NUM_QUERIES);
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            final Map<Station, Set<Integer>> domains = new HashMap<>();
+            for (Station station : randomSubset(stations, QUERY_SIZE, random)) {
+                domains.put(station, IntStream.range(0, 10).mapToObj(j -> randomChannel(random)).collect(Collectors.toSet()));
+            }
+            queries.add(new StationPackingInstance(domains));
+        }
+    }
+
+    private static List<Station> randomSubset(List<Station> stations, int size, Random random) {
+        final List<Station> subset = new ArrayList<>(stations);
+        for (int i = 0; i < size; i++) {
+            final int j = i + random.nextInt(subset.size() - i);
+            subset.set(j, subset.set(i, subset.get(j)));
+        }
+        return subset.subList(0, size);
+    }
+
+    private static int randomChannel(Random random) {
+        return MIN_CHANNEL + random.nextInt(MAX_CHANNEL - MIN_CHANNEL + 1);
+    }
+
+    private StationPackingInstance nextQuery() {
+        nextQuery = (nextQuery + 1) % NUM_QUERIES;
+        return queries.get(nextQuery);
+    }
+
+    /**
+     * The search as it was before sharding: one shard after the other, rebuilding each candidate's assignment map.
+     */
+    @Benchmark
+    public boolean mapBasedSequential() {
+        final StationPackingInstance instance = nextQuery();
+        final SimpleCacheSet<Station> query = new SimpleCacheSet<>(instance.getStations(), cache.getPermutation());
+        for (ILockableContainmentCache<Station, ContainmentCacheSATEntry> shard : cache.SATShards) {
+            shard.getReadLock().lock();
+            try {
+                if (StreamSupport.stream(shard.getSupersets(query).spliterator(), false).anyMatch(entry -> entry.isSolutionTo(instance))) {
+                    return true;
+                }
+            } finally {
+                shard.getReadLock().unlock();
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean packedSharded() {
+        return cache.proveSATBySuperset(nextQuery()).isValid();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SatisfiabilityCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -33,6 +33,7 @@ import org.junit.Test;
 import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
@@ -70,6 +71,43 @@ public class SatisfiabilityCacheTest {
         assertFalse(containmentCacheSATResult2.isValid());
     }
 
+    @Test
+    public void testProveSATBySupersetSharded() throws Exception {
+        final SatisfiabilityCacheFactory factory = new SatisfiabilityCacheFactory(1, 0, 4);
+        final ImmutableBiMap<Station, Integer> permutation = PermutationUtils.makePermutation(UNIVERSE);
+        final ISatisfiabilityCache satisfiabilityCache = factory.create(permutation);
+        satisfiabilityCache.add(new ContainmentCacheSATEntry(ImmutableMap.of(1, Sets.newHashSet(s1), 2, Sets.newHashSet(s2)), permutation));
+        satisfiabilityCache.add(new ContainmentCacheSATEntry(ImmutableMap.of(3, Sets.newHashSet(s1, s3)), permutation));
+        satisfiabilityCache.add(new ContainmentCacheSATEntry(ImmutableMap.of(4, UNIVERSE), permutation));
+
+        final StationPackingInstance instance = new StationPackingInstance(ImmutableMap.of(s1, Sets.newHashSet(3), s3, Sets.newHashSet(3, 4)));
+        final ContainmentCacheSATResult result = satisfiabilityCache.proveSATBySuperset(instance);
+        assertTrue(result.isValid());
+        assertEquals(ImmutableMap.of(3, Sets.newHashSet(s1, s3)), result.getResult());
+
+        final StationPackingInstance instance2 = new StationPackingInstance(ImmutableMap.of(s1, Sets.newHashSet(1), s3, Sets.newHashSet(1)));
+        assertFalse(satisfiabilityCache.proveSATBySuperset(instance2).isValid());
+    }
+
+    @Test
+    public void testPackedDomainsAgreeWithAssignment() throws Exception {
+        final Station s4 = new Station(4);
+        final ImmutableBiMap<Station, Integer> permutation = ImmutableBiMap.of(s3, 0, s1, 1, s4, 2, s2, 3);
+        final ContainmentCacheSATEntry entry = new ContainmentCacheSATEntry(ImmutableMap.of(14, Sets.newHashSet(s1, s2), 200, Sets.newHashSet(s3)), permutation);
+        final List<StationPackingInstance> queries = Lists.newArrayList(
+                new StationPackingInstance(ImmutableMap.of(s1, Sets.newHashSet(14), s3, Sets.newHashSet(199, 200))),
+                new StationPackingInstance(ImmutableMap.of(s1, Sets.newHashSet(14), s2, Sets.newHashSet(15))),
+                new StationPackingInstance(ImmutableMap.of(s2, Sets.newHashSet(14, 300))),
+                // s4 is not part of the entry
+                new StationPackingInstance(ImmutableMap.of(s1, Sets.newHashSet(14), s4, Sets.newHashSet(14)))
+        );
+        final List<Boolean> expected = Lists.newArrayList(true, false, true, false);
+        for (int i = 0; i < queries.size(); i++) {
+            assertEquals(expected.get(i), entry.isSolutionTo(new PackedDomains(queries.get(i), permutation)));
+            assertEquals(expected.get(i), entry.isSolutionTo(queries.get(i)));
+        }
+    }
+
     @Test
     public void testProveUNSATBySubset() throws Exception {
         final SatisfiabilityCacheFactory factory = new SatisfiabilityCacheFactory(3, 0);
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.consistency;
+
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.ADJp1;
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.ADJp2;
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.CO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.TestConstraint;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.TestConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+
+public class BitSetAC3EnforcerTest {
+
+    final Station s1 = new Station(1);
+    final Station s2 = new Station(2);
+    final Station s3 = new Station(3);
+
+    @Test
+    public void testAC3() throws Exception {
+        final StationPackingInstance instance = new StationPackingInstance(
+                ImmutableMap.of(
+                        s1, ImmutableSet.of(1),
+                        s2, ImmutableSet.of(1, 2, 3),
+                        s3, ImmutableSet.of(1, 2, 3)
+                )
+        );
+        List<TestConstraint> constraints = new ArrayList<>();
+        constraints.add(new TestConstraint(CO, 1, s1, ImmutableSet.of(s2, s3)));
+        constraints.add(new TestConstraint(ADJp1, 1, s1, ImmutableSet.of(s2, s3)));
+        final AC3Output ac3Output = new BitSetAC3Enforcer(new TestConstraintManager(constraints)).AC3(instance);
+        assertFalse(ac3Output.isNoSolution());
+        assertEquals(4, ac3Output.getNumReducedChannels());
+        final Map<Station, Set<Integer>> reducedDomains = ac3Output.getReducedDomains();
+        assertEquals(ImmutableSet.of(3), reducedDomains.get(s2));
+        assertEquals(ImmutableSet.of(3), reducedDomains.get(s3));
+    }
+
+    @Test
+    public void testNoSolution() throws Exception {
+        final StationPackingInstance instance = new StationPackingInstance(
+                ImmutableMap.of(
+                        s1, ImmutableSet.of(1),
+                        s2, ImmutableSet.of(1, 2)
+                )
+        );
+        List<TestConstraint> constraints = new ArrayList<>();
+        constraints.add(new TestConstraint(CO, 1, s1, ImmutableSet.of(s2)));
+        constraints.add(new TestConstraint(ADJp1, 1, s1, ImmutableSet.of(s2)));
+        assertTrue(new BitSetAC3Enforcer(new TestConstraintManager(constraints)).AC3(instance).isNoSolution());
+    }
+
+    @Test
+    public void testWideChannelRange() throws Exception {
+        final StationPackingInstance instance = new StationPackingInstance(
+                ImmutableMap.of(
+                        s1, ImmutableSet.of(1),
+                        s2, ImmutableSet.of(1, 2, 100)
+                )
+        );
+        List<TestConstraint> constraints = new ArrayList<>();
+        constraints.add(new TestConstraint(CO, 1, s1, ImmutableSet.of(s2)));
+        final AC3Output ac3Output = new BitSetAC3Enforcer(new TestConstraintManager(constraints)).AC3(instance);
+        assertEquals(ImmutableSet.of(2, 100), ac3Output.getReducedDomains().get(s2));
+    }
+
+    @Test
+    public void testSameReducedDomainsAsAC3Enforcer() throws Exception {
+        final Random random = new Random(0);
+        final ConstraintKey[] keys = {CO, ADJp1, ADJp2};
+        for (int trial = 0; trial < 100; trial++) {
+            final int numStations = 5 + random.nextInt(20);
+            final List<Station> stations = IntStream.range(0, numStations).mapToObj(Station::new).collect(Collectors.toList());
+            final List<TestConstraint> constraints = new ArrayList<>();
+            for (int i = 0; i < numStations * 6; i++) {
+                constraints.add(new TestConstraint(keys[random.nextInt(keys.length)], 14 + random.nextInt(10), stations.get(random.nextInt(numStations)), ImmutableSet.of(stations.get(random.nextInt(numStations)))));
+            }
+            // Skip self interference, which neither enforcer expects
+            constraints.removeIf(c -> c.getInterfering().contains(c.getReference()));
+            final IConstraintManager constraintManager = new TestConstraintManager(constraints);
+            final IStationManager stationManager = mock(IStationManager.class);
+            when(stationManager.getStations()).thenReturn(new HashSet<>(stations));
+            when(stationManager.getDomain(any(Station.class))).thenReturn(IntStream.range(14, 24).boxed().collect(Collectors.toSet()));
+            final Map<Station, Set<Integer>> domains = new HashMap<>();
+            for (Station station : stations) {
+                final Set<Integer> domain = IntStream.range(14, 24).filter(c -> random.nextInt(3) == 0).boxed().collect(Collectors.toSet());
+                domain.add(14 + random.nextInt(10));
+                domains.put(station, domain);
+            }
+            final StationPackingInstance instance = new StationPackingInstance(domains);
+            final AC3Output expected = new AC3Enforcer(constraintManager).AC3(instance);
+            // Once with per instance conflict masks, once with the precomputed adjacency's conflict windows
+            for (BitSetAC3Enforcer enforcer : new BitSetAC3Enforcer[]{new BitSetAC3Enforcer(constraintManager), new BitSetAC3Enforcer(constraintManager, new ConstraintGraphService(stationManager, constraintManager))}) {
+                final AC3Output actual = enforcer.AC3(instance);
+                assertEquals(expected.isNoSolution(), actual.isNoSolution());
+                if (!expected.isNoSolution()) {
+                    assertEquals(expected.getReducedDomains(), actual.getReducedDomains());
+                    assertEquals(expected.getNumReducedChannels(), actual.getNumReducedChannels());
+                }
+            }
+        }
+    }
+
+}
@@ -28,6 +28,7 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Test;
@@ -61,6 +62,43 @@ public abstract class ConstraintManagerTest {
 
     }
 
+    public static class IndexedConstraintManagerTest extends ConstraintManagerTest {
+
+        private ChannelSpecificConstraintManager getSourceConstraintManager() throws Exception {
+            final String interferencePath = Resources.getResource("data/testInterference").getPath();
+            return new ChannelSpecificConstraintManager(getDomainManager(), interferencePath + File.separator + "channelspecific" + File.separator + DataManager.INTERFERENCES_FILE);
+        }
+
+        @Override
+        protected IConstraintManager getConstraintManager() throws Exception {
+            return new IndexedConstraintManager(getDomainManager(), getSourceConstraintManager());
+        }
+
+        @Test
+        public void testSameAsSource() throws Exception {
+            final IStationManager dm = getDomainManager();
+            final ChannelSpecificConstraintManager source = getSourceConstraintManager();
+            final IndexedConstraintManager indexed = new IndexedConstraintManager(dm, source);
+            assertEquals(source.getConstraintHash(), indexed.getConstraintHash());
+            assertTrue(indexed.isCompactInterference());
+            for (Station s1 : dm.getStations()) {
+                for (int c1 = 0; c1 <= 102; c1++) {
+                    assertEquals(source.getCOInterferingStations(s1, c1), indexed.getCOInterferingStations(s1, c1));
+                    assertEquals(source.getADJplusOneInterferingStations(s1, c1), indexed.getADJplusOneInterferingStations(s1, c1));
+                    assertEquals(source.getADJplusTwoInterferingStations(s1, c1), indexed.getADJplusTwoInterferingStations(s1, c1));
+                    for (Station s2 : dm.getStations()) {
+                        for (int c2 = c1 - 3; c2 <= c1 + 3; c2++) {
+                            assertEquals(source.isSatisfyingAssignment(s1, c1, s2, c2), indexed.isSatisfyingAssignment(s1, c1, s2, c2));
+                        }
+                    }
+                }
+            }
+            final Map<Station, Set<Integer>> domains = dm.getDomains();
+            assertEquals(Sets.newHashSet(source.getAllRelevantConstraints(domains)), Sets.newHashSet(indexed.getAllRelevantConstraints(domains)));
+        }
+
+    }
+
     public static class UnabridgedConstraintManagerTest extends ConstraintManagerTest {
 
         @Override
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.ubc.cs.beta.stationpacking.execution.problemgenerators.SATFCFacadeProblem;
+import ca.ubc.cs.beta.stationpacking.utils.RedisUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * Runs against a local redis (localhost:6379), and is skipped if there is none.
+ */
+public class RedisWorkQueueTest {
+
+    private JedisPool pool;
+    private String queueName;
+    private String replyQueue;
+
+    @Before
+    public void setUp() {
+        pool = new JedisPool("localhost", 6379);
+        try (Jedis jedis = pool.getResource()) {
+            jedis.ping();
+        } catch (JedisConnectionException e) {
+            Assume.assumeNoException("No local redis", e);
+        }
+        queueName = "RedisWorkQueueTest:" + RandomStringUtils.randomAlphanumeric(10);
+        replyQueue = queueName + ":REPLY";
+    }
+
+    @After
+    public void tearDown() {
+        try (Jedis jedis = pool.getResource()) {
+            jedis.del(jedis.keys(queueName + "*").toArray(new String[0]));
+        } catch (JedisConnectionException e) {
+            // no redis, nothing to clean
+        }
+        pool.destroy();
+    }
+
+    @Test
+    public void completedJobsAreAcknowledged() {
+        try (RedisWorkQueue workQueue = new RedisWorkQueue(pool, queueName, 10); Jedis jedis = pool.getResource()) {
+            final String worker = workQueue.newWorker();
+            jedis.lpush(workQueue.queueKey(), "job");
+            assertEquals("job", workQueue.take(worker, 1));
+            assertEquals(1L, (long) jedis.llen(workQueue.processingKey(worker)));
+
+            workQueue.complete(worker, "job", replyQueue, "reply");
+            assertEquals(0L, (long) jedis.llen(workQueue.processingKey(worker)));
+            assertEquals("reply", jedis.lpop(replyQueue));
+            assertNull(workQueue.take(worker, 1));
+        }
+    }
+
+    @Test
+    public void jobsOfDeadWorkersAreReclaimed() throws Exception {
+        try (RedisWorkQueue survivor = new RedisWorkQueue(pool, queueName, 10); Jedis jedis = pool.getResource()) {
+            final RedisWorkQueue dying = new RedisWorkQueue(pool, queueName, 1);
+            final String deadWorker = dying.newWorker();
+            jedis.lpush(dying.queueKey(), "job");
+            assertEquals("job", dying.take(deadWorker, 1));
+            // The worker is alive, nothing to reclaim
+            assertEquals(0, survivor.reclaim());
+
+            // Stops the heartbeats without acknowledging the job
+            dying.close();
+            assertEquals(1, survivor.reclaim());
+            final String worker = survivor.newWorker();
+            assertEquals("job", survivor.take(worker, 1));
+            assertEquals(0L, (long) jedis.llen(dying.processingKey(deadWorker)));
+        }
+    }
+
+    @Test
+    public void processingListsAreDeleted() {
+        try (RedisWorkQueue workQueue = new RedisWorkQueue(pool, queueName, 10); Jedis jedis = pool.getResource()) {
+            final String worker1 = workQueue.newWorker();
+            final String worker2 = workQueue.newWorker();
+            jedis.lpush(workQueue.queueKey(), "job1", "job2");
+            workQueue.take(worker1, 1);
+            workQueue.take(worker2, 1);
+
+            RedisWorkQueue.deleteProcessingLists(jedis, queueName);
+            assertFalse(jedis.exists(workQueue.processingKey(worker1)));
+            assertFalse(jedis.exists(workQueue.processingKey(worker2)));
+        }
+    }
+
+    @Test
+    public void everyIdleThreadAcknowledgesStopAndDies() throws Exception {
+        final int nThreads = 2;
+        final ExecutorService executorService = Executors.newFixedThreadPool(nThreads);
+        try (Jedis readerJedis = pool.getResource(); Jedis jedis = pool.getResource()) {
+            final SimulatorWorkerPoolProblemReader reader = new SimulatorWorkerPoolProblemReader(readerJedis, pool, queueName, 10);
+            final List<Future<SATFCFacadeProblem>> problems = new ArrayList<>();
+            for (int i = 0; i < nThreads; i++) {
+                problems.add(executorService.submit(reader::getNextProblem));
+            }
+
+            final String stopKey = "STOP:" + queueName;
+            jedis.set(RedisUtils.interrupt(queueName), stopKey);
+            try {
+                final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+                while (!Integer.toString(nThreads).equals(jedis.get(stopKey)) && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(50);
+                }
+                assertEquals(Integer.toString(nThreads), jedis.get(stopKey));
+
+                jedis.set(RedisUtils.interrupt(queueName), "DIE");
+                for (Future<SATFCFacadeProblem> problem : problems) {
+                    assertNull(problem.get(10, TimeUnit.SECONDS));
+                }
+                // Each thread acknowledged once
+                assertEquals(Integer.toString(nThreads), jedis.get(stopKey));
+            } finally {
+                jedis.del(stopKey);
+                reader.onFinishedAllProblems();
+            }
+        } finally {
+            executorService.shutdownNow();
+            assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.facade.datamanager.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Sets;
+import com.google.common.io.Resources;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+
+public class CompiledConstraintSetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String path;
+
+    @Before
+    public void setUp() throws Exception {
+        final File constraintSet = folder.newFolder("constraints");
+        Files.copy(new File(Resources.getResource("data/testInterference/" + DataManager.DOMAIN_FILE).getPath()).toPath(), new File(constraintSet, DataManager.DOMAIN_FILE).toPath());
+        Files.copy(new File(Resources.getResource("data/testInterference/channelspecific/" + DataManager.INTERFERENCES_FILE).getPath()).toPath(), new File(constraintSet, DataManager.INTERFERENCES_FILE).toPath());
+        path = constraintSet.getAbsolutePath();
+    }
+
+    @Test
+    public void testCompiledSameAsParsed() throws Exception {
+        final ManagerBundle parsed = new DataManager().getData(path);
+        CompiledConstraintSet.compile(path);
+        final CompiledConstraintSet compiled = CompiledConstraintSet.load(path);
+        assertNotNull(compiled);
+
+        final ManagerBundle loaded = new DataManager().getData(path);
+        assertEquals(parsed.getCacheCoordinate(), loaded.getCacheCoordinate());
+        assertTrue(loaded.isCompactInterference());
+        final IStationManager stationManager = parsed.getStationManager();
+        assertEquals(stationManager.getDomains(), loaded.getStationManager().getDomains());
+        final IConstraintManager constraintManager = loaded.getConstraintManager();
+        assertEquals(Sets.newHashSet(parsed.getConstraintManager().getAllRelevantConstraints(stationManager.getDomains())), Sets.newHashSet(constraintManager.getAllRelevantConstraints(stationManager.getDomains())));
+        for (Station station : stationManager.getStations()) {
+            for (Integer channel : stationManager.getDomain(station)) {
+                assertEquals(parsed.getConstraintManager().getCOInterferingStations(station, channel), constraintManager.getCOInterferingStations(station, channel));
+            }
+        }
+    }
+
+    @Test
+    public void testStaleCompiledFileIsIgnored() throws Exception {
+        CompiledConstraintSet.compile(path);
+        Files.write(new File(path, DataManager.DOMAIN_FILE).toPath(), System.lineSeparator().getBytes(), StandardOpenOption.APPEND);
+        assertNull(CompiledConstraintSet.load(path));
+    }
+
+}
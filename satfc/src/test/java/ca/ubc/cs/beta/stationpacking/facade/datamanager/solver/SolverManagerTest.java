@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.facade.datamanager.solver;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.DataManager;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.ManagerBundle;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles.ISolverBundle;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles.ISolverBundleFactory;
+
+public class SolverManagerTest {
+
+    private static final String PATH = "interference";
+
+    private ISolverBundleFactory factory;
+    private DataManager dataManager;
+    private SolverManager solverManager;
+
+    @Before
+    public void setUp() throws Exception {
+        dataManager = mock(DataManager.class);
+        when(dataManager.getData(PATH)).thenReturn(mock(ManagerBundle.class));
+        factory = mock(ISolverBundleFactory.class);
+        when(factory.getBundle(any(ManagerBundle.class))).thenAnswer(invocation -> mock(ISolverBundle.class));
+        solverManager = new SolverManager(factory, dataManager);
+    }
+
+    @Test
+    public void concurrentAcquisitionsGetDistinctBundles() throws Exception {
+        final ISolverBundle first = solverManager.acquire(PATH);
+        final ISolverBundle second = solverManager.acquire(PATH);
+        assertNotSame(first, second);
+        verify(factory, times(2)).getBundle(any(ManagerBundle.class));
+    }
+
+    @Test
+    public void releasedBundlesAreReused() throws Exception {
+        final ISolverBundle first = solverManager.acquire(PATH);
+        solverManager.release(PATH, first);
+        assertSame(first, solverManager.acquire(PATH));
+        verify(factory, times(1)).getBundle(any(ManagerBundle.class));
+    }
+
+    @Test
+    public void closeClosesEveryBundle() throws Exception {
+        final ISolverBundle first = solverManager.acquire(PATH);
+        final ISolverBundle second = solverManager.acquire(PATH);
+        solverManager.release(PATH, first);
+        solverManager.close();
+        verify(first).close();
+        verify(second).close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cannotReleaseForeignBundle() throws Exception {
+        solverManager.acquire(PATH);
+        solverManager.release(PATH, mock(ISolverBundle.class));
+    }
+
+}
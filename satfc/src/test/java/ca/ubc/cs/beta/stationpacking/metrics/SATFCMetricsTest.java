@@ -0,0 +1,100 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.FileNotFoundException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ChannelSpecificConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.DomainStationManager;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+
+public class SATFCMetricsTest {
+
+    private static IConstraintManager constraintManager;
+
+    @BeforeClass
+    public static void setUp() throws FileNotFoundException {
+        final DomainStationManager stationManager = new DomainStationManager(Resources.getResource("data/testInterference/Domain.csv").getFile());
+        constraintManager = new ChannelSpecificConstraintManager(stationManager, Resources.getResource("data/testInterference/channelspecific/Interference_Paired.csv").getFile());
+        SATFCMetrics.init();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        SATFCMetrics.clear();
+    }
+
+    @Test
+    public void testConcurrentUnnamedProblems() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            // Both problems are in flight before either one is solved
+            final CountDownLatch started = new CountDownLatch(2);
+            final Future<Long> sat = executorService.submit(() -> solveUnnamed(new Station(1), SATResult.SAT, started));
+            final Future<Long> unsat = executorService.submit(() -> solveUnnamed(new Station(3), SATResult.UNSAT, started));
+            assertMetrics(sat.get(10, TimeUnit.SECONDS), new Station(1), SATResult.SAT);
+            assertMetrics(unsat.get(10, TimeUnit.SECONDS), new Station(3), SATResult.UNSAT);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static long solveUnnamed(Station aStation, SATResult aResult, CountDownLatch aStarted) throws InterruptedException {
+        final long problemID = SATFCMetrics.newProblemID();
+        final StationPackingInstance instance = new StationPackingInstance(ImmutableMap.of(aStation, ImmutableSet.of(1, 2)), ImmutableMap.of(), ImmutableMap.<String, Object>of(StationPackingInstance.METRICS_ID_KEY, problemID));
+        SATFCMetrics.postEvent(new SATFCMetrics.NewStationPackingInstanceEvent(instance, constraintManager));
+        aStarted.countDown();
+        aStarted.await();
+        final SolverResult result = new SolverResult(aResult, 1.0, aResult.equals(SATResult.SAT) ? ImmutableMap.of(1, ImmutableSet.of(aStation)) : ImmutableMap.of(), SolverResult.SolvedBy.UNKNOWN);
+        SATFCMetrics.postEvent(new SATFCMetrics.InstanceSolvedEvent(instance, result, null));
+        return problemID;
+    }
+
+    private static void assertMetrics(long aProblemID, Station aStation, SATResult aResult) {
+        final InstanceInfo[] metrics = new InstanceInfo[1];
+        SATFCMetrics.doWithMetrics(aProblemID, info -> metrics[0] = info);
+        assertEquals(StationPackingInstance.UNTITLED, metrics[0].getName());
+        assertEquals(ImmutableSet.of(aStation), metrics[0].getStations());
+        assertEquals(aResult, metrics[0].getResult());
+        SATFCMetrics.clear(aProblemID);
+    }
+
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.polling;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.ubc.cs.beta.stationpacking.solvers.termination.interrupt.InterruptibleTerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.walltime.WalltimeTerminationCriterion;
+
+public class ProblemIncrementorTest {
+
+    private PollingService pollingService;
+    private CountDownLatch interrupted;
+    private ProblemIncrementor problemIncrementor;
+
+    @Before
+    public void setUp() {
+        pollingService = new PollingService();
+        interrupted = new CountDownLatch(1);
+        problemIncrementor = new ProblemIncrementor(pollingService, interrupted::countDown);
+    }
+
+    @After
+    public void tearDown() {
+        pollingService.notifyShutdown();
+    }
+
+    @Test
+    public void testInterruptedAtWalltimeDeadline() throws InterruptedException {
+        problemIncrementor.scheduleTermination(new WalltimeTerminationCriterion(0.05));
+        // Well before the first poll
+        Assert.assertTrue(interrupted.await(ProblemIncrementor.POLLING_TIME_IN_MS / 2, TimeUnit.MILLISECONDS));
+        problemIncrementor.jobDone();
+    }
+
+    @Test
+    public void testInterruptedOnInterrupt() throws InterruptedException {
+        final InterruptibleTerminationCriterion criterion = new InterruptibleTerminationCriterion();
+        problemIncrementor.scheduleTermination(criterion);
+        Assert.assertFalse(interrupted.await(50, TimeUnit.MILLISECONDS));
+        criterion.interrupt();
+        Assert.assertTrue(interrupted.await(ProblemIncrementor.POLLING_TIME_IN_MS / 2, TimeUnit.MILLISECONDS));
+        problemIncrementor.jobDone();
+    }
+
+    @Test
+    public void testNotInterruptedOnceDone() throws InterruptedException {
+        problemIncrementor.scheduleTermination(new WalltimeTerminationCriterion(0.05));
+        problemIncrementor.jobDone();
+        Assert.assertFalse(interrupted.await(200, TimeUnit.MILLISECONDS));
+    }
+
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.componentgrouper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.jgrapht.alg.NeighborIndex;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ChannelSpecificConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.DomainStationManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+
+/**
+ * Measures the constraint graph work each pre-solver does on a large synthetic UHF instance, rebuilding the graph from the constraint manager
+ * (as before {@link ConstraintGraphService}) against filtering the precomputed adjacency and against memoized views.
+ * Stations are scattered on a plane and interfere with the stations close to them. Run with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConstraintGraphServiceBenchmark {
+
+    private static final int NUM_STATIONS = 2000;
+    private static final int INSTANCE_SIZE = 1000;
+    private static final int MIN_CHANNEL = 14;
+    private static final int MAX_CHANNEL = 36;
+    private static final double CO_RADIUS = 0.06;
+    private static final double ADJ_RADIUS = 0.03;
+
+    public enum GraphSource {
+        REBUILD, FILTER, MEMOIZED
+    }
+
+    @Param({"REBUILD", "FILTER", "MEMOIZED"})
+    public GraphSource source;
+
+    private IConstraintManager constraintManager;
+    private ConstraintGraphService service;
+    private Map<Station, Set<Integer>> domains;
+
+    @Setup
+    public void setup() throws IOException {
+        final Random random = new Random(0);
+        final double[][] positions = new double[NUM_STATIONS][];
+        for (int i = 0; i < NUM_STATIONS; i++) {
+            positions[i] = new double[]{random.nextDouble(), random.nextDouble()};
+        }
+        final File folder = Files.createTempDirectory("constraintgraph").toFile();
+        folder.deleteOnExit();
+        final File domainFile = new File(folder, "Domain.csv");
+        final File interferenceFile = new File(folder, "Interference_Paired.csv");
+        domainFile.deleteOnExit();
+        interferenceFile.deleteOnExit();
+        try (PrintWriter domainWriter = new PrintWriter(domainFile); PrintWriter interferenceWriter = new PrintWriter(interferenceFile)) {
+            final String channels = IntStream.rangeClosed(MIN_CHANNEL, MAX_CHANNEL).mapToObj(Integer::toString).collect(Collectors.joining(","));
+            for (int i = 0; i < NUM_STATIONS; i++) {
+                domainWriter.println("DOMAIN," + i + "," + channels);
+                final StringBuilder co = new StringBuilder();
+                final StringBuilder adj = new StringBuilder();
+                for (int j = 0; j < NUM_STATIONS; j++) {
+                    final double distance = Math.hypot(positions[i][0] - positions[j][0], positions[i][1] - positions[j][1]);
+                    if (i != j && distance < CO_RADIUS) {
+                        co.append(',').append(j);
+                        if (distance < ADJ_RADIUS) {
+                            adj.append(',').append(j);
+                        }
+                    }
+                }
+                if (co.length() > 0) {
+                    interferenceWriter.println("CO," + MIN_CHANNEL + "," + MAX_CHANNEL + "," + i + co);
+                }
+                if (adj.length() > 0) {
+                    interferenceWriter.println("ADJ+1," + MIN_CHANNEL + "," + (MAX_CHANNEL - 1) + "," + i + adj);
+                }
+            }
+        }
+        final IStationManager stationManager = new DomainStationManager(domainFile.getAbsolutePath());
+        constraintManager = new ChannelSpecificConstraintManager(stationManager, interferenceFile.getAbsolutePath());
+        service = new ConstraintGraphService(stationManager, constraintManager);
+        domains = new HashMap<>();
+        for (int i = 0; i < INSTANCE_SIZE; i++) {
+            final Station station = stationManager.getStationfromID(random.nextInt(NUM_STATIONS));
+            domains.put(station, stationManager.getDomain(station));
+        }
+        // Precompute the adjacency outside of the measurements, as it is done once per bundle
+        service.computeView(domains);
+    }
+
+    private SimpleGraph<Station, DefaultEdge> graph() {
+        switch (source) {
+            case REBUILD:
+                return ConstraintGrouper.getConstraintGraph(domains, constraintManager);
+            case FILTER:
+                return service.computeView(domains).getGraph();
+            default:
+                return service.getView(domains).getGraph();
+        }
+    }
+
+    private Function<Station, Set<Station>> neighbours() {
+        switch (source) {
+            case REBUILD:
+                return new NeighborIndex<>(ConstraintGrouper.getConstraintGraph(domains, constraintManager))::neighborsOf;
+            case FILTER:
+                return service.computeView(domains)::neighborsOf;
+            default:
+                return service.getView(domains)::neighborsOf;
+        }
+    }
+
+    private int sumOfDegrees(Function<Station, Set<Station>> aNeighbours) {
+        return domains.keySet().stream().mapToInt(station -> aNeighbours.apply(station).size()).sum();
+    }
+
+    /**
+     * ConnectedComponentGroupingDecorator: components of the instance's graph.
+     */
+    @Benchmark
+    public int connectedComponentGrouping() {
+        return ConstraintGrouper.group(graph()).size();
+    }
+
+    /**
+     * AC3Enforcer, HeuristicUnderconstrainedStationFinder and ChannelKillerDecorator: one neighbour index of the instance each.
+     */
+    @Benchmark
+    public int neighbourIndex() {
+        return sumOfDegrees(neighbours());
+    }
+
+    /**
+     * UnderconstrainedStationRemoverSolverDecorator: the finder's neighbour index, then the decorator's own when adding back stations.
+     */
+    @Benchmark
+    public int underconstrainedStationRemover() {
+        return sumOfDegrees(neighbours()) + sumOfDegrees(neighbours());
+    }
+
+    /**
+     * ConstraintGraphNeighborhoodPresolver: the instance's graph.
+     */
+    @Benchmark
+    public int neighborhoodPresolver() {
+        return graph().edgeSet().size();
+    }
+
+    /**
+     * Every pre-solver above once on the same instance, as in a typical solve.
+     */
+    @Benchmark
+    public int presolvingChain() {
+        return connectedComponentGrouping() + neighbourIndex() + neighbourIndex() + neighbourIndex() + underconstrainedStationRemover() + neighborhoodPresolver();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ConstraintGraphServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.componentgrouper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleGraph;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+import com.google.common.io.Resources;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ChannelSpecificConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.UnabridgedFormatConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.DomainStationManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+
+public class ConstraintGraphServiceTest {
+
+    private static IStationManager stationManager;
+    private static IConstraintManager channelSpecificConstraintManager;
+    private static IConstraintManager unabridgedConstraintManager;
+
+    @BeforeClass
+    public static void init() throws FileNotFoundException {
+        stationManager = new DomainStationManager(Resources.getResource("data/testInterference/Domain.csv").getFile());
+        channelSpecificConstraintManager = new ChannelSpecificConstraintManager(stationManager, Resources.getResource("data/testInterference/channelspecific/Interference_Paired.csv").getFile());
+        unabridgedConstraintManager = new UnabridgedFormatConstraintManager(stationManager, Resources.getResource("data/testInterference/unabridged/Interference_Paired_ADJm1_ADJm2.csv").getFile());
+    }
+
+    @Test
+    public void testSameGraphAsConstraintGrouper() {
+        final Random random = new Random(0);
+        for (IConstraintManager constraintManager : new IConstraintManager[]{channelSpecificConstraintManager, unabridgedConstraintManager}) {
+            final ConstraintGraphService service = new ConstraintGraphService(stationManager, constraintManager);
+            for (int i = 0; i < 200; i++) {
+                final Map<Station, Set<Integer>> domains = randomDomains(random);
+                final SimpleGraph<Station, DefaultEdge> expected = ConstraintGrouper.getConstraintGraph(domains, constraintManager);
+                final ConstraintGraphView view = service.computeView(domains);
+                assertEquals(domains.keySet(), view.getStations());
+                for (Station station : domains.keySet()) {
+                    final Set<Station> expectedNeighbours = expected.edgesOf(station).stream().map(e -> expected.getEdgeSource(e).equals(station) ? expected.getEdgeTarget(e) : expected.getEdgeSource(e)).collect(Collectors.toSet());
+                    assertEquals(expectedNeighbours, view.neighborsOf(station));
+                }
+                assertEquals(expected.edgeSet().size(), view.getGraph().edgeSet().size());
+            }
+        }
+    }
+
+    @Test
+    public void testMemoizedByDomains() {
+        final ConstraintGraphService service = new ConstraintGraphService(stationManager, channelSpecificConstraintManager);
+        final Map<Station, Set<Integer>> domains = stationManager.getDomains().entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> new HashSet<>(e.getValue())));
+        final ConstraintGraphView view = service.getView(domains);
+        assertSame(view, service.getView(new HashMap<>(domains)));
+        // The memoized view is keyed by a copy, so changing the domains gives a new view
+        domains.values().iterator().next().clear();
+        assertNotSame(view, service.getView(domains));
+    }
+
+    @Test
+    public void testUnknownChannelFallsBack() {
+        final ConstraintGraphService service = new ConstraintGraphService(stationManager, channelSpecificConstraintManager);
+        final Map<Station, Set<Integer>> domains = new HashMap<>(stationManager.getDomains());
+        final Station station = domains.keySet().iterator().next();
+        domains.put(station, Sets.union(domains.get(station), Sets.newHashSet(1000)));
+        assertEquals(ConstraintGrouper.getConstraintGraph(domains, channelSpecificConstraintManager).edgeSet().size(), service.computeView(domains).getGraph().edgeSet().size());
+    }
+
+    private static Map<Station, Set<Integer>> randomDomains(Random random) {
+        final Map<Station, Set<Integer>> domains = new HashMap<>();
+        for (Station station : stationManager.getStations()) {
+            if (random.nextBoolean()) {
+                domains.put(station, stationManager.getDomain(station).stream().filter(c -> random.nextInt(3) > 0).collect(Collectors.toSet()));
+            }
+        }
+        return domains;
+    }
+
+}
@@ -24,6 +24,7 @@ package ca.ubc.cs.beta.stationpacking.solvers.composites;
 import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -99,6 +100,50 @@ public class ParallelNoWaitSolverCompositeTest {
         assertEquals(SATResult.SAT, solve.getResult());
     }
 
+    /**
+     * With a single thread, a member that never gives up must yield the thread to the other members after its time slice
+     */
+    @Test(timeout = 3000)
+    public void timeSlicedMembersShareAThread() {
+        final List<ISolverFactory> solvers = new ArrayList<>();
+        solvers.add(s->(aInstance, aTerminationCriterion, aSeed) -> {
+            final Watch watch = Watch.constructAutoStartWatch();
+            while (!aTerminationCriterion.hasToStop()) {} // infinite loop
+            return SolverResult.createTimeoutResult(watch.getElapsedTime());
+        });
+        solvers.add(s->(aInstance, aTerminationCriterion, aSeed) -> new SolverResult(SATResult.SAT, 1.0, StationPackingTestUtils.getSimpleInstanceAnswer(), SolvedBy.UNKNOWN));
+        final PortfolioScheduler scheduler = new PortfolioScheduler(solvers.size(), 0.05, 0, null);
+        final ParallelNoWaitSolverComposite parallelSolverComposite = new ParallelNoWaitSolverComposite(solvers.size(), solvers, new ThreadBudget(0), scheduler);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(SATResult.SAT, parallelSolverComposite.solve(StationPackingTestUtils.getSimpleInstance(), new NeverEndingTerminationCriterion(), 1).getResult());
+        }
+        // The winner is now tried first
+        final PortfolioFeatures features = scheduler.getFeatures(StationPackingTestUtils.getSimpleInstance());
+        assertEquals(Arrays.asList(1, 0), scheduler.schedule(features, 1).getMembers());
+        parallelSolverComposite.notifyShutdown();
+    }
+
+    @Test
+    public void schedulerLeavesOutLosersWhenThreadsAreScarce() {
+        final PortfolioScheduler scheduler = new PortfolioScheduler(3, 1.0, 0.1, null);
+        final PortfolioFeatures features = scheduler.getFeatures(StationPackingTestUtils.getSimpleInstance());
+        assertEquals(Arrays.asList(0, 1, 2), scheduler.schedule(features, 1).getMembers());
+        for (int i = 0; i < 50; i++) {
+            scheduler.record(features, Arrays.asList(0, 1, 2), i % 5 == 0 ? 1 : 2, 1.0);
+        }
+        // Every 10th instance explores, all the others leave member 0 out
+        final List<List<Integer>> schedules = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            schedules.add(scheduler.schedule(features, 1).getMembers());
+        }
+        assertEquals(Arrays.asList(2, 1), schedules.get(0));
+        assertEquals(Arrays.asList(2, 1, 0), scheduler.schedule(features, 1).getMembers());
+        // Enough threads for everyone, nothing is left out or sliced
+        final PortfolioScheduler.Schedule schedule = scheduler.schedule(features, 3);
+        assertEquals(Arrays.asList(2, 1, 0), schedule.getMembers());
+        assertEquals(Double.POSITIVE_INFINITY, schedule.getTimeSlice(), 0);
+    }
+
     @Test(expected = RuntimeException.class)
     public void exceptionsPropagateToMainThread() {
         final List<ISolverFactory> solvers = new ArrayList<>();
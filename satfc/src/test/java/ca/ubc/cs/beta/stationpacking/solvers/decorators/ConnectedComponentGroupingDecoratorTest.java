@@ -21,6 +21,8 @@
  */
 package ca.ubc.cs.beta.stationpacking.solvers.decorators;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
@@ -29,10 +31,16 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -44,7 +52,10 @@ import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult.SolvedBy;
 import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.IComponentGrouper;
+import ca.ubc.cs.beta.stationpacking.solvers.composites.ThreadBudget;
 import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.infinite.NeverEndingTerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.utils.Watch;
 
 public class ConnectedComponentGroupingDecoratorTest {
 
@@ -97,5 +108,117 @@ public class ConnectedComponentGroupingDecoratorTest {
         verify(solver, times(1)).solve(any(StationPackingInstance.class), eq(terminationCriterion), eq(seed));
     }
 
+    @Test
+    public void testParallelUNSATComponentInterruptsOthers() {
+        // one component is UNSAT, the others run until interrupted: the result must be UNSAT without waiting for them
+        final Station unsatStation = new Station(0);
+        final Set<Set<Station>> components = Sets.newHashSet();
+        final Map<Station, Set<Integer>> domains = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            final Station station = new Station(i);
+            components.add(ImmutableSet.of(station));
+            domains.put(station, ImmutableSet.of(14));
+        }
+        final StationPackingInstance instance = new StationPackingInstance(domains);
+        final IComponentGrouper grouper = mock(IComponentGrouper.class);
+        final IConstraintManager constraintManager = mock(IConstraintManager.class);
+        when(grouper.group(instance, constraintManager)).thenReturn(components);
+        final ISolver slowSolver = (aInstance, aTerminationCriterion, aSeed) -> {
+            if (aInstance.getStations().contains(unsatStation)) {
+                return SolverResult.createNonSATResult(SATResult.UNSAT, 0, SolvedBy.UNKNOWN);
+            }
+            final Watch watch = Watch.constructAutoStartWatch();
+            while (!aTerminationCriterion.hasToStop() && watch.getElapsedTime() < 10) {
+                Thread.yield();
+            }
+            return SolverResult.createNonSATResult(SATResult.INTERRUPTED, watch.getElapsedTime(), SolvedBy.UNKNOWN);
+        };
+        final ConnectedComponentGroupingDecorator connectedComponentGroupingDecorator = new ConnectedComponentGroupingDecorator(slowSolver, grouper, constraintManager, false,
+                aSolver -> slowSolver, 4, new ThreadBudget(3));
+
+        final Watch watch = Watch.constructAutoStartWatch();
+        final SolverResult result = connectedComponentGroupingDecorator.solve(instance, new NeverEndingTerminationCriterion(), 0);
+        assertEquals(SATResult.UNSAT, result.getResult());
+        assertTrue(watch.getElapsedTime() < 5);
+        connectedComponentGroupingDecorator.notifyShutdown();
+    }
+
+    @Test
+    public void testParallelSolvesEveryComponent() {
+        final Set<Set<Station>> components = Sets.newHashSet();
+        final Map<Station, Set<Integer>> domains = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            final Station station = new Station(i);
+            components.add(ImmutableSet.of(station));
+            domains.put(station, ImmutableSet.of(14 + i));
+        }
+        final StationPackingInstance instance = new StationPackingInstance(domains);
+        final IComponentGrouper grouper = mock(IComponentGrouper.class);
+        final IConstraintManager constraintManager = mock(IConstraintManager.class);
+        when(grouper.group(instance, constraintManager)).thenReturn(components);
+        final ISolver solver = (aInstance, aTerminationCriterion, aSeed) -> {
+            final Station station = aInstance.getStations().iterator().next();
+            return new SolverResult(SATResult.SAT, 0, ImmutableMap.of(aInstance.getDomains().get(station).iterator().next(), ImmutableSet.of(station)), SolvedBy.UNKNOWN);
+        };
+        final ThreadBudget threadBudget = new ThreadBudget(2);
+        final ConnectedComponentGroupingDecorator connectedComponentGroupingDecorator = new ConnectedComponentGroupingDecorator(solver, grouper, constraintManager, false,
+                aSolver -> solver, 4, threadBudget);
+
+        final SolverResult result = connectedComponentGroupingDecorator.solve(instance, new NeverEndingTerminationCriterion(), 0);
+        assertEquals(SATResult.SAT, result.getResult());
+        assertEquals(domains.size(), result.getAssignment().size());
+        // every reserved thread was given back
+        assertEquals(2, threadBudget.getAvailable());
+        connectedComponentGroupingDecorator.notifyShutdown();
+    }
+
+    @Test
+    public void testExtraThreadGivesBackItsThreadWhenDone() throws Exception {
+        final Set<Set<Station>> components = Sets.newHashSet();
+        final Map<Station, Set<Integer>> domains = new HashMap<>();
+        for (int i = 0; i < 2; i++) {
+            final Station station = new Station(i);
+            components.add(ImmutableSet.of(station));
+            domains.put(station, ImmutableSet.of(14 + i));
+        }
+        final StationPackingInstance instance = new StationPackingInstance(domains);
+        final IComponentGrouper grouper = mock(IComponentGrouper.class);
+        final IConstraintManager constraintManager = mock(IConstraintManager.class);
+        when(grouper.group(instance, constraintManager)).thenReturn(components);
+        final ThreadBudget threadBudget = new ThreadBudget(1);
+        final CountDownLatch callingThreadStarted = new CountDownLatch(1);
+        final AtomicInteger availableWhileSolving = new AtomicInteger(-1);
+        // The calling thread's component is still being solved when the extra thread is done with the other one
+        final ISolver callingThreadSolver = (aInstance, aTerminationCriterion, aSeed) -> {
+            callingThreadStarted.countDown();
+            final Watch watch = Watch.constructAutoStartWatch();
+            while (threadBudget.getAvailable() == 0 && watch.getElapsedTime() < 5) {
+                Thread.yield();
+            }
+            availableWhileSolving.set(threadBudget.getAvailable());
+            return sat(aInstance);
+        };
+        final ISolver extraThreadSolver = (aInstance, aTerminationCriterion, aSeed) -> {
+            try {
+                callingThreadStarted.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return sat(aInstance);
+        };
+        final ConnectedComponentGroupingDecorator connectedComponentGroupingDecorator = new ConnectedComponentGroupingDecorator(callingThreadSolver, grouper, constraintManager, false,
+                aSolver -> extraThreadSolver, 2, threadBudget);
+
+        final SolverResult result = connectedComponentGroupingDecorator.solve(instance, new NeverEndingTerminationCriterion(), 0);
+        assertEquals(SATResult.SAT, result.getResult());
+        assertEquals(1, availableWhileSolving.get());
+        assertEquals(1, threadBudget.getAvailable());
+        connectedComponentGroupingDecorator.notifyShutdown();
+    }
+
+    private static SolverResult sat(StationPackingInstance aInstance) {
+        final Station station = aInstance.getStations().iterator().next();
+        return new SolverResult(SATResult.SAT, 0, ImmutableMap.of(aInstance.getDomains().get(station).iterator().next(), ImmutableSet.of(station)), SolvedBy.UNKNOWN);
+    }
 
 }
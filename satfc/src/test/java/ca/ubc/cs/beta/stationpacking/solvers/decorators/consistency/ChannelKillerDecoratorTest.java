@@ -0,0 +1,189 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.decorators.consistency;
+
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.ADJp1;
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.ADJp2;
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.CO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.TestConstraint;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.TestConstraintManager;
+import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.infinite.NeverEndingTerminationCriterion;
+
+public class ChannelKillerDecoratorTest {
+
+    @Test
+    public void testParallelRemovesSameChannelsAsSerial() throws Exception {
+        final Random random = new Random(0);
+        final ConstraintKey[] keys = {CO, ADJp1, ADJp2};
+        for (int trial = 0; trial < 30; trial++) {
+            final int numStations = 4 + random.nextInt(6);
+            final List<Station> stations = IntStream.range(0, numStations).mapToObj(Station::new).collect(Collectors.toList());
+            final List<TestConstraint> constraints = new ArrayList<>();
+            for (int i = 0; i < numStations * 4; i++) {
+                final Station reference = stations.get(random.nextInt(numStations));
+                final Station interfering = stations.get(random.nextInt(numStations));
+                if (!reference.equals(interfering)) {
+                    constraints.add(new TestConstraint(keys[random.nextInt(keys.length)], 14 + random.nextInt(6), reference, ImmutableSet.of(interfering)));
+                }
+            }
+            final IConstraintManager constraintManager = new TestConstraintManager(constraints);
+            final Map<Station, Set<Integer>> domains = new HashMap<>();
+            for (Station station : stations) {
+                final Set<Integer> domain = IntStream.range(14, 20).filter(c -> random.nextInt(2) == 0).boxed().collect(Collectors.toSet());
+                domain.add(14 + random.nextInt(6));
+                domains.put(station, domain);
+            }
+            final StationPackingInstance instance = new StationPackingInstance(domains);
+
+            final SolverResult serial = solve(instance, constraintManager, 1);
+            final SolverResult parallel = solve(instance, constraintManager, 4);
+            assertEquals(serial.getResult(), parallel.getResult());
+            if (serial.getResult().equals(SATResult.SAT)) {
+                assertEquals(serial.getAssignment(), parallel.getAssignment());
+            }
+        }
+    }
+
+    @Test
+    public void testInterruptStopsLaterSubproblems() throws Exception {
+        final Station station = new Station(1);
+        final Station neighbour = new Station(2);
+        final IConstraintManager constraintManager = new TestConstraintManager(Collections.singletonList(new TestConstraint(CO, 14, station, ImmutableSet.of(neighbour))));
+        final AtomicInteger numSubproblems = new AtomicInteger();
+        final AtomicReference<ChannelKillerDecorator> channelKiller = new AtomicReference<>();
+        // The interrupt comes while the first subproblem is being solved, and must reach the subproblems after it
+        final ISolver interruptingSolver = (aInstance, aTerminationCriterion, aSeed) -> {
+            numSubproblems.incrementAndGet();
+            channelKiller.get().interrupt();
+            return SolverResult.createTimeoutResult(0);
+        };
+        final AtomicReference<Boolean> decoratedSolverStopped = new AtomicReference<>();
+        final ISolver decoratedSolver = (aInstance, aTerminationCriterion, aSeed) -> {
+            decoratedSolverStopped.set(aTerminationCriterion.hasToStop());
+            return SolverResult.createTimeoutResult(0);
+        };
+        channelKiller.set(new ChannelKillerDecorator(decoratedSolver, interruptingSolver, constraintManager, 60, true));
+        try {
+            final StationPackingInstance instance = new StationPackingInstance(ImmutableMap.of(station, ImmutableSet.of(14, 15, 16), neighbour, ImmutableSet.of(14, 15, 16)));
+            assertEquals(SATResult.TIMEOUT, channelKiller.get().solve(instance, new NeverEndingTerminationCriterion(), 1).getResult());
+        } finally {
+            channelKiller.get().notifyShutdown();
+        }
+        assertEquals(1, numSubproblems.get());
+        assertTrue(decoratedSolverStopped.get());
+    }
+
+    /**
+     * @return the channel killer's result, where a SAT result's assignment is the reduced domains as channel to stations.
+     */
+    private SolverResult solve(StationPackingInstance instance, IConstraintManager constraintManager, int numThreads) {
+        final AtomicReference<Map<Station, Set<Integer>>> reducedDomains = new AtomicReference<>();
+        final ISolver recordingSolver = (aInstance, aTerminationCriterion, aSeed) -> {
+            reducedDomains.set(aInstance.getDomains());
+            return SolverResult.createTimeoutResult(0);
+        };
+        final ChannelKillerDecorator channelKiller = new ChannelKillerDecorator(recordingSolver, aSolver -> new BruteForceSolver(constraintManager), numThreads, constraintManager, new ConstraintGraphService(constraintManager), 60, true);
+        try {
+            final SolverResult result = channelKiller.solve(instance, new NeverEndingTerminationCriterion(), 1);
+            if (result.getResult().equals(SATResult.UNSAT)) {
+                return result;
+            }
+            final Map<Integer, Set<Station>> domainsByChannel = new HashMap<>();
+            reducedDomains.get().forEach((station, domain) -> domain.forEach(channel -> domainsByChannel.computeIfAbsent(channel, c -> new HashSet<>()).add(station)));
+            return new SolverResult(SATResult.SAT, 0, domainsByChannel, SolverResult.SolvedBy.UNKNOWN);
+        } finally {
+            channelKiller.notifyShutdown();
+        }
+    }
+
+    /**
+     * Exhaustive backtracking over the (tiny) subproblems.
+     */
+    private static class BruteForceSolver implements ISolver {
+
+        private final IConstraintManager constraintManager;
+
+        BruteForceSolver(IConstraintManager constraintManager) {
+            this.constraintManager = constraintManager;
+        }
+
+        @Override
+        public SolverResult solve(StationPackingInstance aInstance, ITerminationCriterion aTerminationCriterion, long aSeed) {
+            final List<Station> stations = new ArrayList<>(aInstance.getStations());
+            final Map<Station, Integer> assignment = new HashMap<>();
+            if (!assign(stations, 0, aInstance.getDomains(), assignment)) {
+                return SolverResult.createNonSATResult(SATResult.UNSAT, 0, SolverResult.SolvedBy.UNKNOWN);
+            }
+            final Map<Integer, Set<Station>> channelAssignment = new HashMap<>();
+            assignment.forEach((station, channel) -> channelAssignment.computeIfAbsent(channel, c -> new HashSet<>()).add(station));
+            return new SolverResult(SATResult.SAT, 0, channelAssignment, SolverResult.SolvedBy.UNKNOWN);
+        }
+
+        private boolean assign(List<Station> stations, int index, Map<Station, Set<Integer>> domains, Map<Station, Integer> assignment) {
+            if (index == stations.size()) {
+                return true;
+            }
+            final Station station = stations.get(index);
+            for (int channel : domains.get(station)) {
+                if (assignment.entrySet().stream().allMatch(entry -> constraintManager.isSatisfyingAssignment(station, channel, entry.getKey(), entry.getValue()))) {
+                    assignment.put(station, channel);
+                    if (assign(stations, index + 1, domains, assignment)) {
+                        return true;
+                    }
+                    assignment.remove(station);
+                }
+            }
+            return false;
+        }
+    }
+
+}
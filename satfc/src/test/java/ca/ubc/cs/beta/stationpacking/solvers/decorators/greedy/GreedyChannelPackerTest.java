@@ -0,0 +1,90 @@
+package ca.ubc.cs.beta.stationpacking.solvers.decorators.greedy;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.consistency.ChannelMaskArcs;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.TestConstraint;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.TestConstraintManager;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.ADJp1;
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.ADJp2;
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.CO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GreedyChannelPackerTest {
+
+    @Test
+    public void testFreeChannelsMatchConstraintManager() throws Exception {
+        final Random random = new Random(0);
+        final ConstraintKey[] keys = {CO, ADJp1, ADJp2};
+        for (int trial = 0; trial < 100; trial++) {
+            final int numStations = 5 + random.nextInt(20);
+            final List<Station> stations = IntStream.range(0, numStations).mapToObj(Station::new).collect(Collectors.toList());
+            final List<TestConstraint> constraints = new ArrayList<>();
+            for (int i = 0; i < numStations * 4; i++) {
+                constraints.add(new TestConstraint(keys[random.nextInt(keys.length)], 14 + random.nextInt(10), stations.get(random.nextInt(numStations)), ImmutableSet.of(stations.get(random.nextInt(numStations)))));
+            }
+            constraints.removeIf(c -> c.getInterfering().contains(c.getReference()));
+            final IConstraintManager constraintManager = new TestConstraintManager(constraints);
+            final Map<Station, Set<Integer>> domains = new HashMap<>();
+            for (Station station : stations) {
+                final Set<Integer> domain = IntStream.range(14, 24).filter(c -> random.nextInt(3) == 0).boxed().collect(Collectors.toSet());
+                domain.add(14 + random.nextInt(10));
+                domains.put(station, domain);
+            }
+            final ChannelMaskArcs arcs = ChannelMaskArcs.create(constraintManager, new ConstraintGraphService(constraintManager), domains);
+            final GreedyChannelPacker packer = new GreedyChannelPacker(arcs);
+            for (int x = 0; x < arcs.getNumStations(); x++) {
+                final Map<Integer, Set<Station>> assignment = packer.getAssignment();
+                for (int channel : domains.get(arcs.getStation(x))) {
+                    assignment.computeIfAbsent(channel, c -> new HashSet<>()).add(arcs.getStation(x));
+                    final boolean free = (packer.getFreeChannels(x) & 1L << (channel - arcs.getMinChannel())) != 0;
+                    assertEquals(constraintManager.isSatisfyingAssignment(assignment), free);
+                    assignment.get(channel).remove(arcs.getStation(x));
+                }
+                packer.assignLowestFree(x);
+                assertTrue(constraintManager.isSatisfyingAssignment(packer.getAssignment()));
+            }
+        }
+    }
+
+    @Test
+    public void testRepairMovesSingleBlocker() throws Exception {
+        final Station s1 = new Station(1);
+        final Station s2 = new Station(2);
+        final List<TestConstraint> constraints = new ArrayList<>();
+        constraints.add(new TestConstraint(CO, 1, s1, ImmutableSet.of(s2)));
+        constraints.add(new TestConstraint(CO, 2, s1, ImmutableSet.of(s2)));
+        final IConstraintManager constraintManager = new TestConstraintManager(constraints);
+        final Map<Station, Set<Integer>> domains = ImmutableMap.of(s1, ImmutableSet.of(1, 2), s2, ImmutableSet.of(1));
+        final ChannelMaskArcs arcs = ChannelMaskArcs.create(constraintManager, new ConstraintGraphService(constraintManager), domains);
+        final GreedyChannelPacker packer = new GreedyChannelPacker(arcs);
+        final int x1 = arcs.getStation(0).equals(s1) ? 0 : 1;
+        final int x2 = 1 - x1;
+        // s1 greedily takes channel 1, which leaves nothing for s2
+        assertTrue(packer.assignLowestFree(x1));
+        assertFalse(packer.assignLowestFree(x2));
+        assertFalse(packer.repair(x2, 0));
+        assertTrue(packer.repair(x2, 1));
+        assertTrue(packer.isComplete());
+        assertEquals(ImmutableMap.of(1, ImmutableSet.of(s2), 2, ImmutableSet.of(s1)), packer.getAssignment());
+    }
+
+}
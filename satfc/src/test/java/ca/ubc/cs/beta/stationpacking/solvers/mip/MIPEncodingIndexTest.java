@@ -0,0 +1,96 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.mip;
+
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.ADJp1;
+import static ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ConstraintKey.CO;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.Constraint;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.TestConstraint;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.TestConstraintManager;
+
+public class MIPEncodingIndexTest {
+
+    final Station s1 = new Station(1);
+    final Station s2 = new Station(2);
+    final Station s3 = new Station(3);
+
+    @Test
+    public void testNeighboursMatchRelevantConstraints() throws Exception {
+        final Map<Station, Set<Integer>> domains = ImmutableMap.of(
+                s3, ImmutableSet.of(3, 1, 2),
+                s1, ImmutableSet.of(1, 2),
+                s2, ImmutableSet.of(1, 2, 3)
+        );
+        final List<TestConstraint> constraints = new ArrayList<>();
+        constraints.add(new TestConstraint(CO, 1, s1, ImmutableSet.of(s2, s3)));
+        constraints.add(new TestConstraint(CO, 2, s1, ImmutableSet.of(s2)));
+        constraints.add(new TestConstraint(ADJp1, 1, s1, ImmutableSet.of(s2, s3)));
+        final IConstraintManager constraintManager = new TestConstraintManager(constraints);
+        final MIPEncodingIndex index = new MIPEncodingIndex(constraintManager, domains);
+
+        assertEquals(8, index.getNumVariables());
+        assertEquals(s1, index.getStation(0));
+        assertEquals(3, index.getVariableChannel(index.getVariablesEnd(2) - 1));
+        assertEquals(-1, index.getVariable(s1, 3));
+
+        for (Station station : domains.keySet()) {
+            for (int channel : domains.get(station)) {
+                // What scanning all the relevant constraints for the pair finds
+                final Set<Integer> expected = new HashSet<>();
+                for (Constraint constraint : constraintManager.getAllRelevantConstraints(domains)) {
+                    if (constraint.getSource().equals(station) && constraint.getSourceChannel() == channel) {
+                        expected.add(index.getVariable(constraint.getTarget(), constraint.getTargetChannel()));
+                    } else if (constraint.getTarget().equals(station) && constraint.getTargetChannel() == channel) {
+                        expected.add(index.getVariable(constraint.getSource(), constraint.getSourceChannel()));
+                    }
+                }
+                final int variable = index.getVariable(station, channel);
+                final Set<Integer> neighbours = new HashSet<>();
+                for (int i = index.getNeighboursStart(variable); i < index.getNeighboursEnd(variable); i++) {
+                    neighbours.add(index.getNeighbour(i));
+                }
+                assertEquals(expected, neighbours);
+            }
+        }
+        int numNeighbours = 0;
+        for (int v = 0; v < index.getNumVariables(); v++) {
+            numNeighbours += index.getNeighboursEnd(v) - index.getNeighboursStart(v);
+        }
+        assertEquals(2 * index.getNumEdges(), numNeighbours);
+    }
+
+}
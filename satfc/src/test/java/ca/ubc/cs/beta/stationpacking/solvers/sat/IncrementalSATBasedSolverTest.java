@@ -0,0 +1,143 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ChannelSpecificConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.DomainStationManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles.yaml.EncodingType;
+import ca.ubc.cs.beta.stationpacking.solvers.ISolver;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.incremental.IncrementalClaspSATSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental.ClaspResult;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.infinite.NeverEndingTerminationCriterion;
+
+public class IncrementalSATBasedSolverTest {
+
+    /*
+     * Stations of the test domain file sorted by ID are 1, 2, 3, 5, 6, 9, 10 with 5, 5, 2, 3, 3, 3, 3 channels,
+     * so station 1 is on variables 1 to 5 (channels 1, 2, 3, 7, 8), station 3 on variables 11 and 12 (channels 1, 2),
+     * and the selector variables start at 25.
+     */
+    private static final int NUM_VARIABLES = 24;
+
+    private final ITerminationCriterion criterion = new NeverEndingTerminationCriterion();
+    private IncrementalClaspSATSolver claspSolver;
+    private ISolver fallbackSolver;
+    private IncrementalSATBasedSolver solver;
+    private List<int[]> sentAssumptions;
+
+    @Before
+    public void setUp() throws FileNotFoundException {
+        final IStationManager stationManager = new DomainStationManager(Resources.getResource("data/testInterference/Domain.csv").getFile());
+        final ChannelSpecificConstraintManager constraintManager = new ChannelSpecificConstraintManager(stationManager, Resources.getResource("data/testInterference/channelspecific/Interference_Paired.csv").getFile());
+        claspSolver = mock(IncrementalClaspSATSolver.class);
+        fallbackSolver = mock(ISolver.class);
+        solver = new IncrementalSATBasedSolver(claspSolver, fallbackSolver, stationManager, constraintManager, EncodingType.DIRECT, null);
+        sentAssumptions = new ArrayList<>();
+    }
+
+    private void answer(ClaspResult... aResults) {
+        final int[] call = {0};
+        when(claspSolver.solve(any(int[].class), anyInt(), any(ITerminationCriterion.class))).thenAnswer(invocation -> {
+            sentAssumptions.add(Arrays.copyOf((int[]) invocation.getArguments()[0], (Integer) invocation.getArguments()[1]));
+            return aResults[call[0]++];
+        });
+    }
+
+    private static int[] model(int... aTrueVariables) {
+        final int[] model = new int[NUM_VARIABLES + 8];
+        model[0] = model.length;
+        for (int variable = 1; variable < model.length; variable++) {
+            model[variable] = -variable;
+        }
+        for (int variable : aTrueVariables) {
+            model[variable] = variable;
+        }
+        return model;
+    }
+
+    @Test
+    public void testAssumptionsAndDecoding() {
+        answer(new ClaspResult(SATResult.SAT, model(2, 11), 0.0));
+        final StationPackingInstance instance = new StationPackingInstance(
+                ImmutableMap.of(new Station(1), ImmutableSet.of(1, 2), new Station(3), ImmutableSet.of(1, 2)),
+                ImmutableMap.of(new Station(1), 2));
+
+        final SolverResult result = solver.solve(instance, criterion, 1);
+
+        verify(claspSolver).load(any(IntCNF.class), anyLong());
+        assertEquals(SATResult.SAT, result.getResult());
+        assertEquals(ImmutableMap.of(2, ImmutableSet.of(new Station(1)), 1, ImmutableSet.of(new Station(3))), result.getAssignment());
+        final int[] assumptions = sentAssumptions.get(0);
+        Arrays.sort(assumptions);
+        // Channels 3, 7 and 8 of station 1 are off, both selectors are on, and station 1 starts from its previous channel
+        assertArrayEquals(new int[]{-5, -4, -3, 2, 25, 27}, assumptions);
+    }
+
+    @Test
+    public void testPreviousAssignmentDroppedWhenUnsat() {
+        answer(new ClaspResult(SATResult.UNSAT, new int[]{0}, 0.0), new ClaspResult(SATResult.SAT, model(1), 0.0));
+        final StationPackingInstance instance = new StationPackingInstance(ImmutableMap.of(new Station(1), ImmutableSet.of(1, 2, 3, 7, 8)), ImmutableMap.of(new Station(1), 2));
+
+        final SolverResult result = solver.solve(instance, criterion, 1);
+
+        assertEquals(SATResult.SAT, result.getResult());
+        assertEquals(2, sentAssumptions.size());
+        assertArrayEquals(new int[]{25, 2}, sentAssumptions.get(0));
+        assertArrayEquals(new int[]{25}, sentAssumptions.get(1));
+    }
+
+    @Test
+    public void testFallbackOutsideOfDomains() {
+        final StationPackingInstance instance = new StationPackingInstance(ImmutableMap.of(new Station(1), ImmutableSet.of(1, 4)));
+        solver.solve(instance, criterion, 1);
+        verify(fallbackSolver).solve(instance, criterion, 1);
+    }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.math3.util.Pair;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Resources;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ChannelSpecificConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.DomainStationManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles.yaml.EncodingType;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.GenericSATBasedSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.CNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.base.SATSolverResult;
+
+public class StreamingSATEncoderTest {
+
+    private static IConstraintManager constraintManager;
+    private static StationPackingInstance instance;
+
+    @BeforeClass
+    public static void init() throws FileNotFoundException {
+        final IStationManager stationManager = new DomainStationManager(Resources.getResource("data/testInterference/Domain.csv").getFile());
+        constraintManager = new ChannelSpecificConstraintManager(stationManager, Resources.getResource("data/testInterference/channelspecific/Interference_Paired.csv").getFile());
+        final Map<Station, Set<Integer>> domains = stationManager.getStations().stream().collect(Collectors.toMap(s -> s, stationManager::getDomain));
+        instance = new StationPackingInstance(domains, ImmutableMap.of(new Station(1), 1, new Station(5), 100));
+    }
+
+    @Test
+    public void testSameClausesAsCompressor() {
+        for (EncodingType encodingType : EncodingType.values()) {
+            final Pair<CNF, ISATDecoder> expected = new SATCompressor(constraintManager, encodingType).encode(instance);
+            final StreamingSATEncoder.IntCNFEncodedProblem actual = new StreamingSATEncoder(constraintManager, encodingType).encodeToBuffer(instance);
+            assertEquals(expected.getKey().size(), actual.getCnf().size());
+            assertEquals(decodedClauses(expected.getKey(), expected.getValue()), decodedClauses(actual.getCnf().toCNF(), actual.getDecoder()));
+        }
+    }
+
+    @Test
+    public void testInitialAssignment() {
+        final SATEncoder.CNFEncodedProblem expected = new SATCompressor(constraintManager, EncodingType.DIRECT).encodeWithAssignment(instance);
+        final StreamingSATEncoder.IntCNFEncodedProblem actual = new StreamingSATEncoder(constraintManager, EncodingType.DIRECT).encodeToBuffer(instance);
+        final Set<String> expectedAssignment = expected.getInitialAssignment().entrySet().stream().map(e -> decodedLiteral(e.getValue() ? e.getKey() : -e.getKey(), expected.getDecoder())).collect(Collectors.toSet());
+        final Set<String> actualAssignment = Arrays.stream(actual.getInitialAssignment()).mapToObj(literal -> decodedLiteral(literal, actual.getDecoder())).collect(Collectors.toSet());
+        assertEquals(expectedAssignment, actualAssignment);
+    }
+
+    @Test
+    public void testBufferReuse() {
+        final StreamingSATEncoder encoder = new StreamingSATEncoder(constraintManager, EncodingType.DIRECT);
+        final String first = encoder.encodeToBuffer(instance).getCnf().toDIMACSString();
+        encoder.encodeToBuffer(new StationPackingInstance(instance.getDomains().entrySet().stream().limit(3).collect(Collectors.toMap(e -> e.getKey(), e -> e.getValue()))));
+        assertEquals(first, encoder.encodeToBuffer(instance).getCnf().toDIMACSString());
+    }
+
+    @Test
+    public void testDIMACS() {
+        final IntCNF cnf = new IntCNF();
+        cnf.addLiteral(1);
+        cnf.addLiteral(-12);
+        cnf.addLiteral(3);
+        cnf.endClause();
+        cnf.addClause(-1, -3);
+        final String expected = "p cnf 12 2\n1 -12 3 0\n-1 -3 0\n";
+        assertEquals(expected, cnf.toDIMACSString());
+        final byte[] bytes = cnf.toDIMACS();
+        assertArrayEquals(expected.getBytes(StandardCharsets.US_ASCII), Arrays.copyOf(bytes, expected.length()));
+        assertEquals(0, bytes[expected.length()]);
+    }
+
+    @Test
+    public void testDecodeModel() {
+        final StreamingSATEncoder.IntCNFEncodedProblem encoding = new StreamingSATEncoder(constraintManager, EncodingType.DIRECT).encodeToBuffer(instance);
+        final StationChannelVariableTable variables = (StationChannelVariableTable) encoding.getDecoder();
+        // Put every station on the last channel of its domain, in clasp's model layout
+        final int[] model = new int[variables.getNumVariables() + 1];
+        model[0] = model.length;
+        for (int stationIndex = 0; stationIndex < variables.getNumStations(); stationIndex++) {
+            for (int variable = variables.getFirstVariable(stationIndex); variable < variables.getLastVariable(stationIndex); variable++) {
+                model[variable] = variable == variables.getLastVariable(stationIndex) - 1 ? variable : -variable;
+            }
+        }
+        final SATSolverResult result = new SATSolverResult(SATResult.SAT, 0, model, SolverResult.SolvedBy.CLASP, null);
+        final Map<Integer, Set<Station>> expected = GenericSATBasedSolver.decodeSolution(instance, variables, result.getAssignment());
+        assertEquals(expected, variables.toAssignment(variables.decodeChannels(result.getModel())));
+        assertEquals(instance.getStations().size(), expected.values().stream().mapToInt(Set::size).sum());
+    }
+
+    /**
+     * @return each clause as a set of "(+|-)station:channel" strings, so that encodings with different variable numbers can be compared.
+     */
+    private static Set<Set<String>> decodedClauses(CNF aCNF, ISATDecoder aDecoder) {
+        final Set<Set<String>> clauses = new HashSet<>();
+        for (String line : aCNF.toDIMACS(null).split("\n")) {
+            if (line.startsWith("p")) {
+                continue;
+            }
+            final Set<String> clause = new HashSet<>();
+            for (String literal : line.split(" ")) {
+                final long value = Long.parseLong(literal);
+                if (value != 0) {
+                    clause.add(decodedLiteral(value, aDecoder));
+                }
+            }
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+
+    private static String decodedLiteral(long aLiteral, ISATDecoder aDecoder) {
+        final Pair<Station, Integer> stationChannel = aDecoder.decode(Math.abs(aLiteral));
+        return (aLiteral > 0 ? "+" : "-") + stationChannel.getKey().getID() + ":" + stationChannel.getValue();
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.incremental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.jna.Pointer;
+
+import ca.ubc.cs.beta.stationpacking.polling.PollingService;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.jnalibraries.Clasp3Library;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.ITerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.infinite.NeverEndingTerminationCriterion;
+
+public class IncrementalClaspSATSolverTest {
+
+    private final Pointer session = new Pointer(1);
+    private PollingService pollingService;
+    private Clasp3Library library;
+    private IncrementalClaspSATSolver solver;
+
+    @Before
+    public void setUp() {
+        pollingService = new PollingService();
+        library = mock(Clasp3Library.class);
+        when(library.initConfig(anyString())).thenReturn(session);
+        when(library.initIncrementalProblem(any(Pointer.class), any(byte[].class))).thenReturn(true);
+        solver = new IncrementalClaspSATSolver(library, "", 0, pollingService, "test");
+        solver.load(new IntCNF(), 1);
+    }
+
+    @After
+    public void tearDown() {
+        pollingService.notifyShutdown();
+    }
+
+    @Test
+    public void testExpiredCriterionKeepsSession() {
+        // Time ran out between the first check and the cutoff computation
+        final ITerminationCriterion expired = new ITerminationCriterion() {
+            @Override
+            public double getRemainingTime() {
+                return 0;
+            }
+
+            @Override
+            public boolean hasToStop() {
+                return false;
+            }
+
+            @Override
+            public void notifyEvent(double aTime) {
+            }
+        };
+        assertEquals(SATResult.TIMEOUT, solver.solve(new int[]{1}, 1, expired).getSATResult());
+        assertTrue(solver.isLoaded());
+        verify(library, never()).solveIncrementalProblem(any(Pointer.class), any(int[].class), anyInt(), anyDouble());
+
+        // The warm session is still usable
+        when(library.getResultState(session)).thenReturn(0);
+        assertEquals(SATResult.UNSAT, solver.solve(new int[]{1}, 1, new NeverEndingTerminationCriterion()).getSATResult());
+        assertTrue(solver.isLoaded());
+        verify(library).solveIncrementalProblem(any(Pointer.class), any(int[].class), anyInt(), anyDouble());
+        // Only the configuration check was destroyed
+        verify(library, times(1)).destroyProblem(session);
+    }
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
+
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.ChannelSpecificConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.DomainStationManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+import ca.ubc.cs.beta.stationpacking.execution.Converter;
+import ca.ubc.cs.beta.stationpacking.execution.parameters.solver.sat.ClaspLibSATSolverParameters;
+import ca.ubc.cs.beta.stationpacking.facade.SATFCFacadeBuilder;
+import ca.ubc.cs.beta.stationpacking.facade.datamanager.solver.bundles.yaml.EncodingType;
+import ca.ubc.cs.beta.stationpacking.polling.PollingService;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphView;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.cnfencoder.SATCompressor;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.ISATSolver;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.walltime.WalltimeTerminationCriterion;
+
+/**
+ * Compares the pure Java {@link CDCLSATSolver} with clasp on the subproblems of the SAT pre-solver: the stations of a test instance without a previous channel
+ * plus their neighbourhood up to a given depth are free, and every other station is fixed to its previous channel (as in {@link ca.ubc.cs.beta.stationpacking.solvers.certifiers.cgneighborhood.StationSubsetSATCertifier}).
+ * The depth at which clasp overtakes the Java solver, along with the sizes of the CNFs printed during the setup, gives the variable threshold
+ * of the clasp configurations (javaMaxVariables). Needs the clasp library, run with the main method from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CDCLSATSolverBenchmark {
+
+    private static final double CUTOFF = 60;
+
+    public enum Solver {
+        JAVA, CLASP
+    }
+
+    @Param({"JAVA", "CLASP"})
+    public Solver solver;
+
+    @Param({"0", "1", "2", "3", "4"})
+    public int depth;
+
+    private ISATSolver satSolver;
+    private final List<IntCNF> subproblems = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        final IStationManager stationManager = new DomainStationManager(Resources.getResource("data/021814SC3M/Domain.csv").getFile());
+        final IConstraintManager constraintManager = new ChannelSpecificConstraintManager(stationManager, Resources.getResource("data/021814SC3M/Interference_Paired.csv").getFile());
+        final ConstraintGraphService constraintGraphService = new ConstraintGraphService(stationManager, constraintManager);
+        final SATCompressor compressor = new SATCompressor(constraintManager, EncodingType.DIRECT);
+        final File[] srpks = new File(Resources.getResource("data/srpks").getFile()).listFiles();
+        long numVariables = 0;
+        for (File srpk : srpks) {
+            final Converter.StationPackingProblemSpecs specs = Converter.StationPackingProblemSpecs.fromStationRepackingInstance(srpk.getAbsolutePath());
+            final Map<Station, Set<Integer>> domains = new HashMap<>();
+            final Map<Station, Integer> previousAssignment = new HashMap<>();
+            specs.getDomains().forEach((id, domain) -> domains.put(stationManager.getStationfromID(id), domain));
+            specs.getPreviousAssignment().forEach((id, channel) -> previousAssignment.put(stationManager.getStationfromID(id), channel));
+
+            // Stations without a usable previous channel, and their neighbourhood
+            final ConstraintGraphView view = constraintGraphService.computeView(domains);
+            Set<Station> toPack = new HashSet<>();
+            for (Map.Entry<Station, Set<Integer>> entry : domains.entrySet()) {
+                if (!entry.getValue().contains(previousAssignment.get(entry.getKey()))) {
+                    toPack.add(entry.getKey());
+                }
+            }
+            if (toPack.isEmpty()) {
+                toPack.add(Collections.min(domains.keySet()));
+            }
+            for (int d = 0; d < depth; d++) {
+                final Set<Station> expanded = new HashSet<>(toPack);
+                for (Station station : toPack) {
+                    expanded.addAll(view.neighborsOf(station));
+                }
+                toPack = expanded;
+            }
+
+            final Map<Station, Set<Integer>> reducedDomains = new HashMap<>();
+            for (Map.Entry<Station, Set<Integer>> entry : domains.entrySet()) {
+                reducedDomains.put(entry.getKey(), toPack.contains(entry.getKey()) ? entry.getValue() : ImmutableSet.of(previousAssignment.get(entry.getKey())));
+            }
+            final IntCNF cnf = new IntCNF();
+            cnf.addAll(compressor.encode(new StationPackingInstance(reducedDomains, previousAssignment)).getKey());
+            subproblems.add(cnf);
+            numVariables += cnf.getNumVariables();
+        }
+        System.out.println("Depth " + depth + ": " + subproblems.size() + " subproblems with " + numVariables / subproblems.size() + " variables on average");
+
+        if (solver.equals(Solver.JAVA)) {
+            satSolver = new CDCLSATSolver();
+        } else {
+            satSolver = new Clasp3SATSolver(SATFCFacadeBuilder.findSATFCLibrary(SATFCFacadeBuilder.SATFCLibLocation.CLASP), ClaspLibSATSolverParameters.UHF_CONFIG_04_15_h1, new PollingService());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        satSolver.notifyShutdown();
+    }
+
+    /**
+     * Solve every subproblem of the depth once.
+     */
+    @Benchmark
+    public int solveSubproblems() {
+        int numConclusive = 0;
+        for (IntCNF cnf : subproblems) {
+            if (satSolver.solve(cnf, new long[0], new WalltimeTerminationCriterion(CUTOFF), 1).getResult().isConclusive()) {
+                numConclusive++;
+            }
+        }
+        return numConclusive;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CDCLSATSolverBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.base.IntCNF;
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.base.SATSolverResult;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.infinite.NeverEndingTerminationCriterion;
+import ca.ubc.cs.beta.stationpacking.solvers.termination.walltime.WalltimeTerminationCriterion;
+
+public class CDCLSATSolverTest {
+
+    private final CDCLSATSolver solver = new CDCLSATSolver();
+
+    /**
+     * @return the CNF stating that n + 1 pigeons fit in n holes, variable (p * n + h + 1) meaning pigeon p is in hole h.
+     */
+    private static IntCNF pigeonHole(int n) {
+        final IntCNF cnf = new IntCNF();
+        for (int p = 0; p <= n; p++) {
+            for (int h = 0; h < n; h++) {
+                cnf.addLiteral(p * n + h + 1);
+            }
+            cnf.endClause();
+        }
+        for (int h = 0; h < n; h++) {
+            for (int p = 0; p <= n; p++) {
+                for (int q = p + 1; q <= n; q++) {
+                    cnf.addClause(-(p * n + h + 1), -(q * n + h + 1));
+                }
+            }
+        }
+        return cnf;
+    }
+
+    private static boolean satisfies(IntCNF aCNF, int[] aModel) {
+        final int[] literals = aCNF.getPackedLiterals();
+        boolean satisfied = false;
+        for (int i = 0; i < aCNF.getPackedLength(); i++) {
+            if (literals[i] == 0) {
+                if (!satisfied) {
+                    return false;
+                }
+                satisfied = false;
+            } else if (aModel[Math.abs(literals[i])] == literals[i]) {
+                satisfied = true;
+            }
+        }
+        return true;
+    }
+
+    private static boolean bruteForceSatisfiable(IntCNF aCNF) {
+        final int numVariables = aCNF.getNumVariables();
+        final int[] model = new int[numVariables + 1];
+        model[0] = model.length;
+        for (int assignment = 0; assignment < 1 << numVariables; assignment++) {
+            for (int v = 1; v <= numVariables; v++) {
+                model[v] = (assignment >> (v - 1) & 1) == 1 ? v : -v;
+            }
+            if (satisfies(aCNF, model)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testPigeonHoleIsUnsat() {
+        assertEquals(SATResult.UNSAT, solver.solve(pigeonHole(6), new long[0], new NeverEndingTerminationCriterion(), 1).getResult());
+    }
+
+    @Test
+    public void testRandom3SATAgreesWithBruteForce() {
+        final Random random = new Random(0);
+        final int numVariables = 12;
+        for (int instance = 0; instance < 200; instance++) {
+            final IntCNF cnf = new IntCNF();
+            // Around the satisfiability threshold, so that both answers come up
+            for (int c = 0; c < 51; c++) {
+                for (int l = 0; l < 3; l++) {
+                    final int variable = random.nextInt(numVariables) + 1;
+                    cnf.addLiteral(random.nextBoolean() ? variable : -variable);
+                }
+                cnf.endClause();
+            }
+            final SATSolverResult result = solver.solve(cnf, new long[0], new NeverEndingTerminationCriterion(), instance);
+            assertEquals(bruteForceSatisfiable(cnf) ? SATResult.SAT : SATResult.UNSAT, result.getResult());
+            if (result.getResult().equals(SATResult.SAT)) {
+                assertTrue(satisfies(cnf, result.getModel()));
+            }
+        }
+    }
+
+    @Test
+    public void testUnitAndDuplicateLiterals() {
+        final IntCNF cnf = new IntCNF();
+        cnf.addLiteral(1);
+        cnf.endClause();
+        cnf.addClause(-1, 2);
+        cnf.addLiteral(-2);
+        cnf.addLiteral(-2);
+        cnf.addLiteral(3);
+        cnf.endClause();
+        cnf.addClause(3, -3);
+        final SATSolverResult result = solver.solve(cnf, new long[0], new NeverEndingTerminationCriterion(), 1);
+        assertEquals(SATResult.SAT, result.getResult());
+        assertEquals(1, result.getModel()[1]);
+        assertEquals(2, result.getModel()[2]);
+        assertEquals(3, result.getModel()[3]);
+    }
+
+    @Test(timeout = 5000)
+    public void testTimeout() {
+        assertEquals(SATResult.TIMEOUT, solver.solve(pigeonHole(12), new long[0], new WalltimeTerminationCriterion(0.5), 1).getResult());
+    }
+
+    @Test(timeout = 5000)
+    public void testInterrupt() {
+        new Thread(() -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            solver.interrupt();
+        }).start();
+        assertEquals(SATResult.INTERRUPTED, solver.solve(pigeonHole(12), new long[0], new NeverEndingTerminationCriterion(), 1).getResult());
+    }
+
+    @Test
+    public void testLuby() {
+        final long[] expected = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], CDCLSATSolver.luby(i));
+        }
+    }
+
+}
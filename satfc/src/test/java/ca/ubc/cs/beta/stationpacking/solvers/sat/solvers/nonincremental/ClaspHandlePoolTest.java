@@ -0,0 +1,128 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.nonincremental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.jna.Pointer;
+
+import ca.ubc.cs.beta.stationpacking.solvers.sat.solvers.jnalibraries.Clasp3Library;
+
+public class ClaspHandlePoolTest {
+
+    private Clasp3Library library;
+
+    @Before
+    public void setUp() {
+        library = mock(Clasp3Library.class);
+        final AtomicLong nextAddress = new AtomicLong(1);
+        when(library.initConfig(anyString())).thenAnswer(invocation -> new Pointer(nextAddress.getAndIncrement()));
+        when(library.getConfigState(any(Pointer.class))).thenReturn(1);
+        when(library.resetProblem(any(Pointer.class), anyInt())).thenReturn(true);
+    }
+
+    @Test
+    public void testWarmHandleIsReused() {
+        final ClaspHandlePool pool = new ClaspHandlePool(library, "--params", 1);
+        final Pointer first = pool.acquire(3);
+        pool.release(first, true);
+        assertEquals(first, pool.acquire(4));
+        // Only the handle validating the parameters was ever configured
+        verify(library, times(1)).initConfig(anyString());
+        verify(library).resetProblem(first, 4);
+        verify(library, never()).destroyProblem(first);
+    }
+
+    @Test
+    public void testUnusableHandleIsDestroyed() {
+        final ClaspHandlePool pool = new ClaspHandlePool(library, "--params", 1);
+        final Pointer first = pool.acquire(3);
+        pool.release(first, false);
+        verify(library).destroyProblem(first);
+        assertNotEquals(first, pool.acquire(4));
+        verify(library).initConfig("--params --seed=4");
+    }
+
+    @Test
+    public void testNoResetSupport() {
+        when(library.resetProblem(any(Pointer.class), anyInt())).thenThrow(new UnsatisfiedLinkError());
+        final ClaspHandlePool pool = new ClaspHandlePool(library, "--params", 1);
+        final Pointer first = pool.acquire(3);
+        verify(library).destroyProblem(new Pointer(1));
+        pool.release(first, true);
+        // Handles are not kept once resetting is known not to work
+        verify(library).destroyProblem(first);
+    }
+
+    @Test
+    public void testLeakedHandles() {
+        final ClaspHandlePool pool = new ClaspHandlePool(library, "--params", 1);
+        final Pointer handle = pool.acquire(3);
+        pool.acquire(4);
+        assertEquals(2, pool.getNumAcquiredHandles());
+        pool.release(handle, true);
+        pool.close();
+        assertEquals(1, pool.getNumAcquiredHandles());
+        verify(library).destroyProblem(handle);
+    }
+
+    @Test
+    public void testHandleOfDeadThreadIsDestroyedOnRelease() throws InterruptedException {
+        final ClaspHandlePool pool = new ClaspHandlePool(library, "--params", 1);
+        final Pointer[] leaked = new Pointer[1];
+        final Thread thread = new Thread(() -> leaked[0] = pool.acquire(3));
+        thread.start();
+        thread.join();
+        pool.release(pool.acquire(4), true);
+        assertEquals(0, pool.getNumAcquiredHandles());
+        verify(library).destroyProblem(leaked[0]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDoubleRelease() {
+        final ClaspHandlePool pool = new ClaspHandlePool(library, "--params", 1);
+        final Pointer handle = pool.acquire(3);
+        pool.release(handle, true);
+        pool.release(handle, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParameters() {
+        when(library.getConfigState(any(Pointer.class))).thenReturn(2);
+        new ClaspHandlePool(library, "not valid", 1);
+    }
+
+}
@@ -21,6 +21,8 @@
  */
 package ca.ubc.cs.beta.stationpacking.webapp;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +34,8 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import com.google.common.collect.ImmutableSet;
 
 import ca.ubc.cs.beta.stationpacking.cache.CacheCoordinate;
+import ca.ubc.cs.beta.stationpacking.cache.ContainmentCacheSnapshot;
+import ca.ubc.cs.beta.stationpacking.cache.ContainmentCacheSnapshot.Snapshot;
 import ca.ubc.cs.beta.stationpacking.cache.ICacheLocator;
 import ca.ubc.cs.beta.stationpacking.cache.ISatisfiabilityCacheFactory;
 import ca.ubc.cs.beta.stationpacking.cache.RedisCacher;
@@ -81,7 +85,7 @@ public class CacheLocator implements ICacheLocator, ApplicationListener<ContextR
         dataManager.loadMultipleConstraintSets(constraintFolder);
 
         log.info("Beginning to init caches");
-        final ContainmentCacheInitData containmentCacheInitData = cacher.getContainmentCacheInitData(parameters.getCacheSizeLimit(), parameters.isSkipSAT(), parameters.isSkipUNSAT(), parameters.isValidateSAT());
+        final ContainmentCacheInitData containmentCacheInitData = loadInitData(cacher, dataManager);
         dataManager.getCoordinateToBundle().keySet().forEach(cacheCoordinate -> {
             final ISatisfiabilityCache cache = cacheFactory.create(dataManager.getData(cacheCoordinate).getPermutation());
             log.info("Cache created for coordinate " + cacheCoordinate);
@@ -93,6 +97,40 @@ public class CacheLocator implements ICacheLocator, ApplicationListener<ContextR
         });
     }
 
+    /**
+     * Load the cache entries from the snapshot if there is a usable one, catching up on the entries added to redis since it was taken.
+     * Otherwise, load everything from redis.
+     */
+    private ContainmentCacheInitData loadInitData(RedisCacher cacher, DataManager dataManager) {
+        final File snapshotFile = parameters.getSnapshotFile();
+        if (snapshotFile != null && snapshotFile.exists()) {
+            if (parameters.isValidateSAT() || parameters.getCacheSizeLimit() < Long.MAX_VALUE) {
+                log.info("Not using the cache snapshot since SAT entries are validated or the cache size is limited");
+            } else {
+                try {
+                    final Snapshot snapshot = ContainmentCacheSnapshot.read(snapshotFile, dataManager, parameters.isSkipSAT(), parameters.isSkipUNSAT());
+                    final long highWaterMark = snapshot.getHighWaterMark();
+                    final long hashNum = cacher.getHashNum();
+                    if (hashNum < highWaterMark) {
+                        log.warn("Redis only counts {} entries, but the cache snapshot goes up to {}. Redis was probably reset, loading from redis instead", hashNum, highWaterMark);
+                    } else if (hashNum - highWaterMark > parameters.getSnapshotCatchupLimit()) {
+                        log.info("{} entries were added since the cache snapshot was taken, loading from redis instead", hashNum - highWaterMark);
+                    } else {
+                        log.info("Catching up on the {} entry IDs given out since the cache snapshot was taken", hashNum - highWaterMark);
+                        final ContainmentCacheInitData newEntries = cacher.getContainmentCacheInitData(highWaterMark, hashNum, dataManager.getCoordinateToBundle().keySet(), parameters.isSkipSAT(), parameters.isSkipUNSAT());
+                        final ContainmentCacheInitData initData = snapshot.getData();
+                        initData.getSATResults().putAll(newEntries.getSATResults());
+                        initData.getUNSATResults().putAll(newEntries.getUNSATResults());
+                        return initData;
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not read the cache snapshot " + snapshotFile + ", loading from redis instead", e);
+                }
+            }
+        }
+        return cacher.getContainmentCacheInitData(parameters.getCacheSizeLimit(), parameters.isSkipSAT(), parameters.isSkipUNSAT(), parameters.isValidateSAT());
+    }
+
 	@Override
 	public Set<CacheCoordinate> getCoordinates() {
 		return ImmutableSet.copyOf(caches.keySet());
@@ -145,7 +145,7 @@ public class SATFCServerApplication {
     @Bean
     ISatisfiabilityCacheFactory satisfiabilityCacheFactory() {
         final SATFCServerParameters satfcServerParameters = satfcServerParameters();
-        return new SatisfiabilityCacheFactory(satfcServerParameters.getNumPermutations(), satfcServerParameters.getSeed());
+        return new SatisfiabilityCacheFactory(satfcServerParameters.getNumPermutations(), satfcServerParameters.getSeed(), satfcServerParameters.getNumSATShards());
     }
 
     @Bean
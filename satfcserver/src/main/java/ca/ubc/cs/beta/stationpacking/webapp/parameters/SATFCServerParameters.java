@@ -46,6 +46,10 @@ public class SATFCServerParameters extends AbstractOptions {
     @Getter
     private int numPermutations = 1;
 
+    @Parameter(names = "--cache.SAT.shards", description = "The number of shards the SAT entries are split into. Queries search all the shards in parallel, so this is best set around the number of available cores")
+    @Getter
+    private int numSATShards = Runtime.getRuntime().availableProcessors();
+
     @Parameter(names = "--cache.size.limit", description = "Only use the first limit entries from the cache", hidden = true)
     @Getter
     private long cacheSizeLimit = Long.MAX_VALUE;
@@ -81,6 +85,42 @@ public class SATFCServerParameters extends AbstractOptions {
     @Getter
     private boolean cacheUHFOnly = true;
 
+    @Parameter(names = "--cache.queue.capacity", description = "Maximum number of cache additions waiting to be written. Additions received while the queue is full are dropped (and counted in the metrics)")
+    @Getter
+    private int cacheQueueCapacity = 100000;
+
+    @Parameter(names = "--cache.flush.size", description = "Maximum number of pending cache additions written to redis in a single pipeline")
+    @Getter
+    private int cacheFlushSize = 1000;
+
+    /**
+     * Read by spring directly as the delay of the scheduled flush, declared here so that it is documented and validated
+     */
+    @Parameter(names = "--cache.flush.interval", description = "Time (ms) between two flushes of the pending cache additions")
+    @Getter
+    private long cacheFlushInterval = 5000;
+
+
+    @Parameter(names = "--cache.snapshot", description = "File holding a binary snapshot of the caches. If present at start up, the caches are loaded from it (plus the entries added to redis since) instead of from redis alone. The server periodically rewrites it")
+    private String snapshotFilePath;
+
+    /**
+     * Read by spring directly as the delay of the scheduled snapshot, declared here so that it is documented and validated
+     */
+    @Parameter(names = "--cache.snapshot.interval", description = "Time (ms) between two snapshots of the caches")
+    @Getter
+    private long snapshotInterval = 15 * 60 * 1000;
+
+    @Parameter(names = "--cache.snapshot.catchup.limit", description = "If more than this many entries were added to redis since the snapshot was taken, ignore the snapshot and load everything from redis")
+    @Getter
+    private long snapshotCatchupLimit = 100000;
+
+    /**
+     * @return the snapshot file, or null if snapshots are not used
+     */
+    public File getSnapshotFile() {
+        return snapshotFilePath == null ? null : new File(snapshotFilePath);
+    }
 
     public enum CACHE_SCREENER_CHOICE {
         NEW_INFO, ADD_EVERYTHING, ADD_NOTHING
@@ -88,6 +128,11 @@ public class SATFCServerParameters extends AbstractOptions {
 
     public void validate() {
         Preconditions.checkArgument(new File(constraintFolder).isDirectory(), "Provided constraint folder is not a directory", constraintFolder);
+        Preconditions.checkArgument(cacheQueueCapacity > 0, "Cache queue capacity must be positive");
+        Preconditions.checkArgument(cacheFlushSize > 0, "Cache flush size must be positive");
+        Preconditions.checkArgument(cacheFlushInterval > 0, "Cache flush interval must be positive");
+        Preconditions.checkArgument(snapshotInterval > 0, "Cache snapshot interval must be positive");
+        Preconditions.checkArgument(snapshotCatchupLimit >= 0, "Cache snapshot catch up limit cannot be negative");
         if (badSetFilePath != null) {
             final File badSetFile = new File(badSetFilePath);
             Preconditions.checkArgument(badSetFile.exists(), "Could not locate bad set file", badSetFilePath);
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2016, Auctionomics, Alexandre Fréchette, Neil Newman, Kevin Leyton-Brown.
+ *
+ * This file is part of SATFC.
+ *
+ * SATFC is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * SATFC is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with SATFC.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * For questions, contact us at:
+ * afrechet@cs.ubc.ca
+ */
+package ca.ubc.cs.beta.stationpacking.webapp.rest;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Lock-free bounded queue for many producers (request threads) and a single consumer (the scheduled drain).
+ * <p>
+ * Elements live in a {@link ConcurrentLinkedQueue}; the bound is enforced by a CAS loop on a separate counter, so producers never block:
+ * an offer to a full queue fails immediately and it is up to the caller to decide what to do with the rejected element.
+ * </p>
+ */
+public class BoundedMPSCQueue<E> {
+
+    private final Queue<E> fQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger fSize = new AtomicInteger();
+    private final int fCapacity;
+
+    public BoundedMPSCQueue(int aCapacity) {
+        Preconditions.checkArgument(aCapacity > 0, "Queue capacity must be positive, not %s", aCapacity);
+        fCapacity = aCapacity;
+    }
+
+    /**
+     * @return true if the element was enqueued, false if the queue is full.
+     */
+    public boolean offer(E aElement) {
+        Preconditions.checkNotNull(aElement);
+        int size;
+        do {
+            size = fSize.get();
+            if (size >= fCapacity) {
+                return false;
+            }
+        } while (!fSize.compareAndSet(size, size + 1));
+        fQueue.offer(aElement);
+        return true;
+    }
+
+    /**
+     * Move up to aMaxElements elements, in FIFO order, to the given collection. Only the single consumer may call this.
+     * @return the number of elements moved.
+     */
+    public int drainTo(Collection<? super E> aCollection, int aMaxElements) {
+        int drained = 0;
+        while (drained < aMaxElements) {
+            final E element = fQueue.poll();
+            if (element == null) {
+                break;
+            }
+            aCollection.add(element);
+            drained++;
+        }
+        fSize.addAndGet(-drained);
+        return drained;
+    }
+
+    /**
+     * @return the (approximate, if producers are active) number of elements waiting in the queue.
+     */
+    public int size() {
+        return fSize.get();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getCapacity() {
+        return fCapacity;
+    }
+
+}
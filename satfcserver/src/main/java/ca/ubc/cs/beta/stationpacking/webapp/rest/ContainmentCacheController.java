@@ -21,10 +21,12 @@
  */
 package ca.ubc.cs.beta.stationpacking.webapp.rest;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 
 import javax.annotation.PostConstruct;
@@ -32,6 +34,8 @@ import javax.annotation.PostConstruct;
 import ca.ubc.cs.beta.stationpacking.cache.containment.transformer.ICacheEntryTransformer;
 import ca.ubc.cs.beta.stationpacking.cache.containment.transformer.InstanceAndResult;
 import ca.ubc.cs.beta.stationpacking.utils.StationPackingUtils;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Maps;
 import org.apache.catalina.connector.ClientAbortException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,27 +49,34 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.RatioGauge;
 import com.codahale.metrics.Timer;
-import com.google.common.collect.Queues;
 
 import ca.ubc.cs.beta.stationpacking.base.Station;
 import ca.ubc.cs.beta.stationpacking.base.StationPackingInstance;
+import ca.ubc.cs.beta.stationpacking.cache.CacheCoordinate;
+import ca.ubc.cs.beta.stationpacking.cache.ContainmentCacheSnapshot;
 import ca.ubc.cs.beta.stationpacking.cache.ICacheEntryFilter;
 import ca.ubc.cs.beta.stationpacking.cache.ICacheLocator;
+import ca.ubc.cs.beta.stationpacking.cache.ISATFCCacheEntry;
 import ca.ubc.cs.beta.stationpacking.cache.RedisCacher;
+import ca.ubc.cs.beta.stationpacking.cache.RedisCacher.ContainmentCacheInitData;
+import ca.ubc.cs.beta.stationpacking.cache.RedisCacher.KeyedCacheEntry;
 import ca.ubc.cs.beta.stationpacking.cache.containment.ContainmentCacheSATEntry;
 import ca.ubc.cs.beta.stationpacking.cache.containment.ContainmentCacheSATResult;
 import ca.ubc.cs.beta.stationpacking.cache.containment.ContainmentCacheUNSATEntry;
 import ca.ubc.cs.beta.stationpacking.cache.containment.ContainmentCacheUNSATResult;
+import ca.ubc.cs.beta.stationpacking.cache.containment.PackedDomains;
 import ca.ubc.cs.beta.stationpacking.cache.containment.containmentcache.ISatisfiabilityCache;
 import ca.ubc.cs.beta.stationpacking.facade.datamanager.data.DataManager;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SolverResult;
 import ca.ubc.cs.beta.stationpacking.solvers.decorators.cache.ContainmentCacheProxy.ContainmentCacheRequest;
 import ca.ubc.cs.beta.stationpacking.webapp.parameters.SATFCServerParameters;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Controller
@@ -101,13 +112,20 @@ public class ContainmentCacheController {
     private Timer satCacheTimer;
     private Meter unsatCacheHits;
     private Timer unsatCacheTimer;
+    private Meter rejectedCacheAdditions;
+    private Timer cacheFlushTimer;
 
     private volatile Map<Integer, Set<Station>> lastCachedAssignment = new HashMap<>();
 
-    private final Queue<ContainmentCacheRequest> pendingCacheAdditions = Queues.newArrayDeque();
+    // Filled concurrently by the request threads, drained by the scheduled flush
+    private BoundedMPSCQueue<ContainmentCacheRequest> pendingCacheAdditions;
 
     @PostConstruct
     void init() {
+        pendingCacheAdditions = new BoundedMPSCQueue<>(parameters.getCacheQueueCapacity());
+        rejectedCacheAdditions = registry.meter("cache.additions.rejected");
+        cacheFlushTimer = registry.timer("cache.additions.flush.timer");
+        registry.register("cache.additions.pending", (Gauge<Integer>) () -> pendingCacheAdditions.size());
         cacheAdditions = registry.meter("cache.sat.additions");
         satCacheHits = registry.meter("cache.sat.hits");
         satCacheTimer = registry.timer("cache.sat.timer");
@@ -222,14 +240,36 @@ public class ContainmentCacheController {
             @RequestBody final ContainmentCacheRequest request
     ) {
         // Just dump the entry and return - we don't want to delay the SATFC thread
-        pendingCacheAdditions.add(request);
+        if (!pendingCacheAdditions.offer(request)) {
+            rejectedCacheAdditions.mark();
+            log.warn("Dropping cache addition with coordinate {}: {} additions are already pending", request.getCoordinate(), pendingCacheAdditions.getCapacity());
+        }
     }
 
-    @Scheduled(fixedDelay = 5000, initialDelay = 5000)
+    // The interval is read from the command line arguments, which spring sees as well (see SATFCServerParameters)
+    @Scheduled(fixedDelayString = "${cache.flush.interval:5000}", initialDelayString = "${cache.flush.interval:5000}")
     public void addCacheEntries() {
         log.debug("Waking up to check list of potential cache additions");
-        while (!pendingCacheAdditions.isEmpty()) {
-            final ContainmentCacheRequest request = pendingCacheAdditions.poll();
+        final List<ContainmentCacheRequest> batch = new ArrayList<>();
+        while (pendingCacheAdditions.drainTo(batch, parameters.getCacheFlushSize()) > 0) {
+            final Timer.Context context = cacheFlushTimer.time();
+            try {
+                flush(batch);
+            } finally {
+                context.stop();
+                batch.clear();
+            }
+        }
+        log.debug("Done checking potential cache additions");
+    }
+
+    /**
+     * Screen a batch of potential additions one by one (so that each one is screened against the cache and the batch's previously accepted entries),
+     * then reserve exactly as many entry IDs as there are accepted entries, with one INCRBY, add them to the caches and write them to redis in a single pipeline.
+     */
+    private void flush(List<ContainmentCacheRequest> batch) {
+        final List<AcceptedEntry> accepted = new ArrayList<>();
+        for (final ContainmentCacheRequest request : batch) {
             final SolverResult result = request.getResult();
             if ((result.getResult().equals(SATResult.UNSAT) && parameters.isSkipUNSAT()) || result.getResult().equals(SATResult.SAT) && parameters.isSkipSAT()) {
                 continue;
@@ -244,31 +284,98 @@ public class ContainmentCacheController {
                 final StationPackingInstance transformedInstance = transformedInstanceAndResult.getInstance();
                 final SolverResult transformedResult = transformedInstanceAndResult.getResult();
 
-                if (cacheEntryFilter.shouldCache(request.getCoordinate(), transformedInstance, transformedResult)) {
-                    final String key;
+                if (cacheEntryFilter.shouldCache(request.getCoordinate(), transformedInstance, transformedResult) && !isRedundantWithBatch(accepted, request.getCoordinate(), transformedInstance, transformedResult)) {
+                    final ISATFCCacheEntry entry;
                     if (result.getResult().equals(SATResult.SAT)) {
-                        final ContainmentCacheSATEntry entry = new ContainmentCacheSATEntry(transformedResult.getAssignment(), cache.getPermutation());
-                        key = cacher.cacheResult(request.getCoordinate(), entry, transformedInstance.hasName() ? transformedInstance.getName() : null);
-                        entry.setKey(key);
-                        cache.add(entry);
-                        lastCachedAssignment = transformedResult.getAssignment();
+                        entry = new ContainmentCacheSATEntry(transformedResult.getAssignment(), cache.getPermutation());
                     } else if (result.getResult().equals(SATResult.UNSAT)) {
-                        final ContainmentCacheUNSATEntry entry = new ContainmentCacheUNSATEntry(transformedInstance.getDomains(), cache.getPermutation());
-                        cache.add(entry);
-                        key = cacher.cacheResult(request.getCoordinate(), entry, transformedInstance.hasName() ? transformedInstance.getName() : null);
-                        entry.setKey(key);
+                        entry = new ContainmentCacheUNSATEntry(transformedInstance.getDomains(), cache.getPermutation());
                     } else {
                         throw new IllegalStateException("Tried adding a result that was neither SAT or UNSAT");
                     }
-                    log.info("Adding entry to the cache with coordinate {} with key {}. Entry {}", request.getCoordinate(), key, description);
-                    // add to permanent storage
-                    cacheAdditions.mark();
+                    final String name = transformedInstance.hasName() ? transformedInstance.getName() : null;
+                    accepted.add(new AcceptedEntry(request.getCoordinate(), cache, entry, name, description));
                 } else {
                     log.info("Not adding entry {} to cache {}. No new info", request.getCoordinate(), description);
                 }
             }
         }
-        log.debug("Done checking potential cache additions");
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        // Entries only become visible once they have their key
+        final List<KeyedCacheEntry> entriesToWrite = new ArrayList<>(accepted.size());
+        long nextID = cacher.reserveIDs(accepted.size());
+        for (final AcceptedEntry acceptedEntry : accepted) {
+            final String key = acceptedEntry.coordinate.toKey(acceptedEntry.entry.getResult(), nextID++);
+            if (acceptedEntry.entry instanceof ContainmentCacheSATEntry) {
+                final ContainmentCacheSATEntry entry = (ContainmentCacheSATEntry) acceptedEntry.entry;
+                entry.setKey(key);
+                acceptedEntry.cache.add(entry);
+                lastCachedAssignment = entry.getAssignmentChannelToStation();
+            } else {
+                final ContainmentCacheUNSATEntry entry = (ContainmentCacheUNSATEntry) acceptedEntry.entry;
+                entry.setKey(key);
+                acceptedEntry.cache.add(entry);
+            }
+            entriesToWrite.add(new KeyedCacheEntry(key, acceptedEntry.entry, acceptedEntry.name));
+            log.info("Adding entry to the cache with coordinate {} with key {}. Entry {}", acceptedEntry.coordinate, key, acceptedEntry.description);
+            cacheAdditions.mark();
+        }
+        // add to permanent storage
+        cacher.cacheResults(entriesToWrite);
+    }
+
+    /**
+     * @return whether an entry accepted earlier in the batch already holds the result, i.e. what screening against the cache would say had it already been added.
+     */
+    private static boolean isRedundantWithBatch(List<AcceptedEntry> accepted, CacheCoordinate coordinate, StationPackingInstance instance, SolverResult result) {
+        PackedDomains domains = null;
+        for (final AcceptedEntry acceptedEntry : accepted) {
+            if (!acceptedEntry.coordinate.equals(coordinate) || !acceptedEntry.entry.getResult().equals(result.getResult())) {
+                continue;
+            }
+            if (domains == null) {
+                domains = new PackedDomains(instance, acceptedEntry.cache.getPermutation());
+            }
+            if (acceptedEntry.entry instanceof ContainmentCacheSATEntry ? ((ContainmentCacheSATEntry) acceptedEntry.entry).isSolutionTo(domains) : ((ContainmentCacheUNSATEntry) acceptedEntry.entry).isLessRestrictive(domains)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @RequiredArgsConstructor
+    private static class AcceptedEntry {
+        private final CacheCoordinate coordinate;
+        private final ISatisfiabilityCache cache;
+        private final ISATFCCacheEntry entry;
+        private final String name;
+        private final String description;
+    }
+
+    // Spring runs all the scheduled methods on a single thread, so a snapshot is never taken in the middle of a flush
+    @Scheduled(fixedDelayString = "${cache.snapshot.interval:900000}", initialDelayString = "${cache.snapshot.interval:900000}")
+    public void writeSnapshot() {
+        final File snapshotFile = parameters.getSnapshotFile();
+        if (snapshotFile == null) {
+            return;
+        }
+        // Read the counter first: every entry with a smaller ID that made it into the caches is then part of the snapshot
+        final long highWaterMark = cacher.getHashNum();
+        final ListMultimap<CacheCoordinate, ContainmentCacheSATEntry> SATEntries = ArrayListMultimap.create();
+        final ListMultimap<CacheCoordinate, ContainmentCacheUNSATEntry> UNSATEntries = ArrayListMultimap.create();
+        containmentCacheLocator.getCoordinates().forEach(cacheCoordinate -> {
+            final ISatisfiabilityCache cache = containmentCacheLocator.locate(cacheCoordinate);
+            SATEntries.putAll(cacheCoordinate, cache.getSATEntries());
+            UNSATEntries.putAll(cacheCoordinate, cache.getUNSATEntries());
+        });
+        try {
+            ContainmentCacheSnapshot.write(snapshotFile, highWaterMark, new ContainmentCacheInitData(SATEntries, UNSATEntries));
+        } catch (IOException e) {
+            log.error("Could not write the cache snapshot to " + snapshotFile, e);
+        }
     }
 
     @RequestMapping(value = "/filterSAT", method = RequestMethod.POST)
@@ -38,6 +38,7 @@ import ca.ubc.cs.beta.fcc.simulator.utils.Band;
 import ca.ubc.cs.beta.fcc.simulator.utils.SimulatorUtils;
 import ca.ubc.cs.beta.fcc.simulator.vacancy.IVacancyCalculator;
 import ca.ubc.cs.beta.fcc.simulator.vacancy.ParallelVacancyCalculator;
+import ca.ubc.cs.beta.fcc.vcg.MIPSession;
 import ca.ubc.cs.beta.fcc.vcg.VCGMip;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
 import ca.ubc.cs.beta.stationpacking.facade.SATFCFacadeBuilder;
@@ -177,7 +178,9 @@ public class MultiBandAuctioneer {
         final Set<IStationInfo> onAirUHFStations = onAirStations.stream().filter(s -> s.getHomeBand().equals(Band.UHF)).collect(toSet());
         log.info("Finding an initial assignment for the {} initially on-air stations ({} US UHF, {} US VHF)", onAirStations.size(), nonParticipatingUSStations.stream().filter(s -> s.getHomeBand().equals(Band.UHF)).count(), nonParticipatingUSStations.stream().filter(s -> s.getHomeBand().isVHF()).count());
         log.info("Beginning by finding out if any of the {} on-air the UHF stations need to be impaired", onAirStations.stream().filter(s -> s.getHomeBand().equals(Band.UHF)).count());
-        final Map<Integer, Integer> assignment = clearingTargetOptimization(stationDB, parameters, onAirUHFStations);
+        // Consecutive clearing target optimizations only differ slightly, so they share a single CPLEX model
+        @Cleanup final MIPSession clearingTargetSession = new MIPSession(stationDB, parameters.getStationManager(), parameters.getConstraintManager(), parameters.getUseNewMIP() ? new ClearingTargetOptimizationMIP_2() : new ClearingTargetOptimizationMIP());
+        final Map<Integer, Integer> assignment = clearingTargetOptimization(clearingTargetSession, parameters, onAirUHFStations);
         final Set<IStationInfo> impairingStations = assignment.entrySet().stream().filter(e -> e.getValue() == ClearingTargetOptimizationMIP.IMPAIRING_CHANNEL)
                 .map(e -> stationDB.getStationById(e.getKey()))
                 .collect(toSet());
@@ -376,7 +379,7 @@ public class MultiBandAuctioneer {
                 adjustCT(clearingTarget, stationDB, parameters.getEventBus(), ladder, parameters.getConstraintManager());
 
                 if (!impairingStations.isEmpty()) {
-                    betweenStageClearingTargetOptimization(parameters, previousAssignmentHandler, ladder, stationDB, uhfCache, impairingStations);
+                    betweenStageClearingTargetOptimization(clearingTargetSession, parameters, previousAssignmentHandler, ladder, stationDB, uhfCache, impairingStations);
                     state.setAssignment(previousAssignmentHandler.getPreviousAssignment());
                 }
 
@@ -495,12 +498,12 @@ public class MultiBandAuctioneer {
         final long valueLoss;
     }
 
-    private static void betweenStageClearingTargetOptimization(MultiBandSimulatorParameters parameters, IPreviousAssignmentHandler previousAssignmentHandler, IModifiableLadder ladder, IStationDB.IModifiableStationDB stationDB, UHFCachingFeasibilitySolverDecorator uhfCache, Set<IStationInfo> impairingStations) {
+    private static void betweenStageClearingTargetOptimization(MIPSession clearingTargetSession, MultiBandSimulatorParameters parameters, IPreviousAssignmentHandler previousAssignmentHandler, IModifiableLadder ladder, IStationDB.IModifiableStationDB stationDB, UHFCachingFeasibilitySolverDecorator uhfCache, Set<IStationInfo> impairingStations) {
         log.info("Dumping back as many impairing stations as possible");
         final Map<Integer, Set<Integer>> otherDomains = ladder.getBandStations(Band.UHF).stream().filter(s -> !s.isImpaired()).collect(toMap(IStationInfo::getId, s -> s.getDomain(Band.UHF)));
         final Map<Integer, Integer> previousAssignment = new HashMap<>(ladder.getPreviousAssignment());
         impairingStations.forEach(s -> previousAssignment.put(s.getId(), ClearingTargetOptimizationMIP.IMPAIRING_CHANNEL));
-        final Map<Integer, Integer> newStageAssignment = clearingTargetOptimization(stationDB, parameters, impairingStations, impairingStations.size(), otherDomains, previousAssignment);
+        final Map<Integer, Integer> newStageAssignment = clearingTargetOptimization(clearingTargetSession, parameters, impairingStations, impairingStations.size(), otherDomains, previousAssignment);
         final Set<IStationInfo> noLongerImpairing = impairingStations.stream().filter(s -> newStageAssignment.get(s.getId()) != ClearingTargetOptimizationMIP.IMPAIRING_CHANNEL).collect(toSet());
         impairingStations.removeAll(noLongerImpairing);
         if (!noLongerImpairing.isEmpty()) {
@@ -554,15 +557,15 @@ public class MultiBandAuctioneer {
         eventBus.post(new DomainChangeEvent(ladder, constraintManager));
     }
 
-    public static Map<Integer, Integer> clearingTargetOptimization(IStationDB stationDB, SimulatorParameters parameters, Set<IStationInfo> possibleToImpair) {
-        return clearingTargetOptimization(stationDB, parameters, possibleToImpair, null, new HashMap<>(), new HashMap<>());
+    public static Map<Integer, Integer> clearingTargetOptimization(MIPSession session, SimulatorParameters parameters, Set<IStationInfo> possibleToImpair) {
+        return clearingTargetOptimization(session, parameters, possibleToImpair, null, new HashMap<>(), new HashMap<>());
     }
 
-    public static Map<Integer, Integer> clearingTargetOptimization(IStationDB stationDB, SimulatorParameters parameters, Set<IStationInfo> possibleToImpair, Integer currentSolution, Map<Integer, Set<Integer>> otherDomains, Map<Integer, Integer> startingAssignment) {
+    /**
+     * @param session - MIP session whose encoder is the phase one clearing target optimization MIP.
+     */
+    public static Map<Integer, Integer> clearingTargetOptimization(MIPSession session, SimulatorParameters parameters, Set<IStationInfo> possibleToImpair, Integer currentSolution, Map<Integer, Set<Integer>> otherDomains, Map<Integer, Integer> startingAssignment) {
         try {
-            final VCGMip.IMIPEncoder clearingTargetOptimizationMIP = parameters.getUseNewMIP() ? new ClearingTargetOptimizationMIP_2() : new ClearingTargetOptimizationMIP();
-            final VCGMip.MIPMaker mipMaker;
-            mipMaker = new VCGMip.MIPMaker(stationDB, parameters.getStationManager(), parameters.getConstraintManager(), clearingTargetOptimizationMIP);
             // Need to make sure you don't query impaired domain here, so temporarily unimpair the stations so you can get real domains...
             final Set<IStationInfo> actuallyImpaired = possibleToImpair.stream().filter(IStationInfo::isImpaired).collect(toSet());
             actuallyImpaired.stream().forEach(IStationInfo::unimpair);
@@ -573,7 +576,7 @@ public class MultiBandAuctioneer {
                     );
             domains.putAll(otherDomains);
             actuallyImpaired.stream().forEach(IStationInfo::impair);
-            final VCGMip.MIPResult phaseOneResult = mipMaker.solve(domains, domains.keySet(), parameters.getMipCutoff(), parameters.getSeed(), parameters.getParallelism(), false, null, startingAssignment, false);
+            final VCGMip.MIPResult phaseOneResult = session.solve(domains, domains.keySet(), parameters.getMipCutoff(), parameters.getSeed(), parameters.getParallelism(), false, null, startingAssignment, false);
             if (currentSolution == null) {
                 abortIfNecessary(phaseOneResult);
             }
@@ -586,8 +589,7 @@ public class MultiBandAuctioneer {
             } else {
                 log.info("Now finding best set (by minimizing pop of impairing stations)");
                 final ClearingTargetOptimizationMIP clearingTargetOptimizationMIPPhaseTwo = new ClearingTargetOptimizationMIP(nImpairingStations);
-                final VCGMip.MIPMaker mipMakerPhaseTwo = new VCGMip.MIPMaker(stationDB, parameters.getStationManager(), parameters.getConstraintManager(), clearingTargetOptimizationMIPPhaseTwo);
-                final VCGMip.MIPResult phaseTwoResult = mipMakerPhaseTwo.solve(domains, domains.keySet(), parameters.getMipCutoff(), parameters.getSeed(), parameters.getParallelism(), false, null, phaseOneResult.getAssignment(), false);
+                final VCGMip.MIPResult phaseTwoResult = session.solve(clearingTargetOptimizationMIPPhaseTwo, domains, domains.keySet(), parameters.getMipCutoff(), parameters.getSeed(), parameters.getParallelism(), false, null, phaseOneResult.getAssignment(), false);
                 if (currentSolution != null) {
                     abortIfNecessary(phaseTwoResult);
                 }
@@ -2,6 +2,7 @@ package ca.ubc.cs.beta.fcc.simulator;
 
 import ca.ubc.cs.beta.fcc.simulator.bidprocessing.Bid;
 import ca.ubc.cs.beta.fcc.simulator.bidprocessing.IStationOrderer;
+import ca.ubc.cs.beta.fcc.simulator.bidprocessing.SpeculativeHomeBandFeasibilityChecker;
 import ca.ubc.cs.beta.fcc.simulator.bidprocessing.StationOrdererImpl;
 import ca.ubc.cs.beta.fcc.simulator.catchup.CatchupPoint;
 import ca.ubc.cs.beta.fcc.simulator.feasibilityholder.IProblemMaker;
@@ -303,6 +304,8 @@ public class MultiBandSimulator {
         // When using a BP algorithm that doesn't freeze timeouts, track these stations
         final Set<IStationInfo> timeoutStations = new HashSet<>();
         if (bidProcessingAlgorithmParameters.getBidProcessingAlgorithm().equals(SimulatorParameters.BidProcessingAlgorithm.FCC) || bidProcessingAlgorithmParameters.getBidProcessingAlgorithm().equals(SimulatorParameters.BidProcessingAlgorithm.NO_PRICE_DROPS_FOR_TIMEOUTS)) {
+            // With a width above 1, the next stations are checked concurrently and results unaffected by a committed bid are reused
+            final SpeculativeHomeBandFeasibilityChecker speculativeChecker = bidProcessingAlgorithmParameters.getSpeculationWidth() > 1 ? new SpeculativeHomeBandFeasibilityChecker(solver, problemMaker, constraintManager, bidProcessingAlgorithmParameters.getSpeculationWidth()) : null;
             boolean finished = false;
             while (!finished) {
                 finished = true;
@@ -312,7 +315,7 @@ public class MultiBandSimulator {
                     final Band homeBand = station.getHomeBand();
                     final Band currentBand = ladder.getStationBand(station);
                     log.debug("Checking if {}, currently on {}, is feasible on its home band {}", station, currentBand, homeBand);
-                    final SimulatorResult homeBandFeasibility = solver.getFeasibilityBlocking(problemMaker.makeProblem(station, homeBand, ProblemType.BID_PROCESSING_HOME_BAND_FEASIBLE));
+                    final SimulatorResult homeBandFeasibility = speculativeChecker != null ? speculativeChecker.getHomeBandFeasibility(stationsToQuery, i) : solver.getFeasibilityBlocking(problemMaker.makeProblem(station, homeBand, ProblemType.BID_PROCESSING_HOME_BAND_FEASIBLE));
 
                     if (!homeBandFeasibility.getSATFCResult().getResult().isConclusive()) {
                         timeoutStations.add(station);
@@ -325,6 +328,9 @@ public class MultiBandSimulator {
                         // Retrieve the bid
                         final Bid bid = stationToBid.get(station);
                         processBid(bid, station, homeBandFeasibility, ladder, stationPrices, actualPrices, participation);
+                        if (speculativeChecker != null) {
+                            speculativeChecker.onBidProcessed(station, currentBand, ladder.getStationBand(station));
+                        }
                         stationsToQuery.remove(i);
                         break; // start a new processing loop
                     } else {
@@ -346,6 +352,9 @@ public class MultiBandSimulator {
                     }
                 }
             }
+            if (speculativeChecker != null) {
+                log.info("Speculative bid processing solved {} problems, reused {} results and invalidated {} results", speculativeChecker.getNumSolved(), speculativeChecker.getNumReused(), speculativeChecker.getNumInvalidated());
+            }
         } else if (bidProcessingAlgorithmParameters.getBidProcessingAlgorithm().equals(SimulatorParameters.BidProcessingAlgorithm.FIRST_TO_FINISH_SINGLE_PROGRAM)) {
             // TODO: This is very much UHF-only for now
             Preconditions.checkState(ladder.getAirBands().stream().noneMatch(Band::isVHF), "First to finish not implemented yet for VHF");
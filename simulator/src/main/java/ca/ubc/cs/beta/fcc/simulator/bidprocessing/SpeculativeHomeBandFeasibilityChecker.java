@@ -0,0 +1,178 @@
+package ca.ubc.cs.beta.fcc.simulator.bidprocessing;
+
+import ca.ubc.cs.beta.fcc.simulator.feasibilityholder.IProblemMaker;
+import ca.ubc.cs.beta.fcc.simulator.solver.IFeasibilitySolver;
+import ca.ubc.cs.beta.fcc.simulator.solver.callback.SimulatorResult;
+import ca.ubc.cs.beta.fcc.simulator.solver.problem.ProblemType;
+import ca.ubc.cs.beta.fcc.simulator.solver.problem.SimulatorProblem;
+import ca.ubc.cs.beta.fcc.simulator.station.IStationInfo;
+import ca.ubc.cs.beta.fcc.simulator.utils.Band;
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.Constraint;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import com.google.common.base.Preconditions;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Home band feasibility checks for the FCC bid processing loop, solved speculatively.
+ * <p>
+ * When the result of the next station in the query order is not known, the next {@code width} stations without a known result are all
+ * submitted at once against the current ladder, so that a solver with many workers checks them concurrently.
+ * Conclusive results are kept across commits: when a station changes band, only the results of problems it touches are thrown away,
+ * using the interference constraints to keep those that provably cannot change. Inconclusive results are thrown away on every commit,
+ * since the serial loop re-solves them after each commit. Assuming the solver gives the same conclusive answer
+ * to the same problem, the bid processing loop sees exactly the results it would see running serially.
+ * </p>
+ * Not thread safe, one instance per round.
+ */
+@Slf4j
+public class SpeculativeHomeBandFeasibilityChecker {
+
+    private final IFeasibilitySolver solver;
+    private final IProblemMaker problemMaker;
+    private final IConstraintManager constraintManager;
+    private final int width;
+
+    private final Map<IStationInfo, SpeculativeResult> results = new HashMap<>();
+
+    @Getter
+    private int numSolved = 0;
+    @Getter
+    private int numReused = 0;
+    @Getter
+    private int numInvalidated = 0;
+
+    public SpeculativeHomeBandFeasibilityChecker(IFeasibilitySolver solver, IProblemMaker problemMaker, IConstraintManager constraintManager, int width) {
+        Preconditions.checkArgument(width > 0, "Speculation width must be positive, was %s", width);
+        this.solver = solver;
+        this.problemMaker = problemMaker;
+        this.constraintManager = constraintManager;
+        this.width = width;
+    }
+
+    /**
+     * @param stationsToQuery - the remaining stations, in query order.
+     * @param index           - the position of the station to check.
+     * @return whether the station at the given position is feasible in its home band with the current ladder.
+     */
+    public SimulatorResult getHomeBandFeasibility(List<IStationInfo> stationsToQuery, int index) {
+        final IStationInfo station = stationsToQuery.get(index);
+        final SpeculativeResult known = results.get(station);
+        if (known != null) {
+            numReused++;
+            return known.getResult();
+        }
+
+        // Speculate on the next stations that have no valid result
+        final Map<IStationInfo, SimulatorProblem> batch = new LinkedHashMap<>();
+        for (int i = index; i < stationsToQuery.size() && batch.size() < width; i++) {
+            final IStationInfo candidate = stationsToQuery.get(i);
+            if (!results.containsKey(candidate)) {
+                batch.put(candidate, problemMaker.makeProblem(candidate, candidate.getHomeBand(), ProblemType.BID_PROCESSING_HOME_BAND_FEASIBLE));
+            }
+        }
+        log.debug("Speculatively checking {} stations starting at position {}", batch.size(), index);
+        final Map<IStationInfo, SimulatorResult> batchResults = new ConcurrentHashMap<>();
+        batch.forEach((candidate, problem) -> solver.getFeasibility(problem, (p, result) -> batchResults.put(candidate, result)));
+        solver.waitForAllSubmitted();
+        batch.forEach((candidate, problem) -> {
+            final SimulatorResult result = batchResults.get(candidate);
+            Preconditions.checkState(result != null, "No result for station %s after waiting for all submitted problems", candidate);
+            results.put(candidate, new SpeculativeResult(problem.getBand(), problem.getSATFCProblem().getProblem().getDomains(), result));
+        });
+        numSolved += batch.size();
+        return results.get(station).getResult();
+    }
+
+    /**
+     * Signal that a bid was committed, so that results of problems affected by the committed station's move are no longer used.
+     *
+     * @param station - the station whose bid was processed.
+     * @param from    - the band the station was on before the bid was processed.
+     * @param to      - the band the station is on after the bid was processed.
+     */
+    public void onBidProcessed(IStationInfo station, Band from, Band to) {
+        results.remove(station);
+        // The serial loop solves again, after every commit, the problems it could not conclude on
+        final Iterator<SpeculativeResult> inconclusive = results.values().iterator();
+        while (inconclusive.hasNext()) {
+            if (!inconclusive.next().getResult().getSATFCResult().getResult().isConclusive()) {
+                inconclusive.remove();
+                numInvalidated++;
+            }
+        }
+        if (from.equals(to)) {
+            // Only the price or the previous assignment changed, neither of which changes any answer.
+            return;
+        }
+        final Map<Band, Set<Integer>> neighbours = new EnumMap<>(Band.class);
+        final Iterator<Map.Entry<IStationInfo, SpeculativeResult>> iterator = results.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final SpeculativeResult speculativeResult = iterator.next().getValue();
+            final Band band = speculativeResult.getBand();
+            final boolean leaves = band.equals(from) && speculativeResult.getDomains().containsKey(station.getId());
+            final boolean joins = band.equals(to) && !(band.equals(Band.UHF) && station.isImpaired());
+            if (!leaves && !joins) {
+                continue;
+            }
+            final SATResult result = speculativeResult.getResult().getSATFCResult().getResult();
+            final boolean valid;
+            if (leaves) {
+                // The witness would put the station back on its old channel, and removing constraints can make an UNSAT problem SAT.
+                valid = result.equals(SATResult.UNSAT) && !interferes(station, speculativeResult, neighbours);
+            } else {
+                // Adding a station only adds constraints, so UNSAT remains UNSAT, and a witness remains valid if none of them involves it.
+                valid = result.equals(SATResult.UNSAT) || !interferes(station, speculativeResult, neighbours);
+            }
+            if (!valid) {
+                iterator.remove();
+                numInvalidated++;
+            }
+        }
+    }
+
+    /**
+     * @return whether there is an interference constraint between the given station and a station of the result's problem, on the problem's band.
+     */
+    private boolean interferes(IStationInfo station, SpeculativeResult speculativeResult, Map<Band, Set<Integer>> neighbours) {
+        final Set<Integer> bandNeighbours = neighbours.computeIfAbsent(speculativeResult.getBand(), band -> computeNeighbours(station, band));
+        return speculativeResult.getDomains().keySet().stream().anyMatch(id -> id != station.getId() && bandNeighbours.contains(id));
+    }
+
+    /**
+     * @return the IDs of the stations that share a constraint with the given station, over the domains on the given band of the stations in any known problem on that band.
+     */
+    private Set<Integer> computeNeighbours(IStationInfo station, Band band) {
+        final Station target = station.toSATFCStation();
+        final Map<Station, Set<Integer>> domains = new HashMap<>();
+        for (SpeculativeResult speculativeResult : results.values()) {
+            if (speculativeResult.getBand().equals(band)) {
+                speculativeResult.getDomains().forEach((id, domain) -> domains.put(new Station(id), domain));
+            }
+        }
+        domains.put(target, station.getDomain(band));
+        final Set<Integer> neighbours = new HashSet<>();
+        for (Constraint constraint : constraintManager.getAllRelevantConstraints(domains)) {
+            if (constraint.getSource().equals(target)) {
+                neighbours.add(constraint.getTarget().getID());
+            } else if (constraint.getTarget().equals(target)) {
+                neighbours.add(constraint.getSource().getID());
+            }
+        }
+        return neighbours;
+    }
+
+    @Value
+    private static class SpeculativeResult {
+        Band band;
+        Map<Integer, Set<Integer>> domains;
+        SimulatorResult result;
+    }
+
+}
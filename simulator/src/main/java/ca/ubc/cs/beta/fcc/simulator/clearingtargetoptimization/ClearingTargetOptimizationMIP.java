@@ -3,7 +3,7 @@ package ca.ubc.cs.beta.fcc.simulator.clearingtargetoptimization;
 import ca.ubc.cs.beta.fcc.simulator.station.IStationDB;
 import ca.ubc.cs.beta.fcc.simulator.station.IStationInfo;
 import ca.ubc.cs.beta.fcc.vcg.VCGMip;
-import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.solvers.mip.MIPEncodingIndex;
 import ca.ubc.cs.beta.stationpacking.utils.StationPackingUtils;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Table;
@@ -42,7 +42,7 @@ public class ClearingTargetOptimizationMIP implements VCGMip.IMIPEncoder {
     }
 
     @Override
-    public void encode(Map<Integer, Set<Integer>> domains, Set<Integer> participating, Set<Integer> nonParticipating, IStationDB stationDB, Table<Integer, Integer, IloIntVar> varLookup, Map<IloIntVar, VCGMip.StationChannel> variablesDecoder, IConstraintManager constraintManager, IloCplex cplex) throws IloException {
+    public void encode(Map<Integer, Set<Integer>> domains, Set<Integer> participating, Set<Integer> nonParticipating, IStationDB stationDB, Table<Integer, Integer, IloIntVar> varLookup, Map<IloIntVar, VCGMip.StationChannel> variablesDecoder, MIPEncodingIndex index, IloCplex cplex) throws IloException {
         // Objective value: minimize the sum of stations that get placed on an impairing channel!
         Set<Integer> possibleToImpair = domains.entrySet().stream().filter(e -> e.getValue().contains(IMPAIRING_CHANNEL)).map(Map.Entry::getKey).collect(toSet());
 
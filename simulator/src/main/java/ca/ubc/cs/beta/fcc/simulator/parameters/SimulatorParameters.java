@@ -252,6 +252,10 @@ public class SimulatorParameters extends AbstractOptions {
     @Parameter(names = "-FIRST-TO-FINISH-WORKERS")
     private Integer firstToFinishWorkers;
 
+    @Getter
+    @Parameter(names = "-SPECULATIVE-BID-PROCESSING-WIDTH", description = "Number of upcoming stations whose home band feasibility is checked concurrently during FCC bid processing (1 checks them one at a time). Only useful with a solver that has several workers")
+    private int speculativeBidProcessingWidth = 1;
+
 
     @Parameter(names = "-NOISE-STD", description = "Noise to add to 1/3, 2/3")
     @Getter
@@ -384,7 +388,8 @@ public class SimulatorParameters extends AbstractOptions {
             throw new IllegalArgumentException("Left tail requires pop values");
         }
 
-        final BidProcessingAlgorithmParameters.BidProcessingAlgorithmParametersBuilder bidProcessingAlgorithmParametersBuilder = BidProcessingAlgorithmParameters.builder().bidProcessingAlgorithm(getBidProcessingAlgorithm());
+        Preconditions.checkArgument(speculativeBidProcessingWidth > 0, "Speculative bid processing width must be positive");
+        final BidProcessingAlgorithmParameters.BidProcessingAlgorithmParametersBuilder bidProcessingAlgorithmParametersBuilder = BidProcessingAlgorithmParameters.builder().bidProcessingAlgorithm(getBidProcessingAlgorithm()).speculationWidth(speculativeBidProcessingWidth);
         if (getBidProcessingAlgorithm().equals(BidProcessingAlgorithm.FIRST_TO_FINISH_SINGLE_PROGRAM)) {
             bidProcessingAlgorithmParametersBuilder.roundTimer(roundWalltime);
         } else if (getBidProcessingAlgorithm().equals(BidProcessingAlgorithm.FIRST_TO_FINISH)) {
@@ -778,6 +783,7 @@ public class SimulatorParameters extends AbstractOptions {
         DistributedFeasibilitySolver distributedFeasibilitySolver;
         double roundTimer;
         ScheduledExecutorService executorService;
+        int speculationWidth;
     }
 
 
@@ -3,6 +3,7 @@ package ca.ubc.cs.beta.fcc.simulator.solver;
 import ca.ubc.cs.beta.fcc.simulator.solver.callback.SATFCCallback;
 import ca.ubc.cs.beta.fcc.simulator.solver.callback.SimulatorResult;
 import ca.ubc.cs.beta.fcc.simulator.solver.problem.SimulatorProblem;
+import ca.ubc.cs.beta.stationpacking.execution.RedisWorkQueue;
 import ca.ubc.cs.beta.stationpacking.execution.SimulatorProblemReader;
 import ca.ubc.cs.beta.stationpacking.execution.SimulatorProblemReader.SimulatorMessage;
 import ca.ubc.cs.beta.stationpacking.utils.JSONUtils;
@@ -13,6 +14,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
 import redis.clients.jedis.Jedis;
 
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -23,6 +25,8 @@ import java.util.concurrent.atomic.AtomicLong;
 @Slf4j
 public class DistributedFeasibilitySolver extends AFeasibilitySolver {
 
+    private static final int REPLY_WAIT_SECONDS = 1;
+
     private final ConcurrentHashMap<Long, ProblemCallback> callbacks;
     private final Jedis jedis;
     private final String sendQueue;
@@ -50,6 +54,8 @@ public class DistributedFeasibilitySolver extends AFeasibilitySolver {
 
     private void cleanup() {
         jedis.del(replyQueue, sendQueue, RedisUtils.processing(sendQueue), RedisUtils.interrupt(sendQueue));
+        // Workers of a pool each have their own processing list
+        RedisWorkQueue.deleteProcessingLists(jedis, sendQueue);
     }
 
     @Override
@@ -66,7 +72,6 @@ public class DistributedFeasibilitySolver extends AFeasibilitySolver {
     @Override
     public void waitForAllSubmitted() {
         // TODO: Add a check for stuckness, by remembering how much time?
-        final SimulatorProblemReader.ExponentialBackoffWait waiter = new SimulatorProblemReader.ExponentialBackoffWait();
         if (!callbacks.isEmpty()) {
             log.info("Starting to wait for {} callbacks to complete", callbacks.size());
         }
@@ -77,13 +82,13 @@ public class DistributedFeasibilitySolver extends AFeasibilitySolver {
                 loggingWatch.reset();
                 loggingWatch.start();
             }
-            // Poll the reply queue
-            final String answerString = jedis.lpop(replyQueue);
-            if (answerString == null) {
-                waiter.waitSleep();
+            // Block on the reply queue so that replies are handled as soon as they are pushed (waking up regularly to check for an external wakeup)
+            final List<String> answer = jedis.blpop(REPLY_WAIT_SECONDS, replyQueue);
+            if (answer == null || answer.isEmpty()) {
                 continue;
             }
-            waiter.reset();
+            // The reply comes after the name of the list it was popped from
+            final String answerString = answer.get(1);
             final SimulatorProblemReader.SATFCSimulatorReply reply = JSONUtils.toObject(answerString, SimulatorProblemReader.SATFCSimulatorReply.class);
             if (reply.getId() >= careAboutId) {
                 final ProblemCallback problemCallback = callbacks.remove(reply.getId());
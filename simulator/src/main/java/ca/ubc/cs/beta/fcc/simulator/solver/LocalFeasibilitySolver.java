@@ -8,6 +8,7 @@ import ca.ubc.cs.beta.stationpacking.execution.SimulatorProblemReader;
 import ca.ubc.cs.beta.stationpacking.execution.metricwriters.IMetricWriter;
 import ca.ubc.cs.beta.stationpacking.execution.metricwriters.MetricWriterFactory;
 import ca.ubc.cs.beta.stationpacking.execution.parameters.SATFCFacadeParameters;
+import ca.ubc.cs.beta.stationpacking.facade.InterruptibleSATFCResult;
 import ca.ubc.cs.beta.stationpacking.facade.SATFCFacade;
 import ca.ubc.cs.beta.stationpacking.facade.SATFCFacadeBuilder;
 import ca.ubc.cs.beta.stationpacking.facade.SATFCResult;
@@ -38,7 +39,7 @@ public class LocalFeasibilitySolver extends AFeasibilitySolver {
     public void getFeasibility(SimulatorProblem simulatorProblem, SATFCCallback callback) {
         final SimulatorProblemReader.SATFCProblemSpecification problem = simulatorProblem.getSATFCProblem();
         log.debug("Waiting on SATFC facade...");
-        final SATFCResult solve = facade.solve(
+        final InterruptibleSATFCResult interruptibleSATFCResult = facade.solveInterruptibly(
                 problem.getProblem().getDomains(),
                 problem.getProblem().getPreviousAssignment(),
                 problem.getCutoff(),
@@ -46,9 +47,10 @@ public class LocalFeasibilitySolver extends AFeasibilitySolver {
                 problem.getStationInfoFolder(),
                 problem.getName()
         );
+        final SATFCResult solve = interruptibleSATFCResult.computeResult();
         log.debug("Back from facade...");
-        metricWriter.writeMetrics();
-        SATFCMetrics.clear();
+        metricWriter.writeMetrics(interruptibleSATFCResult.getProblemID());
+        SATFCMetrics.clear(interruptibleSATFCResult.getProblemID());
         callback.onSuccess(simulatorProblem, SimulatorResult.fromSATFCResult(solve));
     }
 
@@ -11,9 +11,12 @@ import ca.ubc.cs.beta.fcc.simulator.station.IStationInfo;
 import ca.ubc.cs.beta.fcc.simulator.utils.Band;
 import ca.ubc.cs.beta.fcc.simulator.utils.SimulatorUtils;
 import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.consistency.ChannelMaskArcs;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
 import ca.ubc.cs.beta.stationpacking.facade.SATFCResult;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.componentgrouper.ConstraintGraphService;
+import ca.ubc.cs.beta.stationpacking.solvers.decorators.greedy.GreedyChannelPacker;
 import ca.ubc.cs.beta.stationpacking.utils.StationPackingUtils;
 import ca.ubc.cs.beta.stationpacking.utils.Watch;
 import com.google.common.base.Preconditions;
@@ -34,17 +37,20 @@ import java.util.stream.Collectors;
  * Created by newmanne on 2016-11-01.
  * A (blocking) greedy solver
  * This is used to test every problem, so it is designed to be fast (and lacks checks)
+ * The target station's neighbours are held on their previous channels, and the target's free channels are read off a {@link GreedyChannelPacker}
  */
 @Slf4j
 public class GreedyFlaggingDecorator extends AFeasibilitySolverDecorator {
 
     private final IConstraintManager constraintManager;
+    private final ConstraintGraphService constraintGraphService;
 
     private ImmutableTable<IStationInfo, Band, Set<IStationInfo>> neighbourIndex;
 
     public GreedyFlaggingDecorator(@NonNull IFeasibilitySolver decorated, @NonNull IConstraintManager constraintManager) {
         super(decorated);
         this.constraintManager = constraintManager;
+        this.constraintGraphService = new ConstraintGraphService(constraintManager);
     }
 
     public void init(@NonNull ILadder ladder) {
@@ -59,39 +65,69 @@ public class GreedyFlaggingDecorator extends AFeasibilitySolverDecorator {
         final IStationInfo targetStation = problem.getTargetStation();
         if (neighbourIndex != null && targetStation != null) {
             final Set<IStationInfo> neighbours = neighbourIndex.get(targetStation, problem.getBand());
-            final Map<Integer, Set<Station>> assignment = new HashMap<>();
             final Map<Integer, Integer> previousAssignment = problem.getSATFCProblem().getProblem().getPreviousAssignment();
-            // Hold neighbours to fixed channels. This means non-neighbours do not matter. Reducing assignment here makes checking faster
+            // Hold neighbours to fixed channels. This means non-neighbours do not matter. Reducing the problem here makes checking faster
+            final Map<Station, Set<Integer>> domains = new HashMap<>();
             for (final IStationInfo neighbour : neighbours) {
                 final Integer assignedChannel = previousAssignment.get(neighbour.getId());
                 if (assignedChannel != null) {
-                    assignment.putIfAbsent(assignedChannel, new HashSet<>());
-                    assignment.get(assignedChannel).add(neighbour.toSATFCStation());
+                    domains.put(neighbour.toSATFCStation(), ImmutableSet.of(assignedChannel));
                 }
             }
-            // Try every channel
+            final Station target = targetStation.toSATFCStation();
             final Set<Integer> targetStationDomain = problem.getSATFCProblem().getProblem().getDomains().get(targetStation.getId());
-            for (final int channel : targetStationDomain) {
-                assignment.putIfAbsent(channel, new HashSet<>());
-                assignment.get(channel).add(targetStation.toSATFCStation());
-                if (constraintManager.isSatisfyingAssignment(assignment)) {
-                    final Map<Integer, Integer> witnessAssignment = new HashMap<>(previousAssignment);
-                    witnessAssignment.put(targetStation.getId(), channel);
-                    final SATFCResult satfcResult = new SATFCResult(SATResult.SAT, watch.getElapsedTime(), cpuTimeWatch.getElapsedTime(), witnessAssignment);
-                    callback.onSuccess(problem, SimulatorResult.builder().SATFCResult(satfcResult).greedySolved(true).build());
-                    return;
-                } else {
-                    assignment.get(channel).remove(targetStation.toSATFCStation());
-                    if (assignment.get(channel).isEmpty()) {
-                        assignment.remove(channel);
-                    }
-                }
+            domains.put(target, targetStationDomain);
+            final Integer channel = findFreeChannel(target, domains);
+            if (channel != null) {
+                final Map<Integer, Integer> witnessAssignment = new HashMap<>(previousAssignment);
+                witnessAssignment.put(targetStation.getId(), channel);
+                final SATFCResult satfcResult = new SATFCResult(SATResult.SAT, watch.getElapsedTime(), cpuTimeWatch.getElapsedTime(), witnessAssignment);
+                callback.onSuccess(problem, SimulatorResult.builder().SATFCResult(satfcResult).greedySolved(true).build());
+                return;
             }
         }
         super.getFeasibility(problem, callback);
     }
 
 
+    /**
+     * @return a channel of the target's domain that does not interfere with any of the other stations on their only channel, or null if there is none.
+     */
+    private Integer findFreeChannel(Station target, Map<Station, Set<Integer>> domains) {
+        final ChannelMaskArcs arcs = ChannelMaskArcs.create(constraintManager, constraintGraphService, domains);
+        if (arcs == null) {
+            // Too wide for channel masks, try every channel against the whole assignment
+            final Map<Integer, Set<Station>> assignment = new HashMap<>();
+            domains.forEach((station, domain) -> {
+                if (!station.equals(target)) {
+                    assignment.computeIfAbsent(domain.iterator().next(), c -> new HashSet<>()).add(station);
+                }
+            });
+            for (final int channel : domains.get(target)) {
+                assignment.computeIfAbsent(channel, c -> new HashSet<>()).add(target);
+                if (constraintManager.isSatisfyingAssignment(assignment)) {
+                    return channel;
+                }
+                assignment.get(channel).remove(target);
+                if (assignment.get(channel).isEmpty()) {
+                    assignment.remove(channel);
+                }
+            }
+            return null;
+        }
+        final GreedyChannelPacker packer = new GreedyChannelPacker(arcs);
+        int targetIndex = -1;
+        for (int x = 0; x < arcs.getNumStations(); x++) {
+            if (arcs.getStation(x).equals(target)) {
+                targetIndex = x;
+            } else {
+                packer.assign(x, arcs.getDomain(x));
+            }
+        }
+        final long free = packer.getFreeChannels(targetIndex);
+        return free == 0 ? null : arcs.getMinChannel() + Long.numberOfTrailingZeros(free);
+    }
+
     @Subscribe
     public void onDomainChanged(DomainChangeEvent event) {
         init(event.getLadder());
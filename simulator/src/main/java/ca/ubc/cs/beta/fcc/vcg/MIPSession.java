@@ -0,0 +1,172 @@
+package ca.ubc.cs.beta.fcc.vcg;
+
+import ca.ubc.cs.beta.fcc.simulator.station.IStationDB;
+import ca.ubc.cs.beta.stationpacking.base.Station;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
+import ca.ubc.cs.beta.stationpacking.solvers.mip.MIPEncodingIndex;
+import ca.ubc.cs.beta.stationpacking.utils.Watch;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import ilog.concert.IloAddable;
+import ilog.concert.IloException;
+import ilog.concert.IloIntVar;
+import ilog.concert.IloRange;
+import ilog.cplex.IloCplex;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link VCGMip.MIPMaker} that keeps its CPLEX model alive between solves.
+ * <p>
+ * The model has a variable for every (station, channel) pair seen so far. A solve only mutates it: variables outside the current domains get an upper bound of 0,
+ * the per station range is [1, 1] for non participating stations and [0, 1] otherwise, and the objective (with anything else the encoder adds) is replaced.
+ * The model is only rebuilt when the domains contain a pair it does not know about. The last assignment found is the MIP start of the next solve,
+ * unless one is given.
+ * </p>
+ * Not thread safe.
+ */
+@Slf4j
+public class MIPSession extends VCGMip.MIPMaker implements AutoCloseable {
+
+    // Every station and channel the model has variables for
+    private final Map<Integer, Set<Integer>> modelDomains = new HashMap<>();
+    private MIPEncodingIndex index;
+    private IloIntVar[] variables;
+    private double[] upperBounds;
+    private final Map<Integer, IloRange> participationRanges = new HashMap<>();
+    private final Map<Integer, Double> participationLowerBounds = new HashMap<>();
+    // The model without any encoder's additions
+    private Set<Object> baseModel;
+    private final List<IloAddable> encoded = new ArrayList<>();
+    private Map<Integer, Integer> lastAssignment = new HashMap<>();
+
+    public MIPSession(IStationDB stationDB, IStationManager stationManager, IConstraintManager constraintManager, VCGMip.IMIPEncoder encoder) throws IloException {
+        super(stationDB, stationManager, constraintManager, encoder);
+    }
+
+    @Override
+    public VCGMip.MIPResult solve(Map<Integer, Set<Integer>> domains, Set<Integer> nonParticipating, double cutoff, long seed, int nThreads, boolean writeToDisk, Double tol, Map<Integer, Integer> startingAssignment, boolean cplexLog) throws IloException {
+        return solve(encoder, domains, nonParticipating, cutoff, seed, nThreads, writeToDisk, tol, startingAssignment, cplexLog);
+    }
+
+    public VCGMip.MIPResult solve(VCGMip.IMIPEncoder encoder, Map<Integer, Set<Integer>> domains, Set<Integer> nonParticipating, double cutoff, long seed, int nThreads, boolean writeToDisk, Double tol, Map<Integer, Integer> startingAssignment, boolean cplexLog) throws IloException {
+        final Watch watch = Watch.constructAutoStartWatch();
+        for (final Map.Entry<Integer, Set<Integer>> domainsEntry : domains.entrySet()) {
+            Preconditions.checkState(!domainsEntry.getValue().isEmpty(), "Station %s has no domain!", domainsEntry.getKey());
+        }
+        final Set<Integer> participating = Sets.difference(domains.keySet(), nonParticipating);
+        log.info("{} / {} stations can optionally not be assigned to a channel (be put OFF). The remaining {}/{} stations must be assigned a channel.", participating.size(), domains.size(), domains.size() - participating.size(), domains.size());
+
+        if (cplex == null || !covers(domains)) {
+            build(domains);
+        } else {
+            log.info("Reusing the MIP, removing {} objects of the previous encoding", encoded.size());
+            cplex.remove(encoded.toArray(new IloAddable[encoded.size()]));
+            cplex.deleteMIPStarts(0, cplex.getNMIPStarts());
+            cplex.setDefaults();
+        }
+        encoded.clear();
+
+        // Restrict the model to the current domains and participation
+        int nChangedBounds = 0;
+        for (int v = 0; v < variables.length; v++) {
+            final Set<Integer> domain = domains.get(index.getVariableStation(v).getID());
+            final double upperBound = domain != null && domain.contains(index.getVariableChannel(v)) ? 1 : 0;
+            if (upperBounds[v] != upperBound) {
+                variables[v].setUB(upperBound);
+                upperBounds[v] = upperBound;
+                nChangedBounds++;
+            }
+        }
+        for (final Map.Entry<Integer, IloRange> entry : participationRanges.entrySet()) {
+            final double lowerBound = domains.containsKey(entry.getKey()) && nonParticipating.contains(entry.getKey()) ? 1 : 0;
+            if (participationLowerBounds.put(entry.getKey(), lowerBound) != lowerBound) {
+                entry.getValue().setLB(lowerBound);
+                nChangedBounds++;
+            }
+        }
+        log.info("Changed {} bounds", nChangedBounds);
+
+        encoder.encode(domains, participating, nonParticipating, stationDB, varLookup, variablesDecoder, index, cplex);
+        for (final Iterator<?> it = cplex.iterator(); it.hasNext(); ) {
+            final Object modelObject = it.next();
+            if (!baseModel.contains(modelObject)) {
+                encoded.add((IloAddable) modelObject);
+            }
+        }
+
+        // Start from the previous solution, without its stations that are no longer in the domains
+        final Map<Integer, Integer> start = startingAssignment != null && !startingAssignment.isEmpty() ? startingAssignment : lastAssignment;
+        addMIPStart(Maps.filterEntries(start, e -> domains.containsKey(e.getKey()) && domains.get(e.getKey()).contains(e.getValue())));
+
+        final double encodingTime = watch.getElapsedTime();
+        log.info("Encoding MIP took {} s.", encodingTime);
+        final VCGMip.MIPResult result = solveModel(encoder, domains, nonParticipating, cutoff, seed, nThreads, writeToDisk, tol, cplexLog, encodingTime);
+        if (result.getAssignment() != null) {
+            lastAssignment = result.getAssignment();
+        }
+        return result;
+    }
+
+    private boolean covers(Map<Integer, Set<Integer>> domains) {
+        return domains.entrySet().stream().allMatch(e -> modelDomains.containsKey(e.getKey()) && modelDomains.get(e.getKey()).containsAll(e.getValue()));
+    }
+
+    /**
+     * (Re)build the model over the union of the domains it knew about and the given ones.
+     */
+    private void build(Map<Integer, Set<Integer>> domains) throws IloException {
+        if (cplex != null) {
+            log.info("Domains are not covered by the current MIP, rebuilding it");
+            cplex.end();
+        }
+        domains.forEach((station, domain) -> modelDomains.computeIfAbsent(station, s -> new HashSet<>()).addAll(domain));
+        varLookup = HashBasedTable.create();
+        variablesDecoder = new HashMap<>();
+        participationRanges.clear();
+        participationLowerBounds.clear();
+        cplex = new IloCplex();
+
+        index = new MIPEncodingIndex(constraintManager, modelDomains.entrySet().stream().collect(Collectors.toMap(e -> new Station(e.getKey()), Map.Entry::getValue)));
+        variables = index.createVariables(cplex);
+        upperBounds = new double[variables.length];
+        Arrays.fill(upperBounds, 1);
+        for (int v = 0; v < variables.length; v++) {
+            final int station = index.getVariableStation(v).getID();
+            final int channel = index.getVariableChannel(v);
+            final IloIntVar var = variables[v];
+            var.setName(Integer.toString(station) + ":" + Integer.toString(channel));
+            varLookup.put(station, channel, var);
+            variablesDecoder.put(var, new VCGMip.StationChannel(station, channel));
+        }
+
+        // Every station goes on at most 1 channel, the lower bound is raised to force non participating stations on air
+        for (final Integer station : modelDomains.keySet()) {
+            final IloIntVar[] domainVars = varLookup.row(station).values().stream().toArray(IloIntVar[]::new);
+            participationRanges.put(station, cplex.addRange(0, cplex.sum(domainVars), 1));
+            participationLowerBounds.put(station, 0.);
+        }
+
+        final int nInterference = index.addInterferenceConstraints(cplex, variables);
+        log.info("Added {} interference constraints", nInterference);
+
+        baseModel = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Iterator<?> it = cplex.iterator(); it.hasNext(); ) {
+            baseModel.add(it.next());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (cplex != null) {
+            cplex.end();
+            cplex = null;
+        }
+    }
+
+}
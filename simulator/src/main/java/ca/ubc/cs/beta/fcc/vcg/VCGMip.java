@@ -12,13 +12,12 @@ import ca.ubc.cs.beta.fcc.simulator.station.Nationality;
 import ca.ubc.cs.beta.fcc.simulator.utils.Band;
 import ca.ubc.cs.beta.fcc.simulator.utils.BandHelper;
 import ca.ubc.cs.beta.fcc.simulator.utils.SimulatorUtils;
-import ca.ubc.cs.beta.matroid.encoder.MaxSatEncoder;
 import ca.ubc.cs.beta.stationpacking.base.Station;
-import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.Constraint;
 import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
 import ca.ubc.cs.beta.stationpacking.datamanagers.stations.IStationManager;
 import ca.ubc.cs.beta.stationpacking.facade.SATFCFacadeBuilder;
 import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import ca.ubc.cs.beta.stationpacking.solvers.mip.MIPEncodingIndex;
 import ca.ubc.cs.beta.stationpacking.utils.JSONUtils;
 import ca.ubc.cs.beta.stationpacking.utils.LoggingOutputStream;
 import ca.ubc.cs.beta.stationpacking.utils.StationPackingUtils;
@@ -49,7 +48,6 @@ import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static ca.ubc.cs.beta.stationpacking.utils.GuavaCollectors.toImmutableList;
 
 /**
  * Created by newmanne on 2016-05-19.
@@ -159,6 +157,8 @@ public class VCGMip {
         private Set<Integer> notParticipating;
         private double walltime;
         private double cputime;
+        // Time to build the model, not included in the (solve) wall time
+        private double encodingtime;
     }
 
     @Data
@@ -172,7 +172,7 @@ public class VCGMip {
     public static class SmallestMaximalCardinalityMIPMaker implements IMIPEncoder {
 
         @Override
-        public void encode(Map<Integer, Set<Integer>> domains, Set<Integer> participating, Set<Integer> nonParticipating, IStationDB stationDB, Table<Integer, Integer, IloIntVar> varLookup, Map<IloIntVar, StationChannel> variablesDecoder, IConstraintManager constraintManager, IloCplex cplex) throws IloException {
+        public void encode(Map<Integer, Set<Integer>> domains, Set<Integer> participating, Set<Integer> nonParticipating, IStationDB stationDB, Table<Integer, Integer, IloIntVar> varLookup, Map<IloIntVar, StationChannel> variablesDecoder, MIPEncodingIndex index, IloCplex cplex) throws IloException {
             // Objective
             final IloLinearIntExpr objectiveSum = cplex.linearIntExpr();
             for (final Integer station : participating) {
@@ -184,7 +184,6 @@ public class VCGMip {
             cplex.addMinimize(objectiveSum);
 
             // Greedy clauses
-            final Map<Station, Set<Integer>> stationDomains = domains.entrySet().stream().collect(Collectors.toMap(e -> new Station(e.getKey()), Map.Entry::getValue));
             for (final int station : participating) {
                 // Create the sum
                 final IloLinearIntExpr domainSum = cplex.linearIntExpr();
@@ -196,8 +195,10 @@ public class VCGMip {
                 for (int channel : domains.get(station)) {
                     final IloLinearIntExpr channelSpecificSum = cplex.linearIntExpr();
                     channelSpecificSum.add(domainSum);
-                    for (StationChannel sc : MaxSatEncoder.getConstraintsForChannel(constraintManager, new Station(station), channel, stationDomains)) {
-                        final IloIntVar interferingVar = varLookup.get(sc.getStation(), sc.getChannel());
+                    final int variable = index.getVariable(new Station(station), channel);
+                    for (int i = index.getNeighboursStart(variable); i < index.getNeighboursEnd(variable); i++) {
+                        final int interfering = index.getNeighbour(i);
+                        final IloIntVar interferingVar = varLookup.get(index.getVariableStation(interfering).getID(), index.getVariableChannel(interfering));
                         channelSpecificSum.addTerm(1, interferingVar);
                     }
                     cplex.addGe(channelSpecificSum, 1);
@@ -210,7 +211,7 @@ public class VCGMip {
     public static class VCGMIPMaker implements IMIPEncoder {
 
         @Override
-        public void encode(Map<Integer, Set<Integer>> domains, Set<Integer> participating, Set<Integer> nonParticipating, IStationDB stationDB, Table<Integer, Integer, IloIntVar> varLookup, Map<IloIntVar, StationChannel> variablesDecoder, IConstraintManager constraintManager, IloCplex cplex) throws IloException {
+        public void encode(Map<Integer, Set<Integer>> domains, Set<Integer> participating, Set<Integer> nonParticipating, IStationDB stationDB, Table<Integer, Integer, IloIntVar> varLookup, Map<IloIntVar, StationChannel> variablesDecoder, MIPEncodingIndex index, IloCplex cplex) throws IloException {
             // Objective function
             final IloLinearNumExpr objectiveSum = cplex.linearNumExpr();
             for (final Integer station : participating) {
@@ -239,7 +240,7 @@ public class VCGMip {
 
     public interface IMIPEncoder {
 
-        void encode(Map<Integer, Set<Integer>> domains, Set<Integer> participating, Set<Integer> nonParticipating, IStationDB stationDB, Table<Integer, Integer, IloIntVar> varLookup, Map<IloIntVar, StationChannel> variablesDecoder, IConstraintManager constraintManager, IloCplex cplex) throws IloException;
+        void encode(Map<Integer, Set<Integer>> domains, Set<Integer> participating, Set<Integer> nonParticipating, IStationDB stationDB, Table<Integer, Integer, IloIntVar> varLookup, Map<IloIntVar, StationChannel> variablesDecoder, MIPEncodingIndex index, IloCplex cplex) throws IloException;
 
         default void setParams(IloCplex cplex) throws IloException {
         }
@@ -254,7 +255,7 @@ public class VCGMip {
         protected final IStationDB stationDB;
         protected final IStationManager stationManager;
         protected final IConstraintManager constraintManager;
-        private final IMIPEncoder encoder;
+        protected final IMIPEncoder encoder;
         protected IloCplex cplex;
 
         // Station, Channel -> Var
@@ -282,22 +283,23 @@ public class VCGMip {
             final Set<Integer> participating = Sets.difference(domains.keySet(), nonParticipating);
             log.info("{} / {} stations can optionally not be assigned to a channel (be put OFF). The remaining {}/{} stations must be assigned a channel.", participating.size(), domains.size(), domains.size() - participating.size(), domains.size());
 
-            // Set up the x_{s,c} variables
             for (final Map.Entry<Integer, Set<Integer>> domainsEntry : domains.entrySet()) {
-                final int station = domainsEntry.getKey();
-                final List<Integer> domainList = domainsEntry.getValue().stream().sorted().collect(toImmutableList());
-                Preconditions.checkState(!domainList.isEmpty(), "Station %s has no domain!", station);
-                final IloIntVar[] domainVars = cplex.boolVarArray(domainList.size());
-//                log.debug("{}", station);
-                for (int i = 0; i < domainList.size(); i++) {
-                    final int channel = domainList.get(i);
-                    final IloIntVar var = domainVars[i];
-                    var.setName(Integer.toString(station) + ":" + Integer.toString(channel));
-                    varLookup.put(station, channel, var);
-                    variablesDecoder.put(var, new StationChannel(station, channel));
-                }
+                Preconditions.checkState(!domainsEntry.getValue().isEmpty(), "Station %s has no domain!", domainsEntry.getKey());
             }
 
+            // Index the variables and the interference between them, enumerating the relevant constraints once
+            final MIPEncodingIndex index = new MIPEncodingIndex(constraintManager, domains.entrySet().stream().collect(Collectors.toMap(e -> new Station(e.getKey()), Map.Entry::getValue)));
+
+            // Set up the x_{s,c} variables
+            final IloIntVar[] variables = index.createVariables(cplex);
+            for (int v = 0; v < variables.length; v++) {
+                final int station = index.getVariableStation(v).getID();
+                final int channel = index.getVariableChannel(v);
+                final IloIntVar var = variables[v];
+                var.setName(Integer.toString(station) + ":" + Integer.toString(channel));
+                varLookup.put(station, channel, var);
+                variablesDecoder.put(var, new StationChannel(station, channel));
+            }
 
             // Non participating stations get exactly 1 channel, participating get 0 or 1
             for (final Integer station : domains.keySet()) {
@@ -312,19 +314,25 @@ public class VCGMip {
             }
 
             // Add the interference constraints
-            int nInterference = 0;
-            for (Constraint constraint : constraintManager.getAllRelevantConstraints(domains.entrySet().stream().collect(Collectors.toMap(e -> new Station(e.getKey()), Map.Entry::getValue)))) {
-                final IloIntVar var1 = varLookup.get(constraint.getSource().getID(), constraint.getSourceChannel());
-                final IloIntVar var2 = varLookup.get(constraint.getTarget().getID(), constraint.getTargetChannel());
-                cplex.addLe(cplex.sum(var1, var2), 1);
-                nInterference++;
-            }
+            final int nInterference = index.addInterferenceConstraints(cplex, variables);
             log.info("Added {} interference constraints", nInterference);
 
             // Do the rest of the encoding!
-            encoder.encode(domains, participating, nonParticipating, stationDB, varLookup, variablesDecoder, constraintManager, cplex);
+            encoder.encode(domains, participating, nonParticipating, stationDB, varLookup, variablesDecoder, index, cplex);
 
             // (Optionally) add a feasible solution
+            addMIPStart(startingAssignment);
+
+            final double encodingTime = watch.getElapsedTime();
+            log.info("Encoding MIP took {} s.", encodingTime);
+            try {
+                return solveModel(encoder, domains, nonParticipating, cutoff, seed, nThreads, writeToDisk, tol, cplexLog, encodingTime);
+            } finally {
+                cplex.end();
+            }
+        }
+
+        protected void addMIPStart(Map<Integer, Integer> startingAssignment) throws IloException {
             if (startingAssignment != null && !startingAssignment.isEmpty()) {
                 log.info("Using a MIP start from previous assignment");
                 double[] mipStartValues = new double[variablesDecoder.size()];
@@ -340,8 +348,13 @@ public class VCGMip {
                 }
                 cplex.addMIPStart(mipStartVariables, mipStartValues);
             }
+        }
 
-            log.info("Encoding MIP took {} s.", watch.getElapsedTime());
+        /**
+         * Set the parameters of the model encoded by the given encoder, solve it and gather the result. Does not end the model.
+         */
+        protected MIPResult solveModel(IMIPEncoder encoder, Map<Integer, Set<Integer>> domains, Set<Integer> nonParticipating, double cutoff, long seed, int nThreads, boolean writeToDisk, Double tol, boolean cplexLog, double encodingTime) throws IloException {
+            final Watch watch = new Watch();
             log.info("MIP has {} variables.", cplex.getNcols());
             log.info("MIP has {} constraints.", cplex.getNrows());
 
@@ -367,7 +380,6 @@ public class VCGMip {
             }
 
 
-            watch.reset();
             watch.start();
             //Solve the MIP.
             final boolean feasible;
@@ -445,8 +457,6 @@ public class VCGMip {
             final double cpuTime = cplex.getCplexTime() - cplexTimeStart;
             log.info("CPLEX CPU time: {}", cpuTime);
 
-            //Wrap up.
-            cplex.end();
             return MIPResult.builder()
                     .assignment(assignment)
                     .objectiveValue(objValue)
@@ -455,6 +465,7 @@ public class VCGMip {
                     .notParticipating(nonParticipating)
                     .cputime(cpuTime)
                     .walltime(watch.getElapsedTime())
+                    .encodingtime(encodingTime)
                     .build();
         }
 
@@ -0,0 +1,168 @@
+package ca.ubc.cs.beta.fcc.simulator.bidprocessing;
+
+import ca.ubc.cs.beta.fcc.simulator.feasibilityholder.IProblemMaker;
+import ca.ubc.cs.beta.fcc.simulator.solver.IFeasibilitySolver;
+import ca.ubc.cs.beta.fcc.simulator.solver.callback.SATFCCallback;
+import ca.ubc.cs.beta.fcc.simulator.solver.callback.SimulatorResult;
+import ca.ubc.cs.beta.fcc.simulator.solver.problem.ProblemType;
+import ca.ubc.cs.beta.fcc.simulator.solver.problem.SimulatorProblem;
+import ca.ubc.cs.beta.fcc.simulator.station.IStationInfo;
+import ca.ubc.cs.beta.fcc.simulator.utils.Band;
+import ca.ubc.cs.beta.stationpacking.datamanagers.constraints.IConstraintManager;
+import ca.ubc.cs.beta.stationpacking.execution.SimulatorProblemReader;
+import ca.ubc.cs.beta.stationpacking.facade.SATFCResult;
+import ca.ubc.cs.beta.stationpacking.solvers.base.SATResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SpeculativeHomeBandFeasibilityCheckerTest {
+
+    private static final int WIDTH = 2;
+
+    /**
+     * Solver that answers every problem of a station with the next of its scripted answers (repeating the last one), once all submitted problems are waited for.
+     */
+    private static class ScriptedFeasibilitySolver implements IFeasibilitySolver {
+
+        private final Map<Integer, List<SATResult>> answers;
+        private final Map<Integer, Integer> numSolved = new HashMap<>();
+        private final List<Pair<SimulatorProblem, SATFCCallback>> submitted = new ArrayList<>();
+
+        ScriptedFeasibilitySolver(Map<Integer, List<SATResult>> answers) {
+            this.answers = answers;
+        }
+
+        @Override
+        public void getFeasibility(SimulatorProblem problem, SATFCCallback callback) {
+            submitted.add(Pair.of(problem, callback));
+        }
+
+        @Override
+        public void waitForAllSubmitted() {
+            for (Pair<SimulatorProblem, SATFCCallback> problemAndCallback : submitted) {
+                final int id = problemAndCallback.getLeft().getTargetStation().getId();
+                final List<SATResult> stationAnswers = answers.get(id);
+                final int n = numSolved.merge(id, 1, Integer::sum);
+                final SATResult answer = stationAnswers.get(Math.min(n, stationAnswers.size()) - 1);
+                problemAndCallback.getRight().onSuccess(problemAndCallback.getLeft(), SimulatorResult.fromSATFCResult(new SATFCResult(answer, 1, 1, answer.equals(SATResult.SAT) ? ImmutableMap.of(id, 14) : ImmutableMap.of())));
+            }
+            submitted.clear();
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    private static class SingleStationProblemMaker implements IProblemMaker {
+
+        @Override
+        public SimulatorProblem makeProblem(IStationInfo station, Band band, ProblemType problemType, String name) {
+            final SimulatorProblemReader.SATFCProblem problem = new SimulatorProblemReader.SATFCProblem(ImmutableMap.of(station.getId(), ImmutableSet.of(14)), ImmutableMap.of());
+            return SimulatorProblem.builder()
+                    .SATFCProblem(new SimulatorProblemReader.SATFCProblemSpecification(problem, 60, null, 1, name))
+                    .band(band)
+                    .targetStation(station)
+                    .problemType(problemType)
+                    .build();
+        }
+
+        @Override
+        public SimulatorProblem makeProblem(Set<IStationInfo> stations, Band band, ProblemType problemType, IStationInfo targetStation, String name) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    private static IStationInfo station(int id, Band homeBand) {
+        final IStationInfo station = mock(IStationInfo.class);
+        when(station.getId()).thenReturn(id);
+        when(station.getHomeBand()).thenReturn(homeBand);
+        when(station.toString()).thenReturn(Integer.toString(id));
+        return station;
+    }
+
+    /**
+     * The FCC bid processing loop: commit the first station feasible in its home band, then start over.
+     * @param moves - the band each station moves from and to when its bid is committed.
+     * @return the results the loop saw, in order.
+     */
+    private static List<String> processBids(List<IStationInfo> stations, Map<IStationInfo, Pair<Band, Band>> moves, Map<Integer, List<SATResult>> answers, boolean speculative) {
+        final IFeasibilitySolver solver = new ScriptedFeasibilitySolver(answers);
+        final IProblemMaker problemMaker = new SingleStationProblemMaker();
+        final IConstraintManager constraintManager = mock(IConstraintManager.class);
+        when(constraintManager.getAllRelevantConstraints(any())).thenReturn(Collections.emptyList());
+        final SpeculativeHomeBandFeasibilityChecker checker = speculative ? new SpeculativeHomeBandFeasibilityChecker(solver, problemMaker, constraintManager, WIDTH) : null;
+
+        final List<IStationInfo> stationsToQuery = new ArrayList<>(stations);
+        final List<String> seen = new ArrayList<>();
+        boolean finished = false;
+        while (!finished) {
+            finished = true;
+            for (int i = 0; i < stationsToQuery.size(); i++) {
+                final IStationInfo station = stationsToQuery.get(i);
+                final SimulatorResult result = checker != null ? checker.getHomeBandFeasibility(stationsToQuery, i) : solver.getFeasibilityBlocking(problemMaker.makeProblem(station, station.getHomeBand(), ProblemType.BID_PROCESSING_HOME_BAND_FEASIBLE));
+                seen.add(station.getId() + ":" + result.getSATFCResult().getResult());
+                if (result.getSATFCResult().getResult().equals(SATResult.SAT)) {
+                    finished = false;
+                    if (checker != null) {
+                        checker.onBidProcessed(station, moves.get(station).getLeft(), moves.get(station).getRight());
+                    }
+                    stationsToQuery.remove(i);
+                    break;
+                }
+            }
+        }
+        return seen;
+    }
+
+    @Test
+    public void timeoutIsSolvedAgainAfterPriceOnlyCommit() {
+        final IStationInfo timedOut = station(1, Band.UHF);
+        final IStationInfo committed = station(2, Band.UHF);
+        final Map<Integer, List<SATResult>> answers = ImmutableMap.of(1, ImmutableList.of(SATResult.TIMEOUT, SATResult.SAT), 2, ImmutableList.of(SATResult.SAT));
+        final Map<IStationInfo, Pair<Band, Band>> moves = ImmutableMap.of(timedOut, Pair.of(Band.UHF, Band.UHF), committed, Pair.of(Band.UHF, Band.UHF));
+
+        final List<String> serial = processBids(ImmutableList.of(timedOut, committed), moves, answers, false);
+        assertEquals(ImmutableList.of("1:TIMEOUT", "2:SAT", "1:SAT"), serial);
+        assertEquals(serial, processBids(ImmutableList.of(timedOut, committed), moves, answers, true));
+    }
+
+    @Test
+    public void timeoutIsSolvedAgainAfterCommitOnAnotherBand() {
+        final IStationInfo timedOut = station(1, Band.UHF);
+        final IStationInfo committed = station(2, Band.HVHF);
+        final Map<Integer, List<SATResult>> answers = ImmutableMap.of(1, ImmutableList.of(SATResult.TIMEOUT, SATResult.SAT), 2, ImmutableList.of(SATResult.SAT));
+        final Map<IStationInfo, Pair<Band, Band>> moves = ImmutableMap.of(timedOut, Pair.of(Band.UHF, Band.UHF), committed, Pair.of(Band.LVHF, Band.HVHF));
+
+        final List<String> serial = processBids(ImmutableList.of(timedOut, committed), moves, answers, false);
+        assertEquals(ImmutableList.of("1:TIMEOUT", "2:SAT", "1:SAT"), serial);
+        assertEquals(serial, processBids(ImmutableList.of(timedOut, committed), moves, answers, true));
+    }
+
+    @Test
+    public void conclusiveResultsAreReused() {
+        final IStationInfo infeasible = station(1, Band.UHF);
+        final IStationInfo committed = station(2, Band.UHF);
+        final IStationInfo last = station(3, Band.UHF);
+        final Map<Integer, List<SATResult>> answers = ImmutableMap.of(1, ImmutableList.of(SATResult.UNSAT), 2, ImmutableList.of(SATResult.SAT), 3, ImmutableList.of(SATResult.SAT));
+        final Map<IStationInfo, Pair<Band, Band>> moves = ImmutableMap.of(committed, Pair.of(Band.UHF, Band.UHF), last, Pair.of(Band.UHF, Band.UHF));
+        final List<IStationInfo> stations = ImmutableList.of(infeasible, committed, last);
+
+        final List<String> serial = processBids(stations, moves, answers, false);
+        assertEquals(ImmutableList.of("1:UNSAT", "2:SAT", "1:UNSAT", "3:SAT", "1:UNSAT"), serial);
+        assertEquals(serial, processBids(stations, moves, answers, true));
+    }
+
+}